@@ -0,0 +1,126 @@
+package org.x.backend.service.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.x.backend.mapper.OmdMusicMapper;
+import org.x.backend.mapper.OmdPublicMapper;
+import org.x.backend.pojo.OmdMusicInfo;
+import org.x.backend.pojo.OmdSinger;
+import org.x.backend.pojo.OmdSuggestVO;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 搜索建议的单次查询耗时分布（p50/p99 见 JMH 输出的百分位），对比10万和100万条目下的耗时
+ * 前缀取自随机曲名的前1~3个字或1~3个拼音首字母，与线上输入框的请求相近
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class MusicSuggestServiceBenchmark {
+
+    // 生成曲名用的常用汉字
+    private static final String HAN = "爱我你的心天晴雨风花月夜星光梦想时间回忆青春远方海岸城市故事" +
+            "等待告白离开温柔孤单快乐悲伤永远路上世界少年如果一生再见情歌晚安微笑秘密";
+    private static final String INITIALS = "abcdefghjklmnopqrstwxyz";
+
+    @Param({"100000", "1000000"})
+    private int songCount;
+
+    private MusicSuggestService service;
+    private String[] prefixes;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(songCount);
+        List<OmdMusicInfo> activeMusic = new ArrayList<>(songCount);
+        Map<Long, Double> playCounts = new HashMap<>();
+        for (int i = 1; i <= songCount; i++) {
+            StringBuilder name = new StringBuilder();
+            for (int len = 2 + random.nextInt(5); len > 0; len--) {
+                name.append(HAN.charAt(random.nextInt(HAN.length())));
+            }
+            OmdMusicInfo musicInfo = new OmdMusicInfo();
+            musicInfo.setOmdMusicInfoId((long) i);
+            musicInfo.setOmdMusicInfoName(name.toString());
+            musicInfo.setOmdSingerId((long) (1 + random.nextInt(songCount / 20)));
+            musicInfo.setOmdMusicInfoStatus(1);
+            activeMusic.add(musicInfo);
+            playCounts.put((long) i, (double) random.nextInt(100_000));
+        }
+        List<OmdSinger> singers = new ArrayList<>();
+        for (int i = 1; i <= songCount / 20; i++) {
+            OmdSinger singer = new OmdSinger();
+            singer.setOmdSingerId((long) i);
+            singer.setOmdSingerName("歌手" + i);
+            singers.add(singer);
+        }
+
+        service = new MusicSuggestService();
+        ReflectionTestUtils.setField(service, "omdMusicMapper", Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{OmdMusicMapper.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("getActiveMusicInfoList")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    return activeMusic;
+                }));
+        ReflectionTestUtils.setField(service, "omdPublicMapper", Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{OmdPublicMapper.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("getAllSingerNames")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    return singers;
+                }));
+        ReflectionTestUtils.setField(service, "musicChartService", new MusicChartService() {
+            @Override
+            public Map<Long, Double> getPlayCounts(String segment, ChartWindow window) {
+                return playCounts;
+            }
+        });
+        ReflectionTestUtils.setField(service, "redisMessageListenerContainer", new RedisMessageListenerContainer() {
+            @Override
+            public void addMessageListener(MessageListener listener, Topic topic) {
+            }
+        });
+        service.init();
+        service.rebuild();
+
+        prefixes = new String[20_000];
+        for (int i = 0; i < prefixes.length; i++) {
+            String name = activeMusic.get(random.nextInt(songCount)).getOmdMusicInfoName();
+            prefixes[i] = random.nextBoolean()
+                    ? name.substring(0, 1 + random.nextInt(Math.min(3, name.length())))
+                    : INITIALS.substring(random.nextInt(20)).substring(0, 1 + random.nextInt(3));
+        }
+    }
+
+    @Benchmark
+    public List<OmdSuggestVO> suggest() {
+        String prefix = prefixes[next];
+        next = (next + 1) % prefixes.length;
+        return service.suggest(prefix, 10);
+    }
+}
@@ -0,0 +1,117 @@
+package org.x.backend.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.x.backend.config.RedisConfig;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 记录一次播放的吞吐量（次/秒）：原先逐条发送的约十条命令与现在的单次 Lua 脚本对比
+ * 需要本地 Redis，地址通过参数指定，例如 -p host=localhost -p port=6379 -p password=123456
+ * 所有键都带 jmh: 前缀，结束时删除
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class RedisUtilBenchmark {
+
+    private static final String PREFIX = "jmh:music:play:";
+    private static final long DE_DUP_SECONDS = TimeUnit.MINUTES.toSeconds(10);
+    private static final long STAT_SECONDS = TimeUnit.DAYS.toSeconds(7);
+
+    @Param("localhost")
+    private String host;
+
+    @Param("6379")
+    private int port;
+
+    @Param("")
+    private String password;
+
+    private LettuceConnectionFactory connectionFactory;
+    private RedisTemplate<String, Object> redisTemplate;
+    private RedisUtil redisUtil;
+
+    // 每次播放使用不同的去重键，保证每次都走计数路径
+    private final AtomicLong playSequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(host, port);
+        if (!password.isEmpty()) {
+            configuration.setPassword(password);
+        }
+        connectionFactory = new LettuceConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new RedisConfig().redisTemplate(connectionFactory);
+        redisUtil = new RedisUtil(redisTemplate, new StringRedisTemplate(connectionFactory));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Set<String> keys = redisTemplate.keys("jmh:*");
+        if (keys != null && !keys.isEmpty()) {
+            redisTemplate.delete(keys);
+        }
+        connectionFactory.destroy();
+    }
+
+    // 原先的 recordMusicPlayStat：hasKey + set 去重，再对总量和分段各 INCRBY/EXPIRE、ZINCRBY/EXPIRE
+    @Benchmark
+    public boolean separateCommands() {
+        long play = playSequence.incrementAndGet();
+        Long omdMusicInfoId = ThreadLocalRandom.current().nextLong(1, 1001);
+        String deDupKey = PREFIX + "dedup:" + play;
+        if (redisUtil.hasKey(deDupKey)) {
+            return false;
+        }
+        redisUtil.set(deDupKey, "1", DE_DUP_SECONDS, TimeUnit.SECONDS);
+        redisUtil.updateMusicPlayStatCount(PREFIX + "total:" + omdMusicInfoId, 1, STAT_SECONDS, TimeUnit.SECONDS);
+        redisUtil.updateTopMusic(PREFIX + "top:total", omdMusicInfoId, 1, STAT_SECONDS, TimeUnit.SECONDS);
+        redisUtil.updateMusicPlayStatCount(PREFIX + "user:" + omdMusicInfoId, 1, STAT_SECONDS, TimeUnit.SECONDS);
+        redisUtil.updateTopMusic(PREFIX + "top:user", omdMusicInfoId, 1, STAT_SECONDS, TimeUnit.SECONDS);
+        return true;
+    }
+
+    // 现在的 recordMusicPlay：去重、计数、小时桶排行和过期时间在一个脚本中完成
+    @Benchmark
+    public boolean luaScript() {
+        long play = playSequence.incrementAndGet();
+        Long omdMusicInfoId = ThreadLocalRandom.current().nextLong(1, 1001);
+        long bucketExpireAt = Instant.now().getEpochSecond() + TimeUnit.HOURS.toSeconds(1);
+        return redisUtil.recordMusicPlay(
+                PREFIX + "dedup:" + play,
+                PREFIX + "total:" + omdMusicInfoId,
+                PREFIX + "user:" + omdMusicInfoId,
+                PREFIX + "top:total:hour",
+                PREFIX + "top:user:hour",
+                omdMusicInfoId,
+                DE_DUP_SECONDS, STAT_SECONDS, bucketExpireAt);
+    }
+}
@@ -0,0 +1,87 @@
+package org.x.backend.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 敏感词扫描一条180字评论的平均耗时，对比1万和10万个敏感词下的耗时
+ * 敏感词和评论都由3000个常用区汉字随机组成，词长2~6个字
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SensitiveWordMatcherBenchmark {
+
+    @Param({"10000", "100000"})
+    private int wordCount;
+
+    private SensitiveWordMatcher matcher;
+    private String[] messages;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(wordCount);
+        char[] han = new char[3000];
+        for (int i = 0; i < han.length; i++) {
+            han[i] = (char) (0x4E00 + i);
+        }
+        List<String> words = new ArrayList<>(wordCount);
+        for (int i = 0; i < wordCount; i++) {
+            words.add(randomHan(random, han, 2 + random.nextInt(5)));
+        }
+        matcher = SensitiveWordMatcher.build(words);
+
+        messages = new String[1000];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = randomHan(random, han, 180);
+        }
+    }
+
+    /**
+     * 掩码会扫描整条评论
+     */
+    @Benchmark
+    public String mask() {
+        return matcher.mask(nextMessage(), '*');
+    }
+
+    /**
+     * 命中第一个敏感词即返回
+     */
+    @Benchmark
+    public boolean contains() {
+        return matcher.contains(nextMessage());
+    }
+
+    private String nextMessage() {
+        String message = messages[next];
+        next = (next + 1) % messages.length;
+        return message;
+    }
+
+    private static String randomHan(Random random, char[] han, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = han[random.nextInt(han.length)];
+        }
+        return new String(chars);
+    }
+}
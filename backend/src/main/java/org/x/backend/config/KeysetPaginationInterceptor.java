@@ -0,0 +1,246 @@
+package org.x.backend.config;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.Parenthesis;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.select.GroupByElement;
+import net.sf.jsqlparser.statement.select.Limit;
+import net.sf.jsqlparser.statement.select.OrderByElement;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.statement.select.Select;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.stereotype.Component;
+import org.x.backend.utils.KeysetSort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 游标（键集）分页插件
+ * 与 PageHelper 的用法类似：调用方先通过 {@link #start} 在当前线程登记排序列、上一页最后一行的排序值和条数，
+ * 紧接着执行的第一条查询会被改写为
+ * WHERE 原条件 AND (c1 &lt; ? OR (c1 = ? AND c2 &lt; ?)) ORDER BY c1 DESC, c2 DESC LIMIT n，
+ * 数据库可以直接沿排序索引定位到上一页的末尾，不再扫描并丢弃 offset 之前的行。
+ * 现有的 Mapper 查询无需修改，可带 JOIN、WITH 和 GROUP BY/HAVING；自带 LIMIT 或 UNION 等复合查询的语句不支持。
+ * 带 GROUP BY 时游标条件加在 WHERE 中、先于分组生效，因此排序列必须是分组列，不能是聚合结果。
+ */
+@Component
+@Slf4j
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class})
+})
+public class KeysetPaginationInterceptor implements Interceptor {
+
+    // 追加参数的名称前缀（放入 BoundSql 的附加参数中，避免与业务参数重名）
+    private static final String PARAM_PREFIX = "_keyset_param_";
+
+    // 当前线程待改写的分页请求
+    private static final ThreadLocal<Context> CONTEXT = new ThreadLocal<>();
+
+    private static final class Context {
+        private final KeysetSort sort;
+        private final List<Object> after;
+        private final int limit;
+        private boolean applied;
+        private String countKey;
+
+        private Context(KeysetSort sort, List<Object> after, int limit) {
+            this.sort = sort;
+            this.after = after;
+            this.limit = limit;
+        }
+    }
+
+    /**
+     * 登记下一条查询的游标分页参数
+     * @param sort 排序列
+     * @param after 上一页最后一行的排序值（与排序列一一对应），首页传null
+     * @param limit 本次最多返回的行数
+     */
+    public static void start(KeysetSort sort, List<Object> after, int limit) {
+        CONTEXT.set(new Context(sort, after, limit));
+    }
+
+    /**
+     * 结束本次分页并清理线程变量
+     * @return 被改写查询的统计键（Mapper 语句ID + 原始参数值），未执行查询时返回null
+     */
+    public static String finish() {
+        Context context = CONTEXT.get();
+        CONTEXT.remove();
+        return context == null ? null : context.countKey;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Context context = CONTEXT.get();
+        // 只改写登记后的第一条查询，关联的嵌套查询保持原样
+        if (context == null || context.applied) {
+            return invocation.proceed();
+        }
+        context.applied = true;
+
+        Object[] args = invocation.getArgs();
+        MappedStatement ms = (MappedStatement) args[0];
+        Object parameter = args[1];
+        RowBounds rowBounds = (RowBounds) args[2];
+        ResultHandler<?> resultHandler = (ResultHandler<?>) args[3];
+        Executor executor = (Executor) invocation.getTarget();
+        BoundSql boundSql = args.length == 6 ? (BoundSql) args[5] : ms.getBoundSql(parameter);
+
+        Configuration configuration = ms.getConfiguration();
+        context.countKey = buildCountKey(ms, configuration, parameter, boundSql);
+
+        BoundSql keysetBoundSql = rewrite(configuration, boundSql, context);
+        CacheKey cacheKey = executor.createCacheKey(ms, parameter, rowBounds, keysetBoundSql);
+        return executor.query(ms, parameter, rowBounds, resultHandler, cacheKey, keysetBoundSql);
+    }
+
+    // 改写SQL并在原参数中的正确位置插入游标参数
+    private BoundSql rewrite(Configuration configuration, BoundSql boundSql, Context context) throws JSQLParserException {
+        Statement statement = CCJSqlParserUtil.parse(boundSql.getSql());
+        if (!(statement instanceof Select select) || !(select.getSelectBody() instanceof PlainSelect plainSelect)) {
+            throw new RuntimeException("游标分页只支持单个SELECT语句");
+        }
+        if (plainSelect.getLimit() != null || plainSelect.getOffset() != null) {
+            throw new RuntimeException("游标分页的查询不能自带LIMIT");
+        }
+        List<OrderByElement> originalOrderBy = plainSelect.getOrderByElements();
+        if (originalOrderBy != null && countPlaceholders(originalOrderBy.toString()) > 0) {
+            throw new RuntimeException("游标分页的查询排序中不能包含参数");
+        }
+
+        // 游标条件追加在 WHERE 末尾，其参数位于 WITH/SELECT/FROM/JOIN/WHERE 的参数之后、GROUP BY/HAVING 的参数之前
+        // 按整条语句统计，WITH 子查询中的参数也计算在内
+        GroupByElement groupBy = plainSelect.getGroupBy();
+        Expression having = plainSelect.getHaving();
+        plainSelect.setGroupByElement(null);
+        plainSelect.setHaving(null);
+        plainSelect.setOrderByElements(null);
+        int insertAt = countPlaceholders(select.toString());
+        plainSelect.setGroupByElement(groupBy);
+        plainSelect.setHaving(having);
+
+        List<KeysetSort.Column> columns = context.sort.getColumns();
+        List<Object> values = new ArrayList<>();
+        if (context.after != null) {
+            if (context.after.size() != columns.size()) {
+                throw new RuntimeException("游标与排序列不匹配");
+            }
+            Expression seek = CCJSqlParserUtil.parseCondExpression(buildSeekCondition(columns, context.after, values));
+            Expression where = plainSelect.getWhere();
+            plainSelect.setWhere(where == null ? seek : new AndExpression(new Parenthesis(where), seek));
+        }
+
+        List<OrderByElement> orderBy = new ArrayList<>(columns.size());
+        for (KeysetSort.Column column : columns) {
+            OrderByElement element = new OrderByElement();
+            element.setExpression(CCJSqlParserUtil.parseExpression(column.column()));
+            element.setAsc(column.ascending());
+            element.setAscDescPresent(true);
+            orderBy.add(element);
+        }
+        plainSelect.setOrderByElements(orderBy);
+
+        Limit limit = new Limit();
+        limit.setRowCount(new LongValue(context.limit));
+        plainSelect.setLimit(limit);
+
+        List<ParameterMapping> mappings = new ArrayList<>(boundSql.getParameterMappings());
+        List<ParameterMapping> seekMappings = new ArrayList<>(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            seekMappings.add(new ParameterMapping.Builder(configuration, PARAM_PREFIX + i, values.get(i).getClass()).build());
+        }
+        mappings.addAll(insertAt, seekMappings);
+
+        BoundSql keysetBoundSql = new BoundSql(configuration, select.toString(), mappings, boundSql.getParameterObject());
+        boundSql.getAdditionalParameters().forEach(keysetBoundSql::setAdditionalParameter);
+        for (int i = 0; i < values.size(); i++) {
+            keysetBoundSql.setAdditionalParameter(PARAM_PREFIX + i, values.get(i));
+        }
+        return keysetBoundSql;
+    }
+
+    // 生成 (c1 > ?) OR (c1 = ? AND c2 > ?) ... 形式的条件，按占位符顺序收集参数值
+    private String buildSeekCondition(List<KeysetSort.Column> columns, List<Object> after, List<Object> values) {
+        StringBuilder condition = new StringBuilder("(");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                condition.append(" OR ");
+            }
+            condition.append('(');
+            for (int j = 0; j < i; j++) {
+                condition.append(columns.get(j).column()).append(" = ? AND ");
+                values.add(after.get(j));
+            }
+            KeysetSort.Column column = columns.get(i);
+            condition.append(column.column()).append(column.ascending() ? " > ?" : " < ?").append(')');
+            values.add(after.get(i));
+        }
+        return condition.append(')').toString();
+    }
+
+    // 统计SQL中的占位符数量（跳过字符串常量）
+    private int countPlaceholders(String sql) {
+        int count = 0;
+        char quote = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            } else if (c == '?') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // 统计键：同一条语句、同样的参数共享一个总数缓存
+    private String buildCountKey(MappedStatement ms, Configuration configuration, Object parameter, BoundSql boundSql) {
+        StringBuilder key = new StringBuilder(ms.getId());
+        MetaObject metaObject = null;
+        for (ParameterMapping mapping : boundSql.getParameterMappings()) {
+            String property = mapping.getProperty();
+            Object value;
+            if (boundSql.hasAdditionalParameter(property)) {
+                value = boundSql.getAdditionalParameter(property);
+            } else if (parameter == null) {
+                value = null;
+            } else if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameter.getClass())) {
+                value = parameter;
+            } else {
+                if (metaObject == null) {
+                    metaObject = configuration.newMetaObject(parameter);
+                }
+                value = metaObject.getValue(property);
+            }
+            key.append(':').append(Objects.toString(value));
+        }
+        return key.toString();
+    }
+}
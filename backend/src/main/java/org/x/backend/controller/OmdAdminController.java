@@ -1,8 +1,10 @@
 package org.x.backend.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.x.backend.pojo.*;
@@ -10,10 +12,14 @@ import org.x.backend.service.OmdAdminService;
 import org.x.backend.service.OmdMusicService;
 import org.x.backend.service.OmdPublicService;
 import org.x.backend.service.OmdUserService;
+import org.x.backend.service.impl.AdminExportService;
 import org.x.backend.service.impl.TransactionAdminService;
 import org.x.backend.utils.HelperUtil;
+import org.x.backend.utils.KeysetSort;
 import org.x.backend.utils.OperationTargetTypeUtil;
 
+import java.io.IOException;
+import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -34,6 +40,9 @@ public class OmdAdminController {
     @Autowired
     private TransactionAdminService transactionAdminService;
 
+    @Autowired
+    private AdminExportService adminExportService;
+
     @Autowired
     private HelperUtil helperUtil;
     @Autowired
@@ -85,6 +94,19 @@ public class OmdAdminController {
         return Result.success(omdUserInfoList);
     }
 
+    /**
+     * 流式导出所有用户信息
+     * @param format 导出格式（csv / ndjson）
+     * @param response 响应
+     */
+    @GetMapping("exportUsers")
+    public void exportUsers(@RequestParam(value = "format", defaultValue = "csv") String format,
+                            HttpServletResponse response) throws IOException {
+        AdminExportService.Format exportFormat = AdminExportService.Format.of(format);
+        prepareExportResponse(response, exportFormat, "users");
+        adminExportService.exportUsers(exportFormat, response.getOutputStream());
+    }
+
     /**
      * 根据用户名获取用户信息
      * @param omdUserName 用户名
@@ -148,6 +170,41 @@ public class OmdAdminController {
     }
 
 
+    /**
+     * 游标分页获取所有音乐信息
+     * @param cursor 上一页返回的游标，首页不传
+     * @param pageSize 每页大小
+     * @return 音乐信息、下一页游标和近似总数
+     */
+    @GetMapping("/getAllMusicInfoPage")
+    public Result<CursorPageBean<OmdMusicInfo>> getAllMusicInfoPage(@RequestParam(value = "cursor", required = false) String cursor,
+                                                                   @RequestParam(value = "pageSize", required = false) Integer pageSize) {
+
+        // 执行游标分页查询
+        CursorPageBean<OmdMusicInfo> musicInfoPage = helperUtil.executeKeysetQuery(
+                cursor,
+                pageSize,
+                KeysetSort.desc("m.omd_music_info_create_time").thenDesc("m.omd_music_info_id"),
+                () -> omdMusicService.getAllMusicInfoList()
+        );
+
+        return Result.success(musicInfoPage);
+    }
+
+
+    /**
+     * 流式导出所有音乐信息
+     * @param format 导出格式（csv / ndjson）
+     * @param response 响应
+     */
+    @GetMapping("/exportMusicInfo")
+    public void exportMusicInfo(@RequestParam(value = "format", defaultValue = "csv") String format,
+                                HttpServletResponse response) throws IOException {
+        AdminExportService.Format exportFormat = AdminExportService.Format.of(format);
+        prepareExportResponse(response, exportFormat, "music");
+        adminExportService.exportMusicInfo(exportFormat, response.getOutputStream());
+    }
+
     /**
      * 获取待审核的音乐信息
      * @param pageNum 页码
@@ -537,6 +594,14 @@ public class OmdAdminController {
         }
     }
 
+    // 设置导出响应头：按附件下载，文件名带日期
+    private void prepareExportResponse(HttpServletResponse response, AdminExportService.Format format, String name) {
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + "-"
+                + new SimpleDateFormat("yyyyMMdd").format(new Date()) + "." + format.getExtension() + "\"");
+    }
+
     /**
      * 获取所有管理员信息
      * @param pageNum 页码
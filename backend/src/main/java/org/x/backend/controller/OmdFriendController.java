@@ -11,6 +11,7 @@ import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.x.backend.pojo.*;
+import org.x.backend.service.impl.SensitiveWordService;
 import org.x.backend.service.impl.TransactionFriendService;
 import org.x.backend.service.OmdFriendService;
 import org.x.backend.utils.HelperUtil;
@@ -46,6 +47,10 @@ public class OmdFriendController {
     @Autowired
     private RedisUtil redisUtil;
 
+    // 敏感词过滤服务
+    @Autowired
+    private SensitiveWordService sensitiveWordService;
+
     /**
      * 获取好友状态
      * @param omdFriendUserId 要查询的好友ID
@@ -261,6 +266,8 @@ public class OmdFriendController {
         if (StringUtils.isBlank(omdMessage.getOmdMessageContent())) {
             return Result.error("消息内容不能为空");
         }
+        // 屏蔽敏感词（落库和推送的都是屏蔽后的内容）
+        omdMessage.setOmdMessageContent(sensitiveWordService.mask(omdMessage.getOmdMessageContent(), "message"));
 
         log.info("设置了用户ID的消息对象: {}", omdMessage);
         if (!omdFriendService.sendMessage(omdMessage)){
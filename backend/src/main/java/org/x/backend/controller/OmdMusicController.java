@@ -1,17 +1,30 @@
 package org.x.backend.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.x.backend.pojo.*;
 import org.x.backend.service.impl.CosService;
+import org.x.backend.service.impl.PlaylistCacheService;
+import org.x.backend.service.impl.PlaylistOrderService;
 import org.x.backend.service.impl.TransactionMusicService;
 import org.x.backend.service.OmdMusicService;
 import org.x.backend.utils.CosTagsUtil;
 import org.x.backend.utils.HelperUtil;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -33,10 +46,26 @@ public class OmdMusicController {
     @Autowired
     private TransactionMusicService transactionMusicService;
 
+    // 播放列表顺序号服务
+    @Autowired
+    private PlaylistOrderService playlistOrderService;
+
+    // 播放列表内容缓存
+    @Autowired
+    private PlaylistCacheService playlistCacheService;
+
+
     // HelperUtil工具类
     @Autowired
     private HelperUtil helperUtil;
 
+    // JSON 序列化（流式输出播放列表时使用）
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // 游标分页每页最大条数
+    private static final int MAX_PAGE_SIZE = 200;
+
     /**
      * 音乐信息点赞
      * @param omdMusicInfoId 音乐信息id
@@ -45,11 +74,10 @@ public class OmdMusicController {
     @PostMapping("/insertLikeMusicInfo")
     public Result<String> insertLikeMusicInfo(@RequestParam("omdMusicInfoId") Long omdMusicInfoId) {
 
-        if (omdMusicService.checkIfLiked(omdMusicInfoId, helperUtil.getCurrentUserId()) != null) {
+        // 调用事务服务层（幂等，重复点赞不会重复计数）
+        if (!transactionMusicService.insertLikeMusicInfo(omdMusicInfoId, helperUtil.getCurrentUserId())) {
             return Result.success("已经点赞过了");
         }
-        // 调用事务服务层
-        transactionMusicService.insertLikeMusicInfo(omdMusicInfoId, helperUtil.getCurrentUserId());
         return Result.success("点赞成功");
     }
 
@@ -63,23 +91,111 @@ public class OmdMusicController {
         if (omdMusicInfoId == null) {
             return Result.error("音乐信息为空");
         }
-        // 调用事务服务层
-        transactionMusicService.deleteLikeMusicInfo(omdMusicInfoId, helperUtil.getCurrentUserId());
+        // 调用事务服务层（幂等，重复取消不会重复计数）
+        if (!transactionMusicService.deleteLikeMusicInfo(omdMusicInfoId, helperUtil.getCurrentUserId())) {
+            return Result.success("尚未点赞");
+        }
         return Result.success("取消点赞成功");
     }
 
     /**
      * 获取歌单里面的音乐信息
+     * 响应按歌单版本缓存，客户端携带的 ETag 与当前版本一致时返回304，不查询数据库
      * @param omdPlaylistId 歌单ID
-     * @return 音乐信息
+     * @param ifNoneMatch 客户端缓存的ETag
+     * @return 音乐信息（JSON），未变化时返回304
      */
     @GetMapping("/getMusicListFromPlaylist")
-    public Result<List<OmdPlaylistMusic>> getMusicListFromPlaylist(@RequestParam("omdPlaylistId") Long omdPlaylistId) {
-        if (omdPlaylistId == null) {
-            return Result.error("歌单ID为空");
+    public ResponseEntity<byte[]> getMusicListFromPlaylist(@RequestParam("omdPlaylistId") Long omdPlaylistId,
+                                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = playlistCacheService.currentEtag(omdPlaylistId);
+        if (ifNoneMatch != null && ifNoneMatch.contains(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        PlaylistCacheService.Snapshot snapshot = playlistCacheService.getSnapshot(omdPlaylistId, etag, "all",
+                () -> omdMusicService.getMusicListFromPlaylist(omdPlaylistId));
+        return toResponse(snapshot);
+    }
+
+    /**
+     * 游标分页获取歌单里面的音乐信息
+     * 游标为上一页最后一首的“顺序号_关联ID”，翻页不使用 OFFSET，深翻页与第一页代价相同；每一页同样按歌单版本缓存并支持304
+     * @param omdPlaylistId 歌单ID
+     * @param cursor 上一页返回的 nextCursor，不传表示第一页
+     * @param limit 每页条数
+     * @param ifNoneMatch 客户端缓存的ETag
+     * @return 当前页音乐信息和下一页游标（JSON），未变化时返回304
+     */
+    @GetMapping("/getMusicPageFromPlaylist")
+    public ResponseEntity<byte[]> getMusicPageFromPlaylist(@RequestParam("omdPlaylistId") Long omdPlaylistId,
+                                                           @RequestParam(value = "cursor", required = false) String cursor,
+                                                           @RequestParam(value = "limit", defaultValue = "50") Integer limit,
+                                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (limit == null || limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new RuntimeException("每页条数须在1到" + MAX_PAGE_SIZE + "之间");
+        }
+        Integer afterOrder = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            int separator = cursor.lastIndexOf('_');
+            try {
+                afterOrder = Integer.valueOf(cursor.substring(0, separator));
+                afterId = Long.valueOf(cursor.substring(separator + 1));
+            } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+                throw new RuntimeException("游标格式错误");
+            }
+        }
+
+        String etag = playlistCacheService.currentEtag(omdPlaylistId);
+        if (ifNoneMatch != null && ifNoneMatch.contains(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        Integer pageAfterOrder = afterOrder;
+        Long pageAfterId = afterId;
+        PlaylistCacheService.Snapshot snapshot = playlistCacheService.getSnapshot(omdPlaylistId, etag,
+                "page:" + afterOrder + "_" + afterId + ":" + limit, () -> {
+                    // 多查一条用于判断是否还有下一页
+                    List<OmdPlaylistMusic> items = omdMusicService.getMusicPageFromPlaylist(omdPlaylistId, pageAfterOrder, pageAfterId, limit + 1);
+                    String nextCursor = null;
+                    if (items.size() > limit) {
+                        items = items.subList(0, limit);
+                        OmdPlaylistMusic last = items.get(limit - 1);
+                        nextCursor = last.getOmdPlaylistMusicOrder() + "_" + last.getOmdPlaylistMusicId();
+                    }
+                    return new CursorPageBean<>(items, nextCursor);
+                });
+        return toResponse(snapshot);
+    }
+
+    /**
+     * 流式获取歌单里面的全部音乐信息
+     * 响应格式与 getMusicListFromPlaylist 相同，但逐行从数据库读取并写出，内存占用与歌单大小无关
+     * @param omdPlaylistId 歌单ID
+     * @param response 响应
+     */
+    @GetMapping("/streamMusicListFromPlaylist")
+    public void streamMusicListFromPlaylist(@RequestParam("omdPlaylistId") Long omdPlaylistId,
+                                            HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        // 每首歌写完后不刷新输出流，由生成器和容器的缓冲区攒满后再发送
+        ObjectWriter trackWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.writeStartObject();
+            generator.writeNumberField("code", 0);
+            generator.writeStringField("message", "操作成功");
+            generator.writeArrayFieldStart("data");
+            omdMusicService.streamMusicListFromPlaylist(omdPlaylistId, omdPlaylistMusic -> {
+                try {
+                    trackWriter.writeValue(generator, omdPlaylistMusic);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+            generator.writeNullField("errors");
+            generator.writeEndObject();
         }
-        List<OmdPlaylistMusic> omdPlaylistMusicList = omdMusicService.getMusicListFromPlaylist(omdPlaylistId);
-        return Result.success(omdPlaylistMusicList);
     }
 
     /**
@@ -141,8 +257,6 @@ public class OmdMusicController {
         if (omdPlaylist == null) {
             return Result.error("加入失败：播放列表不存在");
         }
-        // 获取播放列表中当前最大的顺序号
-        int maxOrder = omdMusicService.getMaxPlaylistMusicOrder(omdPlaylist.getOmdPlaylistId());
         // 校验歌曲是否已经存在于播放列表中
         if (omdMusicService.checkIfMusicExistInPlaylist(omdPlaylist.getOmdPlaylistId(), omdMusicInfoId) != null) {
             return Result.error("加入失败：歌曲已存在于播放列表中");
@@ -151,7 +265,8 @@ public class OmdMusicController {
         OmdPlaylistMusic omdPlaylistMusic = new OmdPlaylistMusic();
         omdPlaylistMusic.setOmdMusicInfoId(omdMusicInfoId);
         omdPlaylistMusic.setOmdPlaylistId(omdPlaylist.getOmdPlaylistId());
-        omdPlaylistMusic.setOmdPlaylistMusicOrder(maxOrder + 1);
+        // 顺序号从计数器领取，追加到末尾
+        omdPlaylistMusic.setOmdPlaylistMusicOrder(playlistOrderService.nextOrder(omdPlaylist.getOmdPlaylistId()));
         if (!omdMusicService.insertLikePlaylistMusic(omdPlaylistMusic)){
             return Result.error("加入失败：加入播放列表失败");
         }
@@ -192,19 +307,23 @@ public class OmdMusicController {
 
         // 获取当前播放列表已存在的音乐ID
         Set<Long> existingMusicIds = omdMusicService.getExistingMusicIdsByPlaylistId(omdPlaylist.getOmdPlaylistId());
-        // 获取播放列表中当前最大的顺序号
-        int maxOrder = omdMusicService.getMaxPlaylistMusicOrder(omdPlaylist.getOmdPlaylistId());
-        List<OmdPlaylistMusic> insertOmdPlaylistMusicLists = new ArrayList<>();
         // 将传入的音乐ID列表与已存在的音乐ID列表进行比较，找出新增的音乐ID
-        int i = 1;
-        for (Long omdMusicInfoId : omdMusicInfoIdList) {
-            if (!existingMusicIds.contains(omdMusicInfoId)) {
-                OmdPlaylistMusic omdPlaylistMusic = new OmdPlaylistMusic();
-                omdPlaylistMusic.setOmdMusicInfoId(omdMusicInfoId);
-                omdPlaylistMusic.setOmdPlaylistId(omdPlaylist.getOmdPlaylistId());
-                omdPlaylistMusic.setOmdPlaylistMusicOrder(maxOrder + i);
-                insertOmdPlaylistMusicLists.add(omdPlaylistMusic);
-            }
+        List<Long> newMusicIds = omdMusicInfoIdList.stream()
+                .distinct()
+                .filter(omdMusicInfoId -> !existingMusicIds.contains(omdMusicInfoId))
+                .collect(Collectors.toList());
+        if (newMusicIds.isEmpty()) {
+            return Result.success("加入播放列表成功");
+        }
+        // 一次领取全部新增歌曲的顺序号，按传入顺序追加到末尾
+        int[] orders = playlistOrderService.nextOrders(omdPlaylist.getOmdPlaylistId(), newMusicIds.size());
+        List<OmdPlaylistMusic> insertOmdPlaylistMusicLists = new ArrayList<>();
+        for (int i = 0; i < newMusicIds.size(); i++) {
+            OmdPlaylistMusic omdPlaylistMusic = new OmdPlaylistMusic();
+            omdPlaylistMusic.setOmdMusicInfoId(newMusicIds.get(i));
+            omdPlaylistMusic.setOmdPlaylistId(omdPlaylist.getOmdPlaylistId());
+            omdPlaylistMusic.setOmdPlaylistMusicOrder(orders[i]);
+            insertOmdPlaylistMusicLists.add(omdPlaylistMusic);
         }
 
         // 批量插入音乐到播放列表
@@ -215,6 +334,22 @@ public class OmdMusicController {
         return Result.success("加入播放列表成功");
     }
 
+    /**
+     * 调整播放列表中歌曲的顺序
+     * @param omdPlaylistId 播放列表ID
+     * @param omdMusicInfoId 要移动的音乐ID
+     * @param afterMusicInfoId 移动到该音乐之后，不传表示移动到最前面
+     * @return 结果
+     */
+    @PostMapping("/movePlaylistMusic")
+    public Result<String> movePlaylistMusic(@RequestParam("omdPlaylistId") Long omdPlaylistId,
+                                            @RequestParam("omdMusicInfoId") Long omdMusicInfoId,
+                                            @RequestParam(value = "afterMusicInfoId", required = false) Long afterMusicInfoId) {
+        // 调用事务服务层
+        transactionMusicService.movePlaylistMusic(omdPlaylistId, omdMusicInfoId, afterMusicInfoId, helperUtil.getCurrentUserId());
+        return Result.success("调整歌曲顺序成功");
+    }
+
     /**
      * 根据传入的播放列表ID和音乐ID删除播放列表音乐
      * @param omdPlaylistName 播放列表
@@ -272,4 +407,11 @@ public class OmdMusicController {
         return Result.success("删除播放列表成功");
     }
 
+    // 输出缓存的播放列表响应
+    private ResponseEntity<byte[]> toResponse(PlaylistCacheService.Snapshot snapshot) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(snapshot.etag())
+                .body(snapshot.body());
+    }
 }
@@ -5,22 +5,35 @@ import com.github.pagehelper.PageHelper;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.x.backend.pojo.*;
 import org.x.backend.service.OmdMusicService;
 import org.x.backend.service.OmdPublicService;
 import org.x.backend.service.OmdUserService;
+import org.x.backend.exception.TooManyRequestsException;
 import org.x.backend.service.impl.CosVerifyCodeService;
+import org.x.backend.service.impl.ChartSnapshotService;
+import org.x.backend.service.impl.CommentTreeService;
+import org.x.backend.service.impl.MusicChartService;
+import org.x.backend.service.impl.MusicLikeCounterService;
+import org.x.backend.service.impl.MusicPlayStatWriter;
+import org.x.backend.service.impl.MusicSearchIndexService;
+import org.x.backend.service.impl.MusicSuggestService;
+import org.x.backend.service.impl.PasswordHashService;
+import org.x.backend.service.impl.SingerSampleService;
 import org.x.backend.service.impl.TransactionPublicService;
+import org.x.backend.service.impl.UserMusicLikeCacheService;
 import org.x.backend.utils.HelperUtil;
 import org.x.backend.utils.JwtUtil;
-import org.x.backend.utils.RedisUtil;
+import org.x.backend.utils.KeysetSort;
+import org.x.backend.utils.LoginRateLimiter;
 
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -50,17 +63,53 @@ public class OmdPublicController {
     @Autowired
     private TransactionPublicService transactionPublicService;
 
-    // 密码加密器
+    // 密码哈希服务（独立线程池执行BCrypt）
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashService passwordHashService;
 
-    // HelperUtil工具类
+    // 登录限流器
     @Autowired
-    private HelperUtil helperUtil;
+    private LoginRateLimiter loginRateLimiter;
+
+    // 播放流水批量写入服务
+    @Autowired
+    private MusicPlayStatWriter musicPlayStatWriter;
+
+    // 音乐播放排行榜服务
+    @Autowired
+    private MusicChartService musicChartService;
+
+    // 排行榜快照服务
+    @Autowired
+    private ChartSnapshotService chartSnapshotService;
+
+    // 音乐点赞计数服务
+    @Autowired
+    private MusicLikeCounterService musicLikeCounterService;
+
+    // 用户已点赞音乐集合缓存服务
+    @Autowired
+    private UserMusicLikeCacheService userMusicLikeCacheService;
+
+    // 音乐搜索倒排索引服务
+    @Autowired
+    private MusicSearchIndexService musicSearchIndexService;
+
+    // 搜索建议服务
+    @Autowired
+    private MusicSuggestService musicSuggestService;
+
+    // 随机歌手抽样服务
+    @Autowired
+    private SingerSampleService singerSampleService;
 
-    // RedisUtil工具类
+    // 评论树加载服务（批量加载子评论）
     @Autowired
-    private RedisUtil redisUtil;
+    private CommentTreeService commentTreeService;
+
+    // HelperUtil工具类
+    @Autowired
+    private HelperUtil helperUtil;
 
     // JwtUtil工具类
     @Autowired
@@ -73,7 +122,12 @@ public class OmdPublicController {
      * @return 注册结果
      */
     @PostMapping("/register")
-    public Result register(@RequestBody @Validated OmdUser omdUser){
+    public Result register(@RequestBody @Validated OmdUser omdUser, HttpServletRequest request){
+        // 限流：在查询数据库和密码加密之前拦截突发请求
+        if (!loginRateLimiter.tryAcquireAll("register:ip:" + helperUtil.getClientIp(request))) {
+            throw new TooManyRequestsException("请求过于频繁，请稍后再试");
+        }
+
         OmdUser existingOmdUser;
 
         // 查询用户名是否已被注册过
@@ -89,7 +143,7 @@ public class OmdPublicController {
         }
 
         // 密码加密
-        String encodedPassword = passwordEncoder.encode(omdUser.getOmdUserPassword());
+        String encodedPassword = passwordHashService.encode(omdUser.getOmdUserPassword());
         omdUser.setOmdUserPassword(encodedPassword);
 
         // 注册用户
@@ -106,13 +160,19 @@ public class OmdPublicController {
      */
     @PostMapping("/loginByUsernameOrPhone")
     public Result<String> loginByUsername(@RequestParam("identifier") String identifier,
-                                          @RequestParam("omdUserPassword") String omdUserPassword){
+                                          @RequestParam("omdUserPassword") String omdUserPassword,
+                                          HttpServletRequest request){
 
         // 验证输入格式
         if (!helperUtil.isValidIdentifier(identifier)) {
             return Result.error("用户名或手机号格式不正确");
         }
 
+        // 限流：按标识和IP分别限流，在查询数据库和校验密码之前拦截暴力破解
+        if (!loginRateLimiter.tryAcquireAll("login:id:" + identifier, "login:ip:" + helperUtil.getClientIp(request))) {
+            throw new TooManyRequestsException("登录尝试过于频繁，请稍后再试");
+        }
+
         // 查询用户
         OmdUser loginUser = omdUserService.findByUsernameOrPhone(identifier);
         if (loginUser == null) {
@@ -125,7 +185,7 @@ public class OmdPublicController {
         }
 
         // 判断密码是否正确
-        if (!passwordEncoder.matches(omdUserPassword,loginUser.getOmdUserPassword())){
+        if (!passwordHashService.matches(omdUserPassword,loginUser.getOmdUserPassword())){
             return Result.error("密码错误");
         }
 
@@ -177,7 +237,7 @@ public class OmdPublicController {
             OmdUser loginUser = new OmdUser();
             loginUser.setOmdUserPhone(omdUserPhone);
             loginUser.setOmdUserName(helperUtil.generateUsername(omdUserPhone));
-            loginUser.setOmdUserPassword(passwordEncoder.encode(UUID.randomUUID().toString())); // 根据UUID格式生成随机密码
+            loginUser.setOmdUserPassword(passwordHashService.encode(UUID.randomUUID().toString())); // 根据UUID格式生成随机密码
             omdUserService.register(loginUser);
 
             // 生成token并存入redis
@@ -252,13 +312,10 @@ public class OmdPublicController {
         Long omdUserId = null;
         if (isGuest == 0) {
             // 非游客，从请求头中获取用户ID
-            // 获取token
-            String token = helperUtil.getTokenFromRequest(request);
-            // 验证token
-            if (token == null || !jwtUtil.validateToken(token)) {
+            // 解析token（只解析一次）
+            omdUserId = helperUtil.getUserIdFromRequest(request);
+            if (omdUserId == null) {
                 return Result.error("请求头未携带有效的token");
-            }else {
-                omdUserId = jwtUtil.getUserIdFromJWT(token);
             }
         }
 
@@ -278,66 +335,46 @@ public class OmdPublicController {
             return Result.error("无效的用户状态");
         }
 
-        // 检查是否在去重时间窗口内已经播放过
-        if (redisUtil.hasKey(deDupKey)) {
+        // 1. 更新 Redis 计数器（同步处理，保障实时性）
+        // 去重、播放量计数及当前小时的排行桶在一次往返中原子更新
+        boolean counted = musicChartService.recordPlay(omdMusicInfoId, isGuest == 1, deDupKey);
+        if (!counted) {
             // 10分钟内已存在播放记录，跳过统计
             return Result.success("已记录播放，跳过重复");
         }
 
-        // 设置去重标记（10分钟有效期）
-        redisUtil.set(deDupKey, "1", 10, TimeUnit.MINUTES); // 10分钟
-
-        // 1. 写入 MySQL 流水表（异步处理，避免阻塞）
-        CompletableFuture.runAsync(() -> {
-            OmdMusicPlayStat omdMusicPlayStat = new OmdMusicPlayStat();
-            omdMusicPlayStat.setOmdMusicInfoId(omdMusicInfoId);
-            omdMusicPlayStat.setOmdUserId(finalOmdUserId);
-            omdMusicPlayStat.setOmdMusicPlayStatIsGuest(isGuest);
-            omdMusicPlayStat.setOmdMusicPlayStatGuestUuid(guestUuid);
-            omdPublicService.addMusicPlayStat(omdMusicPlayStat);
-        });
-
-        // 2. 更新 Redis 计数器（同步处理，保障实时性）
-        // 同步更新Redis
-        String totalKey = "music:play:total:" + omdMusicInfoId;
-        String topTotalKey = "music:play:top:total";
-
-        // 总播放量+1
-        redisUtil.updateMusicPlayStatCount(totalKey, 1, 7, TimeUnit.DAYS);
-        redisUtil.updateTopMusic(topTotalKey, omdMusicInfoId, 1, 7, TimeUnit.DAYS);
-
-        if (isGuest == 1) {
-            // 游客播放量
-            String guestKey = "music:play:guest:" + omdMusicInfoId;
-            String topGuestKey = "music:play:top:guest";
-            redisUtil.updateMusicPlayStatCount(guestKey, 1, 7, TimeUnit.DAYS);
-            redisUtil.updateTopMusic(topGuestKey, omdMusicInfoId, 1, 7, TimeUnit.DAYS);
-        } else {
-            // 用户播放量
-            String userKey = "music:play:user:" + omdMusicInfoId;
-            String topUserKey = "music:play:top:user";
-            redisUtil.updateMusicPlayStatCount(userKey, 1, 7, TimeUnit.DAYS);
-            redisUtil.updateTopMusic(topUserKey, omdMusicInfoId, 1, 7, TimeUnit.DAYS);
-        }
+        // 2. 写入 MySQL 流水表（进入批量写入队列，避免阻塞）
+        OmdMusicPlayStat omdMusicPlayStat = new OmdMusicPlayStat();
+        omdMusicPlayStat.setOmdMusicInfoId(omdMusicInfoId);
+        omdMusicPlayStat.setOmdUserId(finalOmdUserId);
+        omdMusicPlayStat.setOmdMusicPlayStatIsGuest(isGuest);
+        omdMusicPlayStat.setOmdMusicPlayStatGuestUuid(guestUuid);
+        musicPlayStatWriter.submit(omdMusicPlayStat);
 
         return Result.success("记录成功");
     }
 
     /**
      * 获取音乐播放量排行
-     * @param omdMusicLimit 前N名
+     * @param omdMusicLimit 前N名（1~100）
+     * @param window 时间窗口（24h、7d、30d）
      * @return 播放量
      */
     @GetMapping("/getTopMusic")
-    public Result<Map<String, Object>> getTopMusic(@RequestParam(value = "omdMusicLimit", defaultValue = "10") int omdMusicLimit) {
+    public Result<Map<String, Object>> getTopMusic(@RequestParam(value = "omdMusicLimit", defaultValue = "10") int omdMusicLimit,
+                                                   @RequestParam(value = "window", defaultValue = "7d") String window) {
+        MusicChartService.ChartWindow chartWindow = MusicChartService.ChartWindow.fromCode(window);
+        if (chartWindow == null) {
+            return Result.error("不支持的时间窗口");
+        }
         Map<String, Object> result = new HashMap<>();
 
         // 获取总榜TOP10
-        result.put("total", redisUtil.getTopMusic("music:play:top:total", omdMusicLimit));
+        result.put("total", musicChartService.getTopMusic(MusicChartService.SEGMENT_TOTAL, chartWindow, omdMusicLimit));
         // 获取游客榜TOP10
-        result.put("guest", redisUtil.getTopMusic("music:play:top:guest", omdMusicLimit));
+        result.put("guest", musicChartService.getTopMusic(MusicChartService.SEGMENT_GUEST, chartWindow, omdMusicLimit));
         // 获取用户榜TOP10
-        result.put("user", redisUtil.getTopMusic("music:play:top:user", omdMusicLimit));
+        result.put("user", musicChartService.getTopMusic(MusicChartService.SEGMENT_USER, chartWindow, omdMusicLimit));
 
         return Result.success(result);
     }
@@ -347,66 +384,47 @@ public class OmdPublicController {
      * 包括音乐名称、歌手、封面等
      * 用于前端展示
      * 只返回前N名
-     * @param omdMusicLimit 前N名
-     * @return 排行榜数据
+     * @param omdMusicLimit 前N名（1~100）
+     * @param window 时间窗口（24h、7d、30d）
+     * @param ifNoneMatch 客户端缓存的ETag
+     * @return 排行榜数据（JSON），未变化时返回304
      */
     @GetMapping("/getTopMusicInfoList")
-    public Result<Map<String, Object>> getTopMusicInfoList(@RequestParam(value = "omdMusicLimit", defaultValue = "10") int omdMusicLimit) {
-        Map<String, Object> result = new HashMap<>();
-
-        // 获取总榜TOP N
-        List<OmdMusicTopVO> totalTopMusic = redisUtil.getTopMusic("music:play:top:total", omdMusicLimit);
-        if (!totalTopMusic.isEmpty()) {
-            List<Long> totalMusicIds = totalTopMusic.stream().map(OmdMusicTopVO::getOmdMusicInfoId).collect(Collectors.toList());
-            List<OmdMusicInfo> totalMusicInfoList = omdPublicService.getMusicInfoByIdList(totalMusicIds);
-
-            // 构建完整的总榜数据
-            List<Map<String, Object>> totalRankData = helperUtil.buildRankData(totalTopMusic, totalMusicInfoList);
-            result.put("totalRankData", totalRankData);
-        } else {
-            result.put("totalRankData", Collections.emptyList());
+    public ResponseEntity<byte[]> getTopMusicInfoList(@RequestParam(value = "omdMusicLimit", defaultValue = "10") int omdMusicLimit,
+                                                      @RequestParam(value = "window", defaultValue = "7d") String window,
+                                                      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        MusicChartService.ChartWindow chartWindow = MusicChartService.ChartWindow.fromCode(window);
+        if (chartWindow == null) {
+            throw new RuntimeException("不支持的时间窗口");
         }
 
-        // 获取用户榜TOP N
-        List<OmdMusicTopVO> userTopMusic = redisUtil.getTopMusic("music:play:top:user", omdMusicLimit);
-        if (!userTopMusic.isEmpty()) {
-            List<Long> userMusicIds = userTopMusic.stream().map(OmdMusicTopVO::getOmdMusicInfoId).collect(Collectors.toList());
-            List<OmdMusicInfo> userMusicInfoList = omdPublicService.getMusicInfoByIdList(userMusicIds);
+        // 使用内存中的快照（条数限制在 [1, 100] 内）
+        ChartSnapshotService.Snapshot snapshot = chartSnapshotService.getSnapshot(chartWindow, omdMusicLimit);
 
-            // 构建完整的用户榜数据
-            List<Map<String, Object>> userRankData = helperUtil.buildRankData(userTopMusic, userMusicInfoList);
-            result.put("userRankData", userRankData);
-        } else {
-            result.put("userRankData", Collections.emptyList());
+        // 客户端缓存的版本未变化，直接返回304
+        if (ifNoneMatch != null && ifNoneMatch.contains(snapshot.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(snapshot.etag()).build();
         }
-
-        // 获取游客榜TOP N
-        List<OmdMusicTopVO> guestTopMusic = redisUtil.getTopMusic("music:play:top:guest", omdMusicLimit);
-        if (!guestTopMusic.isEmpty()) {
-            List<Long> guestMusicIds = guestTopMusic.stream().map(OmdMusicTopVO::getOmdMusicInfoId).collect(Collectors.toList());
-            List<OmdMusicInfo> guestMusicInfoList = omdPublicService.getMusicInfoByIdList(guestMusicIds);
-
-            // 构建完整的游客榜数据
-            List<Map<String, Object>> guestRankData = helperUtil.buildRankData(guestTopMusic, guestMusicInfoList);
-            result.put("guestRankData", guestRankData);
-        } else {
-            result.put("guestRankData", Collections.emptyList());
-        }
-
-        return Result.success(result);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(snapshot.etag())
+                .body(snapshot.body());
     }
 
     /**
-     * 获取随机歌手信息
+     * 获取随机歌手信息（从内存抽样池中抽取，不访问数据库）
+     * @param count 数量，默认3个，最多20个
+     * @param omdSingerGenre 流派，不传时不限流派
      * @return 随机歌手信息
      */
     @GetMapping("/getRandomSingersInfo")
-    public Result<Map<String,Object>> getRandomSingersInfo(){
+    public Result<Map<String,Object>> getRandomSingersInfo(@RequestParam(value = "count", defaultValue = "3") Integer count,
+                                                           @RequestParam(value = "omdSingerGenre", required = false) String omdSingerGenre){
 
         Map<String, Object> result = new HashMap<>();
 
         // 获取随机歌手信息
-        List<OmdSinger> randomSingers = omdPublicService.getRandomSingersInfo();
+        List<OmdSinger> randomSingers = singerSampleService.sample(Math.min(count, 20), omdSingerGenre);
 
         // 构建返回结果
         if (!randomSingers.isEmpty()) {
@@ -440,6 +458,11 @@ public class OmdPublicController {
         pageNum = pageNum != null && pageNum > 0 ? pageNum : 1;
         pageSize = pageSize != null && pageSize > 0 ? pageSize : 10;
 
+        // 优先使用内存倒排索引，索引尚未构建完成时回退到数据库查询
+        if (musicSearchIndexService.isReady()) {
+            return Result.success(musicSearchIndexService.search(omdMusicInfoName, omdSingerName, omdMusicInfoAlbum, omdMusicInfoGenre, pageNum, pageSize));
+        }
+
         // 创建分页对象
         PageBean<OmdMusicInfo> musicInfoListByQueryParams = new PageBean<>();
 
@@ -461,6 +484,19 @@ public class OmdPublicController {
         return Result.success(musicInfoListByQueryParams);
     }
 
+    /**
+     * 搜索建议（输入时自动补全）
+     * 按前缀匹配歌曲名、歌手名、专辑名及其拼音首字母，按近30天播放量排序
+     * @param keyword 已输入的内容
+     * @param limit 返回条数（最多20条）
+     * @return 建议列表
+     */
+    @GetMapping("/suggest")
+    public Result<List<OmdSuggestVO>> suggest(@RequestParam("keyword") String keyword,
+                                              @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return Result.success(musicSuggestService.suggest(keyword, limit));
+    }
+
     /**
      * 根据歌手ID和音乐名称获取音乐信息
      * @param omdSingerId 歌手ID
@@ -487,7 +523,13 @@ public class OmdPublicController {
     public Result<String> updatePasswordByVerifyCode(@RequestParam("newVerifyPassword") String newVerifyPassword,
                                                      @RequestParam("confirmNewPassword") String confirmNewPassword,
                                                      @RequestParam("verifyCode") String verifyCode,
-                                                     @RequestParam("omdUserPhone") String omdUserPhone ) {
+                                                     @RequestParam("omdUserPhone") String omdUserPhone,
+                                                     HttpServletRequest request) {
+
+        // 限流：在查询数据库和密码加密之前拦截突发请求
+        if (!loginRateLimiter.tryAcquireAll("reset:id:" + omdUserPhone, "reset:ip:" + helperUtil.getClientIp(request))) {
+            throw new TooManyRequestsException("请求过于频繁，请稍后再试");
+        }
 
         // 获取当前用户信息
         OmdUser existingOmdUser = omdUserService.findByPhone(omdUserPhone);
@@ -509,7 +551,7 @@ public class OmdPublicController {
         }
 
         // 更新密码
-        boolean success = omdUserService.updatePassword(existingOmdUser.getOmdUserId(), passwordEncoder.encode(newVerifyPassword));
+        boolean success = omdUserService.updatePassword(existingOmdUser.getOmdUserId(), passwordHashService.encode(newVerifyPassword));
         if (!success) {
             return Result.error("密码更新失败");
         }
@@ -545,10 +587,13 @@ public class OmdPublicController {
                                                                         @RequestParam("pageNum") Integer pageNum,
                                                                         @RequestParam("pageSize") Integer pageSize) {
 
-        return Result.success(helperUtil.executePageQuery(pageNum, pageSize, () ->
+        PageBean<OmdMusicComment> commentPage = helperUtil.executePageQuery(pageNum, pageSize, () ->
             // 查询根评论（一级评论）
             omdPublicService.getMusicCommentListByMusicId(omdMusicInfoId)
-        ));
+        );
+        // 一次批量加载这一页评论的子评论
+        commentTreeService.attachReplies(commentPage.getItems());
+        return Result.success(commentPage);
     }
 
     /**
@@ -563,9 +608,51 @@ public class OmdPublicController {
                                                                         @RequestParam("pageNum") Integer pageNum,
                                                                         @RequestParam("pageSize") Integer pageSize) {
 
-        return Result.success(helperUtil.executePageQuery(pageNum, pageSize, () ->
+        PageBean<OmdMusicComment> commentPage = helperUtil.executePageQuery(pageNum, pageSize, () ->
                 omdPublicService.getChildCommentsByParentId(omdMusicCommentId)
-        ));
+        );
+        commentTreeService.attachReplies(commentPage.getItems());
+        return Result.success(commentPage);
+    }
+
+    /**
+     * 游标分页获取一级评论（深翻页不随页码变慢）
+     * @param omdMusicInfoId 音乐ID
+     * @param cursor 上一页返回的游标，首页不传
+     * @param pageSize 每页大小
+     * @return 评论列表、下一页游标和近似总数
+     */
+    @GetMapping("/getCommentPageByMusicId")
+    public Result<CursorPageBean<OmdMusicComment>> getCommentPageByMusicId(@RequestParam("omdMusicInfoId") Long omdMusicInfoId,
+                                                                          @RequestParam(value = "cursor", required = false) String cursor,
+                                                                          @RequestParam(value = "pageSize", required = false) Integer pageSize) {
+
+        CursorPageBean<OmdMusicComment> commentPage = helperUtil.executeKeysetQuery(cursor, pageSize,
+                KeysetSort.desc("mc.omd_music_comment_create_time").thenDesc("mc.omd_music_comment_id"),
+                () -> omdPublicService.getMusicCommentListByMusicId(omdMusicInfoId)
+        );
+        commentTreeService.attachReplies(commentPage.getItems());
+        return Result.success(commentPage);
+    }
+
+    /**
+     * 游标分页获取子评论
+     * @param omdMusicCommentId 父评论ID
+     * @param cursor 上一页返回的游标，首页不传
+     * @param pageSize 每页大小
+     * @return 子评论列表、下一页游标和近似总数
+     */
+    @GetMapping("/getChildCommentPageByParentId")
+    public Result<CursorPageBean<OmdMusicComment>> getChildCommentPageByParentId(@RequestParam("omdMusicCommentId") Long omdMusicCommentId,
+                                                                                @RequestParam(value = "cursor", required = false) String cursor,
+                                                                                @RequestParam(value = "pageSize", required = false) Integer pageSize) {
+
+        CursorPageBean<OmdMusicComment> commentPage = helperUtil.executeKeysetQuery(cursor, pageSize,
+                KeysetSort.desc("c.omd_music_comment_create_time").thenDesc("c.omd_music_comment_id"),
+                () -> omdPublicService.getChildCommentsByParentId(omdMusicCommentId)
+        );
+        commentTreeService.attachReplies(commentPage.getItems());
+        return Result.success(commentPage);
     }
 
     /**
@@ -576,28 +663,18 @@ public class OmdPublicController {
     @GetMapping("/getMusicLikeInfoList")
     public Result<List<OmdMusicLikeInfo>> getMusicLikeInfoList(@RequestParam("omdMusicInfoIdList") List<Long> omdMusicInfoIdList,
                                                                 HttpServletRequest request) {
-        // 1. 获取点赞数
-        List<OmdMusicLikeCache> likeCaches = omdMusicService.selectByOmdMusicInfoIdList(omdMusicInfoIdList);
-        Map<Long, Long> likeCountMap = likeCaches.stream()
-                .collect(Collectors.toMap(OmdMusicLikeCache::getOmdMusicInfoId, OmdMusicLikeCache::getOmdMusicLikeCacheCount));
+        // 1. 获取点赞数（优先读取Redis计数）
+        Map<Long, Long> likeCountMap = musicLikeCounterService.getCounts(omdMusicInfoIdList);
 
         // 2. 获取用户点赞状态
 
-        Long omdUserId;
-        // 获取token
-        String token = helperUtil.getTokenFromRequest(request);
-        // 验证token
-        if (token == null || !jwtUtil.validateToken(token)) {
-            omdUserId = null;
-        }else {
-            omdUserId = jwtUtil.getUserIdFromJWT(token);
-        }
+        // 解析token（只解析一次），无效时按游客处理
+        Long omdUserId = helperUtil.getUserIdFromRequest(request);
 
         Map<Long, Boolean> userLikeMap;
         if (omdUserId != null) {
-            List<OmdMusicLike> userLikes = omdMusicService.selectByUserIdAndMusicIds(omdUserId, omdMusicInfoIdList);
-            userLikeMap = userLikes.stream()
-                    .collect(Collectors.toMap(OmdMusicLike::getOmdMusicInfoId, like -> true));
+            // 从用户已点赞音乐集合中批量判断，不访问数据库
+            userLikeMap = userMusicLikeCacheService.getLikedFlags(omdUserId, omdMusicInfoIdList);
         } else {
             userLikeMap = Collections.emptyMap();
         }
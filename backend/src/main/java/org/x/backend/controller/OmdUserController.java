@@ -4,7 +4,6 @@ import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.util.CollectionUtils;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
@@ -14,7 +13,13 @@ import org.springframework.web.multipart.MultipartFile;
 import org.x.backend.pojo.*;
 import org.x.backend.service.OmdSingerService;
 import org.x.backend.service.OmdUserService;
+import org.x.backend.service.impl.CommentLikeService;
+import org.x.backend.service.impl.CommentTreeService;
 import org.x.backend.service.impl.CosService;
+import org.x.backend.service.impl.HotCommentRankService;
+import org.x.backend.service.impl.PasswordHashService;
+import org.x.backend.service.impl.SensitiveWordService;
+import org.x.backend.service.impl.TokenCacheService;
 import org.x.backend.service.impl.TransactionUserService;
 import org.x.backend.utils.*;
 
@@ -50,9 +55,9 @@ public class OmdUserController {
     @Autowired
     private CosService cosService;
 
-    // 密码加密器
+    // 密码哈希服务（独立线程池执行BCrypt）
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashService passwordHashService;
 
     // jwt工具类
     @Autowired
@@ -66,6 +71,24 @@ public class OmdUserController {
     @Autowired
     private HelperUtil helperUtil;
 
+    // Token近端缓存服务
+    @Autowired
+    private TokenCacheService tokenCacheService;
+
+    // 评论树加载服务（批量加载子评论）
+    @Autowired
+    private CommentTreeService commentTreeService;
+
+    // 歌曲热评排行服务
+    @Autowired
+    private HotCommentRankService hotCommentRankService;
+
+    @Autowired
+    private CommentLikeService commentLikeService;
+
+    @Autowired
+    private SensitiveWordService sensitiveWordService;
+
     // token的请求头
     @Value("${jwt.token-header}")
     private String tokenHeader;
@@ -96,9 +119,8 @@ public class OmdUserController {
                 return Result.error("无效Token");
             }
 
-            // 构建Redis Key并获取存储的Token
-            String redisKey = "user:token:" + userId;
-            String storedToken = redisUtil.get(redisKey);
+            // 获取Redis中存储的Token
+            String storedToken = tokenCacheService.getToken(userId);
 
             // 校验Token是否匹配
             if (!token.equals(storedToken)) {
@@ -109,8 +131,8 @@ public class OmdUserController {
             // 将用户ID添加到离线队列
             redisUtil.userOffline(userId);
 
-            // 删除Token
-            Boolean deleted = redisUtil.delete(redisKey);
+            // 删除Token，并广播本地缓存失效
+            Boolean deleted = tokenCacheService.revokeToken(userId);
             if (deleted) {
                 log.info("用户[{}]退出登录成功", userId);
                 return Result.success();
@@ -155,6 +177,8 @@ public class OmdUserController {
     @PostMapping("/updateUserInfo")
     public Result<String> updateUserInfo(@RequestBody OmdUser omdUser) {
         omdUser.setOmdUserId(helperUtil.getCurrentUserId());
+        // 昵称包含敏感词时拒绝修改
+        sensitiveWordService.check(omdUser.getOmdUserNickname(), "nickname", "昵称包含敏感词");
         // 调用服务层方法更新用户信息
         omdUserService.updateUserInfo(omdUser);
         return Result.success("用户信息更新成功");
@@ -174,7 +198,7 @@ public class OmdUserController {
         // 获取当前用户信息
         OmdUser existingOmdUser = omdUserService.findByUserId(helperUtil.getCurrentUserId());
         // 校验新旧密码
-        if (!passwordEncoder.matches(oldPassword, existingOmdUser.getOmdUserPassword())) {
+        if (!passwordHashService.matches(oldPassword, existingOmdUser.getOmdUserPassword())) {
             log.error("原密码错误");
             return Result.error("原密码错误");
         }
@@ -192,7 +216,7 @@ public class OmdUserController {
         }
 
         // 调用服务层更新密码
-        boolean success = omdUserService.updatePassword(existingOmdUser.getOmdUserId(), passwordEncoder.encode(newPassword));
+        boolean success = omdUserService.updatePassword(existingOmdUser.getOmdUserId(), passwordHashService.encode(newPassword));
         if (!success) {
             return Result.error("密码更新失败");
         }
@@ -274,6 +298,8 @@ public class OmdUserController {
     public Result<String> commentMusic(@RequestBody @Validated OmdMusicComment omdMusicComment){
         // 创建评论信息
         omdMusicComment.setOmdUserId(helperUtil.getCurrentUserId());
+        // 屏蔽敏感词
+        omdMusicComment.setOmdMusicCommentContent(sensitiveWordService.mask(omdMusicComment.getOmdMusicCommentContent(), "comment"));
         // 调用事务管理层
         transactionUserService.insertMusicComment(omdMusicComment);
 
@@ -295,7 +321,7 @@ public class OmdUserController {
     }
 
     /**
-     * 查看评论
+     * 查看评论（按热度排序，并标记本人评论和点赞状态）
      * @param omdMusicInfoId 音乐信息ID
      * @return 评论列表
      */
@@ -303,12 +329,15 @@ public class OmdUserController {
     public Result<PageBean<OmdMusicComment>> getCommentListWithDynamicSort(@RequestParam("pageNum") Integer pageNum,
                                                                            @RequestParam("pageSize") Integer pageSize,
                                                                            @RequestParam("omdMusicInfoId") Long omdMusicInfoId){
-        // 执行分页查询
-        PageBean<OmdMusicComment> musicCommentListByOmdMusicInfoId = helperUtil.executePageQuery(
+        // 从热评排行中取出一页评论
+        PageBean<OmdMusicComment> musicCommentListByOmdMusicInfoId = hotCommentRankService.getHotCommentPage(
+                omdMusicInfoId,
                 pageNum,
                 pageSize,
-                () -> omdUserService.findCommentListByOmdMusicInfoIdWithDynamicSort(omdMusicInfoId,helperUtil.getCurrentUserId())
+                helperUtil.getCurrentUserId()
         );
+        // 一次批量加载这一页评论的子评论
+        commentTreeService.attachReplies(musicCommentListByOmdMusicInfoId.getItems());
 
         return Result.success(musicCommentListByOmdMusicInfoId);
     }
@@ -353,8 +382,8 @@ public class OmdUserController {
         // 1. 查询是否本人评论
         List<Map<String, Object>> isOwnMap = omdUserService.isOwnCommentList(omdMusicCommentIdList, helperUtil.getCurrentUserId());
 
-        // 2. 查询点赞状态
-        List<Map<String, Object>> likeStatusMap = omdUserService.hasLikedMusicCommentList(omdMusicCommentIdList, helperUtil.getCurrentUserId());
+        // 2. 查询点赞状态（点赞记录异步落库，以 Redis 中的点赞集合为准）
+        Map<Long, Boolean> likeStatusMap = commentLikeService.getLikedFlags(helperUtil.getCurrentUserId(), omdMusicCommentIdList);
 
         // 3. 查询举报状态
         List<Map<String, Object>> reportStatusMap = omdUserService.hasReportedMusicCommentList(omdMusicCommentIdList, helperUtil.getCurrentUserId());
@@ -373,11 +402,11 @@ public class OmdUserController {
         });
 
         // 填充点赞状态
-        likeStatusMap.forEach(m -> {
-            Long omdMusicCommentId = ((Number) m.get("omdMusicCommentId")).longValue();
-            Object isLikedObj = m.get("isLiked");
-            Boolean isLiked = helperUtil.convertToBoolean(isLikedObj);
-            statusMap.get(omdMusicCommentId).setIsLiked(isLiked);
+        likeStatusMap.forEach((omdMusicCommentId, isLiked) -> {
+            OmdCommentStatusResult status = statusMap.get(omdMusicCommentId);
+            if (status != null) {
+                status.setIsLiked(isLiked);
+            }
         });
 
         // 填充是否本人状态
@@ -408,6 +437,8 @@ public class OmdUserController {
     @PostMapping("/feedbackToAdmin")
     public Result<String> feedbackToAdmin(@RequestBody @Validated OmdUserFeedback omdUserFeedback){
         omdUserFeedback.setOmdUserId(helperUtil.getCurrentUserId());
+        // 屏蔽敏感词
+        omdUserFeedback.setOmdUserFeedbackContent(sensitiveWordService.mask(omdUserFeedback.getOmdUserFeedbackContent(), "feedback"));
         if (!omdUserService.insertOmdFeedback(omdUserFeedback)){
             return Result.error("反馈失败");
         }
@@ -30,6 +30,16 @@ public class GlobalExceptionHandler {
         return Result.error(StringUtils.hasLength(e.getMessage())? e.getMessage() : "操作失败");
     }
 
+    /**
+     * 处理请求过多异常（登录限流、密码哈希线程池饱和）
+     * @return 统一响应结果
+     */
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    @ExceptionHandler(TooManyRequestsException.class)
+    public Result<String> handleTooManyRequests(TooManyRequestsException e) {
+        return Result.error(1, e.getMessage(), null);
+    }
+
     /**
      * 处理@Validated参数校验异常
      * @return 统一响应结果
@@ -0,0 +1,14 @@
+package org.x.backend.exception;
+
+/**
+ * 请求过多异常
+ * 登录限流或密码哈希线程池饱和时抛出，由全局异常处理器转换为 429 响应
+ */
+public class TooManyRequestsException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public TooManyRequestsException(String message) {
+        super(message);
+    }
+}
@@ -1,5 +1,6 @@
 package org.x.backend.filter;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -15,8 +16,8 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 import org.x.backend.service.CustomUserDetailsService;
+import org.x.backend.service.impl.TokenCacheService;
 import org.x.backend.utils.JwtUtil;
-import org.x.backend.utils.RedisUtil;
 import org.x.backend.utils.ThreadLocalUtil;
 
 import java.io.IOException;
@@ -38,14 +39,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil tokenProvider;
     private final CustomUserDetailsService userDetailsService;
-    private final RedisUtil redisUtil;
+    private final TokenCacheService tokenCacheService;
 
     public JwtAuthenticationFilter(JwtUtil tokenProvider,
                                    CustomUserDetailsService userDetailsService,
-                                   RedisUtil redisUtil) {
+                                   TokenCacheService tokenCacheService) {
         this.tokenProvider = tokenProvider;
         this.userDetailsService = userDetailsService;
-        this.redisUtil = redisUtil;
+        this.tokenCacheService = tokenCacheService;
     }
 
 
@@ -92,21 +93,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             log.info("请求路径: {}, Token: {}", request.getRequestURI(), jwt);
             // 检查JWT令牌是否存在且不为空
             if (StringUtils.hasText(jwt)) {
-                // 验证JWT令牌的有效性
-                if (tokenProvider.validateToken(jwt)) {
-                    // 从JWT令牌中解析出用户ID
-                    Long userId = tokenProvider.getUserIdFromJWT(jwt);
+                // 解析并验证JWT令牌（只做一次签名校验）
+                Claims claims = tokenProvider.parseToken(jwt);
+                if (claims != null) {
+                    // 从已解析的声明中获取用户ID
+                    Long userId = tokenProvider.getUserIdFromClaims(claims);
                     // 记录解析出的用户ID信息
                     log.info("解析出的用户ID: {}", userId);
-                    // Redis 校验
-                    // 生成Redis中存储用户Token的键
-                    String redisKey = "user:token:" + userId;
-                    // 从Redis中获取该用户对应的Token
-                    String redisToken = redisUtil.get(redisKey);
-                    // 检查Redis中的Token是否存在或与请求中的JWT是否匹配
-                    if (redisToken == null || !redisToken.equals(jwt)) {
+                    // Redis 校验（优先命中本地Token指纹缓存，未命中时回源Redis）
+                    if (!tokenCacheService.isTokenActive(userId, jwt)) {
                         // 若不匹配，记录警告日志并返回401未授权状态码
-                        log.info("Redis中Token:{}, Token:{}", redisToken, jwt);
                         log.warn("Redis中Token不匹配，用户ID: {}", userId);
                         response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
                         return;
@@ -1,6 +1,7 @@
 package org.x.backend.mapper;
 
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.cursor.Cursor;
 import org.x.backend.pojo.*;
 
 import java.util.Date;
@@ -132,6 +133,14 @@ public interface OmdAdminMapper {
     @Select("select * from tb_omd_user")
     List<OmdUser> getAllUsers();
 
+    /**
+     * 流式读取所有用户信息（用于导出，逐行返回，不一次性加载到内存）
+     * @return 用户信息游标
+     */
+    @Options(fetchSize = Integer.MIN_VALUE)
+    @Select("select * from tb_omd_user order by omd_user_id")
+    Cursor<OmdUser> streamAllUsers();
+
     /**
      * 更新用户状态
      * @param omdUserId           用户ID
@@ -195,13 +204,26 @@ public interface OmdAdminMapper {
     int insertUser(OmdUser omdUser);
 
     /**
-     * 删除评论
+     * 删除评论及其所有子孙评论（通过评论闭包表一次删除，同时删除闭包关系）
      * @param omdMusicCommentId 评论ID
-     * @return 是否删除成功
+     * @return 影响的行数
      */
-    @Delete("delete from tb_omd_music_comment where omd_music_comment_id = #{omdMusicCommentId}")
+    @Delete("delete c, cl from tb_omd_music_comment_closure sub " +
+            "join tb_omd_music_comment c on c.omd_music_comment_id = sub.descendant_id " +
+            "join tb_omd_music_comment_closure cl on cl.descendant_id = sub.descendant_id " +
+            "where sub.ancestor_id = #{omdMusicCommentId}")
     int deleteMusicComment(Long omdMusicCommentId);
 
+    /**
+     * 评论删除前将其直接父评论的回复数减一（根评论没有父评论，不更新）
+     * @param omdMusicCommentId 评论ID
+     * @return 影响的行数
+     */
+    @Update("update tb_omd_music_comment p join tb_omd_music_comment c on p.omd_music_comment_id = c.omd_music_comment_parent_id " +
+            "set p.omd_music_comment_reply_count = p.omd_music_comment_reply_count - 1 " +
+            "where c.omd_music_comment_id = #{omdMusicCommentId} and p.omd_music_comment_reply_count > 0")
+    int decreaseParentReplyCount(Long omdMusicCommentId);
+
     /**
      * 更新用户角色
      * @param omdUserId 用户ID
@@ -1,6 +1,7 @@
 package org.x.backend.mapper;
 
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.cursor.Cursor;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.x.backend.pojo.*;
 
@@ -16,6 +17,18 @@ public interface OmdMusicMapper {
      */
     List<OmdMusicInfo> getAllMusicInfoList();
 
+    /**
+     * 流式读取所有音乐信息（用于导出，逐行返回，不一次性加载到内存）
+     * @return 音乐信息游标
+     */
+    Cursor<OmdMusicInfo> streamAllMusicInfoList();
+
+    /**
+     * 获取所有已上架的音乐信息（用于构建搜索索引）
+     * @return 音乐信息
+     */
+    List<OmdMusicInfo> getActiveMusicInfoList();
+
     /**
      * 根据歌手名称获取歌手ID
      * @param omdSingerName 歌手名称
@@ -51,6 +64,14 @@ public interface OmdMusicMapper {
     @Select("select * from tb_omd_music_like where omd_music_info_id = #{omdMusicInfoId} and omd_user_id = #{omdUserId}")
     OmdMusicLike checkIfLiked(Long omdMusicInfoId, Long omdUserId);
 
+    /**
+     * 获取用户点赞过的所有音乐ID
+     * @param omdUserId 用户ID
+     * @return 音乐ID列表
+     */
+    @Select("select omd_music_info_id from tb_omd_music_like where omd_user_id = #{omdUserId}")
+    List<Long> getLikedMusicIdsByUserId(Long omdUserId);
+
     /**
      * 更新音乐点赞缓存
      * @param omdMusicLikeCache 音乐信息点赞缓存
@@ -68,6 +89,26 @@ public interface OmdMusicMapper {
     @Insert("insert into tb_omd_music_like (omd_music_info_id, omd_user_id) values (#{omdMusicInfoId}, #{omdUserId})")
     int insertLikeMusicInfo(OmdMusicLike omdMusicLike);
 
+    /**
+     * 幂等插入点赞记录（已点赞时不插入）
+     * @param omdMusicInfoId 音乐信息ID
+     * @param omdUserId 当前用户ID
+     * @return 插入行数，0 表示已点赞过
+     */
+    @Insert("insert ignore into tb_omd_music_like (omd_music_info_id, omd_user_id, omd_music_like_time)" +
+            " values (#{omdMusicInfoId}, #{omdUserId}, now())")
+    int insertIgnoreMusicLike(Long omdMusicInfoId, Long omdUserId);
+
+    /**
+     * 幂等地把音乐追加到用户的点赞歌单末尾（歌单需属于该用户，已存在时不插入）
+     * @param omdPlaylistId 点赞歌单ID
+     * @param omdUserId 当前用户ID
+     * @param omdMusicInfoId 音乐信息ID
+     * @param omdPlaylistMusicOrder 预先分配的顺序号
+     * @return 插入行数
+     */
+    int insertMusicToLikedPlaylist(Long omdPlaylistId, Long omdUserId, Long omdMusicInfoId, Integer omdPlaylistMusicOrder);
+
     /**
      * 检查是否已经有点赞歌单
      * @param omdUserId 当前用户ID
@@ -238,6 +279,23 @@ public interface OmdMusicMapper {
      */
     List<OmdPlaylistMusic> getMusicListFromPlaylist(Long omdPlaylistId);
 
+    /**
+     * 游标分页查询播放列表音乐
+     * @param omdPlaylistId 播放列表ID
+     * @param afterOrder 上一页最后一首的顺序号，null 表示第一页
+     * @param afterId 上一页最后一首的关联ID，null 表示第一页
+     * @param limit 每页条数
+     * @return 音乐信息
+     */
+    List<OmdPlaylistMusic> getMusicPageFromPlaylist(Long omdPlaylistId, Integer afterOrder, Long afterId, int limit);
+
+    /**
+     * 流式查询播放列表音乐（须在事务内遍历）
+     * @param omdPlaylistId 播放列表ID
+     * @return 音乐信息游标
+     */
+    Cursor<OmdPlaylistMusic> streamMusicListFromPlaylist(Long omdPlaylistId);
+
     /**
      * 根据传入的播放列表ID获取最大的音乐排序
      * @param omdPlaylistId 播放列表ID
@@ -246,6 +304,68 @@ public interface OmdMusicMapper {
     @Select("SELECT COALESCE(MAX(omd_playlist_music_order), 0) FROM tb_omd_playlist_music WHERE omd_playlist_id = #{omdPlaylistId}")
     int getMaxPlaylistMusicOrder(Long omdPlaylistId);
 
+    /**
+     * 统计播放列表中的歌曲数（不含新建歌单时的占位记录）
+     * @param omdPlaylistId 播放列表ID
+     * @return 歌曲数
+     */
+    @Select("SELECT COUNT(*) FROM tb_omd_playlist_music WHERE omd_playlist_id = #{omdPlaylistId} AND omd_music_info_id IS NOT NULL")
+    int countPlaylistMusic(Long omdPlaylistId);
+
+    /**
+     * 根据播放列表ID和用户ID查询播放列表（用于校验歌单归属）
+     * @param omdPlaylistId 播放列表ID
+     * @param omdUserId 当前用户ID
+     * @return 播放列表
+     */
+    @Select("select * from tb_omd_playlist where omd_playlist_id = #{omdPlaylistId} and omd_user_id = #{omdUserId}")
+    OmdPlaylist getPlaylistByIdAndUserId(Long omdPlaylistId, Long omdUserId);
+
+    /**
+     * 获取播放列表中排在最前面的歌曲顺序号
+     * @param omdPlaylistId 播放列表ID
+     * @return 顺序号，播放列表为空时返回null
+     */
+    @Select("SELECT MIN(omd_playlist_music_order) FROM tb_omd_playlist_music" +
+            " WHERE omd_playlist_id = #{omdPlaylistId} AND omd_music_info_id IS NOT NULL")
+    Integer getFirstPlaylistMusicOrder(Long omdPlaylistId);
+
+    /**
+     * 获取按 (顺序号, 关联ID) 排在指定歌曲之后的下一首歌曲的顺序号（跳过正在移动的歌曲）
+     * 与播放列表的展示顺序一致，顺序号相同的歌曲也会被取到
+     * @param omdPlaylistId 播放列表ID
+     * @param omdPlaylistMusicOrder 指定歌曲的顺序号
+     * @param omdPlaylistMusicId 指定歌曲的关联ID
+     * @param excludeMusicInfoId 正在移动的音乐ID
+     * @return 顺序号，没有下一首时返回null
+     */
+    @Select("SELECT omd_playlist_music_order FROM tb_omd_playlist_music" +
+            " WHERE omd_playlist_id = #{omdPlaylistId} AND omd_music_info_id IS NOT NULL" +
+            " AND omd_music_info_id <> #{excludeMusicInfoId}" +
+            " AND (omd_playlist_music_order > #{omdPlaylistMusicOrder}" +
+            " OR (omd_playlist_music_order = #{omdPlaylistMusicOrder} AND omd_playlist_music_id > #{omdPlaylistMusicId}))" +
+            " ORDER BY omd_playlist_music_order, omd_playlist_music_id LIMIT 1")
+    Integer getNextPlaylistMusicOrder(Long omdPlaylistId, Integer omdPlaylistMusicOrder, Long omdPlaylistMusicId,
+                                      Long excludeMusicInfoId);
+
+    /**
+     * 更新单首歌曲的顺序号
+     * @param omdPlaylistMusicId 关联ID
+     * @param omdPlaylistMusicOrder 新顺序号
+     * @return 更新行数
+     */
+    @Update("UPDATE tb_omd_playlist_music SET omd_playlist_music_order = #{omdPlaylistMusicOrder}" +
+            " WHERE omd_playlist_music_id = #{omdPlaylistMusicId}")
+    int updatePlaylistMusicOrder(Long omdPlaylistMusicId, Integer omdPlaylistMusicOrder);
+
+    /**
+     * 重新均匀分配播放列表的顺序号（间隔用尽时调用）
+     * @param omdPlaylistId 播放列表ID
+     * @param gap 顺序号间隔
+     * @return 更新行数
+     */
+    int rebalancePlaylistMusicOrder(Long omdPlaylistId, int gap);
+
     /**
      * 根据传入的音乐ID列表更新音乐的点赞次数
      * @param omdMusicInfoIdList 音乐ID列表
@@ -254,6 +374,13 @@ public interface OmdMusicMapper {
      */
     int updateLikeCacheList(List<Long> omdMusicInfoIdList, int delta);
 
+    /**
+     * 按增量批量更新音乐的点赞次数（count = count + 增量）
+     * @param omdMusicLikeCacheList 音乐ID及增量（omdMusicLikeCacheCount 为增量）
+     * @return 更新的记录数
+     */
+    int batchIncrementLikeCache(List<OmdMusicLikeCache> omdMusicLikeCacheList);
+
     /**
      * 批量插入音乐信息点赞
      * @param omdMusicLikeList 音乐信息点赞
@@ -275,4 +402,49 @@ public interface OmdMusicMapper {
      * @return 音乐信息
      */
     OmdMusicInfo getMusicInfoByOmdMusicInfoId(Long targetId);
+
+    /**
+     * 根据音乐ID列表批量查询音乐信息（不过滤状态，供音乐信息缓存回源）
+     * @param omdMusicInfoIdList 音乐ID列表
+     * @return 音乐信息列表
+     */
+    List<OmdMusicInfo> getMusicInfoListByIds(List<Long> omdMusicInfoIdList);
+
+    /**
+     * 查询歌手的所有音乐ID
+     * @param omdSingerId 歌手ID
+     * @return 音乐ID列表
+     */
+    @Select("select omd_music_info_id from tb_omd_music_info where omd_singer_id = #{omdSingerId}")
+    List<Long> getMusicInfoIdListBySingerId(Long omdSingerId);
+
+    /**
+     * 创建刷盘批次表（不存在时），记录已写入数据库的刷盘批次，保证同一批增量只写入一次
+     */
+    @Update("create table if not exists tb_omd_flush_batch (" +
+            "omd_flush_batch_id varchar(64) not null comment '批次号', " +
+            "omd_flush_batch_name varchar(32) not null comment '刷盘任务名称', " +
+            "omd_flush_batch_time datetime not null comment '写入时间', " +
+            "primary key (omd_flush_batch_id), " +
+            "key idx_time (omd_flush_batch_time)" +
+            ") comment '刷盘批次表'")
+    void createFlushBatchTable();
+
+    /**
+     * 记录刷盘批次（需与该批次的数据写入在同一事务中执行）
+     * @param omdFlushBatchName 刷盘任务名称
+     * @param omdFlushBatchId 批次号
+     * @return 插入的行数，0 表示该批次已写入过
+     */
+    @Insert("insert ignore into tb_omd_flush_batch (omd_flush_batch_id, omd_flush_batch_name, omd_flush_batch_time) " +
+            "values (#{omdFlushBatchId}, #{omdFlushBatchName}, now())")
+    int insertFlushBatch(String omdFlushBatchName, String omdFlushBatchId);
+
+    /**
+     * 删除过期的刷盘批次记录
+     * @param hours 保留时长（小时）
+     * @return 删除的行数
+     */
+    @Delete("delete from tb_omd_flush_batch where omd_flush_batch_time < now() - interval #{hours} hour")
+    int deleteFlushBatchBefore(int hours);
 }
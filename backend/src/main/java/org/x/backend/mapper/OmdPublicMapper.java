@@ -2,6 +2,7 @@ package org.x.backend.mapper;
 
 import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.x.backend.pojo.*;
 
@@ -19,17 +20,24 @@ public interface OmdPublicMapper {
     void addMusicPlayStat(OmdMusicPlayStat omdMusicPlayStat);
 
     /**
-     * 根据音乐ID列表获取音乐名称
-     * @param omdMusicInfoIdList 音乐ID列表
-     * @return 音乐名称列表
+     * 批量增加音乐播放统计（多行插入）
+     * @param omdMusicPlayStatList 音乐播放统计信息列表
+     * @return 插入行数
      */
-    List<OmdMusicInfo> getMusicInfoByIdList(List<Long> omdMusicInfoIdList);
+    int batchAddMusicPlayStat(@Param("omdMusicPlayStatList") List<OmdMusicPlayStat> omdMusicPlayStatList);
 
     /**
-     * 获取随机歌手信息
-     * @return 随机歌手信息列表
+     * 获取所有可展示的歌手信息（用于随机歌手抽样池）
+     * @return 歌手信息列表
      */
-    List<OmdSinger> getRandomSingersInfo();
+    List<OmdSinger> getSingerSampleList();
+
+    /**
+     * 获取所有歌手的ID和名称（用于构建搜索建议）
+     * @return 歌手列表
+     */
+    @Select("select omd_singer_id, omd_singer_name from tb_omd_singer where IFNULL(omd_singer_status, 0) != 2")
+    List<OmdSinger> getAllSingerNames();
 
     /**
      * 根据歌手ID和音乐名称获取音乐信息
@@ -70,6 +78,14 @@ public interface OmdPublicMapper {
      */
     List<OmdMusicComment> getChildCommentsByParentId(Long omdMusicCommentId);
 
+    /**
+     * 批量查询多个父评论各自最新的前 N 条子评论
+     * @param omdMusicCommentParentIdList 父评论ID列表
+     * @param limit 每个父评论最多返回的子评论数
+     * @return 子评论（按父评论ID、时间倒序排列）
+     */
+    List<OmdMusicComment> getTopRepliesByParentIds(List<Long> omdMusicCommentParentIdList, int limit);
+
     /**
      * 新增用户申诉
      * @param omdUserAppeal 用户申诉信息
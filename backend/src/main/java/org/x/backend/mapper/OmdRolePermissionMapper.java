@@ -2,6 +2,7 @@ package org.x.backend.mapper;
 
 import org.apache.ibatis.annotations.Mapper;
 import org.x.backend.pojo.OmdPermission;
+import org.x.backend.pojo.OmdRolePermission;
 
 import java.util.List;
 
@@ -13,4 +14,10 @@ public interface OmdRolePermissionMapper {
      * @return 权限列表
      */
     List<OmdPermission> findPermissionsByRoleCode(String omdRoleCode);
+
+    /**
+     * 查询所有角色与权限的对应关系
+     * @return 角色权限列表
+     */
+    List<OmdRolePermission> findAllRolePermissions();
 }
@@ -101,33 +101,33 @@ public interface OmdUserMapper {
      */
     @Insert("insert into tb_omd_music_comment( omd_music_info_id, omd_user_id, omd_music_comment_content, omd_music_comment_parent_id) " +
             "values ( #{omdMusicInfoId}, #{omdUserId}, #{omdMusicCommentContent}, #{omdMusicCommentParentId})")
+    @Options(useGeneratedKeys = true, keyProperty = "omdMusicCommentId")
     boolean insertMusicComment(OmdMusicComment omdMusicComment);
 
     /**
-     * 根据用户ID和评论ID删除音乐评论
-     * @param omdMusicCommentId 音乐评论ID
-     * @param omdUserId 当前用户ID
-     * @return
+     * 查询歌曲所有已通过的一级评论的热度相关字段（用于构建热评排行）
+     * @param omdMusicInfoId 音乐ID
+     * @return 评论列表（只含ID、点赞数、回复数、创建时间）
      */
-    @Delete("delete from tb_omd_music_comment where omd_music_comment_id = #{omdMusicCommentId} and omd_user_id = #{omdUserId}")
-    boolean deleteMusicComment(Long omdMusicCommentId, Long omdUserId);
+    @Select("select omd_music_comment_id, omd_music_comment_like_count, omd_music_comment_reply_count, omd_music_comment_create_time " +
+            "from tb_omd_music_comment where omd_music_info_id = #{omdMusicInfoId} " +
+            "and omd_music_comment_parent_id = 0 and omd_music_comment_status = 1")
+    List<OmdMusicComment> getCommentHotStatListByMusicId(Long omdMusicInfoId);
 
     /**
-     * 根据音乐ID查询音乐评论列表
-     * @param omdMusicInfoId 音乐ID
-     * @param omdUserId 当前用户ID
-     * @return 音乐评论列表
+     * 根据评论ID列表批量查询已通过的评论（含评论用户信息）
+     * @param omdMusicCommentIdList 评论ID列表
+     * @return 评论列表（顺序不保证）
      */
-    List<OmdMusicComment> findCommentListByOmdMusicInfoIdWithDynamicSort(Long omdMusicInfoId, Long omdUserId);
+    List<OmdMusicComment> getMusicCommentListByIds(List<Long> omdMusicCommentIdList);
 
     /**
-     * 点赞音乐评论
-     * @param omdMusicCommentId 音乐评论ID
-     * @return 是否点赞成功
+     * 查询用户点赞过的所有评论ID
+     * @param omdUserId 用户ID
+     * @return 评论ID列表
      */
-    @Update("update tb_omd_music_comment set omd_music_comment_like_count = omd_music_comment_like_count + 1" +
-            " where omd_music_comment_id = #{omdMusicCommentId}")
-    boolean likeMusicComment(Long omdMusicCommentId);
+    @Select("select omd_music_comment_id from tb_omd_comment_like where omd_user_id = #{omdUserId}")
+    List<Long> getLikedCommentIdsByUserId(Long omdUserId);
 
     /**
      * 插入音乐评论举报
@@ -139,40 +139,47 @@ public interface OmdUserMapper {
     boolean insertOmdCommentReport(OmdCommentReport omdCommentReport);
 
     /**
-     * 检查用户是否已经点赞过该评论
+     * 查询评论的所有点赞用户ID
      * @param omdMusicCommentId 音乐评论ID
-     * @param omdUserId 当前用户ID
-     * @return 是否点赞过
+     * @return 用户ID列表
      */
-    @Select("select exists(select 1 from tb_omd_comment_like where omd_music_comment_id = #{omdMusicCommentId} and omd_user_id = #{omdUserId})")
-    boolean hasLikedMusicComment(Long omdMusicCommentId, Long omdUserId);
+    @Select("select omd_user_id from tb_omd_comment_like where omd_music_comment_id = #{omdMusicCommentId}")
+    List<Long> getCommentLikeUserIds(Long omdMusicCommentId);
 
     /**
-     * 取消点赞
-     * @param omdMusicCommentId 音乐评论ID
-     * @return 是否取消点赞成功
+     * 查询用户在给定评论中点赞过的评论ID
+     * @param omdUserId 用户ID
+     * @param omdMusicCommentIdList 评论ID列表
+     * @return 点赞过的评论ID列表
      */
-    @Update("update tb_omd_music_comment set omd_music_comment_like_count = omd_music_comment_like_count - 1 " +
-            "where omd_music_comment_id = #{omdMusicCommentId} and omd_music_comment_like_count > 0")
-    boolean unlikeMusicComment(Long omdMusicCommentId);
+    List<Long> getLikedCommentIdsByUserIdAndCommentIds(Long omdUserId, List<Long> omdMusicCommentIdList);
 
     /**
-     * 删除评论点赞记录
-     * @param omdMusicCommentId 音乐评论ID
-     * @param omdUserId 当前用户ID
-     * @return 是否删除成功
+     * 批量写入评论点赞记录（已存在或评论已删除的跳过）
+     * @param omdCommentLikeList 点赞记录列表
+     * @return 插入的行数
      */
-    @Delete("delete from tb_omd_comment_like where omd_music_comment_id = #{omdMusicCommentId} and omd_user_id = #{omdUserId}")
-    boolean deleteCommentLike(Long omdMusicCommentId, Long omdUserId);
+    int batchInsertCommentLike(List<OmdCommentLike> omdCommentLikeList);
 
     /**
-     * 插入评论点赞记录
-     * @param omdMusicCommentId 音乐评论ID
-     * @param omdUserId 当前用户ID
-     * @return 是否插入成功
+     * 批量删除评论点赞记录
+     * @param omdCommentLikeList 点赞记录列表
+     * @return 删除的行数
      */
-    @Insert("insert into tb_omd_comment_like(omd_music_comment_id, omd_user_id) values (#{omdMusicCommentId}, #{omdUserId})")
-    boolean insertCommentLike(Long omdMusicCommentId, Long omdUserId);
+    int batchDeleteCommentLike(List<OmdCommentLike> omdCommentLikeList);
+
+    /**
+     * 批量累加评论点赞数
+     * @param omdMusicCommentList 评论列表（omdMusicCommentLikeCount 表示增量）
+     * @return 更新的行数
+     */
+    int batchIncrementCommentLikeCount(List<OmdMusicComment> omdMusicCommentList);
+
+    /**
+     * 按点赞记录校正所有评论的点赞数
+     * @return 修正的评论数
+     */
+    int reconcileCommentLikeCounts();
 
     /**
      * 插入用户反馈
@@ -212,19 +219,37 @@ public interface OmdUserMapper {
     boolean updateReplyCountByParentId(Long omdMusicCommentParentId, int delta);
 
     /**
-     * 批量删除音乐评论
-     * @param commentIds 评论ID列表
-     * @return 影响的行数
+     * 写入新评论的闭包关系（父评论的所有祖先 + 自身）
+     * @param omdMusicCommentId 新评论ID
+     * @param omdMusicCommentParentId 父评论ID，根评论为0
+     * @return 插入的行数
      */
-    int deleteMusicCommentByIdList(List<Long> commentIds);
+    int insertCommentClosure(Long omdMusicCommentId, Long omdMusicCommentParentId);
 
     /**
-     * 根据父评论ID查询所有子评论ID
-     * @param omdMusicCommentParentId 父评论ID
-     * @return 子评论ID列表
+     * 删除评论及其所有子孙评论，连同它们的闭包关系
+     * @param omdMusicCommentId 评论ID
+     * @return 影响的行数（评论与闭包关系之和）
      */
-    @Select("select omd_music_comment_id from tb_omd_music_comment where omd_music_comment_parent_id = #{omdMusicCommentParentId}")
-    List<Long> selectChildCommentIds(Long omdMusicCommentParentId);
+    int deleteCommentSubtree(Long omdMusicCommentId);
+
+    /**
+     * 创建评论闭包表（不存在时）
+     */
+    @Update("create table if not exists tb_omd_music_comment_closure (" +
+            "ancestor_id bigint not null comment '祖先评论ID', " +
+            "descendant_id bigint not null comment '子孙评论ID', " +
+            "depth int not null comment '层级差，0表示自身', " +
+            "primary key (ancestor_id, descendant_id), " +
+            "key idx_descendant (descendant_id)" +
+            ") comment '音乐评论闭包表'")
+    void createCommentClosureTable();
+
+    /**
+     * 根据评论表补全缺失的闭包关系（只处理缺少自身关系的评论及其子孙）
+     * @return 补全的行数
+     */
+    int backfillCommentClosure();
 
     /**
      * 根据OmdUserId获取OmdPlaylist
@@ -249,14 +274,6 @@ public interface OmdUserMapper {
      */
     List<Map<String, Object>> isOwnCommentList(List<Long> omdMusicCommentIdList, Long omdUserId);
 
-    /**
-     * 根据omdMusicCommentIdList获取是否被用户点赞
-     * @param omdMusicCommentIdList 评论列表
-     * @param omdUserId 用户ID
-     * @return 状态列表
-     */
-    List<Map<String, Object>> hasLikedMusicCommentList(List<Long> omdMusicCommentIdList, Long omdUserId);
-
     /**
      * 根据omdMusicCommentIdList获取是否被用户举报
      * @param omdMusicCommentIdList 评论列表
@@ -0,0 +1,23 @@
+package org.x.backend.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// 游标分页查询结果
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageBean<T> {
+
+    private List<T> items; // 当前页数据
+    private String nextCursor; // 下一页游标，没有下一页时为null
+    private Long total; // 总记录数（缓存的近似值），不统计时为null
+
+    public CursorPageBean(List<T> items, String nextCursor) {
+        this(items, nextCursor, null);
+    }
+
+}
@@ -2,6 +2,7 @@ package org.x.backend.pojo;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.validation.constraints.NotBlank;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -48,5 +49,13 @@ public class OmdMusicComment {
     // 子评论列表
     private List<OmdMusicComment> omdMusicCommentReplies = new ArrayList<>();
 
+    // 是否为当前用户的评论（仅热评列表返回）
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean isOwnComment;
+
+    // 当前用户是否点赞过（仅热评列表返回）
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean isLikedByUser;
+
 
 }
@@ -0,0 +1,15 @@
+package org.x.backend.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OmdSuggestVO {
+    private String suggestType; // 建议类型：music-歌曲，singer-歌手，album-专辑
+    private Long targetId;      // 歌曲为音乐ID，歌手和专辑为歌手ID
+    private String suggestText; // 建议文本
+    private Double playCount;   // 近30天播放量（歌手和专辑为其歌曲播放量之和）
+}
@@ -7,4 +7,15 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 // 扩展标准接口
 public interface CustomUserDetailsService extends UserDetailsService {
     UserDetails loadUserById(Long id) throws UsernameNotFoundException;
-}
\ No newline at end of file
+
+    /**
+     * 使某个用户的认证信息缓存失效（角色、状态变更后调用）
+     * @param omdUserId 用户ID
+     */
+    void evictUser(Long omdUserId);
+
+    /**
+     * 重新加载角色权限矩阵（角色与权限的对应关系变更后调用）
+     */
+    void reloadRolePermissions();
+}
@@ -160,7 +160,7 @@ public interface OmdAdminService {
     boolean insertUser(OmdUser omdUser);
 
     /**
-     * 删除评论
+     * 删除评论及其所有子孙评论，并更新父评论回复数
      * @param omdMusicCommentId 评论ID
      * @return 是否删除成功
      */
@@ -5,6 +5,7 @@ import org.x.backend.pojo.*;
 
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 public interface OmdMusicService {
 
@@ -61,6 +62,24 @@ public interface OmdMusicService {
      */
     boolean insertLikeMusicInfo(OmdMusicLike omdMusicLike);
 
+    /**
+     * 幂等插入点赞记录
+     * @param omdMusicInfoId 音乐信息ID
+     * @param omdUserId 当前用户ID
+     * @return 新增点赞返回 true，已点赞过返回 false
+     */
+    boolean insertIgnoreMusicLike(Long omdMusicInfoId, Long omdUserId);
+
+    /**
+     * 幂等地把音乐追加到用户的点赞歌单末尾
+     * @param omdPlaylistId 点赞歌单ID
+     * @param omdUserId 当前用户ID
+     * @param omdMusicInfoId 音乐信息ID
+     * @param omdPlaylistMusicOrder 预先分配的顺序号
+     * @return 插入返回 true，歌单不存在或已包含该音乐返回 false
+     */
+    boolean insertMusicToLikedPlaylist(Long omdPlaylistId, Long omdUserId, Long omdMusicInfoId, Integer omdPlaylistMusicOrder);
+
     /**
      * 检查是否已经有点赞歌单
      * @param omdUserId 当前用户ID
@@ -216,6 +235,23 @@ public interface OmdMusicService {
      */
     List<OmdPlaylistMusic> getMusicListFromPlaylist(Long omdPlaylistId);
 
+    /**
+     * 根据传入的播放列表ID游标分页查询播放列表
+     * @param omdPlaylistId 播放列表ID
+     * @param afterOrder 上一页最后一首的顺序号，null 表示第一页
+     * @param afterId 上一页最后一首的关联ID，null 表示第一页
+     * @param limit 每页条数
+     * @return 音乐信息
+     */
+    List<OmdPlaylistMusic> getMusicPageFromPlaylist(Long omdPlaylistId, Integer afterOrder, Long afterId, int limit);
+
+    /**
+     * 根据传入的播放列表ID流式遍历播放列表，每读取一行回调一次，不在内存中保留整个列表
+     * @param omdPlaylistId 播放列表ID
+     * @param consumer 每行的处理逻辑
+     */
+    void streamMusicListFromPlaylist(Long omdPlaylistId, Consumer<OmdPlaylistMusic> consumer);
+
     /**
      * 根据传入的歌单ID查询播放列表的顺序最大值
      * @param omdPlaylistId 播放列表ID
@@ -223,6 +259,29 @@ public interface OmdMusicService {
      */
     int getMaxPlaylistMusicOrder(Long omdPlaylistId);
 
+    /**
+     * 根据传入的歌单ID统计播放列表中的歌曲数
+     * @param omdPlaylistId 播放列表ID
+     * @return 歌曲数
+     */
+    int countPlaylistMusic(Long omdPlaylistId);
+
+    /**
+     * 根据传入的歌单ID和用户ID查询播放列表
+     * @param omdPlaylistId 播放列表ID
+     * @param omdUserId 当前用户ID
+     * @return 播放列表
+     */
+    OmdPlaylist getPlaylistByIdAndUserId(Long omdPlaylistId, Long omdUserId);
+
+    /**
+     * 更新播放列表中单首歌曲的顺序号
+     * @param omdPlaylistMusicId 关联ID
+     * @param omdPlaylistMusicOrder 新顺序号
+     * @return 更新行数
+     */
+    int updatePlaylistMusicOrder(Long omdPlaylistMusicId, Integer omdPlaylistMusicOrder);
+
     /**
      * 根据传入的音乐ID列表更新音乐的点赞次数
      * @param omdMusicInfoIdList 音乐ID列表
@@ -232,19 +291,19 @@ public interface OmdMusicService {
     int updateLikeCacheList(List<Long> omdMusicInfoIdList, int delta);
 
     /**
-     * 批量插入音乐信息点赞
+     * 批量插入音乐信息点赞（已存在的点赞记录忽略）
      * @param omdMusicLikeList 音乐信息点赞
-     * @return 结果
+     * @return 实际插入的记录数
      */
-    boolean insertLikeMusicInfoList(List<OmdMusicLike> omdMusicLikeList);
+    int insertLikeMusicInfoList(List<OmdMusicLike> omdMusicLikeList);
 
     /**
      * 批量删除音乐信息点赞
      * @param omdMusicInfoIdList 音乐信息ID列表
      * @param omdUserId 当前用户ID
-     * @return 结果
+     * @return 实际删除的记录数
      */
-    boolean deleteLikeMusicInfoList(List<Long> omdMusicInfoIdList, Long omdUserId);
+    int deleteLikeMusicInfoList(List<Long> omdMusicInfoIdList, Long omdUserId);
 
     /**
      * 根据传入的音乐ID列表查询音乐信息
@@ -12,6 +12,12 @@ public interface OmdPublicService {
      */
     void addMusicPlayStat(OmdMusicPlayStat omdMusicPlayStat);
 
+    /**
+     * 批量增加音乐播放统计
+     * @param omdMusicPlayStatList 音乐播放统计信息列表
+     */
+    void batchAddMusicPlayStat(List<OmdMusicPlayStat> omdMusicPlayStatList);
+
     /**
      * 根据音乐ID列表获取音乐名称
      * @param omdMusicInfoIdList 音乐ID列表
@@ -93,29 +93,6 @@ public interface OmdUserService {
      */
     boolean insertMusicComment(OmdMusicComment omdMusicComment);
 
-    /**
-     * 根据用户ID和评论ID删除音乐评论
-     * @param omdMusicCommentId 音乐评论ID
-     * @param omdUserId 当前用户ID
-     * @return 音乐评论列表
-     */
-    boolean deleteMusicComment(Long omdMusicCommentId, Long omdUserId);
-
-    /**
-     * 根据音乐ID查询音乐评论列表
-     * @param omdMusicInfoId 音乐ID
-     * @param omdUserId 当前用户ID
-     * @return 音乐评论列表
-     */
-    List<OmdMusicComment> findCommentListByOmdMusicInfoIdWithDynamicSort(Long omdMusicInfoId, Long omdUserId);
-
-    /**
-     * 点赞音乐评论
-     * @param omdMusicCommentId 音乐评论ID
-     * @return 是否点赞成功
-     */
-    boolean likeMusicComment(Long omdMusicCommentId);
-
     /**
      * 举报评论
      * @param omdCommentReport 举报信息
@@ -123,37 +100,6 @@ public interface OmdUserService {
      */
     boolean insertOmdCommentReport(OmdCommentReport omdCommentReport);
 
-    /**
-     * 检查用户是否已经点赞过该评论
-     * @param omdMusicCommentIdList 音乐评论ID
-     * @param omdUserId 当前用户ID
-     * @return 是否已经点赞过
-     */
-    boolean hasLikedMusicComment(Long omdMusicCommentIdList, Long omdUserId);
-
-    /**
-     * 取消点赞
-     * @param omdMusicCommentId 音乐评论ID
-     * @return 是否取消点赞成功
-     */
-    boolean unlikeMusicComment(Long omdMusicCommentId);
-
-    /**
-     * 删除评论点赞记录
-     * @param omdMusicCommentId 音乐评论ID
-     * @param omdUserId 当前用户ID
-     * @return 是否删除成功
-     */
-    boolean deleteCommentLike(Long omdMusicCommentId, Long omdUserId);
-
-    /**
-     * 插入评论点赞记录
-     * @param omdMusicCommentId 音乐评论ID
-     * @param omdUserId 当前用户ID
-     * @return 是否插入成功
-     */
-    boolean insertCommentLike(Long omdMusicCommentId, Long omdUserId);
-
     /**
      * 插入用户反馈
      * @param omdUserFeedback 用户反馈
@@ -161,7 +107,6 @@ public interface OmdUserService {
      */
     boolean insertOmdFeedback(OmdUserFeedback omdUserFeedback);
 
-
     /**
      * 根据父评论ID更新子评论数量
      * @param omdMusicCommentParentId 父评论ID
@@ -170,17 +115,19 @@ public interface OmdUserService {
     boolean updateReplyCountByParentId(Long omdMusicCommentParentId,int delta);
 
     /**
-     * 根据评论ID列表删除音乐评论
-     * @param commentIds 评论ID列表
-     * @return 成功删除的评论数量
+     * 写入新评论的闭包关系
+     * @param omdMusicCommentId 新评论ID
+     * @param omdMusicCommentParentId 父评论ID，根评论为0
+     * @return 是否写入成功
      */
-    int deleteMusicCommentByIdList(List<Long> commentIds);
+    boolean insertCommentClosure(Long omdMusicCommentId, Long omdMusicCommentParentId);
 
     /**
-     * 递归收集所有子评论ID
-     * @param omdMusicCommentParentId 父评论ID
+     * 删除评论及其所有子孙评论
+     * @param omdMusicCommentId 评论ID
+     * @return 是否删除成功
      */
-    List<Long> selectChildCommentIds(Long omdMusicCommentParentId);
+    boolean deleteCommentSubtree(Long omdMusicCommentId);
 
     /**
      * 根据OmdUserId获取OmdPlaylist
@@ -204,14 +151,6 @@ public interface OmdUserService {
      */
     List<Map<String, Object>> isOwnCommentList(List<Long> omdMusicCommentIdList, Long omdUserId);
 
-    /**
-     * 根据omdMusicCommentIdList获取是否被用户点赞
-     * @param omdMusicCommentIdList 评论列表
-     * @param omdUserId 用户ID
-     * @return 状态列表
-     */
-    List<Map<String, Object>> hasLikedMusicCommentList(List<Long> omdMusicCommentIdList, Long omdUserId);
-
     /**
      * 根据omdMusicCommentIdList获取是否被用户举报
      * @param omdMusicCommentIdList 评论列表
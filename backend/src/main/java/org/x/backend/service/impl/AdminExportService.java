@@ -0,0 +1,229 @@
+package org.x.backend.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.x.backend.mapper.OmdAdminMapper;
+import org.x.backend.mapper.OmdMusicMapper;
+import org.x.backend.pojo.OmdMusicInfo;
+import org.x.backend.pojo.OmdUser;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.function.Function;
+
+/**
+ * 管理员全表导出服务
+ * 通过 MyBatis Cursor 按行流式读取（MySQL 驱动逐行返回），每读一行立即写入响应输出流，
+ * 每隔固定行数刷新一次，导出百万级用户或歌曲时内存占用保持恒定。
+ * 只导出下面定义的列，不会导出密码等敏感字段。
+ */
+@Service
+@Slf4j
+public class AdminExportService {
+
+    /**
+     * 导出格式
+     */
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format of(String format) {
+            for (Format value : values()) {
+                if (value.name().equalsIgnoreCase(format)) {
+                    return value;
+                }
+            }
+            throw new RuntimeException("不支持的导出格式: " + format);
+        }
+    }
+
+    /**
+     * 导出列
+     * @param name 列名（CSV表头 / NDJSON字段名）
+     * @param getter 取值方法
+     */
+    private record Column<T>(String name, Function<T, Object> getter) {
+    }
+
+    private static final List<Column<OmdUser>> USER_COLUMNS = List.of(
+            new Column<>("omdUserId", OmdUser::getOmdUserId),
+            new Column<>("omdUserName", OmdUser::getOmdUserName),
+            new Column<>("omdUserNickname", OmdUser::getOmdUserNickname),
+            new Column<>("omdUserPhone", OmdUser::getOmdUserPhone),
+            new Column<>("omdUserEmail", OmdUser::getOmdUserEmail),
+            new Column<>("omdUserGender", OmdUser::getOmdUserGender),
+            new Column<>("omdUserRegion", OmdUser::getOmdUserRegion),
+            new Column<>("omdUserStatus", OmdUser::getOmdUserStatus),
+            new Column<>("omdUserFreezeType", OmdUser::getOmdUserFreezeType),
+            new Column<>("omdUserRemark", OmdUser::getOmdUserRemark),
+            new Column<>("omdUserCreateTime", OmdUser::getOmdUserCreateTime)
+    );
+
+    private static final List<Column<OmdMusicInfo>> MUSIC_COLUMNS = List.of(
+            new Column<>("omdMusicInfoId", OmdMusicInfo::getOmdMusicInfoId),
+            new Column<>("omdMusicInfoName", OmdMusicInfo::getOmdMusicInfoName),
+            new Column<>("omdMusicInfoAlbum", OmdMusicInfo::getOmdMusicInfoAlbum),
+            new Column<>("omdMusicInfoGenre", OmdMusicInfo::getOmdMusicInfoGenre),
+            new Column<>("omdMusicInfoDuration", OmdMusicInfo::getOmdMusicInfoDuration),
+            new Column<>("omdSingerId", OmdMusicInfo::getOmdSingerId),
+            new Column<>("omdSingerName", musicInfo -> musicInfo.getOmdSinger() == null
+                    ? null : musicInfo.getOmdSinger().getOmdSingerName()),
+            new Column<>("omdMusicInfoStatus", OmdMusicInfo::getOmdMusicInfoStatus),
+            new Column<>("omdMusicInfoSongUrl", OmdMusicInfo::getOmdMusicInfoSongUrl),
+            new Column<>("omdMusicInfoCoverUrl", OmdMusicInfo::getOmdMusicInfoCoverUrl),
+            new Column<>("omdMusicInfoCreateTime", OmdMusicInfo::getOmdMusicInfoCreateTime)
+    );
+
+    @Autowired
+    private OmdAdminMapper omdAdminMapper;
+
+    @Autowired
+    private OmdMusicMapper omdMusicMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${admin-export.flush-rows:1000}")
+    private int flushRows;
+
+    /**
+     * 导出所有用户信息
+     * @param format 导出格式
+     * @param outputStream 响应输出流
+     */
+    @Transactional(readOnly = true)
+    public void exportUsers(Format format, OutputStream outputStream) {
+        try (Cursor<OmdUser> cursor = omdAdminMapper.streamAllUsers()) {
+            export(format, cursor, USER_COLUMNS, outputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException("导出用户信息失败", e);
+        }
+    }
+
+    /**
+     * 导出所有音乐信息
+     * @param format 导出格式
+     * @param outputStream 响应输出流
+     */
+    @Transactional(readOnly = true)
+    public void exportMusicInfo(Format format, OutputStream outputStream) {
+        try (Cursor<OmdMusicInfo> cursor = omdMusicMapper.streamAllMusicInfoList()) {
+            export(format, cursor, MUSIC_COLUMNS, outputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException("导出音乐信息失败", e);
+        }
+    }
+
+    private <T> void export(Format format, Cursor<T> cursor, List<Column<T>> columns, OutputStream outputStream) throws IOException {
+        long start = System.currentTimeMillis();
+        long rows = format == Format.CSV
+                ? writeCsv(cursor, columns, outputStream)
+                : writeNdjson(cursor, columns, outputStream);
+        log.info("导出完成，格式{}，共{}行，耗时{}ms", format, rows, System.currentTimeMillis() - start);
+    }
+
+    private <T> long writeCsv(Cursor<T> cursor, List<Column<T>> columns, OutputStream outputStream) throws IOException {
+        // 日期格式与接口返回保持一致（SimpleDateFormat 非线程安全，每次导出单独创建）
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        dateFormat.setTimeZone(TimeZone.getTimeZone("GMT+8"));
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        // 写入 BOM，Excel 打开时才能正确识别中文
+        writer.write('\uFEFF');
+        for (int i = 0; i < columns.size(); i++) {
+            writer.write(i == 0 ? "" : ",");
+            writer.write(columns.get(i).name());
+        }
+        writer.write("\r\n");
+
+        long rows = 0;
+        for (T row : cursor) {
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                Object value = columns.get(i).getter().apply(row);
+                if (value instanceof Date date) {
+                    writer.write(dateFormat.format(date));
+                } else if (value != null) {
+                    writer.write(escapeCsv(value.toString()));
+                }
+            }
+            writer.write("\r\n");
+            if (++rows % flushRows == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+        return rows;
+    }
+
+    private <T> long writeNdjson(Cursor<T> cursor, List<Column<T>> columns, OutputStream outputStream) throws IOException {
+        long rows = 0;
+        // 字段值按 ObjectMapper 的全局配置序列化，但写完一个值不自动刷新输出流，只按 flushRows 刷新
+        ObjectWriter valueWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        // 生成器不接管输出流的关闭，由容器负责
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            // 每行一个JSON对象
+            generator.setRootValueSeparator(new SerializedString("\n"));
+            for (T row : cursor) {
+                generator.writeStartObject();
+                for (Column<T> column : columns) {
+                    generator.writeFieldName(column.name());
+                    valueWriter.writeValue(generator, column.getter().apply(row));
+                }
+                generator.writeEndObject();
+                if (++rows % flushRows == 0) {
+                    generator.flush();
+                }
+            }
+            if (rows > 0) {
+                generator.writeRaw('\n');
+            }
+            generator.flush();
+        }
+        return rows;
+    }
+
+    // CSV 转义：含逗号、引号、换行时加引号；以公式字符开头时加单引号前缀，防止在表格软件中被当作公式执行
+    private String escapeCsv(String value) {
+        if (!value.isEmpty() && "=+-@".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
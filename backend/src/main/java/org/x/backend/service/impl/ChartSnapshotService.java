@@ -0,0 +1,149 @@
+package org.x.backend.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import org.x.backend.pojo.OmdMusicInfo;
+import org.x.backend.pojo.OmdMusicTopVO;
+import org.x.backend.pojo.Result;
+import org.x.backend.service.OmdPublicService;
+import org.x.backend.utils.HelperUtil;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 排行榜快照服务
+ * 定时为每个时间窗口按最大条数组装一次完整的排行榜数据（含音乐信息），任意条数的响应都从中截取前缀，
+ * 序列化为不可变的 JSON 字节数组保存在内存中；常用条数在刷新时预先序列化，其它条数在首次请求时序列化并缓存到下次刷新。
+ * 命中快照的请求不访问 Redis 和数据库，也不做 JSON 序列化，并可通过 ETag 返回 304。
+ */
+@Service
+@Slf4j
+public class ChartSnapshotService {
+
+    /**
+     * 排行榜快照
+     * @param body 序列化后的响应体（不可修改）
+     * @param etag 响应体摘要
+     */
+    public record Snapshot(byte[] body, String etag) {
+    }
+
+    /**
+     * 一次刷新生成的数据
+     * @param payloads 窗口 -> 按最大条数组装的榜单数据
+     * @param snapshots 窗口:条数 -> 快照
+     */
+    private record Generation(Map<MusicChartService.ChartWindow, Map<String, List<Map<String, Object>>>> payloads,
+                              Map<String, Snapshot> snapshots) {
+    }
+
+    @Autowired
+    private MusicChartService musicChartService;
+
+    @Autowired
+    private OmdPublicService omdPublicService;
+
+    @Autowired
+    private HelperUtil helperUtil;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${music-chart.snapshot.limits:10,20,50}")
+    private List<Integer> snapshotLimits; // 刷新时预先序列化的条数
+
+    // 当前数据（每次刷新整体替换），首次刷新完成前为null
+    private volatile Generation generation;
+
+    /**
+     * 获取快照
+     * @param window 时间窗口
+     * @param limit 前N名（限制在 [1, MusicChartService.MAX_LIMIT] 内）
+     * @return 快照
+     */
+    public Snapshot getSnapshot(MusicChartService.ChartWindow window, int limit) {
+        int n = MusicChartService.clampLimit(limit);
+        Generation current = generation;
+        if (current == null) {
+            // 启动后首次刷新完成前实时组装
+            return toSnapshot(buildRankPayload(window, n));
+        }
+        return current.snapshots().computeIfAbsent(snapshotKey(window, n),
+                key -> toSnapshot(prefix(current.payloads().get(window), n)));
+    }
+
+    /**
+     * 重新生成所有快照
+     * 每个窗口按最大条数查询一次 Redis 和一次数据库，其它条数从中截取
+     */
+    public void refreshSnapshots() {
+        Map<MusicChartService.ChartWindow, Map<String, List<Map<String, Object>>>> payloads =
+                new EnumMap<>(MusicChartService.ChartWindow.class);
+        Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+        for (MusicChartService.ChartWindow window : MusicChartService.ChartWindow.values()) {
+            Map<String, List<Map<String, Object>>> payload = buildRankPayload(window, MusicChartService.MAX_LIMIT);
+            payloads.put(window, payload);
+            if (snapshotLimits != null) {
+                for (Integer limit : snapshotLimits) {
+                    int n = MusicChartService.clampLimit(limit);
+                    snapshots.put(snapshotKey(window, n), toSnapshot(prefix(payload, n)));
+                }
+            }
+        }
+        generation = new Generation(payloads, snapshots);
+    }
+
+    // 截取每个榜单的前N名
+    private Map<String, List<Map<String, Object>>> prefix(Map<String, List<Map<String, Object>>> payload, int limit) {
+        Map<String, List<Map<String, Object>>> limited = new HashMap<>();
+        payload.forEach((name, rows) -> limited.put(name, rows.subList(0, Math.min(limit, rows.size()))));
+        return limited;
+    }
+
+    // 组装总榜、用户榜、游客榜数据，三个榜单的音乐信息合并为一次查询
+    private Map<String, List<Map<String, Object>>> buildRankPayload(MusicChartService.ChartWindow window, int limit) {
+        List<OmdMusicTopVO> totalTopMusic = musicChartService.getTopMusic(MusicChartService.SEGMENT_TOTAL, window, limit);
+        List<OmdMusicTopVO> userTopMusic = musicChartService.getTopMusic(MusicChartService.SEGMENT_USER, window, limit);
+        List<OmdMusicTopVO> guestTopMusic = musicChartService.getTopMusic(MusicChartService.SEGMENT_GUEST, window, limit);
+
+        Set<Long> musicIds = new LinkedHashSet<>();
+        totalTopMusic.forEach(top -> musicIds.add(top.getOmdMusicInfoId()));
+        userTopMusic.forEach(top -> musicIds.add(top.getOmdMusicInfoId()));
+        guestTopMusic.forEach(top -> musicIds.add(top.getOmdMusicInfoId()));
+        List<OmdMusicInfo> musicInfoList = musicIds.isEmpty()
+                ? Collections.emptyList()
+                : omdPublicService.getMusicInfoByIdList(List.copyOf(musicIds));
+
+        Map<String, List<Map<String, Object>>> payload = new HashMap<>();
+        payload.put("totalRankData", helperUtil.buildRankData(totalTopMusic, musicInfoList));
+        payload.put("userRankData", helperUtil.buildRankData(userTopMusic, musicInfoList));
+        payload.put("guestRankData", helperUtil.buildRankData(guestTopMusic, musicInfoList));
+        return payload;
+    }
+
+    // 序列化为统一响应格式并计算 ETag
+    private Snapshot toSnapshot(Map<String, List<Map<String, Object>>> payload) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(Result.success(payload));
+            return new Snapshot(body, "\"" + DigestUtils.md5DigestAsHex(body) + "\"");
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("排行榜序列化失败", e);
+        }
+    }
+
+    private String snapshotKey(MusicChartService.ChartWindow window, int limit) {
+        return window.getCode() + ":" + limit;
+    }
+}
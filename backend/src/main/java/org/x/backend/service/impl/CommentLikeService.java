@@ -0,0 +1,400 @@
+package org.x.backend.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.x.backend.mapper.OmdMusicMapper;
+import org.x.backend.mapper.OmdUserMapper;
+import org.x.backend.pojo.OmdCommentLike;
+import org.x.backend.pojo.OmdMusicComment;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 评论点赞服务（Redis 点赞集合 + 异步批量持久化）
+ * 每条评论的点赞用户保存为 Redis 集合 comment:like:set:{评论ID}，点赞/取消点赞由一个 Lua 脚本原子切换，
+ * 同时把计数增量累加到待刷盘哈希、把点赞记录的最终状态写入待持久化哈希，请求本身不再访问数据库，热门评论不会形成行锁热点。
+ * 定时任务在一个事务中批量写入/删除 tb_omd_comment_like 的记录，并用 count = count + ? 批量更新评论点赞数；
+ * 每批变更分配一个批次号，与数据写入在同一事务中记录到 tb_omd_flush_batch，重试时不会重复累加点赞数。
+ * 可配置在启动时按点赞记录校正所有评论的点赞数（全表统计，默认关闭）。
+ * 评论点赞集合首次切换时从数据库懒加载；用户已点赞评论集合（comment:like:user:{用户ID}）用于批量判断点赞状态，在切换时同步更新。
+ * 两种集合懒加载时都会叠加尚未持久化的点赞变更，因此不受数据库滞后的影响；切换时按评论和按用户分别记录待持久化索引，
+ * 填充时只按索引读取相关记录，开销与这条评论（或这个用户）未持久化的变更数成正比。
+ */
+@Service
+@Slf4j
+public class CommentLikeService {
+
+    // 评论点赞用户集合键前缀（格式：comment:like:set:{评论ID}）
+    private static final String LIKE_SET_PREFIX = "comment:like:set:";
+    // 待刷盘计数增量哈希（字段为评论ID，值为增量）
+    private static final String DELTA_KEY = "comment:like:delta";
+    // 待持久化点赞记录哈希（字段为 评论ID:用户ID，值为 1 点赞 / 0 取消点赞）
+    private static final String PENDING_KEY = "comment:like:pending";
+    // 刷盘中的增量与点赞记录（刷盘开始时由上面两个哈希重命名而来，刷盘失败时保留，下个周期重试）
+    private static final String FLUSHING_DELTA_KEY = "comment:like:delta:flushing";
+    private static final String FLUSHING_PENDING_KEY = "comment:like:pending:flushing";
+    // 刷盘纪元：每完成一次刷盘加一，用于判断填充期间是否发生过刷盘
+    private static final String FLUSH_EPOCH_KEY = "comment:like:flush:epoch";
+    // 刷盘中数据的批次号
+    private static final String FLUSHING_BATCH_KEY = "comment:like:flushing:batch";
+    // 刷盘互斥锁，多实例部署时同一周期只由一个实例刷盘（值为持有者的令牌）
+    private static final String FLUSH_LOCK_KEY = "comment:like:flush:lock";
+    // 评论的待持久化用户索引键前缀（格式：comment:like:pending:comment:{评论ID}）
+    private static final String COMMENT_PENDING_PREFIX = "comment:like:pending:comment:";
+    // 用户的待持久化评论索引键前缀（格式：comment:like:pending:user:{用户ID}）
+    private static final String USER_PENDING_PREFIX = "comment:like:pending:user:";
+    // 刷盘批次表中的任务名称
+    private static final String FLUSH_BATCH_NAME = "comment-like";
+    // 刷盘批次记录保留时长（小时）
+    private static final int FLUSH_BATCH_RETENTION_HOURS = 24;
+    // 启动校正期间刷盘锁的过期时间（分钟）
+    private static final long RECONCILE_LOCK_MINUTES = 10;
+    // 用户已点赞评论集合键前缀（格式：comment:like:user:{用户ID}）
+    private static final String USER_LIKED_PREFIX = "comment:like:user:";
+    // 占位成员，保证没有点赞的评论、没有点赞的用户也能缓存为非空集合（ID从1开始）
+    private static final String PLACEHOLDER = "0";
+
+    private static final RedisScript<Long> TOGGLE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/comment_like_toggle.lua"), Long.class);
+    private static final RedisScript<Long> FILL_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/comment_like_set_fill.lua"), Long.class);
+    private static final RedisScript<String> FLUSH_BEGIN_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/comment_like_flush_begin.lua"), String.class);
+    private static final RedisScript<Long> FLUSH_DONE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/comment_like_flush_done.lua"), Long.class);
+    private static final RedisScript<Long> PENDING_TRIM_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/comment_like_pending_trim.lua"), Long.class);
+    private static final RedisScript<Long> LOCK_RELEASE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/flush_lock_release.lua"), Long.class);
+
+    // 填充集合时与刷盘冲突的最大重试次数
+    private static final int MAX_FILL_ATTEMPTS = 3;
+    // 清理待持久化索引时每次脚本处理的记录数
+    private static final int TRIM_BATCH_SIZE = 200;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private OmdUserMapper omdUserMapper;
+
+    @Autowired
+    private OmdMusicMapper omdMusicMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${comment-like.expire-hours:24}")
+    private long expireHours; // 点赞集合过期时间（小时），每次切换时续期
+
+    @Value("${comment-like.flush-lock-ms:60000}")
+    private long flushLockMs; // 刷盘互斥锁的过期时间（毫秒），写库事务的超时时间为其一半
+
+    @Value("${comment-like.flush-batch-size:500}")
+    private int flushBatchSize; // 单条语句最多合并的记录数
+
+    @Value("${comment-like.reconcile-on-startup:false}")
+    private boolean reconcileOnStartup; // 启动时是否按点赞记录校正评论点赞数（全表统计）
+
+    private TransactionTemplate transactionTemplate;
+
+    private Counter flushedCounter;
+    private Counter flushFailedCounter;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        // 事务超时短于锁的过期时间，保证持锁期间写库要么完成要么回滚
+        transactionTemplate.setTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(flushLockMs / 2)));
+        try {
+            omdMusicMapper.createFlushBatchTable();
+        } catch (Exception e) {
+            log.error("初始化刷盘批次表失败", e);
+        }
+        flushedCounter = Counter.builder("omd.comment.like.flushed")
+                .description("持久化的评论点赞记录变更数")
+                .register(meterRegistry);
+        flushFailedCounter = Counter.builder("omd.comment.like.flush.failed")
+                .description("评论点赞刷盘失败的次数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 开启启动校正时，应用启动完成后刷盘遗留的数据，并按点赞记录校正评论点赞数
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!reconcileOnStartup) {
+            return;
+        }
+        // 校正期间持有刷盘锁，避免与其他实例的刷盘交错
+        String token = UUID.randomUUID().toString();
+        Boolean locked = stringRedisTemplate.opsForValue()
+                .setIfAbsent(FLUSH_LOCK_KEY, token, RECONCILE_LOCK_MINUTES, TimeUnit.MINUTES);
+        if (!Boolean.TRUE.equals(locked)) {
+            log.info("其他实例正在刷盘，跳过本次评论点赞数校正");
+            return;
+        }
+        try {
+            if (flushBatch(token)) {
+                int rows = omdUserMapper.reconcileCommentLikeCounts();
+                log.info("评论点赞数校正完成，修正{}条评论", rows);
+            }
+        } catch (Exception e) {
+            log.error("评论点赞数校正失败", e);
+        } finally {
+            stringRedisTemplate.execute(LOCK_RELEASE_SCRIPT, List.of(FLUSH_LOCK_KEY), token);
+        }
+    }
+
+    /**
+     * 切换评论点赞状态
+     * @param omdMusicCommentId 评论ID
+     * @param omdUserId 用户ID
+     * @return true 点赞，false 取消点赞
+     */
+    public boolean toggle(Long omdMusicCommentId, Long omdUserId) {
+        Long liked = executeToggle(omdMusicCommentId, omdUserId);
+        if (liked != null && liked == -1L) {
+            if (omdUserMapper.findCommentByOmdMusicCommentId(omdMusicCommentId) == null) {
+                throw new RuntimeException("评论不存在");
+            }
+            if (fill(LIKE_SET_PREFIX + omdMusicCommentId, COMMENT_PENDING_PREFIX + omdMusicCommentId, "prefix", omdMusicCommentId,
+                    () -> omdUserMapper.getCommentLikeUserIds(omdMusicCommentId))) {
+                liked = executeToggle(omdMusicCommentId, omdUserId);
+            }
+        }
+        if (liked == null || liked == -1L) {
+            throw new RuntimeException("点赞失败");
+        }
+        return liked == 1L;
+    }
+
+    /**
+     * 批量获取用户对评论的点赞状态
+     * @param omdUserId 用户ID
+     * @param omdMusicCommentIdList 评论ID列表
+     * @return 评论ID -> 是否点赞
+     */
+    public Map<Long, Boolean> getLikedFlags(Long omdUserId, List<Long> omdMusicCommentIdList) {
+        Map<Long, Boolean> flags = new HashMap<>();
+        if (omdUserId == null || omdMusicCommentIdList == null || omdMusicCommentIdList.isEmpty()) {
+            return flags;
+        }
+        String setKey = USER_LIKED_PREFIX + omdUserId;
+        if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(setKey))
+                && !fill(setKey, USER_PENDING_PREFIX + omdUserId, "suffix", omdUserId,
+                        () -> omdUserMapper.getLikedCommentIdsByUserId(omdUserId))) {
+            // 多次与刷盘冲突，本次直接查询数据库（最多滞后一个刷盘周期）
+            omdMusicCommentIdList.forEach(id -> flags.put(id, false));
+            omdUserMapper.getLikedCommentIdsByUserIdAndCommentIds(omdUserId, omdMusicCommentIdList)
+                    .forEach(id -> flags.put(id, true));
+            return flags;
+        }
+        Map<Object, Boolean> result = stringRedisTemplate.opsForSet()
+                .isMember(setKey, omdMusicCommentIdList.stream().map(String::valueOf).toArray());
+        for (Long id : omdMusicCommentIdList) {
+            flags.put(id, result != null && Boolean.TRUE.equals(result.get(String.valueOf(id))));
+        }
+        return flags;
+    }
+
+    /**
+     * 把尚未刷盘的点赞增量叠加到评论的点赞数上（数据库中的点赞数最多滞后一个刷盘周期）
+     * @param comments 评论列表（原地修改点赞数）
+     */
+    public void applyPendingCounts(Collection<OmdMusicComment> comments) {
+        if (comments == null || comments.isEmpty()) {
+            return;
+        }
+        List<Object> fields = comments.stream().map(comment -> (Object) String.valueOf(comment.getOmdMusicCommentId())).toList();
+        List<Object> pending = stringRedisTemplate.opsForHash().multiGet(DELTA_KEY, fields);
+        List<Object> flushing = stringRedisTemplate.opsForHash().multiGet(FLUSHING_DELTA_KEY, fields);
+        int i = 0;
+        for (OmdMusicComment comment : comments) {
+            long delta = parseDelta(pending, i) + parseDelta(flushing, i);
+            i++;
+            if (delta != 0) {
+                long count = comment.getOmdMusicCommentLikeCount() == null ? 0 : comment.getOmdMusicCommentLikeCount();
+                comment.setOmdMusicCommentLikeCount(Math.max(count + delta, 0));
+            }
+        }
+    }
+
+    /**
+     * 把累积的点赞变更批量写回数据库
+     */
+    public void flush() {
+        String token = UUID.randomUUID().toString();
+        Boolean locked = stringRedisTemplate.opsForValue()
+                .setIfAbsent(FLUSH_LOCK_KEY, token, flushLockMs, TimeUnit.MILLISECONDS);
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        try {
+            flushBatch(token);
+        } finally {
+            stringRedisTemplate.execute(LOCK_RELEASE_SCRIPT, List.of(FLUSH_LOCK_KEY), token);
+        }
+    }
+
+    /**
+     * 刷盘一批变更：点赞记录、计数增量和批次号在同一个事务中写入，失败时整体回滚并保留刷盘中数据，下个周期重试；
+     * 批次号已记录说明之前已写入成功（只是没来得及收尾），本次只做收尾
+     * @param token 持有刷盘锁的令牌
+     * @return 是否已没有待收尾的数据
+     */
+    private boolean flushBatch(String token) {
+        String batchId = stringRedisTemplate.execute(FLUSH_BEGIN_SCRIPT,
+                List.of(DELTA_KEY, PENDING_KEY, FLUSHING_DELTA_KEY, FLUSHING_PENDING_KEY, FLUSHING_BATCH_KEY),
+                UUID.randomUUID().toString());
+        if (batchId == null) {
+            return true;
+        }
+
+        List<OmdCommentLike> likes = new ArrayList<>();
+        List<OmdCommentLike> unlikes = new ArrayList<>();
+        stringRedisTemplate.opsForHash().entries(FLUSHING_PENDING_KEY).forEach((field, value) -> {
+            String[] ids = field.toString().split(":");
+            OmdCommentLike omdCommentLike = new OmdCommentLike();
+            omdCommentLike.setOmdMusicCommentId(Long.valueOf(ids[0]));
+            omdCommentLike.setOmdUserId(Long.valueOf(ids[1]));
+            ("1".equals(value.toString()) ? likes : unlikes).add(omdCommentLike);
+        });
+        List<OmdMusicComment> deltas = new ArrayList<>();
+        stringRedisTemplate.opsForHash().entries(FLUSHING_DELTA_KEY).forEach((field, value) -> {
+            long delta = Long.parseLong(value.toString());
+            if (delta != 0) {
+                OmdMusicComment omdMusicComment = new OmdMusicComment();
+                omdMusicComment.setOmdMusicCommentId(Long.valueOf(field.toString()));
+                // 此处 omdMusicCommentLikeCount 表示增量
+                omdMusicComment.setOmdMusicCommentLikeCount(delta);
+                deltas.add(omdMusicComment);
+            }
+        });
+
+        Boolean applied;
+        try {
+            applied = transactionTemplate.execute(status -> {
+                if (omdMusicMapper.insertFlushBatch(FLUSH_BATCH_NAME, batchId) == 0) {
+                    return false;
+                }
+                for (int from = 0; from < likes.size(); from += flushBatchSize) {
+                    omdUserMapper.batchInsertCommentLike(likes.subList(from, Math.min(from + flushBatchSize, likes.size())));
+                }
+                for (int from = 0; from < unlikes.size(); from += flushBatchSize) {
+                    omdUserMapper.batchDeleteCommentLike(unlikes.subList(from, Math.min(from + flushBatchSize, unlikes.size())));
+                }
+                for (int from = 0; from < deltas.size(); from += flushBatchSize) {
+                    omdUserMapper.batchIncrementCommentLikeCount(deltas.subList(from, Math.min(from + flushBatchSize, deltas.size())));
+                }
+                return true;
+            });
+        } catch (Exception e) {
+            flushFailedCounter.increment();
+            log.error("评论点赞刷盘失败，批次{}共{}条点赞记录、{}条评论计数，等待下个周期重试",
+                    batchId, likes.size() + unlikes.size(), deltas.size(), e);
+            return false;
+        }
+        Long epoch = stringRedisTemplate.execute(FLUSH_DONE_SCRIPT,
+                List.of(FLUSHING_DELTA_KEY, FLUSHING_PENDING_KEY, FLUSHING_BATCH_KEY, FLUSH_EPOCH_KEY, FLUSH_LOCK_KEY), token);
+        if (epoch == null) {
+            log.warn("评论点赞刷盘批次{}收尾时互斥锁已失效，由下一个持锁实例收尾", batchId);
+            return false;
+        }
+        if (Boolean.TRUE.equals(applied)) {
+            flushedCounter.increment(likes.size() + unlikes.size());
+            log.debug("评论点赞刷盘完成，批次{}共{}条点赞记录、{}条评论计数", batchId, likes.size() + unlikes.size(), deltas.size());
+        }
+        try {
+            trimPendingIndex(likes, unlikes);
+            omdMusicMapper.deleteFlushBatchBefore(FLUSH_BATCH_RETENTION_HOURS);
+        } catch (Exception e) {
+            // 索引残留只会让填充时多读几个不存在的字段，过期后自动清除
+            log.warn("清理评论点赞刷盘残留数据失败", e);
+        }
+        return true;
+    }
+
+    // 从待持久化索引中移除已写入数据库、之后没有再次切换的记录
+    private void trimPendingIndex(List<OmdCommentLike> likes, List<OmdCommentLike> unlikes) {
+        List<OmdCommentLike> records = new ArrayList<>(likes.size() + unlikes.size());
+        records.addAll(likes);
+        records.addAll(unlikes);
+        for (int from = 0; from < records.size(); from += TRIM_BATCH_SIZE) {
+            List<OmdCommentLike> chunk = records.subList(from, Math.min(from + TRIM_BATCH_SIZE, records.size()));
+            List<String> keys = new ArrayList<>(chunk.size() * 2 + 2);
+            List<String> args = new ArrayList<>(chunk.size() * 2);
+            keys.add(PENDING_KEY);
+            keys.add(FLUSHING_PENDING_KEY);
+            for (OmdCommentLike record : chunk) {
+                keys.add(COMMENT_PENDING_PREFIX + record.getOmdMusicCommentId());
+                keys.add(USER_PENDING_PREFIX + record.getOmdUserId());
+                args.add(String.valueOf(record.getOmdMusicCommentId()));
+                args.add(String.valueOf(record.getOmdUserId()));
+            }
+            stringRedisTemplate.execute(PENDING_TRIM_SCRIPT, keys, args.toArray());
+        }
+    }
+
+    private Long executeToggle(Long omdMusicCommentId, Long omdUserId) {
+        return stringRedisTemplate.execute(TOGGLE_SCRIPT,
+                List.of(LIKE_SET_PREFIX + omdMusicCommentId, DELTA_KEY, PENDING_KEY, USER_LIKED_PREFIX + omdUserId,
+                        COMMENT_PENDING_PREFIX + omdMusicCommentId, USER_PENDING_PREFIX + omdUserId),
+                String.valueOf(omdMusicCommentId), String.valueOf(omdUserId),
+                String.valueOf(TimeUnit.HOURS.toSeconds(expireHours)));
+    }
+
+    /**
+     * 从数据库懒加载集合并叠加尚未持久化的点赞变更；读取期间发生过刷盘时重新读取
+     * @param setKey 集合键
+     * @param pendingIndexKey 待持久化索引键（评论的待持久化用户，或用户的待持久化评论）
+     * @param match prefix 表示记录字段中评论ID在前（填充评论点赞集合），suffix 表示用户ID在后（填充用户已点赞集合）
+     * @param id 评论ID或用户ID
+     * @param loader 从数据库读取集合成员
+     * @return 集合是否可用
+     */
+    private boolean fill(String setKey, String pendingIndexKey, String match, Long id, Supplier<List<Long>> loader) {
+        for (int attempt = 0; attempt < MAX_FILL_ATTEMPTS; attempt++) {
+            // 先记录刷盘纪元再读数据库，填充时据此判断期间是否发生过刷盘
+            String epoch = stringRedisTemplate.opsForValue().get(FLUSH_EPOCH_KEY);
+            List<Long> members = loader.get();
+            List<String> args = new ArrayList<>(members.size() + 5);
+            args.add(epoch == null ? "0" : epoch);
+            args.add(String.valueOf(TimeUnit.HOURS.toSeconds(expireHours)));
+            args.add(match);
+            args.add(String.valueOf(id));
+            args.add(PLACEHOLDER);
+            members.forEach(member -> args.add(String.valueOf(member)));
+            Long filled = stringRedisTemplate.execute(FILL_SCRIPT,
+                    List.of(setKey, FLUSHING_PENDING_KEY, PENDING_KEY, FLUSH_EPOCH_KEY, pendingIndexKey), args.toArray());
+            if (filled != null && filled == 1L) {
+                return true;
+            }
+        }
+        log.warn("填充点赞集合{}时多次与刷盘冲突", setKey);
+        return false;
+    }
+
+    private long parseDelta(List<Object> values, int index) {
+        Object value = values == null ? null : values.get(index);
+        return value == null ? 0 : Long.parseLong(value.toString());
+    }
+}
@@ -0,0 +1,87 @@
+package org.x.backend.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.x.backend.mapper.OmdPublicMapper;
+import org.x.backend.mapper.OmdUserMapper;
+import org.x.backend.pojo.OmdMusicComment;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 评论树加载服务
+ * 评论结果映射原先通过嵌套查询懒加载子评论，序列化一页评论时每个父评论都会触发一次查询（N+1）。
+ * 现在先查出一页父评论，再用一条窗口函数查询取出这些父评论各自最新的前 N 条子评论，在内存中挂到父评论上，
+ * 一页评论固定两次查询；更多子评论通过 getChildCommentsByParentId 分页获取。
+ * 评论层级另外记录在闭包表 tb_omd_music_comment_closure 中（每对祖先/子孙一行），发表评论时写入，
+ * 删除评论时一条语句即可删除整棵子树，不再逐层递归查询。启动时补全缺少闭包关系的评论。
+ */
+@Service
+@Slf4j
+public class CommentTreeService {
+
+    @Autowired
+    private OmdPublicMapper omdPublicMapper;
+
+    @Autowired
+    private OmdUserMapper omdUserMapper;
+
+    @Value("${comment.reply-preview-size:3}")
+    private int replyPreviewSize;
+
+    /**
+     * 启动时（开始接收请求之前）确保闭包表存在，并补全缺失的层级关系（首次上线或旧版本实例写入的评论）
+     * 补全失败时删除评论会在发现闭包关系缺失后再补全一次
+     */
+    @PostConstruct
+    public void init() {
+        try {
+            omdUserMapper.createCommentClosureTable();
+            int rows = omdUserMapper.backfillCommentClosure();
+            if (rows > 0) {
+                log.info("评论闭包表补全{}条层级关系", rows);
+            }
+        } catch (Exception e) {
+            log.error("初始化评论闭包表失败", e);
+        }
+    }
+
+    /**
+     * 为一页评论挂载子评论预览
+     * @param parents 父评论列表（原地修改其子评论列表）
+     * @return 传入的父评论列表
+     */
+    public List<OmdMusicComment> attachReplies(List<OmdMusicComment> parents) {
+        if (parents == null || parents.isEmpty() || replyPreviewSize <= 0) {
+            return parents;
+        }
+        Map<Long, OmdMusicComment> parentMap = new HashMap<>(parents.size() * 2);
+        List<Long> parentIds = new ArrayList<>(parents.size());
+        for (OmdMusicComment parent : parents) {
+            parent.setOmdMusicCommentReplies(new ArrayList<>());
+            // 没有子评论的父评论不参与查询
+            if (parent.getOmdMusicCommentReplyCount() == null || parent.getOmdMusicCommentReplyCount() > 0) {
+                parentMap.put(parent.getOmdMusicCommentId(), parent);
+                parentIds.add(parent.getOmdMusicCommentId());
+            }
+        }
+        if (parentIds.isEmpty()) {
+            return parents;
+        }
+
+        // 查询结果已按父评论、时间倒序排列，直接按顺序追加
+        for (OmdMusicComment reply : omdPublicMapper.getTopRepliesByParentIds(parentIds, replyPreviewSize)) {
+            OmdMusicComment parent = parentMap.get(reply.getOmdMusicCommentParentId());
+            if (parent != null) {
+                parent.getOmdMusicCommentReplies().add(reply);
+            }
+        }
+        return parents;
+    }
+}
@@ -1,48 +1,95 @@
 package org.x.backend.service.impl;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.x.backend.mapper.UserDetailsMapper;
 import org.x.backend.mapper.OmdRolePermissionMapper;
 import org.x.backend.mapper.OmdUserRoleMapper;
+import org.x.backend.pojo.OmdRolePermission;
 import org.x.backend.pojo.OmdUser;
 import org.x.backend.pojo.OmdRole;
-import org.x.backend.pojo.OmdPermission;
 import org.x.backend.service.CustomUserDetailsService;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
-public class CustomUserDetailsServiceImpl implements CustomUserDetailsService {
+public class CustomUserDetailsServiceImpl implements CustomUserDetailsService, MessageListener {
+
+    // 用户认证信息失效广播频道，消息体为用户ID
+    public static final String USER_DETAILS_INVALIDATE_CHANNEL = "user:details:invalidate";
 
     private final UserDetailsMapper userDetailsMapper;
     private final OmdUserRoleMapper omdUserRoleMapper;
     private final OmdRolePermissionMapper omdRolePermissionMapper;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Value("${local-cache.user-details.maximum-size:10000}")
+    private long maximumSize;
+
+    @Value("${local-cache.user-details.expire-minutes:10}")
+    private long expireMinutes;
+
+    // 角色权限矩阵：角色代码 -> 权限集合（启动时加载，变更时整体替换，读路径无锁）
+    private volatile Map<String, List<GrantedAuthority>> rolePermissionMatrix = Collections.emptyMap();
+
+    // 用户认证信息缓存：用户ID -> UserDetails（有界，写入后定时过期）
+    private Cache<Long, UserDetails> userDetailsCache;
 
     /**
-     * 加载用户信息
+     * 初始化缓存并加载角色权限矩阵
+     */
+    @PostConstruct
+    public void init() {
+        userDetailsCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireMinutes, TimeUnit.MINUTES)
+                .build();
+        reloadRolePermissions();
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(USER_DETAILS_INVALIDATE_CHANNEL));
+    }
+
+    /**
+     * 加载用户信息（认证热点路径，稳定状态下不访问数据库）
      * @param id 用户ID
      * @return 用户信息
      * @throws UsernameNotFoundException 用户不存在异常
      */
     @Override
     public UserDetails loadUserById(Long id) throws UsernameNotFoundException {
-        Optional<OmdUser> userOptional = userDetailsMapper.findById(id);
-        if (userOptional.isEmpty()) {
-            throw new UsernameNotFoundException("用户不存在，ID: " + id);
-        }
-        OmdUser user = userOptional.get();
-        return buildUserDetails(user);
+        return userDetailsCache.get(id, key -> {
+            Optional<OmdUser> userOptional = userDetailsMapper.findById(key);
+            if (userOptional.isEmpty()) {
+                throw new UsernameNotFoundException("用户不存在，ID: " + key);
+            }
+            return buildUserDetails(userOptional.get());
+        });
     }
 
     /**
@@ -61,6 +108,77 @@ public class CustomUserDetailsServiceImpl implements CustomUserDetailsService {
         return buildUserDetails(user);
     }
 
+    /**
+     * 使某个用户的认证信息缓存失效，并广播给其它实例
+     * 本实例立即失效；在事务中调用时，提交后再失效一次并广播，避免并发请求在提交前把旧数据重新加载进缓存
+     * @param omdUserId 用户ID
+     */
+    @Override
+    public void evictUser(Long omdUserId) {
+        if (omdUserId == null) {
+            return;
+        }
+        userDetailsCache.invalidate(omdUserId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    userDetailsCache.invalidate(omdUserId);
+                    publishInvalidation(omdUserId);
+                }
+            });
+        } else {
+            publishInvalidation(omdUserId);
+        }
+        log.info("用户[{}]的认证信息缓存已失效", omdUserId);
+    }
+
+    /**
+     * 处理其它实例（包括本实例）广播的失效消息
+     * @param message 消息体为用户ID
+     * @param pattern 订阅的频道
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            userDetailsCache.invalidate(Long.parseLong(body.trim()));
+        } catch (NumberFormatException e) {
+            log.warn("无法解析的用户认证信息失效消息: {}", body);
+        }
+    }
+
+    /**
+     * 重新加载角色权限矩阵，并清空所有用户的认证信息缓存
+     */
+    @Override
+    public void reloadRolePermissions() {
+        Map<String, List<GrantedAuthority>> matrix = new HashMap<>();
+        List<OmdRolePermission> rolePermissions = omdRolePermissionMapper.findAllRolePermissions();
+        if (rolePermissions != null) {
+            rolePermissions.forEach(rp -> matrix
+                    .computeIfAbsent(rp.getOmdRoleCode(), k -> new ArrayList<>())
+                    // 权限建议格式：permission:资源:操作
+                    .add(new SimpleGrantedAuthority("permission:" + rp.getOmdPermissionCode())));
+        }
+        matrix.replaceAll((roleCode, authorities) -> List.copyOf(authorities));
+        rolePermissionMatrix = Map.copyOf(matrix);
+        if (userDetailsCache != null) {
+            userDetailsCache.invalidateAll();
+        }
+        log.info("角色权限矩阵加载完成，共{}个角色", matrix.size());
+    }
+
+    // 广播用户认证信息失效消息，其它实例收到后清除本地缓存
+    private void publishInvalidation(Long omdUserId) {
+        try {
+            stringRedisTemplate.convertAndSend(USER_DETAILS_INVALIDATE_CHANNEL, String.valueOf(omdUserId));
+        } catch (Exception e) {
+            // 广播失败时其它实例最迟在本地缓存过期后同步
+            log.error("广播用户[{}]的认证信息失效消息失败", omdUserId, e);
+        }
+    }
+
     /**
      * 构建UserDetails对象
      * @param user 用户对象
@@ -68,6 +186,7 @@ public class CustomUserDetailsServiceImpl implements CustomUserDetailsService {
      */
     private UserDetails buildUserDetails(OmdUser user) {
         List<GrantedAuthority> authorities = new ArrayList<>();
+        Map<String, List<GrantedAuthority>> matrix = rolePermissionMatrix;
 
         // 获取用户的所有角色
         List<OmdRole> omdRoles = omdUserRoleMapper.findRolesByUserId(user.getOmdUserId());
@@ -81,15 +200,8 @@ public class CustomUserDetailsServiceImpl implements CustomUserDetailsService {
                 authorities.add(new SimpleGrantedAuthority(roleCode));
                 log.info("用户[{}]的角色为：{}", user.getOmdUserName(), roleCode);
 
-                // 获取角色对应的权限（建议权限以permission:为前缀）
-                List<OmdPermission> omdPermissions = omdRolePermissionMapper.findPermissionsByRoleCode(omdRole.getOmdRoleCode());
-                if (omdPermissions != null) {
-                    omdPermissions.forEach(perm -> {
-                        // 权限建议格式：permission:资源:操作
-                        String permissionCode = "permission:" + perm.getOmdPermissionCode();
-                        authorities.add(new SimpleGrantedAuthority(permissionCode));
-                    });
-                }
+                // 从内存中的角色权限矩阵获取角色对应的权限
+                authorities.addAll(matrix.getOrDefault(omdRole.getOmdRoleCode(), Collections.emptyList()));
             });
         }
 
@@ -103,4 +215,4 @@ public class CustomUserDetailsServiceImpl implements CustomUserDetailsService {
                 authorities                  // 权限集合
         );
     }
-}
\ No newline at end of file
+}
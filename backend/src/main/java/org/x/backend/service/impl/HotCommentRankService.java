@@ -0,0 +1,251 @@
+package org.x.backend.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.x.backend.mapper.OmdUserMapper;
+import org.x.backend.pojo.OmdMusicComment;
+import org.x.backend.pojo.PageBean;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 歌曲热评排行服务
+ * 每首歌的一级评论按热度保存在 Redis 有序集合 comment:hot:{音乐ID} 中，热度为
+ * log2(1 + 点赞数 + 回复权重 × 回复数) + 创建时间 / 衰减周期，
+ * 即早发布一个衰减周期的评论需要多一倍的互动才能与新评论持平；分数只取决于评论自身，不需要定时重算。
+ * 首次访问时从数据库懒加载，点赞、取消点赞、回复、删除在事务提交后按评论的最新计数（含未刷盘的点赞增量）增量更新。
+ * 查询一页时按排名取出评论ID，再按ID批量查询评论内容，并用每个用户的已点赞评论集合（见 CommentLikeService）标记点赞状态，
+ * 开销与页大小成正比，与歌曲的评论总数无关。
+ */
+@Service
+@Slf4j
+public class HotCommentRankService {
+
+    // 热评排行键前缀（格式：comment:hot:{音乐ID}）
+    private static final String RANK_PREFIX = "comment:hot:";
+    // 排行版本号键前缀，每次变更加一，用于丢弃懒加载期间读到的旧数据
+    private static final String RANK_VERSION_PREFIX = "comment:hot:ver:";
+    // 占位成员，保证没有评论的歌曲也能缓存（评论ID从1开始，分数为负无穷，始终排在最后）
+    private static final String PLACEHOLDER = "0";
+
+    private static final RedisScript<Long> RANK_FILL_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/comment_hot_fill.lua"), Long.class);
+    private static final RedisScript<Long> RANK_UPDATE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/comment_hot_update.lua"), Long.class);
+
+    // 每页最大条数
+    private static final int MAX_PAGE_SIZE = 100;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private OmdUserMapper omdUserMapper;
+
+    @Autowired
+    private CommentLikeService commentLikeService;
+
+    @Value("${comment.hot.decay-hours:24}")
+    private long decayHours;
+
+    @Value("${comment.hot.reply-weight:2}")
+    private double replyWeight;
+
+    @Value("${comment.hot.expire-hours:24}")
+    private long expireHours;
+
+    /**
+     * 按热度分页查询歌曲的一级评论
+     * @param omdMusicInfoId 音乐ID
+     * @param pageNum 页码（从1开始）
+     * @param pageSize 每页条数
+     * @param omdUserId 当前用户ID，用于标记本人评论和点赞状态
+     * @return 分页结果
+     */
+    public PageBean<OmdMusicComment> getHotCommentPage(Long omdMusicInfoId, int pageNum, int pageSize, Long omdUserId) {
+        int size = Math.min(Math.max(pageSize, 1), MAX_PAGE_SIZE);
+        long start = (long) (Math.max(pageNum, 1) - 1) * size;
+
+        long total;
+        List<Long> ids;
+        String rankKey = RANK_PREFIX + omdMusicInfoId;
+        List<OmdMusicComment> stats = null;
+        if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(rankKey))) {
+            stats = omdUserMapper.getCommentHotStatListByMusicId(omdMusicInfoId);
+            commentLikeService.applyPendingCounts(stats);
+            if (fillRank(omdMusicInfoId, stats)) {
+                stats = null;
+            }
+        }
+        if (stats == null) {
+            Long card = stringRedisTemplate.opsForZSet().zCard(rankKey);
+            total = card == null ? 0 : Math.max(card - 1, 0);
+            Set<String> members = start >= total ? Collections.emptySet()
+                    : stringRedisTemplate.opsForZSet().reverseRange(rankKey, start, start + size - 1);
+            ids = new ArrayList<>(size);
+            if (members != null) {
+                for (String member : members) {
+                    if (!PLACEHOLDER.equals(member)) {
+                        ids.add(Long.valueOf(member));
+                    }
+                }
+            }
+        } else {
+            // 加载期间发生了评论变更，本次直接在内存中对读到的数据排序
+            total = stats.size();
+            ids = stats.stream()
+                    .sorted(Comparator.comparingDouble(this::score).reversed())
+                    .skip(start)
+                    .limit(size)
+                    .map(OmdMusicComment::getOmdMusicCommentId)
+                    .toList();
+        }
+        return new PageBean<>(total, hydrate(ids, omdUserId));
+    }
+
+    /**
+     * 发表评论后更新排行：一级评论加入排行，回复则更新其父评论的热度
+     * @param omdMusicComment 新评论（需已回填评论ID）
+     */
+    public void onCommentInserted(OmdMusicComment omdMusicComment) {
+        Long parentId = omdMusicComment.getOmdMusicCommentParentId();
+        if (parentId == null || parentId == 0) {
+            runAfterCommit(() -> refresh(omdMusicComment.getOmdMusicCommentId(), "add"));
+        } else {
+            runAfterCommit(() -> refresh(parentId, "xx"));
+        }
+    }
+
+    /**
+     * 点赞或取消点赞后更新评论热度
+     * @param omdMusicCommentId 评论ID
+     */
+    public void onCommentLikeChanged(Long omdMusicCommentId) {
+        runAfterCommit(() -> refresh(omdMusicCommentId, "xx"));
+    }
+
+    /**
+     * 删除评论后更新排行：一级评论移出排行，回复则更新其父评论的热度
+     * @param omdMusicComment 被删除的评论（删除前查询）
+     */
+    public void onCommentDeleted(OmdMusicComment omdMusicComment) {
+        Long parentId = omdMusicComment.getOmdMusicCommentParentId();
+        if (parentId == null || parentId == 0) {
+            runAfterCommit(() -> updateRank(omdMusicComment.getOmdMusicInfoId(), "rem", 0,
+                    omdMusicComment.getOmdMusicCommentId()));
+        } else {
+            runAfterCommit(() -> refresh(parentId, "xx"));
+        }
+    }
+
+    // 按评论的最新计数重新计算热度；评论不存在或不是已通过的一级评论时不加入排行
+    private void refresh(Long omdMusicCommentId, String op) {
+        try {
+            OmdMusicComment comment = omdUserMapper.findCommentByOmdMusicCommentId(omdMusicCommentId);
+            if (comment == null || (comment.getOmdMusicCommentParentId() != null && comment.getOmdMusicCommentParentId() != 0)) {
+                return;
+            }
+            if (!Integer.valueOf(1).equals(comment.getOmdMusicCommentStatus())) {
+                updateRank(comment.getOmdMusicInfoId(), "rem", 0, omdMusicCommentId);
+                return;
+            }
+            commentLikeService.applyPendingCounts(List.of(comment));
+            updateRank(comment.getOmdMusicInfoId(), op, score(comment), omdMusicCommentId);
+        } catch (Exception e) {
+            // 排行在过期后会从数据库重建
+            log.warn("更新评论[{}]热度失败", omdMusicCommentId, e);
+        }
+    }
+
+    private void updateRank(Long omdMusicInfoId, String op, double score, Long omdMusicCommentId) {
+        stringRedisTemplate.execute(RANK_UPDATE_SCRIPT,
+                List.of(RANK_PREFIX + omdMusicInfoId, RANK_VERSION_PREFIX + omdMusicInfoId),
+                op, String.valueOf(TimeUnit.HOURS.toSeconds(expireHours)),
+                String.valueOf(score), String.valueOf(omdMusicCommentId));
+    }
+
+    // 用数据库中的评论填充排行，读取期间有评论变更则放弃
+    private boolean fillRank(Long omdMusicInfoId, List<OmdMusicComment> stats) {
+        String version = stringRedisTemplate.opsForValue().get(RANK_VERSION_PREFIX + omdMusicInfoId);
+        List<String> args = new ArrayList<>(stats.size() * 2 + 4);
+        args.add(version == null ? "0" : version);
+        args.add(String.valueOf(TimeUnit.HOURS.toSeconds(expireHours)));
+        args.add("-inf");
+        args.add(PLACEHOLDER);
+        for (OmdMusicComment comment : stats) {
+            args.add(String.valueOf(score(comment)));
+            args.add(String.valueOf(comment.getOmdMusicCommentId()));
+        }
+        Long filled = stringRedisTemplate.execute(RANK_FILL_SCRIPT,
+                List.of(RANK_PREFIX + omdMusicInfoId, RANK_VERSION_PREFIX + omdMusicInfoId), args.toArray());
+        return filled != null && filled == 1L;
+    }
+
+    // 按ID批量查询评论内容，保持排行顺序，并标记本人评论和点赞状态
+    private List<OmdMusicComment> hydrate(List<Long> ids, Long omdUserId) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, OmdMusicComment> commentMap = new HashMap<>(ids.size() * 2);
+        for (OmdMusicComment comment : omdUserMapper.getMusicCommentListByIds(ids)) {
+            commentMap.put(comment.getOmdMusicCommentId(), comment);
+        }
+        commentLikeService.applyPendingCounts(commentMap.values());
+        Map<Long, Boolean> likedFlags = commentLikeService.getLikedFlags(omdUserId, ids);
+        List<OmdMusicComment> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            // 排行中可能残留刚被删除或下架的评论，直接跳过
+            OmdMusicComment comment = commentMap.get(id);
+            if (comment != null) {
+                comment.setIsOwnComment(omdUserId != null && omdUserId.equals(comment.getOmdUserId()));
+                comment.setIsLikedByUser(likedFlags.getOrDefault(id, false));
+                result.add(comment);
+            }
+        }
+        return result;
+    }
+
+    private double score(OmdMusicComment comment) {
+        long likes = comment.getOmdMusicCommentLikeCount() == null ? 0 : comment.getOmdMusicCommentLikeCount();
+        int replies = comment.getOmdMusicCommentReplyCount() == null ? 0 : comment.getOmdMusicCommentReplyCount();
+        long createTime = comment.getOmdMusicCommentCreateTime() == null
+                ? System.currentTimeMillis() : comment.getOmdMusicCommentCreateTime().getTime();
+        return hotScore(likes, replies, createTime, replyWeight, decayHours);
+    }
+
+    /**
+     * 热度 = log2(1 + 点赞数 + 回复权重 × 回复数) + 创建时间 / 衰减周期
+     * @param likes 点赞数（负数按0计）
+     * @param replies 回复数（负数按0计）
+     * @param createTime 创建时间（毫秒）
+     * @param replyWeight 一条回复折算的点赞数
+     * @param decayHours 衰减周期（小时）
+     * @return 热度
+     */
+    static double hotScore(long likes, int replies, long createTime, double replyWeight, long decayHours) {
+        double engagement = Math.log(1 + Math.max(likes, 0) + replyWeight * Math.max(replies, 0)) / Math.log(2);
+        return engagement + (double) createTime / TimeUnit.HOURS.toMillis(decayHours);
+    }
+
+    // 有事务时在提交后执行，保证读到已提交的计数
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.x.backend.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.x.backend.pojo.OmdPlaylist;
+import org.x.backend.service.OmdMusicService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * “我喜欢的音乐”歌单ID缓存服务
+ * 每个用户的点赞歌单ID创建后基本不变，缓存在本地，点赞/取消点赞时无需再查询歌单表；
+ * 歌单不存在时在独立事务中创建，避免外层点赞事务回滚后缓存中留下不存在的歌单ID。
+ */
+@Service
+@Slf4j
+public class LikedPlaylistService {
+
+    @Autowired
+    private OmdMusicService omdMusicService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${local-cache.liked-playlist.maximum-size:100000}")
+    private long maximumSize;
+
+    @Value("${local-cache.liked-playlist.expire-minutes:60}")
+    private long expireMinutes;
+
+    // 用户ID -> 点赞歌单ID
+    private Cache<Long, Long> likedPlaylistIdCache;
+
+    // 独立事务模板，用于创建点赞歌单
+    private TransactionTemplate requiresNewTemplate;
+
+    @PostConstruct
+    public void init() {
+        likedPlaylistIdCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(expireMinutes, TimeUnit.MINUTES)
+                .build();
+        requiresNewTemplate = new TransactionTemplate(transactionManager);
+        requiresNewTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * 获取用户的点赞歌单ID，不存在则创建
+     * @param omdUserId 用户ID
+     * @return 点赞歌单ID
+     */
+    public Long getOrCreateLikedPlaylistId(Long omdUserId) {
+        return likedPlaylistIdCache.get(omdUserId, id -> requiresNewTemplate.execute(status -> {
+            OmdPlaylist omdPlaylist = omdMusicService.checkIfLikePlaylist(id);
+            if (omdPlaylist != null) {
+                return omdPlaylist.getOmdPlaylistId();
+            }
+            OmdPlaylist omdMusicLikePlaylist = new OmdPlaylist();
+            omdMusicLikePlaylist.setOmdUserId(id);
+            if (!omdMusicService.insertLikePlaylist(omdMusicLikePlaylist)) {
+                throw new RuntimeException("创建点赞歌单失败");
+            }
+            return omdMusicLikePlaylist.getOmdPlaylistId();
+        }));
+    }
+
+    /**
+     * 获取用户的点赞歌单ID，不存在时不创建
+     * @param omdUserId 用户ID
+     * @return 点赞歌单ID，不存在返回null
+     */
+    public Long getLikedPlaylistId(Long omdUserId) {
+        Long cached = likedPlaylistIdCache.getIfPresent(omdUserId);
+        if (cached != null) {
+            return cached;
+        }
+        OmdPlaylist omdPlaylist = omdMusicService.checkIfLikePlaylist(omdUserId);
+        if (omdPlaylist == null) {
+            return null;
+        }
+        likedPlaylistIdCache.put(omdUserId, omdPlaylist.getOmdPlaylistId());
+        return omdPlaylist.getOmdPlaylistId();
+    }
+
+    /**
+     * 使用户的点赞歌单ID缓存失效（删除点赞歌单后调用）
+     * @param omdUserId 用户ID
+     */
+    public void evict(Long omdUserId) {
+        likedPlaylistIdCache.invalidate(omdUserId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    likedPlaylistIdCache.invalidate(omdUserId);
+                }
+            });
+        }
+    }
+}
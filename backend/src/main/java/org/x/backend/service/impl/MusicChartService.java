@@ -0,0 +1,227 @@
+package org.x.backend.service.impl;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.x.backend.pojo.OmdMusicTopVO;
+import org.x.backend.utils.RedisUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 音乐播放排行榜服务（按时间分桶的滑动窗口）
+ * 播放写入当前小时桶；定时任务把已结束的一天的小时桶合并为天桶，
+ * 再用 ZUNIONSTORE 把窗口内的小时桶/天桶合并为榜单结果键。读取榜单只做一次 ZREVRANGE，复杂度 O(log N + k)。
+ * 窗口按小时滑动：最近 N 小时中完整落在窗口内的 UTC 天使用天桶，首尾不满一天的部分使用小时桶。
+ * 桶按 UTC 整点/整天划分，使用固定的过期时间点，到期后自动删除。
+ */
+@Service
+@Slf4j
+public class MusicChartService {
+
+    // 榜单分类：总榜、游客榜、用户榜
+    public static final String SEGMENT_TOTAL = "total";
+    public static final String SEGMENT_GUEST = "guest";
+    public static final String SEGMENT_USER = "user";
+    private static final String[] SEGMENTS = {SEGMENT_TOTAL, SEGMENT_GUEST, SEGMENT_USER};
+    // 单次可查询的最大条数，超出的请求按最大条数返回
+    public static final int MAX_LIMIT = 100;
+
+    // 小时桶键前缀（格式：music:play:bucket:h:{分类}:{UTC小时序号}）
+    private static final String HOUR_BUCKET_PREFIX = "music:play:bucket:h:";
+    // 天桶键前缀（格式：music:play:bucket:d:{分类}:{UTC天序号}）
+    private static final String DAY_BUCKET_PREFIX = "music:play:bucket:d:";
+    // 榜单结果键前缀（格式：music:play:chart:{分类}:{窗口}）
+    private static final String CHART_PREFIX = "music:play:chart:";
+    // 榜单重建互斥锁，多实例部署时同一周期只由一个实例重建
+    private static final String REBUILD_LOCK_KEY = "music:play:chart:lock";
+
+    // 小时桶保留时长：最长的30天窗口在最早一天只覆盖部分小时，需要最早720小时前的小时桶，另留8小时余量
+    private static final long HOUR_BUCKET_RETENTION_HOURS = 30 * 24 + 8;
+    // 天桶保留时长：覆盖最长的30天窗口
+    private static final long DAY_BUCKET_RETENTION_DAYS = 32;
+    // 单曲播放量计数的过期时间（天）
+    private static final long PLAY_COUNT_EXPIRE_DAYS = 7;
+    // 同一用户/游客重复播放的去重窗口（分钟）
+    private static final long DE_DUP_MINUTES = 10;
+
+    /**
+     * 榜单时间窗口
+     */
+    @Getter
+    public enum ChartWindow {
+        LAST_24_HOURS("24h", 24),
+        LAST_7_DAYS("7d", 7 * 24),
+        LAST_30_DAYS("30d", 30 * 24);
+
+        private final String code; // 接口参数值
+        private final int hours; // 窗口长度（小时），包含当前小时
+
+        ChartWindow(String code, int hours) {
+            this.code = code;
+            this.hours = hours;
+        }
+
+        /**
+         * 根据接口参数解析窗口
+         * @param code 接口参数值
+         * @return 时间窗口，不支持时返回null
+         */
+        public static ChartWindow fromCode(String code) {
+            for (ChartWindow window : values()) {
+                if (window.code.equalsIgnoreCase(code)) {
+                    return window;
+                }
+            }
+            return null;
+        }
+    }
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    @Value("${music-chart.refresh-ms:60000}")
+    private long refreshMs; // 榜单重建周期（毫秒）
+
+    /**
+     * 记录一次播放：去重、播放量计数、写入当前小时桶
+     * @param omdMusicInfoId 音乐ID
+     * @param isGuest 是否游客
+     * @param deDupKey 去重键
+     * @return 本次播放被计入返回 true，重复播放返回 false
+     */
+    public boolean recordPlay(Long omdMusicInfoId, boolean isGuest, String deDupKey) {
+        String segment = isGuest ? SEGMENT_GUEST : SEGMENT_USER;
+        long currentHour = currentHour();
+        // 小时桶在该小时结束后再保留固定时长，过期时间点固定，不随后续播放顺延
+        long bucketExpireAt = TimeUnit.HOURS.toSeconds(currentHour + 1 + HOUR_BUCKET_RETENTION_HOURS);
+        return redisUtil.recordMusicPlay(
+                deDupKey,
+                "music:play:" + SEGMENT_TOTAL + ":" + omdMusicInfoId,
+                "music:play:" + segment + ":" + omdMusicInfoId,
+                hourBucketKey(SEGMENT_TOTAL, currentHour),
+                hourBucketKey(segment, currentHour),
+                omdMusicInfoId,
+                TimeUnit.MINUTES.toSeconds(DE_DUP_MINUTES),
+                TimeUnit.DAYS.toSeconds(PLAY_COUNT_EXPIRE_DAYS),
+                bucketExpireAt);
+    }
+
+    /**
+     * 获取榜单前N名（直接读取预先合并好的结果键）
+     * @param segment 榜单分类
+     * @param window 时间窗口
+     * @param limit 前N名（限制在 [1, MAX_LIMIT] 内）
+     * @return 排行数据
+     */
+    public List<OmdMusicTopVO> getTopMusic(String segment, ChartWindow window, int limit) {
+        return redisUtil.getTopMusic(chartKey(segment, window), clampLimit(limit));
+    }
+
+    /**
+     * 把请求的条数限制在 [1, MAX_LIMIT] 内
+     * @param limit 请求的条数
+     * @return 实际条数
+     */
+    public static int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    /**
+     * 获取榜单中全部音乐的播放量
+     * @param segment 榜单分类
+     * @param window 时间窗口
+     * @return 音乐ID -> 播放量
+     */
+    public Map<Long, Double> getPlayCounts(String segment, ChartWindow window) {
+        return redisUtil.getAllMusicScores(chartKey(segment, window));
+    }
+
+    /**
+     * 重建所有榜单：先把已结束的天合并为天桶，再合并各窗口的结果键
+     */
+    public void rebuildCharts() {
+        if (!redisUtil.setIfAbsent(REBUILD_LOCK_KEY, "1", refreshMs / 2, TimeUnit.MILLISECONDS)) {
+            // 本周期已由其它实例重建
+            return;
+        }
+        long currentHour = currentHour();
+        long today = Math.floorDiv(currentHour, 24);
+        for (String segment : SEGMENTS) {
+            // 前一天（以及服务跨零点停机时的前两天）合并为天桶
+            rollupDay(segment, today - 1);
+            rollupDay(segment, today - 2);
+
+            for (ChartWindow window : ChartWindow.values()) {
+                // 结果键保留若干个重建周期，重建任务停止后自然过期
+                long size = redisUtil.unionAndStore(chartKey(segment, window),
+                        windowSourceKeys(segment, window, currentHour), refreshMs * 10, TimeUnit.MILLISECONDS);
+                log.debug("榜单[{}:{}]重建完成，共{}首音乐", segment, window.getCode(), size);
+            }
+        }
+    }
+
+    /**
+     * 计算窗口需要合并的桶：覆盖截至当前小时的最近 window.hours 个小时，每个小时恰好计入一次
+     * 已结束且完整落在窗口内的天使用天桶，窗口最早一天的部分小时和今天已过去的小时使用小时桶
+     * @param segment 榜单分类
+     * @param window 时间窗口
+     * @param currentHour 当前UTC小时序号
+     * @return 小时桶/天桶键
+     */
+    static List<String> windowSourceKeys(String segment, ChartWindow window, long currentHour) {
+        long today = Math.floorDiv(currentHour, 24);
+        List<String> sourceKeys = new ArrayList<>();
+        long hour = currentHour - window.getHours() + 1;
+        while (hour <= currentHour) {
+            long day = Math.floorDiv(hour, 24);
+            if (hour == day * 24 && day < today) {
+                sourceKeys.add(dayBucketKey(segment, day));
+                hour += 24;
+            } else {
+                sourceKeys.add(hourBucketKey(segment, hour));
+                hour++;
+            }
+        }
+        return sourceKeys;
+    }
+
+    // 把某一天的24个小时桶合并为天桶（已存在则跳过）
+    private void rollupDay(String segment, long day) {
+        String dayKey = dayBucketKey(segment, day);
+        if (redisUtil.hasKey(dayKey)) {
+            return;
+        }
+        List<String> hourKeys = new ArrayList<>(24);
+        for (long hour = day * 24; hour < (day + 1) * 24; hour++) {
+            hourKeys.add(hourBucketKey(segment, hour));
+        }
+        long expireAt = TimeUnit.DAYS.toMillis(day + 1 + DAY_BUCKET_RETENTION_DAYS);
+        long ttl = expireAt - System.currentTimeMillis();
+        if (ttl > 0) {
+            redisUtil.unionAndStore(dayKey, hourKeys, ttl, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // 当前UTC小时序号（自 1970-01-01 起的小时数）
+    private long currentHour() {
+        return TimeUnit.MILLISECONDS.toHours(System.currentTimeMillis());
+    }
+
+    static String hourBucketKey(String segment, long hour) {
+        return HOUR_BUCKET_PREFIX + segment + ":" + hour;
+    }
+
+    static String dayBucketKey(String segment, long day) {
+        return DAY_BUCKET_PREFIX + segment + ":" + day;
+    }
+
+    private String chartKey(String segment, ChartWindow window) {
+        return CHART_PREFIX + segment + ":" + window.getCode();
+    }
+}
@@ -0,0 +1,336 @@
+package org.x.backend.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.x.backend.mapper.OmdMusicMapper;
+import org.x.backend.pojo.OmdMusicInfo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 音乐信息两级缓存服务
+ * 音乐信息（含歌手名）几乎不变，却在排行榜、播放列表、举报、详情等页面被反复读取。
+ * 一级缓存为本地 Caffeine（W-TinyLFU 淘汰），二级缓存为 Redis 哈希（字段为音乐ID，值为 JSON），最后回源数据库。
+ * 本地缓存使用异步缓存：同一音乐ID的并发未命中会等待同一个加载任务，批量查询时只为缺失的ID发起一次加载。
+ * 加载任务在专用的有界线程池中执行，不占用公共 ForkJoinPool；线程池饱和时由调用线程自己加载。
+ * 音乐状态变化、删除以及歌手信息修改时在事务提交后删除两级缓存，并通过发布/订阅通知其他实例清理本地缓存。
+ * 返回的对象为缓存中的共享实例，调用方不要修改。
+ */
+@Service
+@Slf4j
+public class MusicInfoCacheService implements MessageListener {
+
+    // Redis 中的二级缓存哈希键
+    private static final String CACHE_HASH_KEY = "music:info:cache";
+    // 本地缓存失效广播频道（消息为逗号分隔的音乐ID，或 * 表示全部）
+    public static final String INVALIDATE_CHANNEL = "music:info:cache:invalidate";
+    private static final String INVALIDATE_ALL = "*";
+
+    private static final RedisScript<Long> FILL_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/music_info_cache_fill.lua"), Long.class);
+
+    @Autowired
+    private OmdMusicMapper omdMusicMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${local-cache.music-info.maximum-size:20000}")
+    private long maximumSize;
+
+    @Value("${local-cache.music-info.expire-minutes:30}")
+    private long expireMinutes;
+
+    @Value("${local-cache.music-info.redis-expire-hours:6}")
+    private long redisExpireHours;
+
+    @Value("${local-cache.music-info.load-threads:4}")
+    private int loadThreads;
+
+    @Value("${local-cache.music-info.load-queue-capacity:256}")
+    private int loadQueueCapacity;
+
+    // 本地缓存：音乐ID -> 音乐信息
+    private AsyncCache<Long, OmdMusicInfo> localCache;
+
+    // 回源加载线程池
+    private ThreadPoolExecutor loadExecutor;
+
+    // 失效纪元：每次失效加一，加载期间发生过失效时不回填 Redis，避免写回旧值
+    private final AtomicLong invalidationEpoch = new AtomicLong();
+
+    private Counter redisHitCounter;
+    private Counter redisMissCounter;
+    private Timer redisLoadTimer;
+    private Timer dbLoadTimer;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        loadExecutor = new ThreadPoolExecutor(
+                loadThreads, loadThreads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(loadQueueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, "music-info-load-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        localCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireMinutes, TimeUnit.MINUTES)
+                .recordStats()
+                .buildAsync();
+        // 本地缓存命中率、加载耗时等指标（cache.gets、cache.load.duration 等，标签 cache=music-info）
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "music-info");
+        redisHitCounter = Counter.builder("omd.music.info.cache.redis")
+                .tag("result", "hit")
+                .description("音乐信息本地未命中后在Redis中命中的条数")
+                .register(meterRegistry);
+        redisMissCounter = Counter.builder("omd.music.info.cache.redis")
+                .tag("result", "miss")
+                .description("音乐信息在Redis中未命中、回源数据库的条数")
+                .register(meterRegistry);
+        redisLoadTimer = Timer.builder("omd.music.info.cache.load")
+                .tag("source", "redis")
+                .description("从Redis批量读取音乐信息的耗时")
+                .register(meterRegistry);
+        dbLoadTimer = Timer.builder("omd.music.info.cache.load")
+                .tag("source", "db")
+                .description("从数据库批量读取音乐信息的耗时")
+                .register(meterRegistry);
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATE_CHANNEL));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        loadExecutor.shutdown();
+    }
+
+    /**
+     * 获取单个音乐信息（不区分状态）
+     * @param omdMusicInfoId 音乐ID
+     * @return 音乐信息，不存在返回null
+     */
+    public OmdMusicInfo get(Long omdMusicInfoId) {
+        if (omdMusicInfoId == null) {
+            return null;
+        }
+        return getAll(List.of(omdMusicInfoId)).get(omdMusicInfoId);
+    }
+
+    /**
+     * 批量获取音乐信息（不区分状态）
+     * @param omdMusicInfoIdList 音乐ID列表
+     * @return 音乐ID -> 音乐信息，按传入顺序排列，不存在的ID不包含在结果中
+     */
+    public Map<Long, OmdMusicInfo> getAll(Collection<Long> omdMusicInfoIdList) {
+        Set<Long> ids = omdMusicInfoIdList.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Long, OmdMusicInfo> loaded = localCache.getAll(ids,
+                (missing, executor) -> CompletableFuture.supplyAsync(() -> load(missing), loadExecutor)).join();
+        Map<Long, OmdMusicInfo> result = new LinkedHashMap<>();
+        for (Long id : ids) {
+            OmdMusicInfo musicInfo = loaded.get(id);
+            if (musicInfo != null) {
+                result.put(id, musicInfo);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 音乐信息变化（状态修改、删除），事务提交后删除两级缓存
+     * @param omdMusicInfoId 音乐ID
+     */
+    public void invalidate(Long omdMusicInfoId) {
+        if (omdMusicInfoId != null) {
+            invalidate(List.of(omdMusicInfoId));
+        }
+    }
+
+    /**
+     * 批量删除音乐信息缓存（如歌手信息修改时删除其所有歌曲）
+     * @param omdMusicInfoIdList 音乐ID列表
+     */
+    public void invalidate(Collection<Long> omdMusicInfoIdList) {
+        if (omdMusicInfoIdList == null || omdMusicInfoIdList.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(omdMusicInfoIdList);
+        runAfterCommit(() -> {
+            invalidateLocal(ids);
+            stringRedisTemplate.opsForHash().delete(CACHE_HASH_KEY,
+                    ids.stream().map(String::valueOf).toArray());
+            publish(ids.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        });
+    }
+
+    /**
+     * 大量音乐发生变化（如按歌手批量修改状态），事务提交后清空两级缓存
+     */
+    public void invalidateAll() {
+        runAfterCommit(() -> {
+            invalidationEpoch.incrementAndGet();
+            localCache.synchronous().invalidateAll();
+            stringRedisTemplate.delete(CACHE_HASH_KEY);
+            publish(INVALIDATE_ALL);
+        });
+    }
+
+    /**
+     * 接收其他实例的失效广播，清理本地缓存
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (INVALIDATE_ALL.equals(body)) {
+            invalidationEpoch.incrementAndGet();
+            localCache.synchronous().invalidateAll();
+            return;
+        }
+        try {
+            invalidateLocal(Arrays.stream(body.split(",")).map(Long::valueOf).toList());
+        } catch (NumberFormatException e) {
+            log.warn("忽略无法识别的音乐信息缓存失效消息: {}", body);
+        }
+    }
+
+    // 回源加载：先批量读取 Redis，缺失的部分再批量查询数据库并回填 Redis
+    private Map<Long, OmdMusicInfo> load(Set<? extends Long> ids) {
+        long epoch = invalidationEpoch.get();
+        Map<Long, OmdMusicInfo> result = new HashMap<>();
+        List<Long> idList = List.copyOf(ids);
+
+        List<Object> cached = redisLoadTimer.record(() -> stringRedisTemplate.opsForHash()
+                .multiGet(CACHE_HASH_KEY, idList.stream().map(id -> (Object) String.valueOf(id)).toList()));
+        List<Long> missing = new ArrayList<>();
+        for (int i = 0; i < idList.size(); i++) {
+            OmdMusicInfo musicInfo = cached == null ? null : fromJson(cached.get(i));
+            if (musicInfo != null) {
+                result.put(idList.get(i), musicInfo);
+            } else {
+                missing.add(idList.get(i));
+            }
+        }
+        redisHitCounter.increment(result.size());
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        redisMissCounter.increment(missing.size());
+        List<OmdMusicInfo> musicInfoList = dbLoadTimer.record(() -> omdMusicMapper.getMusicInfoListByIds(missing));
+        // 过期时间（秒）后面是音乐ID与JSON交替
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(TimeUnit.HOURS.toSeconds(redisExpireHours)));
+        for (OmdMusicInfo musicInfo : musicInfoList) {
+            result.put(musicInfo.getOmdMusicInfoId(), musicInfo);
+            String json = toJson(musicInfo);
+            if (json != null) {
+                args.add(String.valueOf(musicInfo.getOmdMusicInfoId()));
+                args.add(json);
+            }
+        }
+        // 加载期间发生过失效时不回填，避免把失效前读到的旧值写回 Redis
+        if (args.size() > 1 && epoch == invalidationEpoch.get()) {
+            try {
+                // 整个哈希只在新建时设置过期时间，作为失效广播丢失时的兜底；回填不续期，旧条目不会一直留存
+                stringRedisTemplate.execute(FILL_SCRIPT, List.of(CACHE_HASH_KEY), args.toArray());
+            } catch (Exception e) {
+                log.warn("回填音乐信息二级缓存失败", e);
+            }
+        }
+        return result;
+    }
+
+    private void invalidateLocal(Collection<Long> ids) {
+        invalidationEpoch.incrementAndGet();
+        localCache.synchronous().invalidateAll(ids);
+    }
+
+    private void publish(String message) {
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATE_CHANNEL, message);
+        } catch (Exception e) {
+            // 广播失败时其他实例的本地缓存依赖过期时间兜底
+            log.error("广播音乐信息缓存失效[{}]失败", message, e);
+        }
+    }
+
+    // 有事务时在提交后执行，避免其他请求在提交前把旧数据重新写入缓存
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private String toJson(OmdMusicInfo musicInfo) {
+        try {
+            return objectMapper.writeValueAsString(musicInfo);
+        } catch (Exception e) {
+            log.warn("序列化音乐信息[{}]失败", musicInfo.getOmdMusicInfoId(), e);
+            return null;
+        }
+    }
+
+    private OmdMusicInfo fromJson(Object json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json.toString(), OmdMusicInfo.class);
+        } catch (Exception e) {
+            log.warn("解析缓存的音乐信息失败，回源数据库", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package org.x.backend.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.x.backend.mapper.OmdMusicMapper;
+import org.x.backend.pojo.OmdMusicLikeCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 音乐点赞计数服务（Redis 计数 + 异步批量刷盘）
+ * 点赞/取消点赞只在 Redis 中原子累加：增量写入待刷盘哈希，同时更新已缓存的绝对计数；
+ * 定时任务把累积的增量用 count = count + ? 的方式批量写回 tb_omd_music_like_cache，避免热点歌曲的读改写丢失更新和行锁排队。
+ * 每批增量分配一个批次号，写回数据库时在同一事务中记录到 tb_omd_flush_batch；刷盘中途失败或收尾前锁过期时，
+ * 重试的实例发现批次号已记录便只做收尾，同一批增量不会被重复累加。
+ * 读取计数优先走 Redis，未命中时用数据库计数加未刷盘增量回填。
+ */
+@Service
+@Slf4j
+public class MusicLikeCounterService {
+
+    // 点赞计数键前缀（格式：music:like:count:{音乐ID}）
+    private static final String COUNT_KEY_PREFIX = "music:like:count:";
+    // 待刷盘增量哈希（字段为音乐ID，值为增量）
+    private static final String DELTA_KEY = "music:like:delta";
+    // 刷盘中增量哈希（刷盘开始时由待刷盘哈希重命名而来，刷盘失败时保留，下个周期重试）
+    private static final String FLUSHING_KEY = "music:like:delta:flushing";
+    // 刷盘中增量的批次号
+    private static final String FLUSHING_BATCH_KEY = "music:like:delta:flushing:batch";
+    // 刷盘纪元：每完成一次刷盘加一，用于判断回填期间是否发生过刷盘
+    private static final String FLUSH_EPOCH_KEY = "music:like:flush:epoch";
+    // 刷盘互斥锁，多实例部署时同一周期只由一个实例刷盘（值为持有者的令牌）
+    private static final String FLUSH_LOCK_KEY = "music:like:flush:lock";
+    // 刷盘批次表中的任务名称
+    private static final String FLUSH_BATCH_NAME = "music-like";
+    // 刷盘批次记录保留时长（小时）
+    private static final int FLUSH_BATCH_RETENTION_HOURS = 24;
+
+    private static final RedisScript<Long> INCR_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/like_counter_incr.lua"), Long.class);
+    private static final RedisScript<Long> SEED_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/like_counter_seed.lua"), Long.class);
+    private static final RedisScript<String> FLUSH_BEGIN_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/like_counter_flush_begin.lua"), String.class);
+    private static final RedisScript<Long> FLUSH_DONE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/like_counter_flush_done.lua"), Long.class);
+    private static final RedisScript<Long> LOCK_RELEASE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/flush_lock_release.lua"), Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private OmdMusicMapper omdMusicMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${music-like.counter.expire-hours:24}")
+    private long expireHours; // 计数键过期时间（小时）
+
+    @Value("${music-like.counter.flush-ms:5000}")
+    private long flushMs; // 刷盘周期（毫秒）
+
+    @Value("${music-like.counter.flush-batch-size:500}")
+    private int flushBatchSize; // 单条 UPDATE 最多合并的音乐数
+
+    @Value("${music-like.counter.flush-lock-ms:60000}")
+    private long flushLockMs; // 刷盘互斥锁的过期时间（毫秒），写库事务的超时时间为其一半
+
+    private TransactionTemplate transactionTemplate;
+
+    private Counter flushedCounter;
+    private Counter flushFailedCounter;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        // 事务超时短于锁的过期时间，保证持锁期间写库要么完成要么回滚
+        transactionTemplate.setTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(flushLockMs / 2)));
+        try {
+            omdMusicMapper.createFlushBatchTable();
+        } catch (Exception e) {
+            log.error("初始化刷盘批次表失败", e);
+        }
+        flushedCounter = Counter.builder("omd.music.like.flushed")
+                .description("点赞计数增量刷盘的音乐数")
+                .register(meterRegistry);
+        flushFailedCounter = Counter.builder("omd.music.like.flush.failed")
+                .description("点赞计数刷盘失败的次数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 调整点赞计数
+     * 在事务中调用时，提交后才写入 Redis，事务回滚则不计数
+     * @param omdMusicInfoIdList 音乐ID列表
+     * @param delta 增量（1 点赞，-1 取消点赞）
+     */
+    public void adjust(Collection<Long> omdMusicInfoIdList, long delta) {
+        if (omdMusicInfoIdList == null || omdMusicInfoIdList.isEmpty() || delta == 0) {
+            return;
+        }
+        List<Long> ids = List.copyOf(omdMusicInfoIdList);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applyDelta(ids, delta);
+                }
+            });
+        } else {
+            applyDelta(ids, delta);
+        }
+    }
+
+    /**
+     * 调整单首音乐的点赞计数
+     * @param omdMusicInfoId 音乐ID
+     * @param delta 增量（1 点赞，-1 取消点赞）
+     */
+    public void adjust(Long omdMusicInfoId, long delta) {
+        adjust(List.of(omdMusicInfoId), delta);
+    }
+
+    /**
+     * 批量获取点赞计数
+     * @param omdMusicInfoIdList 音乐ID列表
+     * @return 音乐ID -> 点赞数（不存在的音乐不包含在结果中）
+     */
+    public Map<Long, Long> getCounts(List<Long> omdMusicInfoIdList) {
+        Map<Long, Long> counts = new HashMap<>();
+        if (omdMusicInfoIdList == null || omdMusicInfoIdList.isEmpty()) {
+            return counts;
+        }
+        List<String> keys = omdMusicInfoIdList.stream().map(id -> COUNT_KEY_PREFIX + id).toList();
+        List<String> values = stringRedisTemplate.opsForValue().multiGet(keys);
+
+        List<Long> missingIds = new ArrayList<>();
+        for (int i = 0; i < omdMusicInfoIdList.size(); i++) {
+            String value = values == null ? null : values.get(i);
+            if (value != null) {
+                counts.put(omdMusicInfoIdList.get(i), Long.parseLong(value));
+            } else {
+                missingIds.add(omdMusicInfoIdList.get(i));
+            }
+        }
+        if (!missingIds.isEmpty()) {
+            counts.putAll(loadAndSeed(missingIds));
+        }
+        return counts;
+    }
+
+    /**
+     * 把累积的增量批量写回数据库
+     */
+    public void flush() {
+        String token = UUID.randomUUID().toString();
+        Boolean locked = stringRedisTemplate.opsForValue()
+                .setIfAbsent(FLUSH_LOCK_KEY, token, flushLockMs, TimeUnit.MILLISECONDS);
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        try {
+            flushBatch(token);
+        } finally {
+            stringRedisTemplate.execute(LOCK_RELEASE_SCRIPT, List.of(FLUSH_LOCK_KEY), token);
+        }
+    }
+
+    // 刷盘一批增量（上次失败遗留的增量优先处理，否则把待刷盘哈希整体切换为刷盘中哈希）
+    private void flushBatch(String token) {
+        String batchId = stringRedisTemplate.execute(FLUSH_BEGIN_SCRIPT,
+                List.of(DELTA_KEY, FLUSHING_KEY, FLUSHING_BATCH_KEY), UUID.randomUUID().toString());
+        if (batchId == null) {
+            return;
+        }
+
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(FLUSHING_KEY);
+        List<OmdMusicLikeCache> deltas = new ArrayList<>(entries.size());
+        entries.forEach((field, value) -> {
+            long delta = Long.parseLong(value.toString());
+            if (delta != 0) {
+                OmdMusicLikeCache omdMusicLikeCache = new OmdMusicLikeCache();
+                omdMusicLikeCache.setOmdMusicInfoId(Long.valueOf(field.toString()));
+                // 此处 omdMusicLikeCacheCount 表示增量
+                omdMusicLikeCache.setOmdMusicLikeCacheCount(delta);
+                deltas.add(omdMusicLikeCache);
+            }
+        });
+
+        Boolean applied;
+        try {
+            // 所有分片与批次记录在同一事务中写入；批次已记录说明之前已写入成功，只需收尾
+            applied = transactionTemplate.execute(status -> {
+                if (omdMusicMapper.insertFlushBatch(FLUSH_BATCH_NAME, batchId) == 0) {
+                    return false;
+                }
+                for (int from = 0; from < deltas.size(); from += flushBatchSize) {
+                    omdMusicMapper.batchIncrementLikeCache(deltas.subList(from, Math.min(from + flushBatchSize, deltas.size())));
+                }
+                return true;
+            });
+        } catch (Exception e) {
+            // 保留刷盘中哈希和批次号，下个周期重试
+            flushFailedCounter.increment();
+            log.error("点赞计数刷盘失败，批次{}共{}首音乐，等待下个周期重试", batchId, deltas.size(), e);
+            return;
+        }
+        Long epoch = stringRedisTemplate.execute(FLUSH_DONE_SCRIPT,
+                List.of(FLUSHING_KEY, FLUSHING_BATCH_KEY, FLUSH_EPOCH_KEY, FLUSH_LOCK_KEY), token);
+        if (epoch == null) {
+            log.warn("点赞计数刷盘批次{}收尾时互斥锁已失效，由下一个持锁实例收尾", batchId);
+            return;
+        }
+        if (Boolean.TRUE.equals(applied)) {
+            flushedCounter.increment(deltas.size());
+            log.debug("点赞计数刷盘完成，批次{}共{}首音乐", batchId, deltas.size());
+        }
+        omdMusicMapper.deleteFlushBatchBefore(FLUSH_BATCH_RETENTION_HOURS);
+    }
+
+    // 写入 Redis 增量
+    private void applyDelta(List<Long> ids, long delta) {
+        String ttl = String.valueOf(TimeUnit.HOURS.toSeconds(expireHours));
+        for (Long id : ids) {
+            stringRedisTemplate.execute(INCR_SCRIPT, List.of(DELTA_KEY, COUNT_KEY_PREFIX + id),
+                    id.toString(), String.valueOf(delta), ttl);
+        }
+    }
+
+    // 从数据库加载计数并回填 Redis
+    private Map<Long, Long> loadAndSeed(List<Long> ids) {
+        Map<Long, Long> counts = new HashMap<>();
+        // 先记录刷盘纪元再读数据库，回填时据此判断期间是否发生过刷盘
+        String epoch = stringRedisTemplate.opsForValue().get(FLUSH_EPOCH_KEY);
+        String expectedEpoch = epoch == null ? "0" : epoch;
+        List<OmdMusicLikeCache> likeCaches = omdMusicMapper.selectByOmdMusicInfoIdList(ids);
+        String ttl = String.valueOf(TimeUnit.HOURS.toSeconds(expireHours));
+        for (OmdMusicLikeCache likeCache : likeCaches) {
+            Long id = likeCache.getOmdMusicInfoId();
+            long dbCount = likeCache.getOmdMusicLikeCacheCount() == null ? 0 : likeCache.getOmdMusicLikeCacheCount();
+            Long seeded = stringRedisTemplate.execute(SEED_SCRIPT,
+                    List.of(COUNT_KEY_PREFIX + id, DELTA_KEY, FLUSHING_KEY, FLUSH_EPOCH_KEY),
+                    id.toString(), String.valueOf(dbCount), expectedEpoch, ttl);
+            counts.put(id, seeded != null ? seeded : dbCount + pendingDelta(id));
+        }
+        return counts;
+    }
+
+    // 未能回填时的近似值：数据库计数 + 待刷盘及刷盘中的增量
+    private long pendingDelta(Long id) {
+        long pending = 0;
+        for (String key : List.of(DELTA_KEY, FLUSHING_KEY)) {
+            Object value = stringRedisTemplate.opsForHash().get(key, id.toString());
+            if (value != null) {
+                pending += Long.parseLong(value.toString());
+            }
+        }
+        return pending;
+    }
+}
@@ -0,0 +1,190 @@
+package org.x.backend.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.x.backend.pojo.OmdMusicPlayStat;
+import org.x.backend.service.OmdPublicService;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 音乐播放流水批量写入服务
+ * 播放记录先进入有界队列，由独立的写线程按条数或时间间隔合并为多行 INSERT 写入 tb_omd_music_play_stat；
+ * 队列满时短暂等待，仍无空位则丢弃并计数；应用关闭时排空队列后再退出。
+ */
+@Service
+@Slf4j
+public class MusicPlayStatWriter {
+
+    // 写线程每次等待的最长时间（毫秒），等待期间按此间隔检查关闭标志
+    private static final long SHUTDOWN_CHECK_MS = 100;
+
+    @Autowired
+    private OmdPublicService omdPublicService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${play-stat.writer.queue-capacity:10000}")
+    private int queueCapacity; // 队列容量
+
+    @Value("${play-stat.writer.batch-size:500}")
+    private int batchSize; // 单批最大条数
+
+    @Value("${play-stat.writer.flush-interval-ms:1000}")
+    private long flushIntervalMs; // 最长攒批时间（毫秒）
+
+    @Value("${play-stat.writer.offer-timeout-ms:0}")
+    private long offerTimeoutMs; // 队列满时的等待时间（毫秒），0 表示立即丢弃
+
+    @Value("${play-stat.writer.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMs; // 关闭时等待排空的最长时间（毫秒）
+
+    private BlockingQueue<OmdMusicPlayStat> queue;
+
+    private Thread writerThread;
+
+    private volatile boolean running;
+
+    private Counter droppedCounter;
+    private Counter failedCounter;
+    private DistributionSummary batchSizeSummary;
+    private Timer flushTimer;
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Gauge.builder("omd.play.stat.queue", queue, BlockingQueue::size)
+                .description("播放流水待写入队列长度")
+                .register(meterRegistry);
+        droppedCounter = Counter.builder("omd.play.stat.dropped")
+                .description("队列已满被丢弃的播放流水条数")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("omd.play.stat.failed")
+                .description("写入数据库失败的播放流水条数")
+                .register(meterRegistry);
+        batchSizeSummary = DistributionSummary.builder("omd.play.stat.batch.size")
+                .description("每批写入的播放流水条数")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("omd.play.stat.flush")
+                .description("每批播放流水写入耗时")
+                .register(meterRegistry);
+
+        running = true;
+        writerThread = new Thread(this::runWriter, "play-stat-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * 应用关闭时停止接收并排空队列
+     */
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        try {
+            writerThread.join(shutdownTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            log.warn("播放流水写线程未能在{}ms内排空，剩余{}条未写入", shutdownTimeoutMs, queue.size());
+        }
+    }
+
+    /**
+     * 提交一条播放流水（非阻塞或有限等待）
+     * @param omdMusicPlayStat 播放流水
+     * @return 成功入队返回 true，被丢弃返回 false
+     */
+    public boolean submit(OmdMusicPlayStat omdMusicPlayStat) {
+        if (omdMusicPlayStat.getOmdMusicPlayStatPlayTime() == null) {
+            // 记录入队时间作为播放时间，避免批量延迟写入造成时间偏移
+            omdMusicPlayStat.setOmdMusicPlayStatPlayTime(new Date());
+        }
+        boolean accepted;
+        if (!running) {
+            accepted = false;
+        } else if (offerTimeoutMs > 0) {
+            try {
+                accepted = queue.offer(omdMusicPlayStat, offerTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                accepted = false;
+            }
+        } else {
+            accepted = queue.offer(omdMusicPlayStat);
+        }
+        if (!accepted) {
+            droppedCounter.increment();
+        }
+        return accepted;
+    }
+
+    // 写线程主循环：攒满一批或到达时间间隔即写入，关闭后继续写完队列中剩余数据
+    private void runWriter() {
+        List<OmdMusicPlayStat> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                OmdMusicPlayStat first = queue.poll(Math.min(flushIntervalMs, SHUTDOWN_CHECK_MS), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    // 分段等待，关闭时最多延迟 SHUTDOWN_CHECK_MS 即写出当前批次
+                    OmdMusicPlayStat next = queue.poll(
+                            Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(SHUTDOWN_CHECK_MS)), TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // 写线程不响应中断退出，由 running 标志控制生命周期
+                log.warn("播放流水写线程等待被中断");
+            }
+            flush(batch);
+        }
+        log.info("播放流水写线程已退出");
+    }
+
+    // 写入一批播放流水
+    private void flush(List<OmdMusicPlayStat> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        int size = batch.size();
+        long start = System.nanoTime();
+        try {
+            omdPublicService.batchAddMusicPlayStat(batch);
+            batchSizeSummary.record(size);
+        } catch (Exception e) {
+            failedCounter.increment(size);
+            log.error("批量写入{}条播放流水失败", size, e);
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,451 @@
+package org.x.backend.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.x.backend.mapper.OmdMusicMapper;
+import org.x.backend.pojo.OmdMusicInfo;
+import org.x.backend.pojo.PageBean;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 音乐搜索倒排索引服务
+ * 在内存中为已上架的音乐建立字符 n-gram（单字 + 相邻两字）倒排索引，中文标题无需分词即可做包含匹配；
+ * 查询时取最短的倒排列表作为候选集，再逐条校验各条件的子串包含，结果与原先的 LIKE '%关键字%' 一致，但不扫描数据表。
+ * 启动时全量构建，歌曲新增、上下架、删除后通过 Redis 发布/订阅通知所有实例增量更新，并定时全量重建兜底。
+ * 收到全量重建通知时交给单独的重建线程执行，不阻塞 Redis 消息监听线程，排队中的多次重建请求合并为一次。
+ */
+@Service
+@Slf4j
+public class MusicSearchIndexService implements MessageListener {
+
+    // 索引变更广播频道（消息为音乐ID，“*” 表示全量重建）
+    public static final String INDEX_CHANGED_CHANNEL = "music:search:index:changed";
+    public static final String REBUILD_ALL = "*";
+
+    // 可搜索字段下标
+    private static final int FIELD_NAME = 0;
+    private static final int FIELD_SINGER = 1;
+    private static final int FIELD_ALBUM = 2;
+    private static final int FIELD_GENRE = 3;
+    private static final int FIELD_COUNT = 4;
+
+    // 默认排序：创建时间倒序（与原 SQL 一致），ID 倒序兜底
+    private static final Comparator<Doc> CREATE_TIME_DESC = Comparator
+            .comparingLong(Doc::createTime).reversed()
+            .thenComparing(Comparator.comparingLong(Doc::id).reversed());
+
+    /**
+     * 索引中的一首音乐
+     * @param id 音乐ID
+     * @param info 音乐信息（含歌手名）
+     * @param fields 归一化后的可搜索字段
+     * @param createTime 创建时间（毫秒）
+     */
+    private record Doc(long id, OmdMusicInfo info, String[] fields, long createTime) {
+    }
+
+    /**
+     * 倒排索引（读写锁保护）
+     */
+    private static final class Index {
+        private final Map<Long, Doc> docs = new HashMap<>();
+        // 每个字段一张倒排表：n-gram -> 音乐ID集合
+        private final List<Map<String, Set<Long>>> postings = new ArrayList<>(FIELD_COUNT);
+        // 按默认排序缓存的全部音乐，索引变化后置空，下次无条件查询时重新排序
+        private volatile List<Doc> sortedDocs;
+
+        private Index() {
+            for (int i = 0; i < FIELD_COUNT; i++) {
+                postings.add(new HashMap<>());
+            }
+        }
+
+        private void add(Doc doc) {
+            remove(doc.id());
+            docs.put(doc.id(), doc);
+            for (int i = 0; i < FIELD_COUNT; i++) {
+                for (String gram : grams(doc.fields()[i])) {
+                    postings.get(i).computeIfAbsent(gram, k -> new HashSet<>()).add(doc.id());
+                }
+            }
+            sortedDocs = null;
+        }
+
+        private void remove(long id) {
+            Doc old = docs.remove(id);
+            if (old == null) {
+                return;
+            }
+            for (int i = 0; i < FIELD_COUNT; i++) {
+                for (String gram : grams(old.fields()[i])) {
+                    Set<Long> ids = postings.get(i).get(gram);
+                    if (ids != null) {
+                        ids.remove(id);
+                        if (ids.isEmpty()) {
+                            postings.get(i).remove(gram);
+                        }
+                    }
+                }
+            }
+            sortedDocs = null;
+        }
+    }
+
+    @Autowired
+    private OmdMusicMapper omdMusicMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile Index index;
+
+    // 全量重建期间发生变更的音乐ID，重建完成后重新应用，避免被重建前读取的旧数据覆盖
+    private final Set<Long> changedDuringRebuild = ConcurrentHashMap.newKeySet();
+    private volatile boolean rebuilding;
+
+    // 全量重建线程，以及是否已有排队中（尚未开始）的重建请求
+    private ExecutorService rebuildExecutor;
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+
+    @PostConstruct
+    public void init() {
+        rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "music-search-index-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(INDEX_CHANGED_CHANNEL));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    /**
+     * 索引是否已构建完成
+     * @return 构建完成返回 true
+     */
+    public boolean isReady() {
+        return index != null;
+    }
+
+    /**
+     * 按条件搜索已上架音乐（各条件为包含匹配，条件之间为且）
+     * 名称完全匹配优先于前缀匹配，前缀匹配优先于包含匹配，同等匹配按创建时间倒序
+     * @param omdMusicInfoName 音乐名称
+     * @param omdSingerName 歌手名称
+     * @param omdMusicInfoAlbum 音乐专辑
+     * @param omdMusicInfoGenre 音乐类型
+     * @param pageNum 页码
+     * @param pageSize 每页大小
+     * @return 分页结果
+     */
+    public PageBean<OmdMusicInfo> search(String omdMusicInfoName, String omdSingerName, String omdMusicInfoAlbum,
+                                         String omdMusicInfoGenre, int pageNum, int pageSize) {
+        String[] queries = new String[FIELD_COUNT];
+        queries[FIELD_NAME] = normalize(omdMusicInfoName);
+        queries[FIELD_SINGER] = normalize(omdSingerName);
+        queries[FIELD_ALBUM] = normalize(omdMusicInfoAlbum);
+        queries[FIELD_GENRE] = normalize(omdMusicInfoGenre);
+
+        List<Doc> matches;
+        lock.readLock().lock();
+        try {
+            Index current = index;
+            if (current == null) {
+                throw new IllegalStateException("音乐搜索索引尚未构建完成");
+            }
+            matches = match(current, queries);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        int from = (int) Math.min((long) (pageNum - 1) * pageSize, matches.size());
+        int to = Math.min(from + pageSize, matches.size());
+        List<OmdMusicInfo> items = new ArrayList<>(to - from);
+        for (Doc doc : matches.subList(from, to)) {
+            items.add(doc.info());
+        }
+        return new PageBean<>((long) matches.size(), items);
+    }
+
+    /**
+     * 通知音乐信息发生变化（新增、上下架、删除），事务提交后广播给所有实例
+     * @param omdMusicInfoId 音乐ID
+     */
+    public void onMusicChanged(Long omdMusicInfoId) {
+        if (omdMusicInfoId != null) {
+            publishAfterCommit(String.valueOf(omdMusicInfoId));
+        }
+    }
+
+    /**
+     * 通知大量音乐发生变化（如按歌手批量修改状态），事务提交后所有实例全量重建
+     */
+    public void onCatalogChanged() {
+        publishAfterCommit(REBUILD_ALL);
+    }
+
+    /**
+     * 全量重建索引
+     */
+    public synchronized void rebuild() {
+        rebuilding = true;
+        changedDuringRebuild.clear();
+        try {
+            long start = System.currentTimeMillis();
+            Index newIndex = new Index();
+            for (OmdMusicInfo musicInfo : omdMusicMapper.getActiveMusicInfoList()) {
+                newIndex.add(toDoc(musicInfo));
+            }
+            lock.writeLock().lock();
+            try {
+                index = newIndex;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("音乐搜索索引构建完成，共{}首，耗时{}ms", newIndex.docs.size(), System.currentTimeMillis() - start);
+        } finally {
+            rebuilding = false;
+        }
+        for (Long id : List.copyOf(changedDuringRebuild)) {
+            changedDuringRebuild.remove(id);
+            reload(id);
+        }
+    }
+
+    /**
+     * 请求在重建线程中全量重建索引
+     * 已有排队中的请求时直接合并；正在重建时再排队一次，保证重建读取到本次请求之前的变更
+     */
+    public void requestRebuild() {
+        if (!rebuildQueued.compareAndSet(false, true)) {
+            return;
+        }
+        rebuildExecutor.execute(() -> {
+            rebuildQueued.set(false);
+            try {
+                rebuild();
+            } catch (Exception e) {
+                // 重建失败时由定时全量重建兜底
+                log.error("音乐搜索索引重建失败", e);
+            }
+        });
+    }
+
+    // 启动完成后构建索引，构建完成前搜索接口回退到数据库查询
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("音乐搜索索引构建失败，等待定时任务重试", e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            if (REBUILD_ALL.equals(body)) {
+                requestRebuild();
+            } else {
+                reload(Long.valueOf(body));
+            }
+        } catch (Exception e) {
+            // 更新失败时由定时全量重建兜底
+            log.error("处理音乐搜索索引变更[{}]失败", body, e);
+        }
+    }
+
+    // 从数据库重新读取一首音乐并更新索引（已下架或已删除则移除）
+    private void reload(Long omdMusicInfoId) {
+        if (rebuilding) {
+            changedDuringRebuild.add(omdMusicInfoId);
+        }
+        Index current = index;
+        if (current == null) {
+            return;
+        }
+        OmdMusicInfo musicInfo = omdMusicMapper.getMusicInfoByOmdMusicInfoId(omdMusicInfoId);
+        lock.writeLock().lock();
+        try {
+            if (musicInfo == null || !Integer.valueOf(1).equals(musicInfo.getOmdMusicInfoStatus())) {
+                current.remove(omdMusicInfoId);
+            } else {
+                current.add(toDoc(musicInfo));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // 事务提交后广播变更（订阅端包括本实例）
+    private void publishAfterCommit(String message) {
+        Runnable publish = () -> {
+            try {
+                stringRedisTemplate.convertAndSend(INDEX_CHANGED_CHANNEL, message);
+            } catch (Exception e) {
+                // 广播失败时由定时全量重建兜底
+                log.error("广播音乐搜索索引变更[{}]失败", message, e);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish.run();
+                }
+            });
+        } else {
+            publish.run();
+        }
+    }
+
+    // 查询匹配的音乐并排序（调用方持有读锁）
+    private List<Doc> match(Index current, String[] queries) {
+        // 选出所有条件中最短的倒排列表作为候选集
+        Set<Long> candidates = null;
+        boolean filtered = false;
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            if (queries[i] == null) {
+                continue;
+            }
+            filtered = true;
+            for (String gram : queryGrams(queries[i])) {
+                Set<Long> ids = current.postings.get(i).get(gram);
+                if (ids == null) {
+                    return Collections.emptyList();
+                }
+                if (candidates == null || ids.size() < candidates.size()) {
+                    candidates = ids;
+                }
+            }
+        }
+        if (!filtered) {
+            List<Doc> sorted = current.sortedDocs;
+            if (sorted == null) {
+                sorted = new ArrayList<>(current.docs.values());
+                sorted.sort(CREATE_TIME_DESC);
+                current.sortedDocs = sorted;
+            }
+            return sorted;
+        }
+
+        // 逐条校验子串包含，排除 n-gram 命中但不连续的误匹配
+        List<Doc> matches = new ArrayList<>();
+        Map<Long, Integer> scores = new HashMap<>();
+        for (Long id : candidates) {
+            Doc doc = current.docs.get(id);
+            int score = score(doc, queries);
+            if (score > 0) {
+                matches.add(doc);
+                scores.put(id, score);
+            }
+        }
+        matches.sort(Comparator.<Doc>comparingInt(doc -> scores.get(doc.id())).reversed().thenComparing(CREATE_TIME_DESC));
+        return matches;
+    }
+
+    // 计算匹配得分，任一条件不包含时返回0
+    private int score(Doc doc, String[] queries) {
+        int score = 0;
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            String query = queries[i];
+            if (query == null) {
+                continue;
+            }
+            String field = doc.fields()[i];
+            if (field.equals(query)) {
+                score += 3;
+            } else if (field.startsWith(query)) {
+                score += 2;
+            } else if (field.contains(query)) {
+                score += 1;
+            } else {
+                return 0;
+            }
+        }
+        return score;
+    }
+
+    private Doc toDoc(OmdMusicInfo musicInfo) {
+        String[] fields = new String[FIELD_COUNT];
+        fields[FIELD_NAME] = normalizeField(musicInfo.getOmdMusicInfoName());
+        fields[FIELD_SINGER] = normalizeField(musicInfo.getOmdSinger() == null ? null : musicInfo.getOmdSinger().getOmdSingerName());
+        fields[FIELD_ALBUM] = normalizeField(musicInfo.getOmdMusicInfoAlbum());
+        fields[FIELD_GENRE] = normalizeField(musicInfo.getOmdMusicInfoGenre());
+        long createTime = musicInfo.getOmdMusicInfoCreateTime() == null ? 0 : musicInfo.getOmdMusicInfoCreateTime().getTime();
+        return new Doc(musicInfo.getOmdMusicInfoId(), musicInfo, fields, createTime);
+    }
+
+    // 索引字段的全部单字和相邻两字
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i < text.length(); i++) {
+            grams.add(text.substring(i, i + 1));
+            if (i + 1 < text.length()) {
+                grams.add(text.substring(i, i + 2));
+            }
+        }
+        return grams;
+    }
+
+    // 查询条件只需相邻两字（单字条件用单字）
+    private static Set<String> queryGrams(String query) {
+        if (query.length() == 1) {
+            return Set.of(query);
+        }
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 1 < query.length(); i++) {
+            grams.add(query.substring(i, i + 2));
+        }
+        return grams;
+    }
+
+    // 查询条件归一化，空条件返回null
+    private static String normalize(String query) {
+        if (query == null || query.isEmpty()) {
+            return null;
+        }
+        return query.toLowerCase(Locale.ROOT);
+    }
+
+    // 字段归一化（与 MySQL 默认排序规则一样不区分大小写）
+    private static String normalizeField(String field) {
+        return field == null ? "" : field.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,418 @@
+package org.x.backend.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.sourceforge.pinyin4j.PinyinHelper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.x.backend.mapper.OmdMusicMapper;
+import org.x.backend.mapper.OmdPublicMapper;
+import org.x.backend.pojo.OmdMusicInfo;
+import org.x.backend.pojo.OmdSinger;
+import org.x.backend.pojo.OmdSuggestVO;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 搜索建议服务（前缀自动补全）
+ * 歌曲名、歌手名、专辑名及其拼音首字母作为键，排序后存放在紧凑的字符串数组中，前缀查询通过二分查找定位区间；
+ * 匹配条目较多的短前缀在构建时预先算好按播放量排序的前K名，其余前缀直接扫描区间，查询耗时与条目总数无关。
+ * 索引定时全量重建（同时刷新播放量），歌曲新增、上下架、删除通过搜索索引的变更广播增量叠加到最近一次构建的结果上；
+ * 收到全量重建通知时交给单独的重建线程执行，不阻塞 Redis 消息监听线程，排队中的多次重建请求合并为一次。
+ */
+@Service
+@Slf4j
+public class MusicSuggestService implements MessageListener {
+
+    public static final String TYPE_MUSIC = "music";
+    public static final String TYPE_SINGER = "singer";
+    public static final String TYPE_ALBUM = "album";
+
+    // 单次最多返回的建议条数
+    public static final int MAX_LIMIT = 20;
+    // 前缀匹配的键数超过该值时预先计算前K名，否则查询时扫描区间
+    private static final int SCAN_THRESHOLD = 256;
+    // 预先计算的前K名长度（留出余量，过滤增量中已移除的条目后仍够用）
+    private static final int PRECOMPUTED_TOP = MAX_LIMIT * 2;
+
+    /**
+     * 建议条目
+     * @param type 类型
+     * @param targetId 歌曲为音乐ID，歌手和专辑为歌手ID
+     * @param text 展示文本
+     * @param score 播放量
+     * @param entryKey 条目唯一标识（增量更新时用于覆盖和移除）
+     * @param keys 可匹配的键（归一化文本、拼音首字母）
+     */
+    private record Entry(String type, long targetId, String text, double score, String entryKey, String[] keys) {
+    }
+
+    /**
+     * 一次全量构建的结果（不可变）
+     * @param keys 排序后的键
+     * @param keyEntries 每个键对应的条目下标
+     * @param entries 条目
+     * @param precomputedTop 匹配条目较多的前缀 -> 按播放量排序的条目下标
+     */
+    private record Snapshot(String[] keys, int[] keyEntries, Entry[] entries, Map<String, int[]> precomputedTop) {
+    }
+
+    @Autowired
+    private OmdMusicMapper omdMusicMapper;
+
+    @Autowired
+    private OmdPublicMapper omdPublicMapper;
+
+    @Autowired
+    private MusicChartService musicChartService;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private volatile Snapshot snapshot;
+
+    // 最近一次全量构建时的歌曲播放量，增量更新的歌曲沿用该播放量
+    private volatile Map<Long, Double> playCounts = Collections.emptyMap();
+
+    // 最近一次全量构建后新增或更新的歌曲条目（条目标识 -> 条目）
+    private final Map<String, Entry> addedEntries = new ConcurrentHashMap<>();
+    // 最近一次全量构建后被移除的歌曲条目标识
+    private final Set<String> removedEntries = ConcurrentHashMap.newKeySet();
+    // 全量重建期间发生变更的音乐ID，重建完成后重新应用
+    private final Set<Long> changedDuringRebuild = ConcurrentHashMap.newKeySet();
+    private volatile boolean rebuilding;
+
+    // 全量重建线程，以及是否已有排队中（尚未开始）的重建请求
+    private ExecutorService rebuildExecutor;
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+
+    @PostConstruct
+    public void init() {
+        rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "music-suggest-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 与搜索索引共用歌曲变更广播
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(MusicSearchIndexService.INDEX_CHANGED_CHANNEL));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    /**
+     * 前缀搜索建议
+     * @param keyword 用户已输入的内容（支持拼音首字母）
+     * @param limit 返回条数
+     * @return 按播放量倒序的建议
+     */
+    public List<OmdSuggestVO> suggest(String keyword, int limit) {
+        String prefix = normalize(keyword);
+        Snapshot current = snapshot;
+        if (prefix.isEmpty() || current == null) {
+            return Collections.emptyList();
+        }
+        limit = Math.min(Math.max(limit, 1), MAX_LIMIT);
+
+        // 最近一次构建中的候选，跳过已被增量移除或覆盖的条目
+        List<Entry> candidates = new ArrayList<>();
+        for (int entryIndex : top(current, prefix, PRECOMPUTED_TOP)) {
+            Entry entry = current.entries()[entryIndex];
+            if (!removedEntries.contains(entry.entryKey()) && !addedEntries.containsKey(entry.entryKey())) {
+                candidates.add(entry);
+            }
+        }
+        // 增量条目数量很少，直接逐条匹配
+        for (Entry entry : addedEntries.values()) {
+            for (String key : entry.keys()) {
+                if (key.startsWith(prefix)) {
+                    candidates.add(entry);
+                    break;
+                }
+            }
+        }
+
+        candidates.sort(Comparator.comparingDouble(Entry::score).reversed());
+        List<OmdSuggestVO> suggestions = new ArrayList<>(limit);
+        for (Entry entry : candidates.subList(0, Math.min(limit, candidates.size()))) {
+            suggestions.add(new OmdSuggestVO(entry.type(), entry.targetId(), entry.text(), entry.score()));
+        }
+        return suggestions;
+    }
+
+    /**
+     * 全量重建（同时刷新近30天播放量）
+     */
+    public synchronized void rebuild() {
+        rebuilding = true;
+        changedDuringRebuild.clear();
+        try {
+            long start = System.currentTimeMillis();
+            Map<Long, Double> playCounts = musicChartService.getPlayCounts(
+                    MusicChartService.SEGMENT_TOTAL, MusicChartService.ChartWindow.LAST_30_DAYS);
+
+            List<Entry> entries = new ArrayList<>();
+            Map<Long, Double> singerScores = new HashMap<>();
+            // 专辑以 (歌手ID, 专辑名) 区分：条目标识 -> 专辑中的第一首歌曲、播放量之和
+            Map<String, OmdMusicInfo> albums = new LinkedHashMap<>();
+            Map<String, Double> albumScores = new HashMap<>();
+            for (OmdMusicInfo musicInfo : omdMusicMapper.getActiveMusicInfoList()) {
+                double score = playCounts.getOrDefault(musicInfo.getOmdMusicInfoId(), 0d);
+                entries.add(musicEntry(musicInfo, score));
+                if (musicInfo.getOmdSingerId() != null) {
+                    singerScores.merge(musicInfo.getOmdSingerId(), score, Double::sum);
+                    String album = musicInfo.getOmdMusicInfoAlbum();
+                    if (album != null && !album.isBlank()) {
+                        String entryKey = TYPE_ALBUM + ":" + musicInfo.getOmdSingerId() + ":" + album;
+                        albums.putIfAbsent(entryKey, musicInfo);
+                        albumScores.merge(entryKey, score, Double::sum);
+                    }
+                }
+            }
+            albums.forEach((entryKey, musicInfo) -> entries.add(newEntry(TYPE_ALBUM, musicInfo.getOmdSingerId(),
+                    musicInfo.getOmdMusicInfoAlbum(), albumScores.get(entryKey), entryKey)));
+            for (OmdSinger singer : omdPublicMapper.getAllSingerNames()) {
+                if (singer.getOmdSingerName() != null && !singer.getOmdSingerName().isBlank()) {
+                    entries.add(newEntry(TYPE_SINGER, singer.getOmdSingerId(), singer.getOmdSingerName(),
+                            singerScores.getOrDefault(singer.getOmdSingerId(), 0d), TYPE_SINGER + ":" + singer.getOmdSingerId()));
+                }
+            }
+
+            snapshot = build(entries);
+            this.playCounts = playCounts;
+            addedEntries.clear();
+            removedEntries.clear();
+            log.info("搜索建议索引构建完成，共{}条，耗时{}ms", entries.size(), System.currentTimeMillis() - start);
+        } finally {
+            rebuilding = false;
+        }
+        for (Long id : List.copyOf(changedDuringRebuild)) {
+            changedDuringRebuild.remove(id);
+            reload(id);
+        }
+    }
+
+    /**
+     * 请求在重建线程中全量重建
+     * 已有排队中的请求时直接合并；正在重建时再排队一次，保证重建读取到本次请求之前的变更
+     */
+    public void requestRebuild() {
+        if (!rebuildQueued.compareAndSet(false, true)) {
+            return;
+        }
+        rebuildExecutor.execute(() -> {
+            rebuildQueued.set(false);
+            try {
+                rebuild();
+            } catch (Exception e) {
+                // 重建失败时由定时全量重建兜底
+                log.error("搜索建议索引重建失败", e);
+            }
+        });
+    }
+
+    // 启动完成后构建索引
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("搜索建议索引构建失败，等待定时任务重试", e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            if (MusicSearchIndexService.REBUILD_ALL.equals(body)) {
+                requestRebuild();
+            } else {
+                reload(Long.valueOf(body));
+            }
+        } catch (Exception e) {
+            // 更新失败时由定时全量重建兜底
+            log.error("处理搜索建议变更[{}]失败", body, e);
+        }
+    }
+
+    // 增量更新一首歌曲（沿用最近一次全量构建时的播放量，新歌为0，下次全量重建时刷新）
+    private void reload(Long omdMusicInfoId) {
+        if (rebuilding) {
+            changedDuringRebuild.add(omdMusicInfoId);
+        }
+        String entryKey = TYPE_MUSIC + ":" + omdMusicInfoId;
+        OmdMusicInfo musicInfo = omdMusicMapper.getMusicInfoByOmdMusicInfoId(omdMusicInfoId);
+        if (musicInfo == null || !Integer.valueOf(1).equals(musicInfo.getOmdMusicInfoStatus())) {
+            addedEntries.remove(entryKey);
+            removedEntries.add(entryKey);
+        } else {
+            removedEntries.remove(entryKey);
+            addedEntries.put(entryKey, musicEntry(musicInfo, playCounts.getOrDefault(omdMusicInfoId, 0d)));
+        }
+    }
+
+    // 取前缀匹配的条目下标（按播放量倒序、去重）
+    private int[] top(Snapshot current, String prefix, int k) {
+        int from = lowerBound(current.keys(), prefix);
+        int to = lowerBound(current.keys(), prefix + Character.MAX_VALUE);
+        if (to - from > SCAN_THRESHOLD) {
+            int[] precomputed = current.precomputedTop().get(prefix);
+            if (precomputed != null) {
+                return precomputed;
+            }
+        }
+        return topInRange(current.keyEntries(), current.entries(), from, to, k);
+    }
+
+    // 扫描区间，用容量为K的小顶堆选出播放量最高的条目
+    private static int[] topInRange(int[] keyEntries, Entry[] entries, int from, int to, int k) {
+        PriorityQueue<Integer> heap = new PriorityQueue<>(Comparator.<Integer>comparingDouble(i -> entries[i].score()));
+        Set<Integer> inHeap = new HashSet<>();
+        for (int i = from; i < to; i++) {
+            int entryIndex = keyEntries[i];
+            if (inHeap.contains(entryIndex)) {
+                continue;
+            }
+            if (heap.size() < k) {
+                heap.add(entryIndex);
+                inHeap.add(entryIndex);
+            } else if (entries[entryIndex].score() > entries[heap.peek()].score()) {
+                inHeap.remove(heap.poll());
+                heap.add(entryIndex);
+                inHeap.add(entryIndex);
+            }
+        }
+        int[] result = new int[heap.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = heap.poll();
+        }
+        return result;
+    }
+
+    // 构建排序键数组，并为匹配键数超过阈值的前缀预先计算前K名
+    private static Snapshot build(List<Entry> entryList) {
+        Entry[] entries = entryList.toArray(new Entry[0]);
+        List<String> keyList = new ArrayList<>();
+        List<Integer> keyOwners = new ArrayList<>();
+        for (int e = 0; e < entries.length; e++) {
+            for (String key : entries[e].keys()) {
+                keyList.add(key);
+                keyOwners.add(e);
+            }
+        }
+        Integer[] order = new Integer[keyList.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(keyList::get));
+        String[] keys = new String[order.length];
+        int[] keyEntries = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            keys[i] = keyList.get(order[i]);
+            keyEntries[i] = keyOwners.get(order[i]);
+        }
+
+        // 逐级增加前缀长度，直到所有前缀匹配的键数都不超过阈值
+        Map<String, int[]> precomputedTop = new HashMap<>();
+        boolean found = true;
+        for (int length = 1; found; length++) {
+            found = false;
+            int i = 0;
+            while (i < keys.length) {
+                if (keys[i].length() < length) {
+                    i++;
+                    continue;
+                }
+                String prefix = keys[i].substring(0, length);
+                int j = i + 1;
+                while (j < keys.length && keys[j].startsWith(prefix)) {
+                    j++;
+                }
+                if (j - i > SCAN_THRESHOLD) {
+                    precomputedTop.put(prefix, topInRange(keyEntries, entries, i, j, PRECOMPUTED_TOP));
+                    found = true;
+                }
+                i = j;
+            }
+        }
+        return new Snapshot(keys, keyEntries, entries, precomputedTop);
+    }
+
+    private static int lowerBound(String[] keys, String target) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(target) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private Entry musicEntry(OmdMusicInfo musicInfo, double score) {
+        return newEntry(TYPE_MUSIC, musicInfo.getOmdMusicInfoId(), musicInfo.getOmdMusicInfoName(), score,
+                TYPE_MUSIC + ":" + musicInfo.getOmdMusicInfoId());
+    }
+
+    private static Entry newEntry(String type, long targetId, String text, double score, String entryKey) {
+        String normalized = normalize(text);
+        String initials = pinyinInitials(normalized);
+        String[] keys = initials == null || initials.equals(normalized)
+                ? new String[]{normalized}
+                : new String[]{normalized, initials};
+        return new Entry(type, targetId, text, score, entryKey, keys);
+    }
+
+    // 拼音首字母（如“七里香” -> “qlx”），不含汉字时返回null；多音字取第一个读音
+    private static String pinyinInitials(String text) {
+        StringBuilder initials = new StringBuilder(text.length());
+        boolean hasHan = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN) {
+                String[] pinyin = PinyinHelper.toHanyuPinyinStringArray(c);
+                if (pinyin != null && pinyin.length > 0 && !pinyin[0].isEmpty()) {
+                    initials.append(pinyin[0].charAt(0));
+                    hasHan = true;
+                }
+            } else if (Character.isLetterOrDigit(c)) {
+                initials.append(c);
+            }
+        }
+        return hasHan ? initials.toString() : null;
+    }
+
+    // 去掉首尾空白并转为小写
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -15,6 +15,22 @@ public class OmdAdminServiceImpl implements OmdAdminService {
     @Autowired
     private OmdAdminMapper omdAdminMapper;
 
+    // 歌曲状态变化后递增曲库版本号，使缓存的播放列表内容失效
+    @Autowired
+    private PlaylistCacheService playlistCacheService;
+
+    // 歌曲状态变化后更新搜索索引
+    @Autowired
+    private MusicSearchIndexService musicSearchIndexService;
+
+    // 歌曲、歌手状态变化后删除音乐信息缓存
+    @Autowired
+    private MusicInfoCacheService musicInfoCacheService;
+
+    // 歌手新增、状态变化后刷新随机歌手抽样池
+    @Autowired
+    private SingerSampleService singerSampleService;
+
     /**
      * 获取管理员信息
      * @param omdAdminId 当前用户ID
@@ -62,7 +78,13 @@ public class OmdAdminServiceImpl implements OmdAdminService {
      */
     @Override
     public boolean updateMusicInfoStatus(Long omdMusicInfoId, Integer omdMusicInfoStatus, String omdMusicInfoRemark) {
-        return omdAdminMapper.updateMusicInfoStatus(omdMusicInfoId, omdMusicInfoStatus,omdMusicInfoRemark) > 0;
+        if (omdAdminMapper.updateMusicInfoStatus(omdMusicInfoId, omdMusicInfoStatus,omdMusicInfoRemark) > 0) {
+            playlistCacheService.bumpCatalog();
+            musicSearchIndexService.onMusicChanged(omdMusicInfoId);
+            musicInfoCacheService.invalidate(omdMusicInfoId);
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -235,12 +257,14 @@ public class OmdAdminServiceImpl implements OmdAdminService {
     }
 
     /**
-     * 删除评论
+     * 删除评论及其所有子孙评论，并更新父评论回复数
      * @param omdMusicCommentId 评论ID
      * @return 是否删除成功
      */
     @Override
     public boolean deleteMusicComment(Long omdMusicCommentId) {
+        // 父评论回复数需要在删除前更新（依赖被删评论的父评论ID）
+        omdAdminMapper.decreaseParentReplyCount(omdMusicCommentId);
         return omdAdminMapper.deleteMusicComment(omdMusicCommentId) > 0;
     }
 
@@ -261,7 +285,11 @@ public class OmdAdminServiceImpl implements OmdAdminService {
      */
     @Override
     public boolean insertSinger(OmdSinger omdSinger) {
-        return omdAdminMapper.insertSinger(omdSinger) > 0;
+        if (omdAdminMapper.insertSinger(omdSinger) > 0) {
+            singerSampleService.onSingerChanged();
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -283,6 +311,11 @@ public class OmdAdminServiceImpl implements OmdAdminService {
     @Override
     public void updateSingerStatus(Long omdUserId, Integer omdSingerStatus) {
         omdAdminMapper.updateSingerStatus(omdUserId,omdSingerStatus);
+        // 缓存的音乐信息中带有歌手状态，按用户ID无法直接定位歌曲，整体清空
+        musicInfoCacheService.invalidateAll();
+        // 播放列表内容中带有歌手状态（提交后生效）
+        playlistCacheService.bumpCatalog();
+        singerSampleService.onSingerChanged();
     }
 
     /**
@@ -295,6 +328,9 @@ public class OmdAdminServiceImpl implements OmdAdminService {
     @Override
     public void updateMusicStatusBySingerId(Long omdUserId, Integer omdMusicInfoStatus,String omdMusicInfoRemark) {
         omdAdminMapper.updateMusicStatusBySingerId(omdUserId,omdMusicInfoStatus,omdMusicInfoRemark);
+        playlistCacheService.bumpCatalog();
+        musicSearchIndexService.onCatalogChanged();
+        musicInfoCacheService.invalidateAll();
     }
 
     /**
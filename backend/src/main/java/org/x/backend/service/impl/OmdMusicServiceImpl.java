@@ -1,14 +1,18 @@
 package org.x.backend.service.impl;
 
+import org.apache.ibatis.cursor.Cursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import org.x.backend.mapper.OmdMusicMapper;
 import org.x.backend.pojo.*;
 import org.x.backend.service.OmdMusicService;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 public class OmdMusicServiceImpl implements OmdMusicService {
@@ -16,6 +20,14 @@ public class OmdMusicServiceImpl implements OmdMusicService {
     @Autowired
     private OmdMusicMapper omdMusicMapper;
 
+    // 修改播放列表歌曲后递增播放列表版本号，使缓存的播放列表内容失效
+    @Autowired
+    private PlaylistCacheService playlistCacheService;
+
+    // 音乐信息两级缓存
+    @Autowired
+    private MusicInfoCacheService musicInfoCacheService;
+
     /**
      * 获取音乐信息
      * @return 音乐信息
@@ -89,6 +101,34 @@ public class OmdMusicServiceImpl implements OmdMusicService {
         return omdMusicMapper.insertLikeMusicInfo(omdMusicLike) > 0;
     }
 
+    /**
+     * 幂等插入点赞记录
+     * @param omdMusicInfoId 音乐信息ID
+     * @param omdUserId 当前用户ID
+     * @return 新增点赞返回 true，已点赞过返回 false
+     */
+    @Override
+    public boolean insertIgnoreMusicLike(Long omdMusicInfoId, Long omdUserId) {
+        return omdMusicMapper.insertIgnoreMusicLike(omdMusicInfoId, omdUserId) > 0;
+    }
+
+    /**
+     * 幂等地把音乐追加到用户的点赞歌单末尾
+     * @param omdPlaylistId 点赞歌单ID
+     * @param omdUserId 当前用户ID
+     * @param omdMusicInfoId 音乐信息ID
+     * @param omdPlaylistMusicOrder 预先分配的顺序号
+     * @return 插入返回 true，歌单不存在或已包含该音乐返回 false
+     */
+    @Override
+    public boolean insertMusicToLikedPlaylist(Long omdPlaylistId, Long omdUserId, Long omdMusicInfoId, Integer omdPlaylistMusicOrder) {
+        if (omdMusicMapper.insertMusicToLikedPlaylist(omdPlaylistId, omdUserId, omdMusicInfoId, omdPlaylistMusicOrder) > 0) {
+            playlistCacheService.bumpPlaylist(omdPlaylistId);
+            return true;
+        }
+        return false;
+    }
+
     /**
      * 检查是否已经有点赞歌单
      * @param omdUserId 当前用户ID
@@ -116,7 +156,11 @@ public class OmdMusicServiceImpl implements OmdMusicService {
      */
     @Override
     public boolean insertLikePlaylistMusic(OmdPlaylistMusic omdPlaylistMusic) {
-        return omdMusicMapper.insertLikePlaylistMusic(omdPlaylistMusic) > 0;
+        if (omdMusicMapper.insertLikePlaylistMusic(omdPlaylistMusic) > 0) {
+            playlistCacheService.bumpPlaylist(omdPlaylistMusic.getOmdPlaylistId());
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -157,7 +201,11 @@ public class OmdMusicServiceImpl implements OmdMusicService {
      */
     @Override
     public boolean deleteAllLikePlaylistMusic(Long omdPlaylistId) {
-        return omdMusicMapper.deleteAllLikePlaylistMusic(omdPlaylistId) > 0;
+        if (omdMusicMapper.deleteAllLikePlaylistMusic(omdPlaylistId) > 0) {
+            playlistCacheService.bumpPlaylist(omdPlaylistId);
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -179,7 +227,11 @@ public class OmdMusicServiceImpl implements OmdMusicService {
      */
     @Override
     public boolean deleteLikePlaylistMusic(Long omdPlaylistId, Long omdMusicInfoId) {
-        return omdMusicMapper.deleteLikePlaylistMusic(omdPlaylistId, omdMusicInfoId) > 0;
+        if (omdMusicMapper.deleteLikePlaylistMusic(omdPlaylistId, omdMusicInfoId) > 0) {
+            playlistCacheService.bumpPlaylist(omdPlaylistId);
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -262,7 +314,14 @@ public class OmdMusicServiceImpl implements OmdMusicService {
      */
     @Override
     public boolean insertMusicListToPlaylist(List<OmdPlaylistMusic> omdPlaylistMusicList) {
-        return omdMusicMapper.insertMusicListToPlaylist(omdPlaylistMusicList) > 0;
+        if (omdMusicMapper.insertMusicListToPlaylist(omdPlaylistMusicList) > 0) {
+            omdPlaylistMusicList.stream()
+                    .map(OmdPlaylistMusic::getOmdPlaylistId)
+                    .distinct()
+                    .forEach(playlistCacheService::bumpPlaylist);
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -273,7 +332,11 @@ public class OmdMusicServiceImpl implements OmdMusicService {
      * */
     @Override
     public int deleteMusicListFromPlaylist(Long omdPlaylistId, List<Long> omdMusicInfoIdList) {
-        return omdMusicMapper.deleteMusicListFromPlaylist(omdPlaylistId, omdMusicInfoIdList);
+        int deleteCount = omdMusicMapper.deleteMusicListFromPlaylist(omdPlaylistId, omdMusicInfoIdList);
+        if (deleteCount > 0) {
+            playlistCacheService.bumpPlaylist(omdPlaylistId);
+        }
+        return deleteCount;
     }
 
     /**
@@ -307,6 +370,35 @@ public class OmdMusicServiceImpl implements OmdMusicService {
         return omdMusicMapper.getMusicListFromPlaylist(omdPlaylistId);
     }
 
+    /**
+     * 根据传入的播放列表ID游标分页查询播放列表
+     * @param omdPlaylistId 播放列表ID
+     * @param afterOrder 上一页最后一首的顺序号
+     * @param afterId 上一页最后一首的关联ID
+     * @param limit 每页条数
+     * @return 音乐信息
+     */
+    @Override
+    public List<OmdPlaylistMusic> getMusicPageFromPlaylist(Long omdPlaylistId, Integer afterOrder, Long afterId, int limit) {
+        return omdMusicMapper.getMusicPageFromPlaylist(omdPlaylistId, afterOrder, afterId, limit);
+    }
+
+    /**
+     * 根据传入的播放列表ID流式遍历播放列表
+     * 游标依赖数据库连接保持打开，因此整个遍历在只读事务内完成
+     * @param omdPlaylistId 播放列表ID
+     * @param consumer 每行的处理逻辑
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamMusicListFromPlaylist(Long omdPlaylistId, Consumer<OmdPlaylistMusic> consumer) {
+        try (Cursor<OmdPlaylistMusic> cursor = omdMusicMapper.streamMusicListFromPlaylist(omdPlaylistId)) {
+            cursor.forEach(consumer);
+        } catch (IOException e) {
+            throw new RuntimeException("关闭播放列表游标失败", e);
+        }
+    }
+
     /**
      * 根据传入的播放列表ID查询最大的音乐顺序
      * @param omdPlaylistId 播放列表ID
@@ -317,6 +409,38 @@ public class OmdMusicServiceImpl implements OmdMusicService {
         return omdMusicMapper.getMaxPlaylistMusicOrder(omdPlaylistId);
     }
 
+    /**
+     * 根据传入的播放列表ID统计歌曲数
+     * @param omdPlaylistId 播放列表ID
+     * @return 歌曲数
+     */
+    @Override
+    public int countPlaylistMusic(Long omdPlaylistId) {
+        return omdMusicMapper.countPlaylistMusic(omdPlaylistId);
+    }
+
+    /**
+     * 根据传入的播放列表ID和用户ID查询播放列表
+     * @param omdPlaylistId 播放列表ID
+     * @param omdUserId 当前用户ID
+     * @return 播放列表
+     */
+    @Override
+    public OmdPlaylist getPlaylistByIdAndUserId(Long omdPlaylistId, Long omdUserId) {
+        return omdMusicMapper.getPlaylistByIdAndUserId(omdPlaylistId, omdUserId);
+    }
+
+    /**
+     * 更新播放列表中单首歌曲的顺序号
+     * @param omdPlaylistMusicId 关联ID
+     * @param omdPlaylistMusicOrder 新顺序号
+     * @return 更新行数
+     */
+    @Override
+    public int updatePlaylistMusicOrder(Long omdPlaylistMusicId, Integer omdPlaylistMusicOrder) {
+        return omdMusicMapper.updatePlaylistMusicOrder(omdPlaylistMusicId, omdPlaylistMusicOrder);
+    }
+
     /**
      * 根据传入的音乐ID列表更新音乐信息点赞缓存
      * @param omdMusicInfoIdList 音乐ID列表
@@ -329,24 +453,24 @@ public class OmdMusicServiceImpl implements OmdMusicService {
     }
 
     /**
-     * 批量插入音乐信息点赞
+     * 批量插入音乐信息点赞（已存在的点赞记录忽略）
      * @param omdMusicLikeList 音乐信息点赞
-     * @return 结果
+     * @return 实际插入的记录数
      */
     @Override
-    public boolean insertLikeMusicInfoList(List<OmdMusicLike> omdMusicLikeList) {
-        return omdMusicMapper.insertLikeMusicInfoList(omdMusicLikeList) > 0;
+    public int insertLikeMusicInfoList(List<OmdMusicLike> omdMusicLikeList) {
+        return omdMusicMapper.insertLikeMusicInfoList(omdMusicLikeList);
     }
 
     /**
      * 根据传入的音乐ID列表删除音乐信息点赞
      * @param omdMusicInfoIdList 音乐ID列表
      * @param omdUserId 当前用户ID
-     * @return 结果
+     * @return 实际删除的记录数
      */
     @Override
-    public boolean deleteLikeMusicInfoList(List<Long> omdMusicInfoIdList, Long omdUserId) {
-        return omdMusicMapper.deleteLikeMusicInfoList(omdMusicInfoIdList, omdUserId) > 0;
+    public int deleteLikeMusicInfoList(List<Long> omdMusicInfoIdList, Long omdUserId) {
+        return omdMusicMapper.deleteLikeMusicInfoList(omdMusicInfoIdList, omdUserId);
     }
 
     /**
@@ -356,6 +480,6 @@ public class OmdMusicServiceImpl implements OmdMusicService {
      */
     @Override
     public OmdMusicInfo getMusicInfoByOmdMusicInfoId(Long targetId) {
-        return omdMusicMapper.getMusicInfoByOmdMusicInfoId(targetId);
+        return musicInfoCacheService.get(targetId);
     }
 }
@@ -14,6 +14,14 @@ public class OmdPublicServiceImpl implements OmdPublicService {
     @Autowired
     private OmdPublicMapper omdPublicMapper;
 
+    // 音乐信息两级缓存
+    @Autowired
+    private MusicInfoCacheService musicInfoCacheService;
+
+    // 随机歌手抽样池
+    @Autowired
+    private SingerSampleService singerSampleService;
+
     /**
      * 增加音乐播放统计
      * @param omdMusicPlayStat 音乐播放统计信息
@@ -23,14 +31,29 @@ public class OmdPublicServiceImpl implements OmdPublicService {
         omdPublicMapper.addMusicPlayStat(omdMusicPlayStat);
     }
 
+    /**
+     * 批量增加音乐播放统计
+     * @param omdMusicPlayStatList 音乐播放统计信息列表
+     */
+    @Override
+    public void batchAddMusicPlayStat(List<OmdMusicPlayStat> omdMusicPlayStatList) {
+        if (omdMusicPlayStatList == null || omdMusicPlayStatList.isEmpty()) {
+            return;
+        }
+        omdPublicMapper.batchAddMusicPlayStat(omdMusicPlayStatList);
+    }
+
     /**
      * 根据音乐ID列表获取音乐名称
      * @param omdMusicInfoIdList 音乐ID列表
-     * @return
+     * @return 审核通过的音乐信息（按传入顺序）
      */
     @Override
     public List<OmdMusicInfo> getMusicInfoByIdList(List<Long> omdMusicInfoIdList) {
-        return omdPublicMapper.getMusicInfoByIdList(omdMusicInfoIdList);
+        // 缓存中不区分状态，这里只保留审核通过的音乐，与原查询条件一致
+        return musicInfoCacheService.getAll(omdMusicInfoIdList).values().stream()
+                .filter(musicInfo -> Integer.valueOf(1).equals(musicInfo.getOmdMusicInfoStatus()))
+                .toList();
     }
 
     /**
@@ -39,7 +62,7 @@ public class OmdPublicServiceImpl implements OmdPublicService {
      * */
     @Override
     public List<OmdSinger> getRandomSingersInfo() {
-        return omdPublicMapper.getRandomSingersInfo();
+        return singerSampleService.sample(3, null);
     }
 
     /**
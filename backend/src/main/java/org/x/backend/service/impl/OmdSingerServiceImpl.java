@@ -3,6 +3,7 @@ package org.x.backend.service.impl;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.x.backend.mapper.OmdMusicMapper;
 import org.x.backend.mapper.OmdSingerMapper;
 import org.x.backend.pojo.*;
 import org.x.backend.service.OmdSingerService;
@@ -19,6 +20,26 @@ public class OmdSingerServiceImpl implements OmdSingerService {
     @Autowired
     private OmdSingerMapper omdSingerMapper;
 
+    // 歌曲下架、删除及歌手信息修改后递增曲库版本号，使缓存的播放列表内容失效
+    @Autowired
+    private PlaylistCacheService playlistCacheService;
+
+    // 歌曲新增、下架、删除及歌手信息修改后更新搜索索引
+    @Autowired
+    private MusicSearchIndexService musicSearchIndexService;
+
+    // 歌曲下架、删除及歌手信息修改后删除音乐信息缓存
+    @Autowired
+    private MusicInfoCacheService musicInfoCacheService;
+
+    // 歌手信息修改后查询其歌曲ID
+    @Autowired
+    private OmdMusicMapper omdMusicMapper;
+
+    // 歌手资料修改后刷新随机歌手抽样池
+    @Autowired
+    private SingerSampleService singerSampleService;
+
     /**
      * 根据用户ID查询歌手信息
      * @param omdUserId 用户ID
@@ -37,7 +58,17 @@ public class OmdSingerServiceImpl implements OmdSingerService {
      */
     @Override
     public boolean updateSinger(OmdSinger omdSinger) {
-        return omdSingerMapper.updateSinger(omdSinger) > 0;
+        if (omdSingerMapper.updateSinger(omdSinger) > 0) {
+            // 缓存的音乐信息和搜索索引中带有歌手信息，删除该歌手所有歌曲的缓存并通知重新索引
+            List<Long> omdMusicInfoIdList = omdMusicMapper.getMusicInfoIdListBySingerId(omdSinger.getOmdSingerId());
+            musicInfoCacheService.invalidate(omdMusicInfoIdList);
+            omdMusicInfoIdList.forEach(musicSearchIndexService::onMusicChanged);
+            // 播放列表内容中带有歌手信息（提交后生效）
+            playlistCacheService.bumpCatalog();
+            singerSampleService.onSingerChanged();
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -49,6 +80,8 @@ public class OmdSingerServiceImpl implements OmdSingerService {
     public OmdMusicInfo insertMusicInfo(OmdMusicInfo musicInfo) {
         int rows = omdSingerMapper.insertMusicInfo(musicInfo);
         if (rows > 0) {
+            // 新歌曲通常待审核，是否进入索引以数据库中的状态为准
+            musicSearchIndexService.onMusicChanged(musicInfo.getOmdMusicInfoId());
             return musicInfo; // 此时 musicInfo 已包含自增ID
         }
         return null;
@@ -165,7 +198,13 @@ public class OmdSingerServiceImpl implements OmdSingerService {
      */
     @Override
     public boolean updateMusicInfoStatus(Long omdMusicInfoId) {
-        return omdSingerMapper.updateMusicInfoStatus(omdMusicInfoId) > 0;
+        if (omdSingerMapper.updateMusicInfoStatus(omdMusicInfoId) > 0) {
+            playlistCacheService.bumpCatalog();
+            musicSearchIndexService.onMusicChanged(omdMusicInfoId);
+            musicInfoCacheService.invalidate(omdMusicInfoId);
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -175,7 +214,13 @@ public class OmdSingerServiceImpl implements OmdSingerService {
      */
     @Override
     public boolean deleteMusicInfo(Long omdMusicInfoId) {
-        return omdSingerMapper.deleteMusicInfo(omdMusicInfoId) > 0;
+        if (omdSingerMapper.deleteMusicInfo(omdMusicInfoId) > 0) {
+            playlistCacheService.bumpCatalog();
+            musicSearchIndexService.onMusicChanged(omdMusicInfoId);
+            musicInfoCacheService.invalidate(omdMusicInfoId);
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -22,6 +22,10 @@ public class OmdUserServiceImpl implements OmdUserService {
     @Autowired
     private OmdUserRoleMapper omdUserRoleMapper;
 
+    // 歌手修改头像后刷新随机歌手抽样池（歌手卡片使用用户头像）
+    @Autowired
+    private SingerSampleService singerSampleService;
+
     /**
      * 根据用户ID查询用户信息
      * @param omdUserId 用户ID
@@ -97,6 +101,10 @@ public class OmdUserServiceImpl implements OmdUserService {
     @Override
     public void updateUserInfo(OmdUser omdUser) {
         omdUserMapper.updateUserInfo(omdUser);
+        // 只有抽样池中的歌手修改头像才需要重新加载，普通用户修改资料不触发
+        if (omdUser.getOmdUserAvatar() != null && singerSampleService.containsUser(omdUser.getOmdUserId())) {
+            singerSampleService.onSingerChanged();
+        }
     }
 
     /**
@@ -147,38 +155,6 @@ public class OmdUserServiceImpl implements OmdUserService {
         return omdUserMapper.insertMusicComment(omdMusicComment);
     }
 
-    /**
-     * 根据用户ID和评论ID删除音乐评论
-     * @param omdMusicCommentId 音乐评论ID
-     * @param omdUserId 当前用户ID
-     * @return 是否删除成功
-     */
-    @Override
-    public boolean deleteMusicComment(Long omdMusicCommentId, Long omdUserId) {
-        return omdUserMapper.deleteMusicComment(omdMusicCommentId, omdUserId);
-    }
-
-    /**
-     * 根据音乐ID查询音乐评论列表
-     * @param omdMusicInfoId 音乐ID
-     * @param omdUserId 当前用户ID
-     * @return 音乐评论列表
-     */
-    @Override
-    public List<OmdMusicComment> findCommentListByOmdMusicInfoIdWithDynamicSort(Long omdMusicInfoId, Long omdUserId) {
-        return omdUserMapper.findCommentListByOmdMusicInfoIdWithDynamicSort(omdMusicInfoId,omdUserId);
-    }
-
-    /**
-     * 点赞音乐评论
-     * @param omdMusicCommentId 音乐评论ID
-     * @return 是否点赞成功
-     */
-    @Override
-    public boolean likeMusicComment(Long omdMusicCommentId) {
-        return omdUserMapper.likeMusicComment(omdMusicCommentId);
-    }
-
     /**
      * 插入音乐评论举报
      * @param omdCommentReport 音乐评论举报
@@ -189,49 +165,6 @@ public class OmdUserServiceImpl implements OmdUserService {
         return omdUserMapper.insertOmdCommentReport(omdCommentReport);
     }
 
-    /**
-     * 检查用户是否已经点赞过该评论
-     * @param omdMusicCommentIdList 音乐评论ID
-     * @param omdUserId 当前用户ID
-     * @return 是否点赞过
-     */
-    @Override
-    public boolean hasLikedMusicComment(Long omdMusicCommentIdList, Long omdUserId) {
-        return omdUserMapper.hasLikedMusicComment(omdMusicCommentIdList, omdUserId);
-    }
-
-    /**
-     * 取消点赞
-     * @param omdMusicCommentId 音乐评论ID
-     * @return 是否取消点赞成功
-     */
-    @Override
-    public boolean unlikeMusicComment(Long omdMusicCommentId) {
-        return omdUserMapper.unlikeMusicComment(omdMusicCommentId);
-    }
-
-    /**
-     * 删除评论点赞记录
-     * @param omdMusicCommentId 音乐评论ID
-     * @param omdUserId 当前用户ID
-     * @return 是否删除成功
-     */
-    @Override
-    public boolean deleteCommentLike(Long omdMusicCommentId, Long omdUserId) {
-        return omdUserMapper.deleteCommentLike(omdMusicCommentId, omdUserId);
-    }
-
-    /**
-     * 插入评论点赞记录
-     * @param omdMusicCommentId 音乐评论ID
-     * @param omdUserId 当前用户ID
-     * @return 是否插入成功
-     */
-    @Override
-    public boolean insertCommentLike(Long omdMusicCommentId, Long omdUserId) {
-        return omdUserMapper.insertCommentLike(omdMusicCommentId, omdUserId);
-    }
-
     /**
      * 插入用户反馈
      * @param omdUserFeedback 用户反馈
@@ -253,23 +186,30 @@ public class OmdUserServiceImpl implements OmdUserService {
     }
 
     /**
-     * 根据评论ID列表删除评论
-     * @param commentIds 评论ID列表
-     * @return 删除的评论数量
+     * 写入新评论的闭包关系
+     * @param omdMusicCommentId 新评论ID
+     * @param omdMusicCommentParentId 父评论ID，根评论为0
+     * @return 是否写入成功
      */
     @Override
-    public int deleteMusicCommentByIdList(List<Long> commentIds) {
-        return omdUserMapper.deleteMusicCommentByIdList(commentIds);
+    public boolean insertCommentClosure(Long omdMusicCommentId, Long omdMusicCommentParentId) {
+        return omdUserMapper.insertCommentClosure(omdMusicCommentId, omdMusicCommentParentId) > 0;
     }
 
     /**
-     * 递归查询子评论ID
-     * @param omdMusicCommentParentId 父评论ID
-     * @return 子评论ID列表
+     * 删除评论及其所有子孙评论
+     * @param omdMusicCommentId 评论ID
+     * @return 是否删除成功
      */
     @Override
-    public List<Long> selectChildCommentIds(Long omdMusicCommentParentId) {
-        return omdUserMapper.selectChildCommentIds(omdMusicCommentParentId);
+    public boolean deleteCommentSubtree(Long omdMusicCommentId) {
+        int rows = omdUserMapper.deleteCommentSubtree(omdMusicCommentId);
+        // 评论缺少闭包关系（启动时补全失败，或由旧版本实例写入）时补全后重试一次
+        if (rows == 0 && omdUserMapper.backfillCommentClosure() > 0) {
+            log.warn("删除评论[{}]时发现闭包关系缺失，已补全", omdMusicCommentId);
+            rows = omdUserMapper.deleteCommentSubtree(omdMusicCommentId);
+        }
+        return rows > 0;
     }
 
     /**
@@ -303,18 +243,6 @@ public class OmdUserServiceImpl implements OmdUserService {
         return omdUserMapper.isOwnCommentList(omdMusicCommentIdList, omdUserId);
     }
 
-    /**
-     * 根据omdMusicCommentIdList获取是否被用户点赞
-     * @param omdMusicCommentIdList 评论列表
-     * @param omdUserId 用户ID
-     * @return 状态列表
-     */
-    @Override
-    public List<Map<String, Object>> hasLikedMusicCommentList(List<Long> omdMusicCommentIdList, Long omdUserId) {
-        return omdUserMapper.hasLikedMusicCommentList(omdMusicCommentIdList, omdUserId);
-
-    }
-
     /**
      * 根据omdMusicCommentIdList获取是否被用户举报
      * @param omdMusicCommentIdList 评论列表
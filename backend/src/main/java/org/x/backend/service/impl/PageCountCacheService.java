@@ -0,0 +1,117 @@
+package org.x.backend.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.x.backend.utils.ThreadLocalUtil;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 分页总数缓存服务（近似值）
+ * 游标分页不需要精确总数，每页都执行 SELECT COUNT(*) 的代价却与表大小成正比。
+ * 这里按统计键缓存总数：首次访问同步统计，之后直接返回缓存值；
+ * 超过刷新间隔后仍先返回旧值，同时在后台线程重新统计，同一个键同一时间只刷新一次。
+ */
+@Service
+@Slf4j
+public class PageCountCacheService {
+
+    /**
+     * 缓存的总数
+     * @param total 总记录数
+     * @param countedAt 统计时间（毫秒）
+     */
+    private record CachedCount(long total, long countedAt) {
+    }
+
+    @Value("${local-cache.page-count.maximum-size:10000}")
+    private long maximumSize;
+
+    @Value("${local-cache.page-count.expire-minutes:30}")
+    private long expireMinutes;
+
+    @Value("${local-cache.page-count.refresh-seconds:60}")
+    private long refreshSeconds;
+
+    @Value("${local-cache.page-count.refresh-threads:2}")
+    private int refreshThreads;
+
+    // 统计键 -> 总数
+    private Cache<String, CachedCount> countCache;
+
+    // 正在后台刷新的统计键
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    private ExecutorService refreshExecutor;
+
+    @PostConstruct
+    public void init() {
+        countCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireMinutes, TimeUnit.MINUTES)
+                .build();
+        refreshExecutor = Executors.newFixedThreadPool(refreshThreads, runnable -> {
+            Thread thread = new Thread(runnable, "page-count-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * 获取总数
+     * @param countKey 统计键
+     * @param counter 执行 COUNT 查询的方法
+     * @return 总记录数（可能略有滞后）
+     */
+    public long getTotal(String countKey, LongSupplier counter) {
+        CachedCount cached = countCache.getIfPresent(countKey);
+        if (cached == null) {
+            long total = counter.getAsLong();
+            countCache.put(countKey, new CachedCount(total, System.currentTimeMillis()));
+            return total;
+        }
+        if (System.currentTimeMillis() - cached.countedAt() > TimeUnit.SECONDS.toMillis(refreshSeconds)) {
+            refreshAsync(countKey, counter);
+        }
+        return cached.total();
+    }
+
+    // 后台重新统计，带上当前请求的用户信息（查询条件中可能用到当前用户ID）
+    private void refreshAsync(String countKey, LongSupplier counter) {
+        if (!refreshing.add(countKey)) {
+            return;
+        }
+        Object userInfo = ThreadLocalUtil.get();
+        try {
+            refreshExecutor.execute(() -> {
+                ThreadLocalUtil.set(userInfo);
+                try {
+                    countCache.put(countKey, new CachedCount(counter.getAsLong(), System.currentTimeMillis()));
+                } catch (Exception e) {
+                    log.warn("刷新分页总数失败，继续使用旧值: {}", countKey, e);
+                } finally {
+                    ThreadLocalUtil.remove();
+                    refreshing.remove(countKey);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(countKey);
+        }
+    }
+}
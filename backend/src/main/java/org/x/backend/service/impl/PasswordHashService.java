@@ -0,0 +1,131 @@
+package org.x.backend.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.x.backend.exception.TooManyRequestsException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 密码哈希服务
+ * BCrypt 计算代价很高，这里把编码和校验放到独立的有界线程池中执行，
+ * 避免登录高峰占满 Tomcat 请求线程；线程池和队列饱和时快速失败，返回 429。
+ */
+@Service
+@Slf4j
+public class PasswordHashService {
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${security.password-hash.threads:4}")
+    private int threads;
+
+    @Value("${security.password-hash.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${security.password-hash.timeout-ms:5000}")
+    private long timeoutMs;
+
+    private ThreadPoolExecutor executor;
+
+    private Timer hashTimer;
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = new ThreadPoolExecutor(
+                threads, threads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, "password-hash-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        hashTimer = Timer.builder("omd.password.hash")
+                .description("密码哈希（编码/校验）耗时")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("omd.password.hash.rejected")
+                .description("密码哈希线程池饱和被拒绝的次数")
+                .register(meterRegistry);
+        Gauge.builder("omd.password.hash.queue", executor, e -> e.getQueue().size())
+                .description("密码哈希线程池排队任务数")
+                .register(meterRegistry);
+        Gauge.builder("omd.password.hash.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("密码哈希线程池正在执行的任务数")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    /**
+     * 编码密码
+     * @param rawPassword 明文密码
+     * @return 密文密码
+     */
+    public String encode(String rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * 校验密码
+     * @param rawPassword 明文密码
+     * @param encodedPassword 密文密码
+     * @return 是否匹配
+     */
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return submit(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    // 提交到哈希线程池并等待结果
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> hashTimer.recordCallable(task));
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            log.warn("密码哈希线程池已饱和，拒绝请求");
+            throw new TooManyRequestsException("当前请求过多，请稍后再试");
+        }
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejectedCounter.increment();
+            log.warn("密码哈希等待超时");
+            throw new TooManyRequestsException("当前请求过多，请稍后再试");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("密码处理被中断", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("密码处理失败", e.getCause());
+        }
+    }
+}
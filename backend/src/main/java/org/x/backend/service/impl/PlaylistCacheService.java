@@ -0,0 +1,149 @@
+package org.x.backend.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.x.backend.pojo.Result;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 播放列表内容缓存服务（版本号 + 条件请求）
+ * 每个播放列表在 Redis 中维护一个版本号，所有修改播放列表歌曲的操作在事务提交后递增版本号；
+ * 歌曲上下架、删除会影响所有包含该歌曲的播放列表，因此另有一个全局的曲库版本号。
+ * 序列化后的响应体按 (播放列表ID, 播放列表版本, 曲库版本) 缓存在本地，版本变化后旧条目自然失效；
+ * ETag 只由版本号组成，客户端缓存未过期时只需读取一次 Redis 即可返回 304，不访问数据库。
+ */
+@Service
+@Slf4j
+public class PlaylistCacheService {
+
+    /**
+     * 播放列表响应快照
+     * @param body 序列化后的响应体（不可修改）
+     * @param etag 版本标识
+     */
+    public record Snapshot(byte[] body, String etag) {
+    }
+
+    // 播放列表版本号键前缀（格式：playlist:version:{播放列表ID}）
+    private static final String VERSION_KEY_PREFIX = "playlist:version:";
+    // 曲库版本号键（歌曲状态变化、删除时递增）
+    private static final String CATALOG_VERSION_KEY = "playlist:version:catalog";
+
+    private static final RedisScript<Long> BUMP_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/playlist_version_bump.lua"), Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${local-cache.playlist.maximum-weight-mb:64}")
+    private long maximumWeightMb;
+
+    @Value("${local-cache.playlist.expire-minutes:10}")
+    private long expireMinutes;
+
+    // 播放列表ID:变体:版本标识 -> 快照
+    private Cache<String, Snapshot> snapshotCache;
+
+    @PostConstruct
+    public void init() {
+        snapshotCache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeightMb * 1024 * 1024)
+                .weigher((String key, Snapshot snapshot) -> snapshot.body().length)
+                .expireAfterWrite(expireMinutes, TimeUnit.MINUTES)
+                .build();
+    }
+
+    /**
+     * 获取播放列表当前的 ETag（一次 Redis 读取，不访问数据库）
+     * @param omdPlaylistId 播放列表ID
+     * @return ETag
+     */
+    public String currentEtag(Long omdPlaylistId) {
+        List<String> versions = stringRedisTemplate.opsForValue()
+                .multiGet(List.of(VERSION_KEY_PREFIX + omdPlaylistId, CATALOG_VERSION_KEY));
+        String playlistVersion = versions == null ? null : versions.get(0);
+        String catalogVersion = versions == null ? null : versions.get(1);
+        if (playlistVersion == null) {
+            playlistVersion = initVersion(VERSION_KEY_PREFIX + omdPlaylistId);
+        }
+        if (catalogVersion == null) {
+            catalogVersion = initVersion(CATALOG_VERSION_KEY);
+        }
+        return "\"" + omdPlaylistId + "-" + playlistVersion + "-" + catalogVersion + "\"";
+    }
+
+    /**
+     * 获取播放列表响应快照，当前版本未缓存时调用 loader 查询并序列化
+     * @param omdPlaylistId 播放列表ID
+     * @param etag 调用方已读取的 ETag
+     * @param variant 响应变体（如全量列表、某一页）
+     * @param loader 查询响应数据
+     * @return 快照
+     */
+    public Snapshot getSnapshot(Long omdPlaylistId, String etag, String variant, Supplier<Object> loader) {
+        return snapshotCache.get(omdPlaylistId + ":" + variant + ":" + etag, key -> {
+            try {
+                return new Snapshot(objectMapper.writeValueAsBytes(Result.success(loader.get())), etag);
+            } catch (JsonProcessingException e) {
+                throw new RuntimeException("播放列表序列化失败", e);
+            }
+        });
+    }
+
+    /**
+     * 递增播放列表版本号（在事务中调用时提交后生效）
+     * @param omdPlaylistId 播放列表ID
+     */
+    public void bumpPlaylist(Long omdPlaylistId) {
+        if (omdPlaylistId != null) {
+            bump(VERSION_KEY_PREFIX + omdPlaylistId);
+        }
+    }
+
+    /**
+     * 递增曲库版本号，使所有播放列表的缓存失效（歌曲上下架、删除后调用）
+     */
+    public void bumpCatalog() {
+        bump(CATALOG_VERSION_KEY);
+    }
+
+    private void bump(String key) {
+        Runnable update = () -> stringRedisTemplate.execute(BUMP_SCRIPT, List.of(key),
+                String.valueOf(System.currentTimeMillis()));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update.run();
+                }
+            });
+        } else {
+            update.run();
+        }
+    }
+
+    // 版本号不存在时用当前时间戳初始化，避免与丢失前的版本号重复
+    private String initVersion(String key) {
+        stringRedisTemplate.opsForValue().setIfAbsent(key, String.valueOf(System.currentTimeMillis()));
+        String version = stringRedisTemplate.opsForValue().get(key);
+        return version == null ? "0" : version;
+    }
+}
@@ -0,0 +1,137 @@
+package org.x.backend.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.x.backend.mapper.OmdMusicMapper;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 播放列表顺序号服务（间隔排序）
+ * 顺序号按固定间隔稀疏分配：追加时从 Redis 计数器原子领取，不需要先查询最大顺序号；
+ * 移动歌曲时取前后两首的中间值，只更新一行；间隔用尽或顺序号将要越界时整体重排一次。
+ */
+@Service
+@Slf4j
+public class PlaylistOrderService {
+
+    // 顺序号间隔：相邻两首之间可连续插入约 10 次后才需要重排
+    public static final int GAP = 1024;
+
+    // 播放列表顺序号计数器键前缀（格式：playlist:order:{播放列表ID}）
+    private static final String ORDER_KEY_PREFIX = "playlist:order:";
+    // 计数器过期时间（天），过期后从数据库最大顺序号重新初始化
+    private static final long ORDER_KEY_EXPIRE_DAYS = 1;
+
+    private static final RedisScript<Long> NEXT_ORDER_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/playlist_order_next.lua"), Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private OmdMusicMapper omdMusicMapper;
+
+    @Autowired
+    private PlaylistCacheService playlistCacheService;
+
+    /**
+     * 为追加到末尾的一首歌曲分配顺序号
+     * @param omdPlaylistId 播放列表ID
+     * @return 顺序号
+     */
+    public int nextOrder(Long omdPlaylistId) {
+        return nextOrders(omdPlaylistId, 1)[0];
+    }
+
+    /**
+     * 为追加到末尾的多首歌曲分配连续的顺序号
+     * @param omdPlaylistId 播放列表ID
+     * @param count 歌曲数
+     * @return 顺序号（按追加顺序）
+     */
+    public int[] nextOrders(Long omdPlaylistId, int count) {
+        long end = allocate(omdPlaylistId, count);
+        if (end > Integer.MAX_VALUE) {
+            // 顺序号即将越界，重排后重新分配
+            rebalance(omdPlaylistId);
+            end = allocate(omdPlaylistId, count);
+        }
+        int[] orders = new int[count];
+        for (int i = 0; i < count; i++) {
+            orders[i] = (int) (end - (long) (count - 1 - i) * GAP);
+        }
+        return orders;
+    }
+
+    /**
+     * 计算把歌曲移动到指定位置后的顺序号
+     * @param omdPlaylistId 播放列表ID
+     * @param omdMusicInfoId 要移动的音乐ID
+     * @param afterOrder 目标位置前一首的顺序号，null 表示移动到最前面
+     * @param afterPlaylistMusicId 目标位置前一首的关联ID（与顺序号一起确定其后的一首）
+     * @return 新顺序号；前后两首之间已无间隔（含顺序号相同）时返回null，调用方应重排后重试
+     */
+    public Integer orderAfter(Long omdPlaylistId, Long omdMusicInfoId, Integer afterOrder, Long afterPlaylistMusicId) {
+        if (afterOrder == null) {
+            Integer first = omdMusicMapper.getFirstPlaylistMusicOrder(omdPlaylistId);
+            if (first == null) {
+                return nextOrder(omdPlaylistId);
+            }
+            long order = (long) first - GAP;
+            return order < Integer.MIN_VALUE ? null : (int) order;
+        }
+        Integer next = omdMusicMapper.getNextPlaylistMusicOrder(omdPlaylistId, afterOrder, afterPlaylistMusicId, omdMusicInfoId);
+        if (next == null) {
+            // 移动到末尾，与追加相同
+            return nextOrder(omdPlaylistId);
+        }
+        if ((long) next - afterOrder < 2) {
+            return null;
+        }
+        return (int) (((long) afterOrder + next) / 2);
+    }
+
+    /**
+     * 重新均匀分配播放列表的顺序号，并重置追加计数器
+     * 计数器立即删除一次，使本事务内随后的分配按重排后的最大顺序号初始化；
+     * 事务提交后再删除一次，清除提交前其它请求按旧顺序号初始化的计数器
+     * @param omdPlaylistId 播放列表ID
+     */
+    public void rebalance(Long omdPlaylistId) {
+        int updated = omdMusicMapper.rebalancePlaylistMusicOrder(omdPlaylistId, GAP);
+        String key = ORDER_KEY_PREFIX + omdPlaylistId;
+        stringRedisTemplate.delete(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    stringRedisTemplate.delete(key);
+                }
+            });
+        }
+        playlistCacheService.bumpPlaylist(omdPlaylistId);
+        log.info("播放列表[{}]顺序号已重排，共{}首", omdPlaylistId, updated);
+    }
+
+    // 从计数器领取 count 个间隔，返回领取后的计数器值（即最后一首的顺序号）
+    private long allocate(Long omdPlaylistId, int count) {
+        String key = ORDER_KEY_PREFIX + omdPlaylistId;
+        String increment = String.valueOf((long) count * GAP);
+        String ttl = String.valueOf(TimeUnit.DAYS.toSeconds(ORDER_KEY_EXPIRE_DAYS));
+        Long end = stringRedisTemplate.execute(NEXT_ORDER_SCRIPT, List.of(key), increment, "", ttl);
+        if (end == null) {
+            // 计数器不存在，用数据库中的最大顺序号初始化（仅冷启动时读取一次）
+            int maxOrder = omdMusicMapper.getMaxPlaylistMusicOrder(omdPlaylistId);
+            end = stringRedisTemplate.execute(NEXT_ORDER_SCRIPT, List.of(key), increment, String.valueOf(maxOrder), ttl);
+        }
+        return end;
+    }
+}
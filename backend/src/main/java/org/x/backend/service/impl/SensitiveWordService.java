@@ -0,0 +1,122 @@
+package org.x.backend.service.impl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+import org.x.backend.utils.SensitiveWordMatcher;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 敏感词过滤服务
+ * 评论、私信、反馈在写入数据库前把敏感词替换为掩码字符，昵称包含敏感词时直接拒绝修改。
+ * 词表为 UTF-8 文本文件（每行一个词，# 开头的行为注释），位置由 sensitive-word.path 指定，
+ * 定时任务检测到文件的修改时间或大小变化时重新构建匹配器并整体替换，读取无锁，加载失败时继续使用旧词表。
+ */
+@Service
+@Slf4j
+public class SensitiveWordService {
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${sensitive-word.path:classpath:sensitive-words.txt}")
+    private String path; // 词表位置（classpath: 或 file: 前缀）
+
+    @Value("${sensitive-word.mask-char:*}")
+    private char maskChar; // 掩码字符
+
+    private volatile SensitiveWordMatcher matcher = SensitiveWordMatcher.EMPTY;
+
+    // 已加载词表的修改时间和大小，用于判断是否需要重新加载
+    private volatile String loadedVersion;
+
+    @PostConstruct
+    public void init() {
+        try {
+            reloadIfChanged();
+        } catch (Exception e) {
+            // 定时任务会再次尝试加载
+            log.error("加载敏感词词表[{}]失败", path, e);
+        }
+    }
+
+    /**
+     * 把文本中的敏感词替换为掩码字符
+     * @param text 文本
+     * @param scene 场景（comment、message、feedback），用于统计命中次数
+     * @return 替换后的文本，不含敏感词时返回原对象
+     */
+    public String mask(String text, String scene) {
+        String masked = matcher.mask(text, maskChar);
+        if (masked != text) {
+            meterRegistry.counter("omd.sensitive.word.hit", "scene", scene).increment();
+        }
+        return masked;
+    }
+
+    /**
+     * 校验文本不包含敏感词
+     * @param text 文本
+     * @param scene 场景（如 nickname），用于统计命中次数
+     * @param message 包含敏感词时的错误信息
+     */
+    public void check(String text, String scene, String message) {
+        if (matcher.contains(text)) {
+            meterRegistry.counter("omd.sensitive.word.hit", "scene", scene).increment();
+            throw new RuntimeException(message);
+        }
+    }
+
+    /**
+     * 词表文件发生变化时重新加载
+     */
+    public synchronized void reloadIfChanged() throws Exception {
+        Resource resource = resourceLoader.getResource(path);
+        if (!resource.exists()) {
+            if (loadedVersion == null) {
+                log.warn("敏感词词表[{}]不存在，暂不过滤", path);
+                loadedVersion = "";
+            }
+            return;
+        }
+        String version = lastModified(resource) + ":" + resource.contentLength();
+        if (version.equals(loadedVersion)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        List<String> words = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank() && !line.trim().startsWith("#")) {
+                    words.add(line);
+                }
+            }
+        }
+        matcher = SensitiveWordMatcher.build(words);
+        loadedVersion = version;
+        log.info("敏感词词表加载完成，共{}个词，耗时{}ms", matcher.size(), System.currentTimeMillis() - start);
+    }
+
+    // jar 包内的资源可能取不到修改时间，此时只按大小判断
+    private long lastModified(Resource resource) {
+        try {
+            return resource.lastModified();
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+}
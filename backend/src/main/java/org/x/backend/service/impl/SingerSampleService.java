@@ -0,0 +1,177 @@
+package org.x.backend.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.x.backend.mapper.OmdPublicMapper;
+import org.x.backend.pojo.OmdSinger;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 随机歌手抽样服务
+ * 首页的随机歌手原先使用 ORDER BY rand()，每次访问都要对整张歌手表排序。
+ * 这里在内存中维护可展示歌手的数组（整体替换，读取无锁），抽样时用稀疏的部分洗牌在 O(k) 内选出 k 个不重复的歌手，
+ * 并按流派预先分组，支持按流派抽样。歌手新增、状态变化、资料或头像修改后通过 Redis 发布/订阅通知所有实例重新加载，并定时全量刷新兜底。
+ * 返回的对象为共享实例，调用方不要修改。
+ */
+@Service
+@Slf4j
+public class SingerSampleService implements MessageListener {
+
+    // 歌手变更广播频道
+    public static final String SINGER_CHANGED_CHANNEL = "singer:sample:changed";
+
+    /**
+     * 抽样池（不可变，整体替换）
+     * @param all 所有可展示的歌手
+     * @param byGenre 流派 -> 该流派的歌手
+     * @param userIds 池中歌手对应的用户ID
+     */
+    private record Pool(OmdSinger[] all, Map<String, OmdSinger[]> byGenre, Set<Long> userIds) {
+    }
+
+    @Autowired
+    private OmdPublicMapper omdPublicMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private volatile Pool pool;
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(SINGER_CHANGED_CHANNEL));
+    }
+
+    /**
+     * 应用启动完成后加载抽样池
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            // 首次访问时会再次尝试加载
+            log.error("加载随机歌手抽样池失败", e);
+        }
+    }
+
+    /**
+     * 随机抽取歌手
+     * @param count 数量
+     * @param genre 流派，为空时不限流派
+     * @return 随机歌手列表（不重复，不足时返回全部）
+     */
+    public List<OmdSinger> sample(int count, String genre) {
+        Pool current = pool;
+        if (current == null) {
+            refresh();
+            current = pool;
+        }
+        OmdSinger[] candidates = genre == null || genre.isBlank()
+                ? current.all()
+                : current.byGenre().getOrDefault(genre.trim(), new OmdSinger[0]);
+        int n = candidates.length;
+        int k = Math.min(Math.max(count, 0), n);
+        if (k == 0) {
+            return Collections.emptyList();
+        }
+
+        // 稀疏的 Fisher-Yates 部分洗牌：只记录被交换过的位置，共享数组本身不修改，时间和空间均为 O(k)
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Map<Integer, Integer> swapped = new HashMap<>(k * 2);
+        List<OmdSinger> result = new ArrayList<>(k);
+        for (int i = 0; i < k; i++) {
+            int j = random.nextInt(i, n);
+            int picked = swapped.getOrDefault(j, j);
+            swapped.put(j, swapped.getOrDefault(i, i));
+            result.add(candidates[picked]);
+        }
+        return result;
+    }
+
+    /**
+     * 用户是否是抽样池中的歌手（用户资料修改时据此判断是否需要重新加载）
+     * @param omdUserId 用户ID
+     * @return 抽样池尚未加载时返回true
+     */
+    public boolean containsUser(Long omdUserId) {
+        Pool current = pool;
+        return current == null || current.userIds().contains(omdUserId);
+    }
+
+    /**
+     * 通知歌手信息发生变化（新增、状态修改、资料或头像修改），事务提交后所有实例重新加载
+     */
+    public void onSingerChanged() {
+        Runnable publish = () -> {
+            try {
+                stringRedisTemplate.convertAndSend(SINGER_CHANGED_CHANNEL, "1");
+            } catch (Exception e) {
+                // 广播失败时本实例直接刷新，其他实例由定时刷新兜底
+                log.error("广播歌手变更失败", e);
+                refresh();
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish.run();
+                }
+            });
+        } else {
+            publish.run();
+        }
+    }
+
+    /**
+     * 接收变更广播，重新加载抽样池
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.error("重新加载随机歌手抽样池失败", e);
+        }
+    }
+
+    /**
+     * 从数据库重新加载抽样池
+     */
+    public synchronized void refresh() {
+        List<OmdSinger> singers = omdPublicMapper.getSingerSampleList();
+        Map<String, List<OmdSinger>> grouped = new HashMap<>();
+        for (OmdSinger singer : singers) {
+            if (singer.getOmdSingerGenre() != null && !singer.getOmdSingerGenre().isBlank()) {
+                grouped.computeIfAbsent(singer.getOmdSingerGenre().trim(), key -> new ArrayList<>()).add(singer);
+            }
+        }
+        Map<String, OmdSinger[]> byGenre = new HashMap<>(grouped.size() * 2);
+        grouped.forEach((genre, list) -> byGenre.put(genre, list.toArray(new OmdSinger[0])));
+        Set<Long> userIds = new HashSet<>(singers.size() * 2);
+        for (OmdSinger singer : singers) {
+            if (singer.getOmdUser() != null && singer.getOmdUser().getOmdUserId() != null) {
+                userIds.add(singer.getOmdUser().getOmdUserId());
+            }
+        }
+        pool = new Pool(singers.toArray(new OmdSinger[0]), byGenre, userIds);
+        log.info("随机歌手抽样池加载完成，共{}位歌手，{}个流派", singers.size(), byGenre.size());
+    }
+}
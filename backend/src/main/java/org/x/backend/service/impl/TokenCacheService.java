@@ -0,0 +1,190 @@
+package org.x.backend.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.x.backend.utils.RedisUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 用户Token近端缓存服务
+ * 在本地缓存每个用户当前有效Token的指纹（SHA-256），认证时优先命中本地缓存，减少Redis访问；
+ * Token写入或删除时通过Redis发布/订阅广播失效消息，保证各实例的本地缓存与Redis一致。
+ */
+@Service
+@Slf4j
+public class TokenCacheService implements MessageListener {
+
+    // Redis中存储用户Token的键前缀（格式：user:token:{userId}）
+    public static final String TOKEN_KEY_PREFIX = "user:token:";
+    // Token失效广播频道
+    public static final String TOKEN_INVALIDATE_CHANNEL = "user:token:invalidate";
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${local-cache.token.maximum-size:100000}")
+    private long maximumSize;
+
+    @Value("${local-cache.token.expire-minutes:5}")
+    private long expireMinutes;
+
+    // 本地缓存：用户ID -> Token指纹
+    private Cache<Long, String> tokenFingerprintCache;
+
+    // 失效纪元：每收到一次失效消息加一，用于丢弃失效期间从Redis读到的旧值
+    private final AtomicLong invalidationEpoch = new AtomicLong();
+
+    private Counter localHitCounter;
+    private Counter redisLookupCounter;
+    private Counter invalidationCounter;
+
+    @PostConstruct
+    public void init() {
+        tokenFingerprintCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireMinutes, TimeUnit.MINUTES)
+                .build();
+        localHitCounter = Counter.builder("omd.token.check")
+                .tag("source", "local")
+                .description("Token校验命中本地缓存的次数")
+                .register(meterRegistry);
+        redisLookupCounter = Counter.builder("omd.token.check")
+                .tag("source", "redis")
+                .description("Token校验访问Redis的次数")
+                .register(meterRegistry);
+        invalidationCounter = Counter.builder("omd.token.invalidation")
+                .description("收到的Token失效广播次数")
+                .register(meterRegistry);
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(TOKEN_INVALIDATE_CHANNEL));
+    }
+
+    /**
+     * 校验请求中的Token是否为该用户当前有效的Token
+     * @param omdUserId 用户ID
+     * @param token 请求中的Token
+     * @return 有效返回 true，否则 false
+     */
+    public boolean isTokenActive(Long omdUserId, String token) {
+        String fingerprint = fingerprint(token);
+        String cached = tokenFingerprintCache.getIfPresent(omdUserId);
+        if (fingerprint.equals(cached)) {
+            localHitCounter.increment();
+            return true;
+        }
+
+        // 本地未命中（或指纹不一致），回源Redis
+        redisLookupCounter.increment();
+        long epoch = invalidationEpoch.get();
+        String redisToken = redisUtil.get(TOKEN_KEY_PREFIX + omdUserId);
+        if (redisToken == null) {
+            return false;
+        }
+        // 只有在读取期间没有发生失效时才回填本地缓存
+        if (epoch == invalidationEpoch.get()) {
+            tokenFingerprintCache.put(omdUserId, fingerprint(redisToken));
+        }
+        return redisToken.equals(token);
+    }
+
+    /**
+     * 获取用户当前存储在Redis中的Token
+     * @param omdUserId 用户ID
+     * @return Token，不存在返回null
+     */
+    public String getToken(Long omdUserId) {
+        return redisUtil.get(TOKEN_KEY_PREFIX + omdUserId);
+    }
+
+    /**
+     * 保存用户Token并广播失效消息（登录、重新登录时调用）
+     * @param omdUserId 用户ID
+     * @param token Token
+     * @param time 过期时间
+     * @param unit 时间单位
+     */
+    public void saveToken(Long omdUserId, String token, long time, TimeUnit unit) {
+        redisUtil.set(TOKEN_KEY_PREFIX + omdUserId, token, time, unit);
+        publishInvalidation(omdUserId);
+    }
+
+    /**
+     * 删除用户Token并广播失效消息（登出、修改密码时调用）
+     * @param omdUserId 用户ID
+     * @return 是否删除成功
+     */
+    public boolean revokeToken(Long omdUserId) {
+        boolean deleted = redisUtil.delete(TOKEN_KEY_PREFIX + omdUserId);
+        publishInvalidation(omdUserId);
+        return deleted;
+    }
+
+    /**
+     * 处理其它实例（包括本实例）广播的失效消息
+     * @param message 消息体为用户ID
+     * @param pattern 订阅的频道
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            invalidateLocal(Long.parseLong(body.trim()));
+        } catch (NumberFormatException e) {
+            log.warn("无法解析的Token失效消息: {}", body);
+        }
+    }
+
+    // 清除本地缓存中的Token指纹
+    private void invalidateLocal(Long omdUserId) {
+        invalidationEpoch.incrementAndGet();
+        tokenFingerprintCache.invalidate(omdUserId);
+        invalidationCounter.increment();
+    }
+
+    // 广播Token失效消息，本实例先行失效，避免等待消息回环
+    private void publishInvalidation(Long omdUserId) {
+        invalidateLocal(omdUserId);
+        try {
+            stringRedisTemplate.convertAndSend(TOKEN_INVALIDATE_CHANNEL, String.valueOf(omdUserId));
+        } catch (Exception e) {
+            // 广播失败时其它实例最迟在本地缓存过期后同步
+            log.error("广播用户[{}]的Token失效消息失败", omdUserId, e);
+        }
+    }
+
+    // 计算Token指纹，本地只保存哈希，不保存Token原文
+    private String fingerprint(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.x.backend.pojo.*;
+import org.x.backend.service.CustomUserDetailsService;
 import org.x.backend.service.OmdAdminService;
 import org.x.backend.service.OmdUserService;
 import org.x.backend.utils.HelperUtil;
@@ -29,6 +30,12 @@ public class TransactionAdminService {
     @Autowired
     private HelperUtil helperUtil;
 
+    @Autowired
+    private CustomUserDetailsService customUserDetailsService;
+
+    @Autowired
+    private HotCommentRankService hotCommentRankService;
+
 
     /**
      * 更新用户状态
@@ -50,6 +57,8 @@ public class TransactionAdminService {
                 omdUserFreezeType, omdUserFreezeEndTime)) {
             throw new RuntimeException("更新用户状态失败");
         }
+        // 用户状态变更，使认证信息缓存失效
+        customUserDetailsService.evictUser(omdUserId);
 
         // 3. 冻结/解冻的差异化处理
         if (omdUserStatus == 0) {
@@ -149,6 +158,8 @@ public class TransactionAdminService {
             if (!omdAdminService.updateUserRole(omdApplications.getOmdUserId(), "ROLE_SINGER")) {
                 throw new RuntimeException("修改用户权限失败");
             }
+            // 用户角色变更，使认证信息缓存失效
+            customUserDetailsService.evictUser(omdApplications.getOmdUserId());
         }
 
         // 新增管理员操作表
@@ -191,9 +202,12 @@ public class TransactionAdminService {
 
         if (omdCommentReportStatus == 1){
             // 通过审核，将被举报的评论删除
+            OmdMusicComment comment = omdUserService.findCommentByOmdMusicCommentId(omdMusicCommentId);
             if (!omdAdminService.deleteMusicComment(omdMusicCommentId)) {
                 throw new RuntimeException("删除评论失败");
             }
+            // 提交后更新热评排行
+            hotCommentRankService.onCommentDeleted(comment);
         }
 
         // 新增管理员操作表
@@ -419,6 +433,8 @@ public class TransactionAdminService {
                     omdUser.getOmdUserFreezeType(), omdUser.getOmdUserFreezeEndTime())) {
                 throw new RuntimeException("更新用户状态失败");
             }
+            // 用户状态变更，使认证信息缓存失效
+            customUserDetailsService.evictUser(omdUser.getOmdUserId());
             // 新增管理员操作表
             if (!omdAdminService.addOmdOperationLog(helperUtil.setOmdOperationLog(omdAdminId,"user:unfreeze","解冻用户账号", omdUser.getOmdUserId(),"user"))){
                 throw new RuntimeException("新增管理员操作表失败");
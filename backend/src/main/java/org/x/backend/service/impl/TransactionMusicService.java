@@ -3,6 +3,7 @@ package org.x.backend.service.impl;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.interceptor.TransactionAspectSupport;
 import org.x.backend.pojo.*;
@@ -12,8 +13,11 @@ import org.x.backend.utils.HelperUtil;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 
 /**
@@ -30,6 +34,21 @@ public class TransactionMusicService {
     @Autowired
     private OmdMusicService omdMusicService;
 
+    @Autowired
+    private MusicLikeCounterService musicLikeCounterService;
+
+    @Autowired
+    private UserMusicLikeCacheService userMusicLikeCacheService;
+
+    @Autowired
+    private LikedPlaylistService likedPlaylistService;
+
+    @Autowired
+    private PlaylistOrderService playlistOrderService;
+
+    @Autowired
+    private PlaylistCacheService playlistCacheService;
+
     /**
      * 原子性插入歌曲和歌词
      * @param musicInfo 歌曲信息
@@ -63,68 +82,40 @@ public class TransactionMusicService {
 
     /**
      * 原子性更新点赞数和点赞用户以及用户的点赞播放列表
+     * 点赞记录和点赞歌单均为幂等写入，事务内只有两条写语句，不再先查询再写入
      * @param omdMusicInfoId 音乐信息ID
      * @param omdUserId 当前用户ID
+     * @return 新增点赞返回 true，已点赞过返回 false
      */
-    public void insertLikeMusicInfo(Long omdMusicInfoId,Long omdUserId) {
+    public boolean insertLikeMusicInfo(Long omdMusicInfoId,Long omdUserId) {
 
         try {
 
-            // 根据传入的id查询音乐点赞缓存表
-            OmdMusicLikeCache omdMusicLikeCache = omdMusicService.getMusicInfoLikeCache(omdMusicInfoId);
-            if (omdMusicLikeCache == null){
-                throw new RuntimeException("点赞失败：查询缓存表失败");
-            }
-            // 更新缓存表点赞数
-            omdMusicLikeCache.setOmdMusicLikeCacheCount(omdMusicLikeCache.getOmdMusicLikeCacheCount() + 1);
-            if (!omdMusicService.updateMusicLikeCache(omdMusicLikeCache)){
-                throw new RuntimeException("点赞失败：更新缓存表失败");
-            }
+            // 获取点赞歌单ID（本地缓存，不存在时在独立事务中创建）
+            Long omdPlaylistId = likedPlaylistService.getOrCreateLikedPlaylistId(omdUserId);
 
-            // 插入点赞信息
-            OmdMusicLike omdMusicLike = new OmdMusicLike();
-            omdMusicLike.setOmdMusicInfoId(omdMusicInfoId);
-            omdMusicLike.setOmdUserId(omdUserId);
-            if (!omdMusicService.insertLikeMusicInfo(omdMusicLike)){
-                throw new RuntimeException("点赞失败：插入点赞信息失败");
+            // 幂等插入点赞信息，已点赞过则直接返回
+            if (!omdMusicService.insertIgnoreMusicLike(omdMusicInfoId, omdUserId)){
+                return false;
             }
 
-
-
-            // 点赞成功后，更新用户的点赞播放列表，若是没有点赞播放列表，则创建一个
-            OmdPlaylist omdPlaylist = omdMusicService.checkIfLikePlaylist(omdUserId);
-            if (omdPlaylist == null){
-                OmdPlaylist omdMusicLikePlaylist = new OmdPlaylist();
-                omdMusicLikePlaylist.setOmdUserId(omdUserId);
-
-                if (!omdMusicService.insertLikePlaylist(omdMusicLikePlaylist)){
-                    throw new RuntimeException("点赞失败：插入点赞播放列表失败");
-                }
-
-                // 新增播放列表成功后要新建一个歌单与音乐详情表
-                OmdPlaylistMusic omdPlaylistMusic = new OmdPlaylistMusic();
-                omdPlaylistMusic.setOmdMusicInfoId(omdMusicInfoId);
-                omdPlaylistMusic.setOmdPlaylistId(omdMusicLikePlaylist.getOmdPlaylistId());
-                omdPlaylistMusic.setOmdPlaylistMusicOrder(1);
-
-                if (!omdMusicService.insertLikePlaylistMusic(omdPlaylistMusic)) {
-                    throw new RuntimeException("点赞失败：新增播放列表音乐失败");
-                }
-            }else {
-                // 若是有，则往点赞播放列表里面插入音乐信息
-                OmdPlaylistMusic omdPlaylistMusic = omdMusicService.checkIfLikePlaylistMusic(omdPlaylist.getOmdPlaylistId());
-                if (omdPlaylistMusic == null){
-                    throw new RuntimeException("点赞失败：插入播放列表音乐失败");
-                }
-                omdPlaylistMusic.setOmdMusicInfoId(omdMusicInfoId);
-                omdPlaylistMusic.setOmdPlaylistId(omdPlaylist.getOmdPlaylistId());
-                omdPlaylistMusic.setOmdPlaylistMusicOrder(omdPlaylistMusic.getOmdPlaylistMusicOrder() + 1);
-
-                if (!omdMusicService.insertLikePlaylistMusic(omdPlaylistMusic)){
-                    throw new RuntimeException("点赞失败：插入播放列表音乐失败");
+            // 把音乐追加到点赞歌单末尾；缓存的歌单已被删除时重新获取歌单ID后重试一次
+            // 顺序号从计数器领取，不需要先查询歌单中的最大顺序号
+            if (!omdMusicService.insertMusicToLikedPlaylist(omdPlaylistId, omdUserId, omdMusicInfoId,
+                    playlistOrderService.nextOrder(omdPlaylistId))) {
+                likedPlaylistService.evict(omdUserId);
+                Long latestPlaylistId = likedPlaylistService.getOrCreateLikedPlaylistId(omdUserId);
+                if (!latestPlaylistId.equals(omdPlaylistId)) {
+                    omdMusicService.insertMusicToLikedPlaylist(latestPlaylistId, omdUserId, omdMusicInfoId,
+                            playlistOrderService.nextOrder(latestPlaylistId));
                 }
             }
 
+            // 点赞数+1（事务提交后写入Redis计数，异步批量刷盘）
+            musicLikeCounterService.adjust(omdMusicInfoId, 1);
+            userMusicLikeCacheService.onLikeChanged(omdUserId, List.of(omdMusicInfoId), true);
+            return true;
+
         } catch (Exception e) {
             // 记录详细错误日志
             log.error("点赞操作失败", e);
@@ -145,26 +136,32 @@ public class TransactionMusicService {
 
         try {
 
-            // 1. 批量更新点赞数缓存表
-            int updatedRows = omdMusicService.updateLikeCacheList(omdMusicInfoIdList, 1);
-            if (updatedRows != omdMusicInfoIdList.size()) {
-                throw new RuntimeException("批量点赞失败：更新缓存表失败");
-            }
-
-            // 2. 批量插入点赞记录
-            List<OmdMusicLike> omdMusicLikeList = omdMusicInfoIdList.stream()
-                    .map(musicId -> {
-                        OmdMusicLike like = new OmdMusicLike();
-                        like.setOmdMusicInfoId(musicId);
-                        like.setOmdUserId(omdUserId);
-                        return like;
-                    })
+            // 只处理尚未点赞的音乐，保证点赞数只对新增的点赞计数
+            Map<Long, Boolean> likedFlags = userMusicLikeCacheService.getLikedFlags(omdUserId, omdMusicInfoIdList);
+            omdMusicInfoIdList = omdMusicInfoIdList.stream()
+                    .distinct()
+                    .filter(musicId -> !likedFlags.getOrDefault(musicId, false))
                     .collect(Collectors.toList());
-
-            if (!omdMusicService.insertLikeMusicInfoList(omdMusicLikeList)){
-                throw new RuntimeException("批量点赞失败：插入点赞信息失败");
+            if (omdMusicInfoIdList.isEmpty()) {
+                return;
             }
 
+            // 1. 批量插入点赞记录，只保留实际插入的音乐（缓存判断后可能有并发请求已点赞）
+            List<Long> likedIdList = applyBatch(TransactionAspectSupport.currentTransactionStatus(), omdMusicInfoIdList,
+                    ids -> omdMusicService.insertLikeMusicInfoList(ids.stream()
+                            .map(musicId -> {
+                                OmdMusicLike like = new OmdMusicLike();
+                                like.setOmdMusicInfoId(musicId);
+                                like.setOmdUserId(omdUserId);
+                                return like;
+                            })
+                            .collect(Collectors.toList())),
+                    musicId -> omdMusicService.insertIgnoreMusicLike(musicId, omdUserId));
+
+            // 2. 批量更新点赞数（事务提交后写入Redis计数，异步批量刷盘）
+            musicLikeCounterService.adjust(likedIdList, 1);
+            userMusicLikeCacheService.onLikeChanged(omdUserId, likedIdList, true);
+
         } catch (Exception e) {
             log.error("批量点赞操作失败", e);
             TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
@@ -176,27 +173,27 @@ public class TransactionMusicService {
      * 原子性删除点赞数和点赞用户以及用户的点赞播放列表
      * @param omdMusicInfoId 音乐信息ID
      * @param omdUserId 当前用户ID
+     * @return 取消点赞返回 true，本来就未点赞返回 false
      */
-    public void deleteLikeMusicInfo(Long omdMusicInfoId, Long omdUserId) {
+    public boolean deleteLikeMusicInfo(Long omdMusicInfoId, Long omdUserId) {
 
         try {
 
-            // 根据传入的id查询音乐点赞缓存表
-            OmdMusicLikeCache omdMusicLikeCache = omdMusicService.getMusicInfoLikeCache(omdMusicInfoId);
-            // 更新缓存表点赞数
-            omdMusicLikeCache.setOmdMusicLikeCacheCount(omdMusicLikeCache.getOmdMusicLikeCacheCount() - 1);
-            if (!omdMusicService.updateMusicLikeCache(omdMusicLikeCache)){
-                throw new RuntimeException("点赞取消失败：更新缓存表失败");
+            // 删除用户点赞歌曲的记录，未点赞过则直接返回
+            if (!omdMusicService.deleteMusicLike(omdMusicInfoId, omdUserId)){
+                return false;
             }
 
-            // 删除用户点赞歌曲的记录
-            if (!omdMusicService.deleteMusicLike(omdMusicInfoId, omdUserId)){
-                throw new RuntimeException("点赞取消失败：删除点赞信息失败");
+            // 删除点赞歌单里对应的歌曲（“我喜欢的音乐”歌单为空时也保留）
+            Long omdPlaylistId = likedPlaylistService.getLikedPlaylistId(omdUserId);
+            if (omdPlaylistId != null) {
+                omdMusicService.deleteLikePlaylistMusic(omdPlaylistId, omdMusicInfoId);
             }
 
-            // 取消点赞成功后，删除用户播放列表里对应的歌曲，若是唯一一首，则同时删除播放列表
-            String omdPlaylistName = "我喜欢的音乐";
-            deleteMusicFromPlaylist(omdPlaylistName, omdMusicInfoId, omdUserId);
+            // 点赞数-1（事务提交后写入Redis计数，异步批量刷盘）
+            musicLikeCounterService.adjust(omdMusicInfoId, -1);
+            userMusicLikeCacheService.onLikeChanged(omdUserId, List.of(omdMusicInfoId), false);
+            return true;
 
         } catch (Exception e) {
             // 记录详细错误日志
@@ -217,16 +214,24 @@ public class TransactionMusicService {
     public void deleteLikeMusicInfoList(List<Long> omdMusicInfoIdList , Long omdUserId) {
         try {
 
-            // 1. 批量更新点赞数缓存表
-            int updatedRows = omdMusicService.updateLikeCacheList(omdMusicInfoIdList, -1);
-            if (updatedRows != omdMusicInfoIdList.size()) {
-                throw new RuntimeException("批量取消点赞失败：更新缓存表失败");
+            // 只处理已点赞的音乐，保证点赞数只对实际取消的点赞计数
+            Map<Long, Boolean> likedFlags = userMusicLikeCacheService.getLikedFlags(omdUserId, omdMusicInfoIdList);
+            omdMusicInfoIdList = omdMusicInfoIdList.stream()
+                    .distinct()
+                    .filter(musicId -> likedFlags.getOrDefault(musicId, false))
+                    .collect(Collectors.toList());
+            if (omdMusicInfoIdList.isEmpty()) {
+                return;
             }
 
-            // 2. 批量删除点赞记录
-            if (!omdMusicService.deleteLikeMusicInfoList(omdMusicInfoIdList, omdUserId)){
-                throw new RuntimeException("批量取消点赞失败：删除点赞信息失败");
-            }
+            // 1. 批量删除点赞记录，只保留实际删除的音乐（缓存判断后可能有并发请求已取消点赞）
+            List<Long> unlikedIdList = applyBatch(TransactionAspectSupport.currentTransactionStatus(), omdMusicInfoIdList,
+                    ids -> omdMusicService.deleteLikeMusicInfoList(ids, omdUserId),
+                    musicId -> omdMusicService.deleteMusicLike(musicId, omdUserId));
+
+            // 2. 批量更新点赞数（事务提交后写入Redis计数，异步批量刷盘）
+            musicLikeCounterService.adjust(unlikedIdList, -1);
+            userMusicLikeCacheService.onLikeChanged(omdUserId, unlikedIdList, false);
 
 
         } catch (Exception e) {
@@ -236,6 +241,26 @@ public class TransactionMusicService {
         }
     }
 
+    /**
+     * 执行批量写入并返回实际生效的音乐ID
+     * 影响的行数与音乐数一致时全部生效；否则说明有并发请求改动了其中一部分，
+     * 回滚到批量写入前的保存点后逐条执行，只返回逐条执行成功的音乐
+     * @param status 当前事务
+     * @param omdMusicInfoIdList 音乐ID列表（已去重）
+     * @param batch 批量写入，返回影响的行数
+     * @param single 单条写入，返回是否生效
+     * @return 实际生效的音乐ID
+     */
+    List<Long> applyBatch(TransactionStatus status, List<Long> omdMusicInfoIdList,
+                          ToIntFunction<List<Long>> batch, Predicate<Long> single) {
+        Object savepoint = status.createSavepoint();
+        if (batch.applyAsInt(omdMusicInfoIdList) == omdMusicInfoIdList.size()) {
+            status.releaseSavepoint(savepoint);
+            return omdMusicInfoIdList;
+        }
+        status.rollbackToSavepoint(savepoint);
+        return omdMusicInfoIdList.stream().filter(single).collect(Collectors.toList());
+    }
 
     /**
      * 新增歌单
@@ -264,10 +289,10 @@ public class TransactionMusicService {
      */
     public void deleteMusicListFromPlaylist(String omdPlaylistName, List<Long> omdMusicInfoIdList, Long omdUserId) {
         OmdPlaylist omdPlaylist = omdMusicService.checkPlaylistNameIfExist(omdPlaylistName, omdUserId);
-        // 获取播放列表中当前最大的顺序号
-        int maxOrder = omdMusicService.getMaxPlaylistMusicOrder(omdPlaylist.getOmdPlaylistId());
+        // 获取播放列表中当前的歌曲数（顺序号带间隔，不能再用最大顺序号代替歌曲数）
+        int musicCount = omdMusicService.countPlaylistMusic(omdPlaylist.getOmdPlaylistId());
         // 若删除的音乐列表与目前播放列表的音乐列表数目相同，则直接删除播放列表
-        if (maxOrder ==  omdMusicInfoIdList.size()){
+        if (musicCount ==  omdMusicInfoIdList.size()){
             deletePlaylist(omdPlaylistName, omdUserId);
             return;
         }
@@ -290,10 +315,10 @@ public class TransactionMusicService {
      */
     public void deleteMusicFromPlaylist(String omdPlaylistName, Long omdMusicInfoId, Long omdUserId) {
         OmdPlaylist omdPlaylist = omdMusicService.checkPlaylistNameIfExist(omdPlaylistName, omdUserId);
-        // 获取播放列表中当前最大的顺序号
-        int maxOrder = omdMusicService.getMaxPlaylistMusicOrder(omdPlaylist.getOmdPlaylistId());
-        // 如果列表为空，则删除播放列表
-        if (maxOrder <= 1 && !Objects.equals(omdPlaylistName, "我喜欢的音乐")){
+        // 获取播放列表中当前的歌曲数
+        int musicCount = omdMusicService.countPlaylistMusic(omdPlaylist.getOmdPlaylistId());
+        // 如果删除后列表为空，则删除播放列表
+        if (musicCount <= 1 && !Objects.equals(omdPlaylistName, "我喜欢的音乐")){
             deletePlaylist(omdPlaylistName, omdUserId);
         }else {
             // 删除对应歌曲
@@ -303,6 +328,55 @@ public class TransactionMusicService {
         }
     }
 
+    /**
+     * 移动播放列表中的歌曲
+     * 新顺序号取目标位置前后两首的中间值，只更新被移动的一行；相邻间隔用尽时先重排整个播放列表再重试
+     * @param omdPlaylistId 播放列表ID
+     * @param omdMusicInfoId 要移动的音乐ID
+     * @param afterMusicInfoId 移动到该音乐之后，null 表示移动到最前面
+     * @param omdUserId 当前用户ID
+     */
+    public void movePlaylistMusic(Long omdPlaylistId, Long omdMusicInfoId, Long afterMusicInfoId, Long omdUserId) {
+        if (omdMusicService.getPlaylistByIdAndUserId(omdPlaylistId, omdUserId) == null) {
+            throw new RuntimeException("移动失败：播放列表不存在");
+        }
+        if (Objects.equals(omdMusicInfoId, afterMusicInfoId)) {
+            throw new RuntimeException("移动失败：目标位置不能是歌曲自身");
+        }
+        OmdPlaylistMusic moving = omdMusicService.checkIfMusicExistInPlaylist(omdPlaylistId, omdMusicInfoId);
+        if (moving == null) {
+            throw new RuntimeException("移动失败：歌曲不在播放列表中");
+        }
+        Integer newOrder = orderAfter(omdPlaylistId, omdMusicInfoId, afterMusicInfoId);
+        if (newOrder == null) {
+            // 间隔用尽，重排后重新计算
+            playlistOrderService.rebalance(omdPlaylistId);
+            newOrder = orderAfter(omdPlaylistId, omdMusicInfoId, afterMusicInfoId);
+            if (newOrder == null) {
+                throw new RuntimeException("移动失败：播放列表顺序重排失败");
+            }
+        }
+        if (omdMusicService.updatePlaylistMusicOrder(moving.getOmdPlaylistMusicId(), newOrder) != 1) {
+            throw new RuntimeException("移动失败：更新歌曲顺序失败");
+        }
+        playlistCacheService.bumpPlaylist(omdPlaylistId);
+    }
+
+    // 计算移动到目标音乐之后的顺序号
+    private Integer orderAfter(Long omdPlaylistId, Long omdMusicInfoId, Long afterMusicInfoId) {
+        Integer afterOrder = null;
+        Long afterPlaylistMusicId = null;
+        if (afterMusicInfoId != null) {
+            OmdPlaylistMusic after = omdMusicService.checkIfMusicExistInPlaylist(omdPlaylistId, afterMusicInfoId);
+            if (after == null) {
+                throw new RuntimeException("移动失败：目标位置的歌曲不在播放列表中");
+            }
+            afterOrder = after.getOmdPlaylistMusicOrder();
+            afterPlaylistMusicId = after.getOmdPlaylistMusicId();
+        }
+        return playlistOrderService.orderAfter(omdPlaylistId, omdMusicInfoId, afterOrder, afterPlaylistMusicId);
+    }
+
     /**
      * 根据传入的播放列表ID删除播放列表
      * @param omdPlaylistName 播放列表
@@ -320,6 +394,10 @@ public class TransactionMusicService {
         if (!omdMusicService.deletePlaylist(omdPlaylist.getOmdPlaylistId())){
             throw new RuntimeException("删除播放列表失败");
         }
+        // 删除的是点赞歌单时，清除缓存的点赞歌单ID
+        if (Objects.equals(omdPlaylistName, "我喜欢的音乐")) {
+            likedPlaylistService.evict(omdUserId);
+        }
     }
 
 
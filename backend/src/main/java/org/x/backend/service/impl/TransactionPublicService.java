@@ -5,6 +5,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.x.backend.pojo.*;
+import org.x.backend.service.CustomUserDetailsService;
 import org.x.backend.service.OmdAdminService;
 import org.x.backend.service.OmdMusicService;
 import org.x.backend.service.OmdPublicService;
@@ -37,6 +38,9 @@ public class TransactionPublicService {
     @Autowired
     private OmdAdminService omdAdminService;
 
+    @Autowired
+    private CustomUserDetailsService customUserDetailsService;
+
     /**
      * 注册
      * @param omdUser 用户信息
@@ -90,6 +94,8 @@ public class TransactionPublicService {
             updateUser.setOmdUserRemark(loginUser.getOmdUserRemark() + "（临时冻结到期，系统自动解冻）");
             updateUser.setOmdUserFreezeEndTime(null); // 清空冻结时间
             omdUserService.updateUserStatus(updateUser); // 确保updateUserStatus方法仅更新非null字段
+            // 用户状态变更，使认证信息缓存失效
+            customUserDetailsService.evictUser(loginUser.getOmdUserId());
 
             // 新增日志表
             OmdOperationLog omdOperationLog = new OmdOperationLog();
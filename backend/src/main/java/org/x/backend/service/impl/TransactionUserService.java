@@ -12,11 +12,6 @@ import org.x.backend.service.OmdAdminService;
 import org.x.backend.service.OmdFriendService;
 import org.x.backend.service.OmdUserService;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
 @Service
 @Slf4j
 @Transactional(rollbackFor = Exception.class) // 统一管理事务
@@ -31,6 +26,12 @@ public class TransactionUserService {
     @Autowired
     private OmdFriendService omdFriendService;
 
+    @Autowired
+    private HotCommentRankService hotCommentRankService;
+
+    @Autowired
+    private CommentLikeService commentLikeService;
+
     /**
      * 插入音乐评论
      * @param omdMusicComment 音乐评论对象
@@ -54,39 +55,27 @@ public class TransactionUserService {
             throw new RuntimeException("插入音乐评论失败");
         }
 
+        // 5. 维护评论闭包表，删除时可一条语句找到整棵子树
+        Long parentId = omdMusicComment.getOmdMusicCommentParentId() == null ? 0L : omdMusicComment.getOmdMusicCommentParentId();
+        if (!omdUserService.insertCommentClosure(omdMusicComment.getOmdMusicCommentId(), parentId)) {
+            throw new RuntimeException("写入评论层级关系失败");
+        }
+
+        // 6. 提交后更新热评排行
+        hotCommentRankService.onCommentInserted(omdMusicComment);
+
     }
 
     /**
      * 是否点赞评论
+     * 点赞状态以 Redis 中的点赞集合为准，点赞记录和点赞数由 CommentLikeService 定时批量落库
      * @param omdMusicCommentId 音乐评论ID
      * @param omdUserId 当前用户ID
      */
-    /**
-     * 检查取消点赞的数据库操作是否执行
-     */
     public void likeMusicCommentOrNot(Long omdMusicCommentId, Long omdUserId) {
         try {
-            // 判断用户是否点赞过
-            boolean hasLiked = omdUserService.hasLikedMusicComment(omdMusicCommentId, omdUserId);
-
-            if (hasLiked) {
-                // 如果已点赞，则取消点赞
-                boolean updateResult = omdUserService.unlikeMusicComment(omdMusicCommentId);
-                boolean deleteResult = omdUserService.deleteCommentLike(omdMusicCommentId, omdUserId);
-
-
-                if (!updateResult || !deleteResult) {
-                    throw new RuntimeException("取消点赞失败");
-                }
-            } else {
-                // 如果未点赞，则执行点赞
-                boolean updateResult = omdUserService.likeMusicComment(omdMusicCommentId);
-                boolean insertResult = omdUserService.insertCommentLike(omdMusicCommentId, omdUserId);
-
-                if (!updateResult || !insertResult) {
-                    throw new RuntimeException("点赞失败");
-                }
-            }
+            commentLikeService.toggle(omdMusicCommentId, omdUserId);
+            hotCommentRankService.onCommentLikeChanged(omdMusicCommentId);
         } catch (Exception e) {
             log.error("点赞/取消点赞操作异常", e);
             throw e;
@@ -106,82 +95,24 @@ public class TransactionUserService {
         }
 
         // 2. 校验权限（当前用户是否为评论作者或管理员）
-        if (!comment.getOmdUserId().equals(omdUserId) && omdAdminService.getAdminInfo(omdUserId) != null) {
+        if (!comment.getOmdUserId().equals(omdUserId) && omdAdminService.getAdminInfo(omdUserId) == null) {
             throw new RuntimeException("没有权限删除评论");
         }
 
-        // 3. 检查是否为子评论
+        // 3. 通过闭包表一条语句删除该评论及其所有子孙评论
+        if (!omdUserService.deleteCommentSubtree(omdMusicCommentId)) {
+            throw new RuntimeException("删除评论失败");
+        }
+
+        // 4. 回复数只统计直接回复，子树中其余评论随子树一起删除，只需更新直接父评论
         if (comment.getOmdMusicCommentParentId() > 0) {
-            // 如果是子评论，更新父评论回复数，同时删除该评论
-            if (!omdUserService.deleteMusicComment(omdMusicCommentId, omdUserId)) {
-                throw new RuntimeException("删除评论失败");
-            }
             if (!omdUserService.updateReplyCountByParentId(comment.getOmdMusicCommentParentId(), -1)) {
                 throw new RuntimeException("更新父评论回复数失败");
             }
-        }else {
-
-            // 3. 收集所有子评论ID（包括当前评论）
-            List<Long> commentIds = new ArrayList<>();
-            collectChildComments(omdMusicCommentId, commentIds);
-
-            if(!commentIds.isEmpty()){
-                // 4. 批量删除评论
-                int result = omdUserService.deleteMusicCommentByIdList(commentIds);
-
-                if (comment.getOmdMusicCommentParentId() > 0){
-
-                    // 5. 更新各级父评论的回复数
-                    if (result > 0) {
-                        updateParentReplyCounts(commentIds);
-                    }
-                }
-
-            }
         }
 
-
-    }
-
-    /**
-     * 递归收集所有子评论ID
-     */
-    private void collectChildComments(Long omdMusicCommentParentId, List<Long> commentIds) {
-        commentIds.add(omdMusicCommentParentId);
-        List<Long> childIds = omdUserService.selectChildCommentIds(omdMusicCommentParentId);
-        for (Long childId : childIds) {
-            collectChildComments(childId, commentIds);
-        }
-    }
-
-    /**
-     * 逆序更新父评论回复数
-     */
-    private void updateParentReplyCounts(List<Long> commentIds) {
-        // 按评论深度排序（子评论在前，父评论在后）
-        Map<Long, OmdMusicComment> commentMap = new HashMap<>();
-        for (Long id : commentIds) {
-            OmdMusicComment comment = omdUserService.findCommentByOmdMusicCommentId(id);
-            if (comment != null) {
-                commentMap.put(id, comment);
-            }
-        }
-
-        // 按父评论ID分组，确保先更新子评论的父评论
-        commentIds.sort((a, b) -> {
-            OmdMusicComment ca = commentMap.get(a);
-            OmdMusicComment cb = commentMap.get(b);
-            return Integer.compare(ca.getOmdMusicCommentParentId() == 0 ? 1 : 0,
-                    cb.getOmdMusicCommentParentId() == 0 ? 1 : 0);
-        });
-
-        // 更新父评论回复数
-        for (Long id : commentIds) {
-            OmdMusicComment comment = commentMap.get(id);
-            if (comment.getOmdMusicCommentParentId() > 0) {
-                omdUserService.updateReplyCountByParentId(comment.getOmdMusicCommentParentId(), -1);
-            }
-        }
+        // 5. 提交后更新热评排行
+        hotCommentRankService.onCommentDeleted(comment);
     }
 
     /**
@@ -0,0 +1,130 @@
+package org.x.backend.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.x.backend.mapper.OmdMusicMapper;
+import org.x.backend.pojo.OmdMusicLike;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户已点赞音乐集合缓存服务
+ * 每个用户点赞过的音乐ID保存为一个 Redis 集合（整数ID，数量少时 Redis 使用紧凑的 intset 编码，内存与点赞数成正比），
+ * 首次查询时从数据库懒加载，点赞/取消点赞在事务提交后增量更新；批量查询点赞状态只需一次 SMISMEMBER，不访问数据库。
+ */
+@Service
+@Slf4j
+public class UserMusicLikeCacheService {
+
+    // 用户已点赞音乐集合键前缀（格式：music:like:user:{用户ID}）
+    private static final String LIKED_SET_PREFIX = "music:like:user:";
+    // 集合版本号键前缀，每次点赞变更加一，用于丢弃懒加载期间读到的旧数据
+    private static final String VERSION_PREFIX = "music:like:user:ver:";
+    // 占位成员，保证没有点赞记录的用户也能缓存为非空集合（音乐ID从1开始）
+    private static final String PLACEHOLDER = "0";
+
+    private static final RedisScript<Long> UPDATE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/user_like_set_update.lua"), Long.class);
+    private static final RedisScript<Long> FILL_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/user_like_set_fill.lua"), Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private OmdMusicMapper omdMusicMapper;
+
+    @Value("${music-like.user-set.expire-hours:24}")
+    private long expireHours; // 集合过期时间（小时），不活跃用户自动释放
+
+    /**
+     * 判断用户是否点赞过某首音乐
+     * @param omdUserId 用户ID
+     * @param omdMusicInfoId 音乐ID
+     * @return 是否点赞过
+     */
+    public boolean isLiked(Long omdUserId, Long omdMusicInfoId) {
+        return getLikedFlags(omdUserId, List.of(omdMusicInfoId)).getOrDefault(omdMusicInfoId, false);
+    }
+
+    /**
+     * 批量获取用户对音乐的点赞状态
+     * @param omdUserId 用户ID
+     * @param omdMusicInfoIdList 音乐ID列表
+     * @return 音乐ID -> 是否点赞
+     */
+    public Map<Long, Boolean> getLikedFlags(Long omdUserId, List<Long> omdMusicInfoIdList) {
+        Map<Long, Boolean> flags = new HashMap<>();
+        if (omdUserId == null || omdMusicInfoIdList == null || omdMusicInfoIdList.isEmpty()) {
+            return flags;
+        }
+        String setKey = LIKED_SET_PREFIX + omdUserId;
+        if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(setKey)) && !fill(omdUserId)) {
+            // 加载期间发生了点赞变更，本次直接查询数据库
+            List<OmdMusicLike> userLikes = omdMusicMapper.selectByUserIdAndMusicIds(omdUserId, omdMusicInfoIdList);
+            omdMusicInfoIdList.forEach(id -> flags.put(id, false));
+            userLikes.forEach(like -> flags.put(like.getOmdMusicInfoId(), true));
+            return flags;
+        }
+        Object[] members = omdMusicInfoIdList.stream().map(String::valueOf).toArray();
+        Map<Object, Boolean> result = stringRedisTemplate.opsForSet().isMember(setKey, members);
+        for (Long id : omdMusicInfoIdList) {
+            flags.put(id, result != null && Boolean.TRUE.equals(result.get(String.valueOf(id))));
+        }
+        return flags;
+    }
+
+    /**
+     * 记录点赞变更（事务提交后更新集合）
+     * @param omdUserId 用户ID
+     * @param omdMusicInfoIdList 音乐ID列表
+     * @param liked true 点赞，false 取消点赞
+     */
+    public void onLikeChanged(Long omdUserId, Collection<Long> omdMusicInfoIdList, boolean liked) {
+        if (omdUserId == null || omdMusicInfoIdList == null || omdMusicInfoIdList.isEmpty()) {
+            return;
+        }
+        List<String> args = new ArrayList<>(omdMusicInfoIdList.size() + 2);
+        args.add(liked ? "add" : "rem");
+        args.add(String.valueOf(TimeUnit.HOURS.toSeconds(expireHours)));
+        omdMusicInfoIdList.forEach(id -> args.add(String.valueOf(id)));
+        Runnable update = () -> stringRedisTemplate.execute(UPDATE_SCRIPT,
+                List.of(LIKED_SET_PREFIX + omdUserId, VERSION_PREFIX + omdUserId), args.toArray());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update.run();
+                }
+            });
+        } else {
+            update.run();
+        }
+    }
+
+    // 从数据库懒加载用户的点赞集合，读取期间有点赞变更则放弃
+    private boolean fill(Long omdUserId) {
+        String version = stringRedisTemplate.opsForValue().get(VERSION_PREFIX + omdUserId);
+        List<Long> likedIds = omdMusicMapper.getLikedMusicIdsByUserId(omdUserId);
+        List<String> args = new ArrayList<>(likedIds.size() + 3);
+        args.add(version == null ? "0" : version);
+        args.add(String.valueOf(TimeUnit.HOURS.toSeconds(expireHours)));
+        args.add(PLACEHOLDER);
+        likedIds.forEach(id -> args.add(String.valueOf(id)));
+        Long filled = stringRedisTemplate.execute(FILL_SCRIPT,
+                List.of(LIKED_SET_PREFIX + omdUserId, VERSION_PREFIX + omdUserId), args.toArray());
+        return filled != null && filled == 1L;
+    }
+}
@@ -0,0 +1,26 @@
+package org.x.backend.task;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.x.backend.service.impl.CommentLikeService;
+
+// 标记为Spring组件，使其被扫描并注入
+@Component
+@Slf4j
+public class CommentLikeFlushTask {
+
+    @Autowired
+    private CommentLikeService commentLikeService;
+
+    // 定时任务：周期性把Redis中累积的评论点赞记录和点赞数增量批量写回数据库
+    @Scheduled(fixedDelayString = "${comment-like.flush-ms:5000}")
+    public void flushCommentLikes() {
+        try {
+            commentLikeService.flush();
+        } catch (Exception e) {
+            log.error("评论点赞刷盘失败", e);
+        }
+    }
+}
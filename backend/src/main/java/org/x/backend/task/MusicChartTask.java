@@ -0,0 +1,42 @@
+package org.x.backend.task;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.x.backend.service.impl.ChartSnapshotService;
+import org.x.backend.service.impl.MusicChartService;
+
+// 标记为Spring组件，使其被扫描并注入
+@Component
+@Slf4j
+public class MusicChartTask {
+
+    @Autowired
+    private MusicChartService musicChartService;
+
+    @Autowired
+    private ChartSnapshotService chartSnapshotService;
+
+    // 定时任务：周期性合并小时桶/天桶，重建各时间窗口的播放排行榜（启动后立即执行一次）
+    @Scheduled(fixedDelayString = "${music-chart.refresh-ms:60000}")
+    public void rebuildMusicCharts() {
+        try {
+            musicChartService.rebuildCharts();
+        } catch (Exception e) {
+            // 重建失败时保留上一次的榜单结果，下个周期重试
+            log.error("重建音乐播放排行榜失败", e);
+        }
+    }
+
+    // 定时任务：每隔几秒重新生成排行榜快照（含音乐信息的完整响应）
+    @Scheduled(fixedDelayString = "${music-chart.snapshot.refresh-ms:5000}")
+    public void refreshChartSnapshots() {
+        try {
+            chartSnapshotService.refreshSnapshots();
+        } catch (Exception e) {
+            // 生成失败时继续使用上一次的快照
+            log.error("生成排行榜快照失败", e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.x.backend.task;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.x.backend.service.impl.MusicLikeCounterService;
+
+// 标记为Spring组件，使其被扫描并注入
+@Component
+@Slf4j
+public class MusicLikeCounterTask {
+
+    @Autowired
+    private MusicLikeCounterService musicLikeCounterService;
+
+    // 定时任务：周期性把Redis中累积的点赞计数增量批量写回数据库
+    @Scheduled(fixedDelayString = "${music-like.counter.flush-ms:5000}")
+    public void flushMusicLikeCounts() {
+        try {
+            musicLikeCounterService.flush();
+        } catch (Exception e) {
+            log.error("点赞计数刷盘失败", e);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.x.backend.task;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.x.backend.service.impl.MusicSearchIndexService;
+import org.x.backend.service.impl.MusicSuggestService;
+
+// 标记为Spring组件，使其被扫描并注入
+@Component
+public class MusicSearchIndexTask {
+
+    @Autowired
+    private MusicSearchIndexService musicSearchIndexService;
+
+    @Autowired
+    private MusicSuggestService musicSuggestService;
+
+    // 定时任务：周期性全量重建音乐搜索索引，兜底丢失的变更广播（启动时的首次构建由索引服务完成）
+    // 重建提交到索引服务的后台线程执行，不占用共享的调度线程；失败时继续使用现有索引，下个周期重试
+    @Scheduled(fixedDelayString = "${music-search.rebuild-ms:600000}", initialDelayString = "${music-search.rebuild-ms:600000}")
+    public void rebuildMusicSearchIndex() {
+        musicSearchIndexService.requestRebuild();
+    }
+
+    // 定时任务：周期性全量重建搜索建议索引，刷新播放量排序（启动时的首次构建由建议服务完成）
+    // 同样交给建议服务的后台线程执行，与搜索索引的重建互不阻塞
+    @Scheduled(fixedDelayString = "${music-suggest.rebuild-ms:600000}", initialDelayString = "${music-suggest.rebuild-ms:600000}")
+    public void rebuildMusicSuggest() {
+        musicSuggestService.requestRebuild();
+    }
+}
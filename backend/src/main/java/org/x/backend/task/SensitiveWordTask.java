@@ -0,0 +1,27 @@
+package org.x.backend.task;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.x.backend.service.impl.SensitiveWordService;
+
+// 标记为Spring组件，使其被扫描并注入
+@Component
+@Slf4j
+public class SensitiveWordTask {
+
+    @Autowired
+    private SensitiveWordService sensitiveWordService;
+
+    // 定时任务：检测敏感词词表文件是否变化，变化时重新加载（启动时的首次加载由过滤服务完成）
+    @Scheduled(fixedDelayString = "${sensitive-word.reload-ms:30000}", initialDelayString = "${sensitive-word.reload-ms:30000}")
+    public void reloadSensitiveWords() {
+        try {
+            sensitiveWordService.reloadIfChanged();
+        } catch (Exception e) {
+            // 加载失败时继续使用现有词表，下个周期重试
+            log.error("重新加载敏感词词表失败", e);
+        }
+    }
+}
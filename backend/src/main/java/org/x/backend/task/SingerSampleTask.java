@@ -0,0 +1,27 @@
+package org.x.backend.task;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.x.backend.service.impl.SingerSampleService;
+
+// 标记为Spring组件，使其被扫描并注入
+@Component
+@Slf4j
+public class SingerSampleTask {
+
+    @Autowired
+    private SingerSampleService singerSampleService;
+
+    // 定时任务：周期性重新加载随机歌手抽样池，兜底丢失的变更广播（启动时的首次加载由抽样服务完成）
+    @Scheduled(fixedDelayString = "${singer-sample.refresh-ms:600000}", initialDelayString = "${singer-sample.refresh-ms:600000}")
+    public void refreshSingerSample() {
+        try {
+            singerSampleService.refresh();
+        } catch (Exception e) {
+            // 加载失败时继续使用现有抽样池，下个周期重试
+            log.error("重新加载随机歌手抽样池失败", e);
+        }
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 import org.x.backend.pojo.OmdOperationLog;
 import org.x.backend.pojo.OmdUser;
+import org.x.backend.service.CustomUserDetailsService;
 import org.x.backend.service.OmdAdminService;
 import org.x.backend.service.OmdUserService;
 
@@ -25,6 +26,9 @@ public class UserTask {
     @Autowired
     private OmdAdminService omdAdminService;
 
+    @Autowired
+    private CustomUserDetailsService customUserDetailsService;
+
 
     // 定时任务：每天凌晨2点执行
     @Scheduled(cron = "0 0 2 * * ?")
@@ -46,6 +50,8 @@ public class UserTask {
 
             // 3. 执行更新
             omdUserService.updateUserStatus(user);
+            // 用户状态变更，使认证信息缓存失效
+            customUserDetailsService.evictUser(user.getOmdUserId());
 
             // 4. 记录操作日志（操作人为系统，用null或固定值表示）
             OmdOperationLog omdOperationLog = new OmdOperationLog();
@@ -0,0 +1,79 @@
+package org.x.backend.utils;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 客户端IP解析
+ * X-Forwarded-For 可以由客户端任意伪造，只有请求直接来自配置的可信代理时才读取该请求头，
+ * 并从右向左跳过可信代理，取第一个不可信的地址（即最后一个可信代理看到的客户端地址）；否则直接使用连接的对端地址。
+ */
+@Component
+@Slf4j
+public class ClientIpResolver {
+
+    // 只对IP字面量做匹配，避免把请求头中的主机名交给 InetAddress 做DNS解析
+    private static final Pattern IP_LITERAL = Pattern.compile("^[0-9a-fA-F:.]+$");
+
+    @Value("${security.trusted-proxies:}")
+    private List<String> trustedProxies; // 可信代理（IP或CIDR）
+
+    private List<IpAddressMatcher> matchers = new ArrayList<>();
+
+    @PostConstruct
+    public void init() {
+        List<IpAddressMatcher> list = new ArrayList<>();
+        for (String proxy : trustedProxies) {
+            if (proxy != null && !proxy.isBlank()) {
+                list.add(new IpAddressMatcher(proxy.trim()));
+            }
+        }
+        matchers = list;
+    }
+
+    /**
+     * 解析客户端IP
+     * @param remoteAddr 连接的对端地址
+     * @param forwardedFor X-Forwarded-For 请求头，可为空
+     * @return 客户端IP
+     */
+    public String resolve(String remoteAddr, String forwardedFor) {
+        if (forwardedFor == null || forwardedFor.isBlank() || !isTrusted(remoteAddr)) {
+            return remoteAddr;
+        }
+        String[] hops = forwardedFor.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (!hop.isEmpty() && !isTrusted(hop)) {
+                return hop;
+            }
+        }
+        // 整条链都是可信代理（内部调用），使用最左侧的地址
+        String first = hops[0].trim();
+        return first.isEmpty() ? remoteAddr : first;
+    }
+
+    private boolean isTrusted(String address) {
+        if (address == null || !IP_LITERAL.matcher(address).matches()) {
+            return false;
+        }
+        for (IpAddressMatcher matcher : matchers) {
+            try {
+                if (matcher.matches(address)) {
+                    return true;
+                }
+            } catch (IllegalArgumentException e) {
+                log.debug("无法识别的地址: {}", address);
+                return false;
+            }
+        }
+        return false;
+    }
+}
@@ -1,15 +1,26 @@
 package org.x.backend.utils;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
+import io.jsonwebtoken.Claims;
 import io.micrometer.common.util.StringUtils;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.reflection.SystemMetaObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.x.backend.config.KeysetPaginationInterceptor;
 import org.x.backend.pojo.*;
+import org.x.backend.service.impl.PageCountCacheService;
+import org.x.backend.service.impl.TokenCacheService;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -28,10 +39,22 @@ public class HelperUtil {
     private String tokenPrefix;
 
     @Autowired
-    private RedisUtil redisUtil;
+    private JwtUtil jwtUtil;
 
     @Autowired
-    private JwtUtil jwtUtil;
+    private TokenCacheService tokenCacheService;
+
+    @Autowired
+    private PageCountCacheService pageCountCacheService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ClientIpResolver clientIpResolver;
+
+    // 游标分页每页最大条数
+    private static final int MAX_KEYSET_PAGE_SIZE = 100;
 
     // 辅助方法：验证输入是否为有效标识
     public boolean isValidIdentifier(String identifier) {
@@ -50,11 +73,8 @@ public class HelperUtil {
 
     // 辅助方法：生成token并存入redis
     public String generateTokenAndSave(OmdUser loginUser) {
-        // 构建Redis Key（格式：user:token:{userId}）
-        String redisKey = "user:token:" + loginUser.getOmdUserId();
-
-        // 检查Redis中是否存在该用户的有效Token
-        String existingToken = redisUtil.get(redisKey);
+        // 检查Redis中是否存在该用户的有效Token（键格式：user:token:{userId}）
+        String existingToken = tokenCacheService.getToken(loginUser.getOmdUserId());
         if (existingToken != null) {
             // 若存在有效Token，直接返回（不重复存入）
             log.info("用户[{}]已有有效Token，直接返回", loginUser.getOmdUserId());
@@ -72,8 +92,8 @@ public class HelperUtil {
         // 生成token
         String token = jwtUtil.generateToken(claims);
 
-        // 将token存入redis,过期时间与工具类总JwtUtil中token的存活时间一致
-        redisUtil.set(redisKey,token,24, TimeUnit.HOURS);
+        // 将token存入redis,过期时间与工具类总JwtUtil中token的存活时间一致，并广播本地缓存失效
+        tokenCacheService.saveToken(loginUser.getOmdUserId(), token, 24, TimeUnit.HOURS);
         log.info("用户[{}]生成新Token并存储到Redis", loginUser.getOmdUserId());
 
         return token;
@@ -96,16 +116,25 @@ public class HelperUtil {
         return omdUserId;
     }
 
+    // 辅助方法：从请求中解析用户ID（公共接口使用，只解析一次Token），无效时返回null
+    public Long getUserIdFromRequest(HttpServletRequest request) {
+        String token = getTokenFromRequest(request);
+        if (token == null) {
+            return null;
+        }
+        Claims claims = jwtUtil.parseToken(token);
+        return claims == null ? null : jwtUtil.getUserIdFromClaims(claims);
+    }
+
     // 辅助方法：更新密码后生成新的token并存入redis中
     public String updatePasswordAndGenerateToken(OmdUser existingOmdUser) {
 
-        // 删除旧Token
-        String redisKey = "user:token:" + existingOmdUser.getOmdUserId();
-        String storedToken = redisUtil.get(redisKey);
+        // 删除旧Token，并广播本地缓存失效
+        String storedToken = tokenCacheService.getToken(existingOmdUser.getOmdUserId());
         if (storedToken == null) {
             log.warn("用户[{}]的Token不存在", existingOmdUser.getOmdUserId());
         } else {
-            Boolean deleted = redisUtil.delete(redisKey);
+            Boolean deleted = tokenCacheService.revokeToken(existingOmdUser.getOmdUserId());
             if (deleted) {
                 log.info("用户[{}]的Token已删除", existingOmdUser.getOmdUserId());
             } else {
@@ -154,6 +183,99 @@ public class HelperUtil {
         return pageResult;
     }
 
+    // 辅助方法：封装游标（键集）分页查询，总数取自异步刷新的缓存
+    /**
+     * @param cursor 上一页返回的游标，首页传null
+     * @param pageSize 每页大小
+     * @param sort 排序列，需与查询的 ORDER BY 一致且最后一列唯一
+     * @param querySupplier 查询逻辑（现有的 Mapper 查询，不需要修改）
+     * @return 当前页数据、下一页游标和近似总数
+     */
+    public <T> CursorPageBean<T> executeKeysetQuery(String cursor, Integer pageSize, KeysetSort sort, Supplier<List<T>> querySupplier) {
+        // 校验并设置默认值
+        pageSize = pageSize != null && pageSize > 0 ? Math.min(pageSize, MAX_KEYSET_PAGE_SIZE) : 10;
+        List<Object> after = decodeKeysetCursor(cursor, sort);
+
+        List<T> list;
+        String countKey;
+        // 多取一条用于判断是否还有下一页
+        KeysetPaginationInterceptor.start(sort, after, pageSize + 1);
+        try {
+            list = querySupplier.get();
+        } catch (Exception e) {
+            log.error("游标分页查询失败", e);
+            throw new RuntimeException("分页查询失败", e);
+        } finally {
+            countKey = KeysetPaginationInterceptor.finish();
+        }
+
+        String nextCursor = null;
+        if (list.size() > pageSize) {
+            list = new ArrayList<>(list.subList(0, pageSize));
+            nextCursor = encodeKeysetCursor(list.get(list.size() - 1), sort);
+        }
+
+        // 总数与游标无关，只按原始查询和参数缓存
+        Long total = countKey == null ? null
+                : pageCountCacheService.getTotal(countKey, () -> PageHelper.count(querySupplier::get));
+        return new CursorPageBean<>(list, nextCursor, total);
+    }
+
+    // 游标：最后一行的排序值，带类型前缀后序列化为JSON，再进行URL安全的Base64编码
+    private String encodeKeysetCursor(Object lastRow, KeysetSort sort) {
+        List<String> values = new ArrayList<>();
+        for (KeysetSort.Column column : sort.getColumns()) {
+            Object value = SystemMetaObject.forObject(lastRow).getValue(column.property());
+            if (value instanceof Date date) {
+                values.add("d:" + date.getTime());
+            } else if (value instanceof LocalDateTime dateTime) {
+                values.add("t:" + dateTime);
+            } else if (value instanceof Long || value instanceof Integer) {
+                values.add((value instanceof Long ? "l:" : "i:") + value);
+            } else if (value instanceof String text) {
+                values.add("s:" + text);
+            } else {
+                throw new RuntimeException("不支持的游标排序值: " + column.property());
+            }
+        }
+        try {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(objectMapper.writeValueAsBytes(values));
+        } catch (Exception e) {
+            throw new RuntimeException("生成游标失败", e);
+        }
+    }
+
+    private List<Object> decodeKeysetCursor(String cursor, KeysetSort sort) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            List<String> values = objectMapper.readValue(
+                    new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8),
+                    new TypeReference<List<String>>() {});
+            if (values.size() != sort.getColumns().size()) {
+                throw new IllegalArgumentException("排序列数量不匹配");
+            }
+            List<Object> after = new ArrayList<>(values.size());
+            for (String value : values) {
+                String text = value.substring(2);
+                after.add(switch (value.substring(0, 2)) {
+                    case "d:" -> new Date(Long.parseLong(text));
+                    case "t:" -> LocalDateTime.parse(text);
+                    case "l:" -> Long.parseLong(text);
+                    case "i:" -> Integer.parseInt(text);
+                    case "s:" -> text;
+                    default -> throw new IllegalArgumentException("未知的类型前缀");
+                });
+            }
+            return after;
+        } catch (Exception e) {
+            log.warn("无效的分页游标: {}", cursor);
+            throw new RuntimeException("无效的分页游标");
+        }
+    }
+
     // 辅助方法：从请求头中获取 Token
     public String getTokenFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader(tokenHeader);
@@ -175,6 +297,11 @@ public class HelperUtil {
         return null;
     }
 
+    // 辅助方法：获取客户端IP（只有请求来自可信代理时才采信 X-Forwarded-For）
+    public String getClientIp(HttpServletRequest request) {
+        return clientIpResolver.resolve(request.getRemoteAddr(), request.getHeader("X-Forwarded-For"));
+    }
+
     // 辅助方法：返回歌曲榜单列表
     public List<Map<String, Object>> buildRankData(List<OmdMusicTopVO> topList, List<OmdMusicInfo> infoList) {
         // 先构建ID到音乐信息的映射
@@ -2,6 +2,7 @@ package org.x.backend.utils;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -22,14 +23,29 @@ public class JwtUtil {
     @Value("${jwt.expiration}")
     private int expiration; // 过期时间，单位：秒
 
+    // 签名密钥与解析器在启动时构建一次，JwtParser 线程安全，可被所有请求共享
+    private Key signingKey;
+    private JwtParser jwtParser;
+
     /**
-     * 获取用于签名的密钥（处理 Base64 解码）
-     * @return 签名密钥
+     * 初始化签名密钥和解析器，避免每次请求都重复 Base64 解码和构建解析器
      */
-    private Key getSigningKey() {
+    @PostConstruct
+    public void init() {
         // 如果 secret 是 Base64 编码的，先解码
         byte[] keyBytes = Base64.getDecoder().decode(secret);
-        return Keys.hmacShaKeyFor(keyBytes);
+        this.signingKey = Keys.hmacShaKeyFor(keyBytes);
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+    }
+
+    /**
+     * 获取用于签名的密钥
+     * @return 签名密钥
+     */
+    private Key getSigningKey() {
+        return signingKey;
     }
 
     /**
@@ -52,12 +68,17 @@ public class JwtUtil {
      * @return 有效返回 true，否则 false
      */
     public boolean validateToken(String authToken) {
+        return parseToken(authToken) != null;
+    }
+
+    /**
+     * 解析并验证 JWT Token（只做一次签名校验），供过滤器等热点路径使用
+     * @param authToken 要解析的 Token
+     * @return 有效返回声明，否则返回 null
+     */
+    public Claims parseToken(String authToken) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(authToken);
-            return true;
+            return jwtParser.parseClaimsJws(authToken).getBody();
         } catch (MalformedJwtException ex) {
             log.error("无效的 JWT 令牌，Token 格式错误: {}", ex.getMessage());
         } catch (ExpiredJwtException ex) {
@@ -69,7 +90,7 @@ public class JwtUtil {
         } catch (SignatureException ex) {
             log.error("JWT 签名不匹配，可能密钥错误或 Token 被篡改: {}", ex.getMessage());
         }
-        return false;
+        return null;
     }
 
     /**
@@ -90,11 +111,7 @@ public class JwtUtil {
      * @return 所有声明
      */
     public Claims getClaimsFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return jwtParser.parseClaimsJws(token).getBody();
     }
 
     /**
@@ -112,11 +129,15 @@ public class JwtUtil {
      * @return 用户ID
      */
     public Long getUserIdFromJWT(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return getUserIdFromClaims(getClaimsFromToken(token));
+    }
+
+    /**
+     * 从已解析的声明中获取用户ID，避免重复解析 Token
+     * @param claims 已验证的声明
+     * @return 用户ID
+     */
+    public Long getUserIdFromClaims(Claims claims) {
         // 从自定义声明omdUserId获取
         Object userIdObj = claims.get("omdUserId");
         if (userIdObj == null) {
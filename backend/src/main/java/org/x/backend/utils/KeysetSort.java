@@ -0,0 +1,70 @@
+package org.x.backend.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 游标分页的排序列描述
+ * 列名需与查询中 ORDER BY 使用的列一致（可带表别名），最后一列必须能唯一确定一行（通常是主键），
+ * 否则相同排序值的记录可能在翻页时丢失；排序列的值不能为 NULL。
+ * 结果对象中对应的属性名默认按下划线转驼峰推导（与 map-underscore-to-camel-case 一致）。
+ */
+public class KeysetSort {
+
+    /**
+     * 排序列
+     * @param column SQL 列名（如 mc.omd_music_comment_create_time）
+     * @param property 结果对象中的属性名（如 omdMusicCommentCreateTime）
+     * @param ascending 是否升序
+     */
+    public record Column(String column, String property, boolean ascending) {
+    }
+
+    private final List<Column> columns = new ArrayList<>();
+
+    private KeysetSort() {
+    }
+
+    // 以降序列开始
+    public static KeysetSort desc(String column) {
+        return new KeysetSort().thenDesc(column);
+    }
+
+    // 以升序列开始
+    public static KeysetSort asc(String column) {
+        return new KeysetSort().thenAsc(column);
+    }
+
+    // 追加降序列
+    public KeysetSort thenDesc(String column) {
+        columns.add(new Column(column, toProperty(column), false));
+        return this;
+    }
+
+    // 追加升序列
+    public KeysetSort thenAsc(String column) {
+        columns.add(new Column(column, toProperty(column), true));
+        return this;
+    }
+
+    public List<Column> getColumns() {
+        return Collections.unmodifiableList(columns);
+    }
+
+    // 去掉表别名后按下划线转驼峰，例如 mc.omd_music_comment_id -> omdMusicCommentId
+    private static String toProperty(String column) {
+        String name = column.substring(column.lastIndexOf('.') + 1);
+        StringBuilder property = new StringBuilder(name.length());
+        boolean upper = false;
+        for (char c : name.toCharArray()) {
+            if (c == '_') {
+                upper = property.length() > 0;
+            } else {
+                property.append(upper ? Character.toUpperCase(c) : Character.toLowerCase(c));
+                upper = false;
+            }
+        }
+        return property.toString();
+    }
+}
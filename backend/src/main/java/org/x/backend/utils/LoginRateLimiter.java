@@ -0,0 +1,126 @@
+package org.x.backend.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 登录限流工具类
+ * 按标识（用户名/手机号）和客户端IP分别维护令牌桶，在任何数据库查询和BCrypt计算之前拦截暴力破解请求。
+ * 令牌桶状态打包在一个 AtomicLong 中，通过 CAS 更新，无锁。
+ */
+@Component
+@Slf4j
+public class LoginRateLimiter {
+
+    // 令牌以千分之一为单位存储，便于按毫秒平滑补充
+    private static final long SCALE = 1000L;
+    // 时间戳占用低位的位数（毫秒时间戳相对启动时间，约可用 2^40 ms ≈ 34 年）
+    private static final int TIME_BITS = 40;
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${security.login-limit.capacity:5}")
+    private long capacity; // 令牌桶容量（允许的突发次数）
+
+    @Value("${security.login-limit.refill-per-minute:5}")
+    private long refillPerMinute; // 每分钟补充的令牌数
+
+    private final long startMillis = System.currentTimeMillis();
+
+    // 标识/IP -> 令牌桶，长时间不访问自动清理
+    private Cache<String, AtomicLong> buckets;
+
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    public void init() {
+        buckets = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterAccess(30, TimeUnit.MINUTES)
+                .build();
+        rejectedCounter = Counter.builder("omd.login.rate.limited")
+                .description("登录限流拒绝的次数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 尝试获取一个令牌
+     * @param key 限流键（如 login:id:用户名、login:ip:地址，不同操作使用不同前缀）
+     * @return 获取成功返回 true，被限流返回 false
+     */
+    public boolean tryAcquire(String key) {
+        long capacityScaled = capacity * SCALE;
+        long now = System.currentTimeMillis() - startMillis;
+        AtomicLong bucket = buckets.get(key, k -> new AtomicLong(pack(capacityScaled, now)));
+        while (true) {
+            long state = bucket.get();
+            long tokens = state >>> TIME_BITS;
+            long last = state & TIME_MASK;
+            // 按流逝时间补充令牌（refillPerMinute 个/分钟 => refillPerMinute * SCALE / 60000 个单位/毫秒）
+            long refill = Math.max(0, now - last) * refillPerMinute * SCALE / 60_000L;
+            long available = Math.min(capacityScaled, tokens + refill);
+            if (available < SCALE) {
+                rejectedCounter.increment();
+                return false;
+            }
+            // 补充不足一个单位时保留原时间戳，避免小数部分被丢弃
+            long newLast = refill > 0 ? now : last;
+            if (bucket.compareAndSet(state, pack(available - SCALE, newLast))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 同时校验多个限流键，任意一个被限流即拒绝，并退还已从其他键扣除的令牌
+     * @param keys 限流键
+     * @return 全部通过返回 true
+     */
+    public boolean tryAcquireAll(String... keys) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null && !tryAcquire(keys[i])) {
+                log.warn("登录请求被限流，限流键: {}", keys[i]);
+                for (int j = 0; j < i; j++) {
+                    if (keys[j] != null) {
+                        refund(keys[j]);
+                    }
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 退还一个令牌（不超过容量，时间戳不变）
+    private void refund(String key) {
+        AtomicLong bucket = buckets.getIfPresent(key);
+        if (bucket == null) {
+            return;
+        }
+        long capacityScaled = capacity * SCALE;
+        while (true) {
+            long state = bucket.get();
+            long tokens = Math.min(capacityScaled, (state >>> TIME_BITS) + SCALE);
+            if (bucket.compareAndSet(state, pack(tokens, state & TIME_MASK))) {
+                return;
+            }
+        }
+    }
+
+    // 将令牌数和时间戳打包为一个 long
+    private long pack(long tokens, long time) {
+        return (tokens << TIME_BITS) | (time & TIME_MASK);
+    }
+}
@@ -2,13 +2,21 @@ package org.x.backend.utils;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Component;
 import org.x.backend.pojo.OmdMessage;
 import org.x.backend.pojo.OmdMusicTopVO;
 
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -24,6 +32,13 @@ public class RedisUtil {
     // RedisTemplate，用于操作Redis数据库
     private final RedisTemplate<String, Object> redisTemplate;
 
+    // StringRedisTemplate，用于执行Lua脚本（键和参数按原始字符串传递）
+    private final StringRedisTemplate stringRedisTemplate;
+
+    // 记录音乐播放的Lua脚本：去重、计数、排行榜和过期时间在一次往返中原子完成
+    private static final RedisScript<Long> RECORD_MUSIC_PLAY_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/record_music_play.lua"), Long.class);
+
     // 键名常量
     private static final String ONLINE_USERS_KEY = "online_users";
     // 离线消息键名前缀
@@ -195,6 +210,69 @@ public class RedisUtil {
         expire(topKey, time, timeUnit);
     }
 
+    // 记录一次音乐播放（单次往返）
+    /**
+     * @param deDupKey 去重键
+     * @param totalKey 总播放量键
+     * @param segmentKey 游客/用户播放量键
+     * @param totalBucketKey 总榜当前小时桶
+     * @param segmentBucketKey 游客/用户榜当前小时桶
+     * @param omdMusicInfoId 音乐ID
+     * @param deDupSeconds 去重窗口（秒）
+     * @param statSeconds 播放量过期时间（秒）
+     * @param bucketExpireAt 小时桶过期时间点（Unix 秒）
+     * @return 本次播放被计入返回 true，去重窗口内重复播放返回 false
+     */
+    public boolean recordMusicPlay(String deDupKey, String totalKey, String segmentKey,
+                                   String totalBucketKey, String segmentBucketKey, Long omdMusicInfoId,
+                                   long deDupSeconds, long statSeconds, long bucketExpireAt) {
+        // 排行榜成员需与 RedisTemplate 的值序列化格式保持一致，getTopMusic 才能正确读取
+        @SuppressWarnings("unchecked")
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        byte[] member = valueSerializer.serialize(omdMusicInfoId.toString());
+        Long counted = stringRedisTemplate.execute(RECORD_MUSIC_PLAY_SCRIPT,
+                List.of(deDupKey, totalKey, segmentKey, totalBucketKey, segmentBucketKey),
+                String.valueOf(deDupSeconds),
+                String.valueOf(statSeconds),
+                new String(member, StandardCharsets.UTF_8),
+                String.valueOf(bucketExpireAt));
+        return counted != null && counted == 1L;
+    }
+
+    // 合并多个有序集合到目标键（ZUNIONSTORE，目标键整体原子替换）
+    /**
+     * @param destKey 目标键
+     * @param sourceKeys 源键（不存在的键按空集合处理）
+     * @param time 目标键过期时间
+     * @param timeUnit 时间单位
+     * @return 目标键中的成员数
+     */
+    public long unionAndStore(String destKey, List<String> sourceKeys, long time, TimeUnit timeUnit) {
+        if (sourceKeys == null || sourceKeys.isEmpty()) {
+            redisTemplate.delete(destKey);
+            return 0;
+        }
+        Long size = redisTemplate.opsForZSet().unionAndStore(
+                sourceKeys.get(0), sourceKeys.subList(1, sourceKeys.size()), destKey);
+        if (size != null && size > 0) {
+            expire(destKey, time, timeUnit);
+        }
+        return size == null ? 0 : size;
+    }
+
+    // 仅当键不存在时设置（用于简单的分布式互斥）
+    /**
+     * @param key 键
+     * @param value 值
+     * @param time 过期时间
+     * @param timeUnit 时间单位
+     * @return 设置成功返回 true
+     */
+    public boolean setIfAbsent(String key, Object value, long time, TimeUnit timeUnit) {
+        Boolean success = redisTemplate.opsForValue().setIfAbsent(key, value, time, timeUnit);
+        return success != null && success;
+    }
+
     // 获取排行榜
     /**
      * @param key 键
@@ -213,4 +291,18 @@ public class RedisUtil {
                 )).collect(Collectors.toList());
     }
 
-}
\ No newline at end of file
+    // 获取排行榜全部成员及分数
+    /**
+     * @param key 键
+     * @return 音乐ID -> 分数
+     */
+    public Map<Long, Double> getAllMusicScores(String key) {
+        Set<ZSetOperations.TypedTuple<Object>> set = redisTemplate.opsForZSet().rangeWithScores(key, 0, -1);
+        Map<Long, Double> scores = new HashMap<>();
+        if (set != null) {
+            set.forEach(tuple -> scores.put(Long.parseLong(tuple.getValue().toString()), tuple.getScore()));
+        }
+        return scores;
+    }
+
+}
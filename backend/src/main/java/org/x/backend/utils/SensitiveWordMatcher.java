@@ -0,0 +1,212 @@
+package org.x.backend.utils;
+
+import java.util.*;
+
+/**
+ * 敏感词匹配器（Aho-Corasick 自动机）
+ * 构建后不可变，可被多个线程同时使用；词表更新时整体替换为新实例。
+ * 所有节点的边、失败指针和匹配长度都保存在平铺的数组中：根节点按字符直接寻址（65536 项），
+ * 其余节点的边按字符排序后二分查找。扫描时逐字符查表归一化并转移状态，一次遍历找出所有敏感词，
+ * contains 不分配任何对象，mask 只在命中时复制一次字符数组。
+ * 归一化规则：全角 ASCII 转半角、全角空格转半角空格、大写转小写；中文等 BMP 字符按单个字符匹配，
+ * 扩展区汉字（代理对）按两个字符匹配，结果相同。
+ */
+public final class SensitiveWordMatcher {
+
+    // 字符归一化表
+    private static final char[] NORMALIZE = new char[Character.MAX_VALUE + 1];
+
+    static {
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            char n = (char) c;
+            if (n >= '！' && n <= '～') {
+                n = (char) (n - 0xFEE0);
+            } else if (n == '　') {
+                n = ' ';
+            }
+            NORMALIZE[c] = Character.toLowerCase(n);
+        }
+    }
+
+    // 空词表，不匹配任何内容
+    public static final SensitiveWordMatcher EMPTY = build(Collections.emptyList());
+
+    // 根节点的转移表：字符 -> 子节点（0 表示停留在根节点）
+    private final int[] rootNext;
+    // 节点 i 的边为 edgeChars/edgeTargets 的 [edgeStart[i], edgeStart[i + 1]) 区间，按字符升序
+    private final int[] edgeStart;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+    // 失败指针
+    private final int[] fail;
+    // 以该节点结尾的最长敏感词长度（含失败链上的词），0 表示不是任何词的结尾
+    private final int[] matchLen;
+    // 词表中的有效词数（去重后）
+    private final int size;
+
+    private SensitiveWordMatcher(int[] rootNext, int[] edgeStart, char[] edgeChars, int[] edgeTargets,
+                                 int[] fail, int[] matchLen, int size) {
+        this.rootNext = rootNext;
+        this.edgeStart = edgeStart;
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.fail = fail;
+        this.matchLen = matchLen;
+        this.size = size;
+    }
+
+    /**
+     * 构建匹配器
+     * @param words 敏感词（前后空白和空行忽略，按归一化后的结果去重）
+     * @return 匹配器
+     */
+    public static SensitiveWordMatcher build(Collection<String> words) {
+        // 1. 构建字典树（临时结构）
+        List<TreeMap<Character, Integer>> children = new ArrayList<>();
+        List<Integer> wordLen = new ArrayList<>();
+        children.add(new TreeMap<>());
+        wordLen.add(0);
+        int size = 0;
+        for (String word : words) {
+            if (word == null || word.isBlank()) {
+                continue;
+            }
+            String trimmed = word.trim();
+            int node = 0;
+            for (int i = 0; i < trimmed.length(); i++) {
+                char c = NORMALIZE[trimmed.charAt(i)];
+                Integer next = children.get(node).get(c);
+                if (next == null) {
+                    next = children.size();
+                    children.get(node).put(c, next);
+                    children.add(new TreeMap<>());
+                    wordLen.add(0);
+                }
+                node = next;
+            }
+            if (wordLen.get(node) == 0) {
+                wordLen.set(node, trimmed.length());
+                size++;
+            }
+        }
+
+        // 2. 按广度优先重新编号，写入平铺数组
+        int nodeCount = children.size();
+        int[] order = new int[nodeCount];
+        int[] newId = new int[nodeCount];
+        int head = 0;
+        int tail = 1;
+        while (head < tail) {
+            int old = order[head++];
+            for (int child : children.get(old).values()) {
+                newId[child] = tail;
+                order[tail++] = child;
+            }
+        }
+        int[] edgeStart = new int[nodeCount + 1];
+        char[] edgeChars = new char[nodeCount - 1];
+        int[] edgeTargets = new int[nodeCount - 1];
+        int[] matchLen = new int[nodeCount];
+        int edge = 0;
+        for (int id = 0; id < nodeCount; id++) {
+            edgeStart[id] = edge;
+            matchLen[id] = wordLen.get(order[id]);
+            for (Map.Entry<Character, Integer> entry : children.get(order[id]).entrySet()) {
+                edgeChars[edge] = entry.getKey();
+                edgeTargets[edge] = newId[entry.getValue()];
+                edge++;
+            }
+        }
+        edgeStart[nodeCount] = edge;
+        int[] rootNext = new int[Character.MAX_VALUE + 1];
+        for (int e = edgeStart[0]; e < edgeStart[1]; e++) {
+            rootNext[edgeChars[e]] = edgeTargets[e];
+        }
+
+        // 3. 按广度优先顺序计算失败指针（父节点的失败指针总是先于子节点算出），并沿失败链合并匹配长度
+        int[] fail = new int[nodeCount];
+        SensitiveWordMatcher matcher = new SensitiveWordMatcher(rootNext, edgeStart, edgeChars, edgeTargets,
+                fail, matchLen, size);
+        for (int id = 0; id < nodeCount; id++) {
+            for (int e = edgeStart[id]; e < edgeStart[id + 1]; e++) {
+                int child = edgeTargets[e];
+                fail[child] = id == 0 ? 0 : matcher.next(fail[id], edgeChars[e]);
+                matchLen[child] = Math.max(matchLen[child], matchLen[fail[child]]);
+            }
+        }
+        return matcher;
+    }
+
+    /**
+     * 是否包含敏感词
+     * @param text 文本，为空时返回 false
+     * @return 是否包含
+     */
+    public boolean contains(CharSequence text) {
+        if (text == null || size == 0) {
+            return false;
+        }
+        int state = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            state = next(state, NORMALIZE[text.charAt(i)]);
+            if (matchLen[state] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 把敏感词替换为掩码字符（每个字符替换为一个掩码字符，文本长度不变）
+     * @param text 文本
+     * @param maskChar 掩码字符
+     * @return 替换后的文本，不含敏感词时返回原对象
+     */
+    public String mask(String text, char maskChar) {
+        if (text == null || size == 0) {
+            return text;
+        }
+        char[] chars = null;
+        int state = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            state = next(state, NORMALIZE[text.charAt(i)]);
+            int len = matchLen[state];
+            if (len > 0) {
+                if (chars == null) {
+                    chars = text.toCharArray();
+                }
+                // 以当前位置结尾的较短词都是最长词的后缀，只需替换最长的一个
+                Arrays.fill(chars, i - len + 1, i + 1, maskChar);
+            }
+        }
+        return chars == null ? text : new String(chars);
+    }
+
+    /**
+     * @return 词表中的有效词数
+     */
+    public int size() {
+        return size;
+    }
+
+    // 状态转移：当前节点没有对应的边时沿失败指针回退，直到根节点
+    private int next(int state, char c) {
+        while (state != 0) {
+            int low = edgeStart[state];
+            int high = edgeStart[state + 1] - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char midChar = edgeChars[mid];
+                if (midChar < c) {
+                    low = mid + 1;
+                } else if (midChar > c) {
+                    high = mid - 1;
+                } else {
+                    return edgeTargets[mid];
+                }
+            }
+            state = fail[state];
+        }
+        return rootNext[c];
+    }
+}
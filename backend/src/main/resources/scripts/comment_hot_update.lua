@@ -0,0 +1,16 @@
+-- 更新歌曲的热评排行（仅在排行已缓存时更新，同时推进版本号）
+-- KEYS[1] 热评排行有序集合  KEYS[2] 排行版本号
+-- ARGV[1] 操作（add 新增或更新 / xx 仅更新已存在的评论 / rem 删除）  ARGV[2] 过期时间（秒）  ARGV[3] 分数  ARGV[4] 评论ID
+
+redis.call('INCR', KEYS[2])
+redis.call('EXPIRE', KEYS[2], ARGV[2])
+if redis.call('EXISTS', KEYS[1]) == 1 then
+    if ARGV[1] == 'rem' then
+        redis.call('ZREM', KEYS[1], ARGV[4])
+    elseif ARGV[1] == 'xx' then
+        redis.call('ZADD', KEYS[1], 'XX', ARGV[3], ARGV[4])
+    else
+        redis.call('ZADD', KEYS[1], ARGV[3], ARGV[4])
+    end
+end
+return 1
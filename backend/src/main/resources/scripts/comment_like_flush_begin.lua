@@ -0,0 +1,28 @@
+-- 开始评论点赞刷盘：把待刷盘的计数增量和点赞记录同时切换为刷盘中（原子完成，保证两者对应同一批点赞），并分配批次号
+-- KEYS[1] 待刷盘计数增量哈希  KEYS[2] 待持久化点赞记录哈希
+-- KEYS[3] 刷盘中计数增量哈希  KEYS[4] 刷盘中点赞记录哈希  KEYS[5] 刷盘中批次号
+-- ARGV[1] 新批次号
+-- 返回本次要刷盘的批次号（上次失败遗留的数据沿用原批次号），没有需要刷盘的数据时返回 nil
+
+if redis.call('EXISTS', KEYS[3]) == 1 or redis.call('EXISTS', KEYS[4]) == 1 then
+    local batch = redis.call('GET', KEYS[5])
+    if batch then
+        return batch
+    end
+    redis.call('SET', KEYS[5], ARGV[1])
+    return ARGV[1]
+end
+local found = false
+if redis.call('EXISTS', KEYS[1]) == 1 then
+    redis.call('RENAME', KEYS[1], KEYS[3])
+    found = true
+end
+if redis.call('EXISTS', KEYS[2]) == 1 then
+    redis.call('RENAME', KEYS[2], KEYS[4])
+    found = true
+end
+if not found then
+    return nil
+end
+redis.call('SET', KEYS[5], ARGV[1])
+return ARGV[1]
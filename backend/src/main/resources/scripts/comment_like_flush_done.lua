@@ -0,0 +1,10 @@
+-- 评论点赞刷盘完成：删除刷盘中的数据和批次号并推进刷盘纪元
+-- KEYS[1] 刷盘中计数增量哈希  KEYS[2] 刷盘中点赞记录哈希  KEYS[3] 刷盘中批次号  KEYS[4] 刷盘纪元  KEYS[5] 刷盘互斥锁
+-- ARGV[1] 持有锁的令牌
+-- 返回新的刷盘纪元；锁已过期或被其它实例持有时不做修改并返回 nil（由持锁实例按批次号完成收尾）
+
+if redis.call('GET', KEYS[5]) ~= ARGV[1] then
+    return nil
+end
+redis.call('DEL', KEYS[1], KEYS[2], KEYS[3])
+return redis.call('INCR', KEYS[4])
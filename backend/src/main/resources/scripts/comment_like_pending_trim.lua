@@ -0,0 +1,15 @@
+-- 刷盘完成后清理待持久化索引：已写入数据库、之后没有再次切换的 (评论, 用户) 从两个索引中移除
+-- KEYS[1] 待持久化点赞记录哈希  KEYS[2] 刷盘中点赞记录哈希
+-- KEYS[2n+1] 第n条记录的评论待持久化用户索引  KEYS[2n+2] 第n条记录的用户待持久化评论索引
+-- ARGV[2n-1] 第n条记录的评论ID  ARGV[2n] 第n条记录的用户ID
+
+for n = 1, #ARGV / 2 do
+    local commentId = ARGV[2 * n - 1]
+    local userId = ARGV[2 * n]
+    local field = commentId .. ':' .. userId
+    if redis.call('HEXISTS', KEYS[1], field) == 0 and redis.call('HEXISTS', KEYS[2], field) == 0 then
+        redis.call('SREM', KEYS[2 * n + 1], userId)
+        redis.call('SREM', KEYS[2 * n + 2], commentId)
+    end
+end
+return 1
@@ -0,0 +1,38 @@
+-- 用数据库中的点赞记录填充点赞集合（评论的点赞用户集合，或用户的已点赞评论集合），并叠加尚未持久化的点赞变更
+-- KEYS[1] 要填充的集合  KEYS[2] 刷盘中点赞记录哈希  KEYS[3] 待持久化点赞记录哈希  KEYS[4] 刷盘纪元
+-- KEYS[5] 待持久化索引（评论的待持久化用户，或用户的待持久化评论）
+-- ARGV[1] 读取数据库前的刷盘纪元  ARGV[2] 过期时间（秒）
+-- ARGV[3] 记录字段中ID的位置（prefix 评论ID在前 评论ID:用户ID / suffix 用户ID在后）  ARGV[4] 评论ID或用户ID
+-- ARGV[5..] 数据库中的成员（含占位成员）
+-- 返回 1 表示集合可用；0 表示读取期间发生过刷盘，数据库记录与待持久化变更可能不衔接，本次不填充
+
+if redis.call('EXISTS', KEYS[1]) == 1 then
+    return 1
+end
+if (redis.call('GET', KEYS[4]) or '0') ~= ARGV[1] then
+    return 0
+end
+for i = 5, #ARGV, 1000 do
+    redis.call('SADD', KEYS[1], unpack(ARGV, i, math.min(i + 999, #ARGV)))
+end
+
+-- 按索引拼出记录字段，用 HMGET 只读取相关的记录；先叠加刷盘中的（较早的）变更，再叠加待持久化的（较新的）变更
+-- 索引中可能残留已持久化的成员，对应字段不存在，直接跳过
+local others = redis.call('SMEMBERS', KEYS[5])
+for from = 1, #others, 1000 do
+    local to = math.min(from + 999, #others)
+    local fields = {}
+    for i = from, to do
+        fields[#fields + 1] = ARGV[3] == 'prefix' and (ARGV[4] .. ':' .. others[i]) or (others[i] .. ':' .. ARGV[4])
+    end
+    for k = 2, 3 do
+        local states = redis.call('HMGET', KEYS[k], unpack(fields))
+        for i, state in ipairs(states) do
+            if state then
+                redis.call(state == '1' and 'SADD' or 'SREM', KEYS[1], others[from + i - 1])
+            end
+        end
+    end
+end
+redis.call('EXPIRE', KEYS[1], ARGV[2])
+return 1
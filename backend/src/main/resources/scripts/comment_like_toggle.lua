@@ -0,0 +1,29 @@
+-- 切换评论点赞状态（以评论点赞集合为准，同时记录待刷盘的计数增量和点赞记录变更）
+-- KEYS[1] 评论点赞用户集合  KEYS[2] 待刷盘计数增量哈希  KEYS[3] 待持久化点赞记录哈希  KEYS[4] 用户已点赞评论集合
+-- KEYS[5] 评论的待持久化用户索引  KEYS[6] 用户的待持久化评论索引
+-- ARGV[1] 评论ID  ARGV[2] 用户ID  ARGV[3] 过期时间（秒）
+-- 返回 1 表示点赞，0 表示取消点赞；-1 表示评论点赞集合未加载，需要先填充
+
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    return -1
+end
+local liked = 1
+if redis.call('SISMEMBER', KEYS[1], ARGV[2]) == 1 then
+    redis.call('SREM', KEYS[1], ARGV[2])
+    liked = 0
+else
+    redis.call('SADD', KEYS[1], ARGV[2])
+end
+redis.call('EXPIRE', KEYS[1], ARGV[3])
+redis.call('HINCRBY', KEYS[2], ARGV[1], liked == 1 and 1 or -1)
+-- 同一用户对同一评论的多次切换只保留最后状态
+redis.call('HSET', KEYS[3], ARGV[1] .. ':' .. ARGV[2], liked)
+if redis.call('EXISTS', KEYS[4]) == 1 then
+    redis.call(liked == 1 and 'SADD' or 'SREM', KEYS[4], ARGV[1])
+end
+-- 记录索引，填充集合时只需按索引查找这条评论（或这个用户）的待持久化记录
+redis.call('SADD', KEYS[5], ARGV[2])
+redis.call('EXPIRE', KEYS[5], ARGV[3])
+redis.call('SADD', KEYS[6], ARGV[1])
+redis.call('EXPIRE', KEYS[6], ARGV[3])
+return liked
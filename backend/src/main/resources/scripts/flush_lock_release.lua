@@ -0,0 +1,7 @@
+-- 释放刷盘互斥锁：只有令牌一致（仍由自己持有）时才删除，避免误删其它实例在本锁过期后获得的锁
+-- KEYS[1] 锁  ARGV[1] 持有锁的令牌
+
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('DEL', KEYS[1])
+end
+return 0
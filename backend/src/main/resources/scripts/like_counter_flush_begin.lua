@@ -0,0 +1,19 @@
+-- 开始点赞计数刷盘：把待刷盘增量切换为刷盘中，并为这一批增量分配批次号
+-- KEYS[1] 待刷盘增量哈希  KEYS[2] 刷盘中增量哈希  KEYS[3] 刷盘中批次号
+-- ARGV[1] 新批次号
+-- 返回本次要刷盘的批次号（上次失败遗留的数据沿用原批次号），没有需要刷盘的数据时返回 nil
+
+if redis.call('EXISTS', KEYS[2]) == 1 then
+    local batch = redis.call('GET', KEYS[3])
+    if batch then
+        return batch
+    end
+    redis.call('SET', KEYS[3], ARGV[1])
+    return ARGV[1]
+end
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    return nil
+end
+redis.call('RENAME', KEYS[1], KEYS[2])
+redis.call('SET', KEYS[3], ARGV[1])
+return ARGV[1]
@@ -0,0 +1,10 @@
+-- 点赞计数增量（写入待刷盘增量，并同步更新已缓存的绝对计数）
+-- KEYS[1] 待刷盘增量哈希    KEYS[2] 该音乐的点赞计数键
+-- ARGV[1] 音乐ID（哈希字段）  ARGV[2] 增量  ARGV[3] 计数键过期时间（秒）
+
+redis.call('HINCRBY', KEYS[1], ARGV[1], ARGV[2])
+if redis.call('EXISTS', KEYS[2]) == 1 then
+    redis.call('INCRBY', KEYS[2], ARGV[2])
+    redis.call('EXPIRE', KEYS[2], ARGV[3])
+end
+return 1
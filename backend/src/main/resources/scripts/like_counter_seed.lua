@@ -0,0 +1,20 @@
+-- 用数据库计数回填点赞计数键（数据库计数 + 尚未刷盘的增量）
+-- KEYS[1] 该音乐的点赞计数键  KEYS[2] 待刷盘增量哈希
+-- KEYS[3] 刷盘中增量哈希      KEYS[4] 刷盘纪元
+-- ARGV[1] 音乐ID（哈希字段）  ARGV[2] 数据库计数
+-- ARGV[3] 读取数据库前的刷盘纪元  ARGV[4] 计数键过期时间（秒）
+-- 返回回填后的计数；刷盘进行中或读取期间发生过刷盘时返回 nil，由调用方本次直接使用近似值
+
+local current = redis.call('GET', KEYS[1])
+if current then
+    return tonumber(current)
+end
+if redis.call('EXISTS', KEYS[3]) == 1 then
+    return nil
+end
+if (redis.call('GET', KEYS[4]) or '0') ~= ARGV[3] then
+    return nil
+end
+local count = tonumber(ARGV[2]) + tonumber(redis.call('HGET', KEYS[2], ARGV[1]) or '0')
+redis.call('SET', KEYS[1], count, 'EX', ARGV[4])
+return count
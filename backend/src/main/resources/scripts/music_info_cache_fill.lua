@@ -0,0 +1,14 @@
+-- 回填音乐信息二级缓存
+-- KEYS[1] 缓存哈希  ARGV[1] 过期时间（秒）  ARGV[2..] 音乐ID与JSON交替
+-- 只在哈希新建（或没有过期时间）时设置过期，之后的回填不续期，保证任何条目最多存活一个过期周期
+-- 返回 1 表示本次新建了哈希
+
+local created = redis.call('TTL', KEYS[1]) < 0
+for i = 2, #ARGV, 1000 do
+    redis.call('HSET', KEYS[1], unpack(ARGV, i, math.min(i + 999, #ARGV)))
+end
+if created then
+    redis.call('EXPIRE', KEYS[1], ARGV[1])
+    return 1
+end
+return 0
@@ -0,0 +1,14 @@
+-- 为播放列表分配追加用的顺序号（计数器不存在时用数据库中的最大顺序号初始化）
+-- KEYS[1] 播放列表顺序号计数器
+-- ARGV[1] 增量（条数 * 间隔）  ARGV[2] 初始值（为空表示调用方尚未读取数据库）  ARGV[3] 过期时间（秒）
+-- 返回分配后的计数器值；计数器不存在且未提供初始值时返回 nil
+
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    if ARGV[2] == '' then
+        return nil
+    end
+    redis.call('SET', KEYS[1], ARGV[2])
+end
+local value = redis.call('INCRBY', KEYS[1], ARGV[1])
+redis.call('EXPIRE', KEYS[1], ARGV[3])
+return value
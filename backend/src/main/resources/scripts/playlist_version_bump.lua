@@ -0,0 +1,13 @@
+-- 递增版本号，并保证版本号不小于当前时间戳（毫秒）
+-- 版本号键丢失后重新初始化为当前时间戳，不会与丢失前已缓存的版本重复
+-- KEYS[1] 版本号键
+-- ARGV[1] 当前时间戳（毫秒）
+-- 返回新版本号
+
+local version = redis.call('INCR', KEYS[1])
+local now = tonumber(ARGV[1])
+if version < now then
+    redis.call('SET', KEYS[1], ARGV[1])
+    version = now
+end
+return version
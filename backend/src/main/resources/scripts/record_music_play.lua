@@ -0,0 +1,24 @@
+-- 记录一次音乐播放（去重 + 计数 + 小时桶排行 + 过期时间，一次往返原子完成）
+-- KEYS[1] 去重键
+-- KEYS[2] 总播放量键            KEYS[3] 游客/用户播放量键
+-- KEYS[4] 总榜当前小时桶        KEYS[5] 游客/用户榜当前小时桶
+-- ARGV[1] 去重窗口（秒）  ARGV[2] 播放量过期时间（秒）
+-- ARGV[3] 排行榜成员（音乐ID，按 RedisTemplate 值序列化格式编码）
+-- ARGV[4] 小时桶的过期时间点（Unix 秒，固定值，不随播放顺延）
+-- 返回 1 表示本次播放已计入，0 表示去重窗口内重复播放
+
+if not redis.call('SET', KEYS[1], '1', 'NX', 'EX', ARGV[1]) then
+    return 0
+end
+
+for i = 2, 3 do
+    redis.call('INCRBY', KEYS[i], 1)
+    redis.call('EXPIRE', KEYS[i], ARGV[2])
+end
+
+for i = 4, 5 do
+    redis.call('ZINCRBY', KEYS[i], 1, ARGV[3])
+    redis.call('EXPIREAT', KEYS[i], ARGV[4])
+end
+
+return 1
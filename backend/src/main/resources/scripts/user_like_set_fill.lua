@@ -0,0 +1,16 @@
+-- 用数据库中的点赞记录填充用户已点赞音乐集合
+-- KEYS[1] 用户已点赞音乐集合  KEYS[2] 集合版本号
+-- ARGV[1] 读取数据库前的版本号  ARGV[2] 过期时间（秒）  ARGV[3..] 音乐ID（含占位成员）
+-- 返回 1 表示集合可用；0 表示读取期间有点赞变更，本次不填充
+
+if redis.call('EXISTS', KEYS[1]) == 1 then
+    return 1
+end
+if (redis.call('GET', KEYS[2]) or '0') ~= ARGV[1] then
+    return 0
+end
+for i = 3, #ARGV, 1000 do
+    redis.call('SADD', KEYS[1], unpack(ARGV, i, math.min(i + 999, #ARGV)))
+end
+redis.call('EXPIRE', KEYS[1], ARGV[2])
+return 1
@@ -0,0 +1,13 @@
+-- 更新用户已点赞音乐集合（仅在集合已缓存时更新，同时推进版本号）
+-- KEYS[1] 用户已点赞音乐集合  KEYS[2] 集合版本号
+-- ARGV[1] 操作（add / rem）  ARGV[2] 过期时间（秒）  ARGV[3..] 音乐ID
+
+redis.call('INCR', KEYS[2])
+redis.call('EXPIRE', KEYS[2], ARGV[2])
+if redis.call('EXISTS', KEYS[1]) == 1 then
+    local command = ARGV[1] == 'add' and 'SADD' or 'SREM'
+    for i = 3, #ARGV do
+        redis.call(command, KEYS[1], ARGV[i])
+    end
+end
+return 1
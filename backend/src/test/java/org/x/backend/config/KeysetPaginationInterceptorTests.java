@@ -0,0 +1,144 @@
+package org.x.backend.config;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.x.backend.utils.KeysetSort;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetPaginationInterceptorTests {
+
+    private final Configuration configuration = new Configuration();
+    private final KeysetPaginationInterceptor interceptor = new KeysetPaginationInterceptor();
+
+    // 被改写后交给执行器的 SQL
+    private BoundSql executed;
+
+    @AfterEach
+    void tearDown() {
+        KeysetPaginationInterceptor.finish();
+    }
+
+    @Test
+    void firstPageOnlyAddsOrderByAndLimit() throws Throwable {
+        KeysetPaginationInterceptor.start(KeysetSort.desc("c.create_time").thenDesc("c.id"), null, 11);
+
+        intercept("SELECT * FROM t_comment c WHERE c.music_id = ? ORDER BY c.id", "musicId");
+
+        assertEquals("SELECT * FROM t_comment c WHERE c.music_id = ? ORDER BY c.create_time DESC, c.id DESC LIMIT 11",
+                executed.getSql());
+        assertEquals(List.of("musicId"), properties());
+    }
+
+    @Test
+    void seekConditionParametersFollowWhereParameters() throws Throwable {
+        KeysetPaginationInterceptor.start(KeysetSort.desc("c.create_time").thenDesc("c.id"), List.of(500L, 42L), 11);
+
+        intercept("SELECT * FROM t_comment c WHERE c.music_id = ? AND c.status = ?", "musicId", "status");
+
+        assertTrue(executed.getSql().contains("WHERE (c.music_id = ? AND c.status = ?) AND "
+                + "((c.create_time < ?) OR (c.create_time = ? AND c.id < ?))"), executed.getSql());
+        assertEquals(List.of("musicId", "status", "_keyset_param_0", "_keyset_param_1", "_keyset_param_2"), properties());
+        assertEquals(List.of(500L, 500L, 42L), seekValues(3));
+    }
+
+    @Test
+    void seekConditionParametersPrecedeGroupByAndHavingParameters() throws Throwable {
+        KeysetPaginationInterceptor.start(KeysetSort.asc("s.singer_id"), List.of(7L), 20);
+
+        intercept("SELECT s.singer_id, COUNT(*) FROM t_song s WHERE s.status = ? "
+                + "GROUP BY s.singer_id HAVING COUNT(*) > ?", "status", "minSongs");
+
+        assertTrue(executed.getSql().contains("GROUP BY s.singer_id HAVING COUNT(*) > ? ORDER BY s.singer_id ASC LIMIT 20"),
+                executed.getSql());
+        assertEquals(List.of("status", "_keyset_param_0", "minSongs"), properties());
+    }
+
+    @Test
+    void parametersInsideWithItemsAreCountedBeforeSeekCondition() throws Throwable {
+        KeysetPaginationInterceptor.start(KeysetSort.desc("r.id"), List.of(42L), 10);
+
+        intercept("WITH r AS (SELECT id, name FROM t_song WHERE singer_id = ?) "
+                + "SELECT * FROM r WHERE r.name LIKE ?", "singerId", "keyword");
+
+        assertEquals(List.of("singerId", "keyword", "_keyset_param_0"), properties());
+    }
+
+    @Test
+    void unsupportedStatementsAreRejected() {
+        KeysetPaginationInterceptor.start(KeysetSort.desc("id"), List.of(1L), 10);
+        assertThrows(RuntimeException.class, () -> intercept("SELECT * FROM t WHERE a = ? LIMIT 5", "a"));
+
+        KeysetPaginationInterceptor.start(KeysetSort.desc("id"), List.of(1L), 10);
+        assertThrows(RuntimeException.class, () -> intercept("SELECT id FROM t UNION SELECT id FROM u"));
+
+        KeysetPaginationInterceptor.start(KeysetSort.desc("id").thenDesc("name"), List.of(1L), 10);
+        assertThrows(RuntimeException.class, () -> intercept("SELECT * FROM t"));
+    }
+
+    @Test
+    void onlyFirstQueryAfterStartIsRewritten() throws Throwable {
+        KeysetPaginationInterceptor.start(KeysetSort.desc("id"), null, 10);
+
+        intercept("SELECT * FROM t WHERE a = ?", "a");
+        intercept("SELECT * FROM u WHERE b = ?", "b");
+
+        assertEquals("SELECT * FROM u WHERE b = ?", executed.getSql());
+        assertEquals("test.select:1", KeysetPaginationInterceptor.finish());
+    }
+
+    // 用给定的 SQL 和参数名执行一次查询，参数值为 1、2、3...
+    private void intercept(String sql, String... properties) throws Throwable {
+        List<ParameterMapping> mappings = Arrays.stream(properties)
+                .map(property -> new ParameterMapping.Builder(configuration, property, Object.class).build())
+                .toList();
+        MappedStatement ms = new MappedStatement.Builder(configuration, "test.select",
+                new StaticSqlSource(configuration, sql, mappings), SqlCommandType.SELECT).build();
+        Map<String, Object> parameter = new HashMap<>();
+        for (int i = 0; i < properties.length; i++) {
+            parameter.put(properties[i], i + 1);
+        }
+        Executor executor = (Executor) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Executor.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "createCacheKey" -> new CacheKey();
+                    case "query" -> {
+                        // 改写后的查询带上新的 BoundSql，未改写的查询原样交给执行器
+                        executed = args.length == 6 ? (BoundSql) args[5] : ((MappedStatement) args[0]).getBoundSql(args[1]);
+                        yield List.of();
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        Object[] args = {ms, parameter, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER};
+        Object result = interceptor.intercept(new Invocation(executor, Executor.class.getMethod("query",
+                MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class), args));
+        assertEquals(List.of(), result);
+    }
+
+    private List<String> properties() {
+        return executed.getParameterMappings().stream().map(ParameterMapping::getProperty).toList();
+    }
+
+    private List<Object> seekValues(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> executed.getAdditionalParameter("_keyset_param_" + i))
+                .toList();
+    }
+}
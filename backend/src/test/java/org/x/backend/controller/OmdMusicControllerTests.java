@@ -0,0 +1,190 @@
+package org.x.backend.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.x.backend.pojo.OmdMusicInfo;
+import org.x.backend.pojo.OmdPlaylistMusic;
+import org.x.backend.pojo.Result;
+import org.x.backend.service.OmdMusicService;
+import org.x.backend.service.impl.PlaylistCacheService;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OmdMusicControllerTests {
+
+    private static final String ETAG = "\"7-1-1\"";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // 歌单7中的歌曲，含顺序号相同的行（按关联ID区分先后）
+    private final List<OmdPlaylistMusic> tracks = new ArrayList<>(List.of(
+            track(11, 1024), track(12, 1024), track(13, 2048), track(14, 3072),
+            track(15, 3072), track(16, 4096), track(17, 5120)));
+    // 每次分页查询的 limit 参数
+    private final List<Integer> pageQueryLimits = new ArrayList<>();
+    // 流式输出时的响应，以及每写出一首后响应是否已提交（被刷新）
+    private final MockHttpServletResponse streamResponse = new MockHttpServletResponse();
+    private final List<Boolean> committedAfterTrack = new ArrayList<>();
+
+    private final OmdMusicController controller = new OmdMusicController();
+
+    @BeforeEach
+    void setUp() {
+        // 先打乱插入顺序，分页结果不依赖数据的物理顺序
+        tracks.sort(Comparator.comparing(OmdPlaylistMusic::getOmdMusicInfoId).reversed());
+
+        PlaylistCacheService playlistCacheService = new PlaylistCacheService() {
+            @Override
+            public String currentEtag(Long omdPlaylistId) {
+                return ETAG;
+            }
+        };
+        ReflectionTestUtils.setField(playlistCacheService, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(playlistCacheService, "maximumWeightMb", 16L);
+        ReflectionTestUtils.setField(playlistCacheService, "expireMinutes", 10L);
+        playlistCacheService.init();
+
+        ReflectionTestUtils.setField(controller, "omdMusicService", fakeMusicService());
+        ReflectionTestUtils.setField(controller, "playlistCacheService", playlistCacheService);
+        ReflectionTestUtils.setField(controller, "objectMapper", objectMapper);
+    }
+
+    @Test
+    void followingNextCursorVisitsEveryTrackOnceInOrder() throws IOException {
+        List<Long> visited = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        String cursor = null;
+        do {
+            JsonNode page = data(controller.getMusicPageFromPlaylist(7L, cursor, 3, null));
+            page.get("items").forEach(item -> visited.add(item.get("omdPlaylistMusicId").asLong()));
+            pageSizes.add(page.get("items").size());
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+        } while (cursor != null);
+
+        assertEquals(List.of(11L, 12L, 13L, 14L, 15L, 16L, 17L), visited);
+        assertEquals(List.of(3, 3, 1), pageSizes);
+        // 每页多查一条判断是否还有下一页
+        assertEquals(List.of(4, 4, 4), pageQueryLimits);
+    }
+
+    @Test
+    void cursorSeeksPastTiedOrderByPlaylistMusicId() throws IOException {
+        // 上一页停在顺序号3072的第一首（关联ID 14），同顺序号的15不能被跳过
+        JsonNode page = data(controller.getMusicPageFromPlaylist(7L, "3072_14", 2, null));
+
+        assertEquals(15, page.get("items").get(0).get("omdPlaylistMusicId").asLong());
+        assertEquals("4096_16", page.get("nextCursor").asText());
+    }
+
+    @Test
+    void lastFullPageHasNoNextCursor() throws IOException {
+        JsonNode page = data(controller.getMusicPageFromPlaylist(7L, null, 7, null));
+
+        assertEquals(7, page.get("items").size());
+        assertTrue(page.get("nextCursor").isNull());
+    }
+
+    @Test
+    void matchingEtagReturnsNotModifiedWithoutQuery() {
+        ResponseEntity<byte[]> response = controller.getMusicPageFromPlaylist(7L, null, 3, ETAG);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertTrue(pageQueryLimits.isEmpty());
+    }
+
+    @Test
+    void invalidLimitOrCursorIsRejected() {
+        assertThrows(RuntimeException.class, () -> controller.getMusicPageFromPlaylist(7L, null, 0, null));
+        assertThrows(RuntimeException.class, () -> controller.getMusicPageFromPlaylist(7L, null, 201, null));
+        assertEquals("游标格式错误",
+                assertThrows(RuntimeException.class, () -> controller.getMusicPageFromPlaylist(7L, "1024", 3, null)).getMessage());
+        assertEquals("游标格式错误",
+                assertThrows(RuntimeException.class, () -> controller.getMusicPageFromPlaylist(7L, "a_b", 3, null)).getMessage());
+        assertTrue(pageQueryLimits.isEmpty());
+    }
+
+    @Test
+    void streamWritesSameJsonAsFullList() throws IOException {
+        controller.streamMusicListFromPlaylist(7L, streamResponse);
+
+        assertEquals("application/json;charset=UTF-8", streamResponse.getContentType());
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(Result.success(sorted()))),
+                objectMapper.readTree(streamResponse.getContentAsByteArray()));
+    }
+
+    @Test
+    void streamDoesNotFlushAfterEveryTrack() throws IOException {
+        controller.streamMusicListFromPlaylist(7L, streamResponse);
+
+        assertEquals(7, committedAfterTrack.size());
+        assertFalse(committedAfterTrack.contains(true));
+    }
+
+    private JsonNode data(ResponseEntity<byte[]> response) throws IOException {
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(ETAG, response.getHeaders().getETag());
+        return objectMapper.readTree(response.getBody()).get("data");
+    }
+
+    private List<OmdPlaylistMusic> sorted() {
+        return tracks.stream()
+                .sorted(Comparator.comparing(OmdPlaylistMusic::getOmdPlaylistMusicOrder)
+                        .thenComparing(OmdPlaylistMusic::getOmdPlaylistMusicId))
+                .toList();
+    }
+
+    // 按 getMusicPageFromPlaylist / streamMusicListFromPlaylist 的 SQL 语义返回歌单中的歌曲
+    private OmdMusicService fakeMusicService() {
+        return (OmdMusicService) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{OmdMusicService.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getMusicPageFromPlaylist" -> {
+                        Integer afterOrder = (Integer) args[1];
+                        Long afterId = (Long) args[2];
+                        int limit = (int) args[3];
+                        pageQueryLimits.add(limit);
+                        yield sorted().stream()
+                                .filter(track -> afterOrder == null || afterId == null
+                                        || track.getOmdPlaylistMusicOrder() > afterOrder
+                                        || (track.getOmdPlaylistMusicOrder().equals(afterOrder) && track.getOmdPlaylistMusicId() > afterId))
+                                .limit(limit)
+                                .toList();
+                    }
+                    case "streamMusicListFromPlaylist" -> {
+                        @SuppressWarnings("unchecked")
+                        Consumer<OmdPlaylistMusic> consumer = (Consumer<OmdPlaylistMusic>) args[1];
+                        sorted().forEach(track -> {
+                            consumer.accept(track);
+                            committedAfterTrack.add(streamResponse.isCommitted());
+                        });
+                        yield null;
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static OmdPlaylistMusic track(long omdPlaylistMusicId, int order) {
+        OmdMusicInfo musicInfo = new OmdMusicInfo();
+        musicInfo.setOmdMusicInfoId(omdPlaylistMusicId + 100);
+        musicInfo.setOmdMusicInfoName("歌曲" + omdPlaylistMusicId);
+        OmdPlaylistMusic playlistMusic = new OmdPlaylistMusic();
+        playlistMusic.setOmdPlaylistMusicId(omdPlaylistMusicId);
+        playlistMusic.setOmdPlaylistId(7L);
+        playlistMusic.setOmdMusicInfoId(musicInfo.getOmdMusicInfoId());
+        playlistMusic.setOmdPlaylistMusicOrder(order);
+        playlistMusic.setOmdMusicInfo(musicInfo);
+        return playlistMusic;
+    }
+}
@@ -0,0 +1,65 @@
+package org.x.backend.mapper;
+
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 闭包表相关语句的结构检查（语句为 MySQL 方言，这里只解析映射文件，不连接数据库）
+ */
+class OmdUserMapperXmlTests {
+
+    private static final Configuration configuration = new Configuration();
+
+    @BeforeAll
+    static void parseMapper() throws Exception {
+        configuration.getTypeAliasRegistry().registerAliases("org.x.backend.pojo");
+        configuration.setMapUnderscoreToCamelCase(true);
+        String resource = "org/x/backend/mapper/OmdUserMapper.xml";
+        try (InputStream in = Resources.getResourceAsStream(resource)) {
+            new XMLMapperBuilder(in, configuration, resource, configuration.getSqlFragments()).parse();
+        }
+    }
+
+    @Test
+    void backfillOnlySeedsCommentsWithoutSelfRow() {
+        String sql = sql("backfillCommentClosure");
+
+        // 已有的闭包关系跳过，不会因主键冲突失败
+        assertTrue(sql.startsWith("INSERT IGNORE INTO tb_omd_music_comment_closure"), sql);
+        // 递归的起点只取缺少自身关系（祖先与子孙相同）的评论，而不是全部评论
+        String seed = sql.substring(sql.indexOf("WITH RECURSIVE affected AS"), sql.indexOf("UNION SELECT"));
+        assertTrue(seed.contains("WHERE NOT EXISTS ( SELECT 1 FROM tb_omd_music_comment_closure cl "
+                + "WHERE cl.ancestor_id = c.omd_music_comment_id AND cl.descendant_id = c.omd_music_comment_id )"), seed);
+        // 缺失评论的子孙一并补全，再沿父评论向上生成祖先关系
+        assertTrue(sql.contains("JOIN tb_omd_music_comment c ON c.omd_music_comment_parent_id = a.comment_id"), sql);
+        assertTrue(sql.contains("JOIN tb_omd_music_comment p ON p.omd_music_comment_id = c.omd_music_comment_parent_id"), sql);
+    }
+
+    @Test
+    void subtreeDeleteAndInsertAreBoundByCommentId() {
+        Map<String, Object> parameter = new HashMap<>();
+        parameter.put("omdMusicCommentId", 7L);
+        parameter.put("omdMusicCommentParentId", 3L);
+
+        assertTrue(sql("deleteCommentSubtree").endsWith("WHERE sub.ancestor_id = ?"));
+        assertEquals(1, configuration.getMappedStatement("org.x.backend.mapper.OmdUserMapper.deleteCommentSubtree")
+                .getBoundSql(parameter).getParameterMappings().size());
+        assertEquals(4, configuration.getMappedStatement("org.x.backend.mapper.OmdUserMapper.insertCommentClosure")
+                .getBoundSql(parameter).getParameterMappings().size());
+    }
+
+    // 去掉多余空白后的 SQL
+    private static String sql(String id) {
+        return configuration.getMappedStatement("org.x.backend.mapper.OmdUserMapper." + id)
+                .getBoundSql(new HashMap<>()).getSql().replaceAll("\\s+", " ").trim();
+    }
+}
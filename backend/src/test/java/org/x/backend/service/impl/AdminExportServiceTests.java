@@ -0,0 +1,218 @@
+package org.x.backend.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.ibatis.cursor.Cursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.x.backend.mapper.OmdAdminMapper;
+import org.x.backend.mapper.OmdMusicMapper;
+import org.x.backend.pojo.OmdMusicInfo;
+import org.x.backend.pojo.OmdSinger;
+import org.x.backend.pojo.OmdUser;
+import org.x.backend.service.impl.AdminExportService.Format;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdminExportServiceTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    // 游标返回的用户和歌曲
+    private final List<OmdUser> users = new ArrayList<>();
+    private final List<OmdMusicInfo> musicInfos = new ArrayList<>();
+    // 游标每读出一行时输出流中已有的字节数
+    private final List<Integer> writtenBeforeRow = new ArrayList<>();
+    private boolean cursorClosed;
+
+    private final AdminExportService service = new AdminExportService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "omdAdminMapper", Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{OmdAdminMapper.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("streamAllUsers")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    return cursor(users);
+                }));
+        ReflectionTestUtils.setField(service, "omdMusicMapper", Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{OmdMusicMapper.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("streamAllMusicInfoList")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    return cursor(musicInfos);
+                }));
+        ReflectionTestUtils.setField(service, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(service, "flushRows", 1000);
+    }
+
+    @Test
+    void csvHasBomHeaderAndNoPasswordColumn() {
+        OmdUser user = user(1, "alice");
+        // 2023-11-14 22:13:20 UTC，导出为东八区时间
+        user.setOmdUserCreateTime(new Date(1_700_000_000_000L));
+        users.add(user);
+
+        service.exportUsers(Format.CSV, output);
+
+        String[] lines = csv().split("\r\n");
+        assertTrue(lines[0].startsWith("\uFEFFomdUserId,omdUserName,"));
+        assertFalse(lines[0].contains("Password"));
+        assertEquals("1,alice,,,,,,,,,2023-11-15 06:13:20", lines[1]);
+        assertFalse(csv().contains("secret"));
+        assertTrue(cursorClosed);
+    }
+
+    @Test
+    void csvEscapesSeparatorsQuotesNewlinesAndFormulas() {
+        OmdUser user = user(1, "a,b");
+        user.setOmdUserNickname("say \"hi\"");
+        user.setOmdUserRemark("line1\nline2");
+        user.setOmdUserEmail("=HYPERLINK(\"x\")");
+        user.setOmdUserPhone("+8613800000000");
+        users.add(user);
+
+        service.exportUsers(Format.CSV, output);
+
+        String row = csv().split("\r\n", 2)[1];
+        assertTrue(row.startsWith("1,\"a,b\",\"say \"\"hi\"\"\",'+8613800000000,\"'=HYPERLINK(\"\"x\"\")\","), row);
+        assertTrue(row.contains(",\"line1\nline2\","), row);
+    }
+
+    @Test
+    void ndjsonWritesOneObjectPerLineWithFixedColumns() throws Exception {
+        musicInfos.add(music(1, "晴天", "周杰伦"));
+        musicInfos.add(music(2, "七里香", null));
+
+        service.exportMusicInfo(Format.NDJSON, output);
+
+        String text = output.toString(StandardCharsets.UTF_8);
+        assertTrue(text.endsWith("\n"));
+        String[] lines = text.split("\n");
+        assertEquals(2, lines.length);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals(11, first.size());
+        assertEquals("晴天", first.get("omdMusicInfoName").asText());
+        assertEquals("周杰伦", first.get("omdSingerName").asText());
+        assertTrue(objectMapper.readTree(lines[1]).get("omdSingerName").isNull());
+        assertTrue(cursorClosed);
+    }
+
+    @Test
+    void emptyNdjsonExportWritesNothing() {
+        service.exportUsers(Format.NDJSON, output);
+
+        assertEquals(0, output.size());
+    }
+
+    @Test
+    void ndjsonRowsReachOutputStreamEveryFlushRows() {
+        assertFlushedEveryTwoRows(Format.NDJSON);
+        assertEquals(5, output.toString(StandardCharsets.UTF_8).split("\n").length);
+    }
+
+    @Test
+    void csvRowsReachOutputStreamEveryFlushRows() {
+        assertFlushedEveryTwoRows(Format.CSV);
+        assertEquals(6, csv().split("\r\n").length);
+    }
+
+    // 导出5个用户、每2行刷新一次：读第3行前前2行已经写出，读第5行前前4行已经写出，其余时候缓冲区未刷新
+    private void assertFlushedEveryTwoRows(Format format) {
+        ReflectionTestUtils.setField(service, "flushRows", 2);
+        LongStream.rangeClosed(1, 5).forEach(id -> users.add(user(id, "user" + id)));
+
+        service.exportUsers(format, output);
+
+        assertEquals(0, writtenBeforeRow.get(0));
+        assertEquals(writtenBeforeRow.get(0), writtenBeforeRow.get(1));
+        assertTrue(writtenBeforeRow.get(2) > 0);
+        assertEquals(writtenBeforeRow.get(2), writtenBeforeRow.get(3));
+        assertTrue(writtenBeforeRow.get(4) > writtenBeforeRow.get(3));
+    }
+
+    @Test
+    void unknownFormatIsRejected() {
+        assertEquals(Format.CSV, Format.of("csv"));
+        assertEquals(Format.NDJSON, Format.of("NDJSON"));
+        assertThrows(RuntimeException.class, () -> Format.of("xlsx"));
+    }
+
+    private String csv() {
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    // 按行返回数据的游标，记录每行被读出时输出流的大小
+    private <T> Cursor<T> cursor(List<T> rows) {
+        Iterator<T> iterator = rows.iterator();
+        return new Cursor<>() {
+            @Override
+            public boolean isOpen() {
+                return !cursorClosed;
+            }
+
+            @Override
+            public boolean isConsumed() {
+                return !iterator.hasNext();
+            }
+
+            @Override
+            public int getCurrentIndex() {
+                return writtenBeforeRow.size() - 1;
+            }
+
+            @Override
+            public void close() {
+                cursorClosed = true;
+            }
+
+            @Override
+            public Iterator<T> iterator() {
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public T next() {
+                        writtenBeforeRow.add(output.size());
+                        return iterator.next();
+                    }
+                };
+            }
+        };
+    }
+
+    private static OmdUser user(long id, String name) {
+        OmdUser user = new OmdUser();
+        user.setOmdUserId(id);
+        user.setOmdUserName(name);
+        user.setOmdUserPassword("secret");
+        return user;
+    }
+
+    private static OmdMusicInfo music(long id, String name, String singerName) {
+        OmdMusicInfo musicInfo = new OmdMusicInfo();
+        musicInfo.setOmdMusicInfoId(id);
+        musicInfo.setOmdMusicInfoName(name);
+        if (singerName != null) {
+            OmdSinger singer = new OmdSinger();
+            singer.setOmdSingerName(singerName);
+            musicInfo.setOmdSinger(singer);
+        }
+        return musicInfo;
+    }
+}
@@ -0,0 +1,146 @@
+package org.x.backend.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.x.backend.pojo.OmdMusicInfo;
+import org.x.backend.pojo.OmdMusicTopVO;
+import org.x.backend.pojo.OmdSinger;
+import org.x.backend.service.OmdPublicService;
+import org.x.backend.service.impl.MusicChartService.ChartWindow;
+import org.x.backend.utils.HelperUtil;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChartSnapshotServiceTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // 每个榜单的歌曲数，以及 Redis / 数据库的访问记录
+    private int chartSize = 150;
+    private double playScale = 1;
+    private final List<Integer> redisLimits = new ArrayList<>();
+    private int databaseQueries;
+
+    private ChartSnapshotService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ChartSnapshotService();
+        ReflectionTestUtils.setField(service, "musicChartService", new MusicChartService() {
+            @Override
+            public List<OmdMusicTopVO> getTopMusic(String segment, ChartWindow window, int limit) {
+                redisLimits.add(limit);
+                return LongStream.rangeClosed(1, Math.min(limit, chartSize))
+                        .mapToObj(id -> new OmdMusicTopVO(id, (1000 - id) * playScale))
+                        .toList();
+            }
+        });
+        ReflectionTestUtils.setField(service, "omdPublicService", Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{OmdPublicService.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("getMusicInfoByIdList")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    databaseQueries++;
+                    return ((List<?>) args[0]).stream().map(id -> music((Long) id)).toList();
+                }));
+        ReflectionTestUtils.setField(service, "helperUtil", new HelperUtil());
+        ReflectionTestUtils.setField(service, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(service, "snapshotLimits", List.of(10, 20, 50));
+    }
+
+    @Test
+    void refreshQueriesEachWindowOnceAtMaxLimit() {
+        service.refreshSnapshots();
+
+        // 3 个窗口 × 3 个榜单各查一次 Redis，每个窗口查一次数据库
+        assertEquals(9, redisLimits.size());
+        assertTrue(redisLimits.stream().allMatch(limit -> limit == MusicChartService.MAX_LIMIT));
+        assertEquals(3, databaseQueries);
+    }
+
+    @Test
+    void anyLimitIsServedFromSnapshotWithoutRedisOrDatabase() throws IOException {
+        service.refreshSnapshots();
+        redisLimits.clear();
+        databaseQueries = 0;
+
+        ChartSnapshotService.Snapshot precomputed = service.getSnapshot(ChartWindow.LAST_7_DAYS, 20);
+        ChartSnapshotService.Snapshot onDemand = service.getSnapshot(ChartWindow.LAST_7_DAYS, 7);
+
+        assertTrue(redisLimits.isEmpty());
+        assertEquals(0, databaseQueries);
+        assertEquals(20, rows(precomputed, "totalRankData").size());
+        assertEquals(7, rows(onDemand, "guestRankData").size());
+        // 首次请求后缓存到下次刷新
+        assertSame(onDemand, service.getSnapshot(ChartWindow.LAST_7_DAYS, 7));
+    }
+
+    @Test
+    void limitIsClampedToValidRange() throws IOException {
+        service.refreshSnapshots();
+
+        assertSame(service.getSnapshot(ChartWindow.LAST_24_HOURS, MusicChartService.MAX_LIMIT),
+                service.getSnapshot(ChartWindow.LAST_24_HOURS, 10_000));
+        assertSame(service.getSnapshot(ChartWindow.LAST_24_HOURS, 1),
+                service.getSnapshot(ChartWindow.LAST_24_HOURS, 0));
+        assertEquals(MusicChartService.MAX_LIMIT, rows(service.getSnapshot(ChartWindow.LAST_24_HOURS, 10_000), "userRankData").size());
+    }
+
+    @Test
+    void snapshotIsPrefixOfFullChartWithMusicInfo() throws IOException {
+        service.refreshSnapshots();
+
+        JsonNode top = rows(service.getSnapshot(ChartWindow.LAST_30_DAYS, 3), "totalRankData");
+
+        assertEquals(3, top.size());
+        assertEquals(1, top.get(0).get("omdMusicInfoId").asLong());
+        assertEquals("歌曲3", top.get(2).get("omdMusicInfoName").asText());
+        assertEquals(997, top.get(2).get("playCount").asDouble());
+    }
+
+    @Test
+    void etagChangesOnlyWhenChartChanges() {
+        service.refreshSnapshots();
+        String first = service.getSnapshot(ChartWindow.LAST_7_DAYS, 10).etag();
+
+        service.refreshSnapshots();
+        assertEquals(first, service.getSnapshot(ChartWindow.LAST_7_DAYS, 10).etag());
+
+        playScale = 2;
+        service.refreshSnapshots();
+        assertNotEquals(first, service.getSnapshot(ChartWindow.LAST_7_DAYS, 10).etag());
+    }
+
+    @Test
+    void chartIsBuiltLiveBeforeFirstRefresh() throws IOException {
+        chartSize = 5;
+
+        ChartSnapshotService.Snapshot snapshot = service.getSnapshot(ChartWindow.LAST_24_HOURS, 10);
+
+        assertEquals(List.of(10, 10, 10), redisLimits);
+        assertEquals(5, rows(snapshot, "totalRankData").size());
+    }
+
+    private JsonNode rows(ChartSnapshotService.Snapshot snapshot, String chart) throws IOException {
+        return objectMapper.readTree(snapshot.body()).get("data").get(chart);
+    }
+
+    private static OmdMusicInfo music(long id) {
+        OmdSinger singer = new OmdSinger();
+        singer.setOmdSingerName("歌手" + id);
+        OmdMusicInfo musicInfo = new OmdMusicInfo();
+        musicInfo.setOmdMusicInfoId(id);
+        musicInfo.setOmdMusicInfoName("歌曲" + id);
+        musicInfo.setOmdSinger(singer);
+        return musicInfo;
+    }
+}
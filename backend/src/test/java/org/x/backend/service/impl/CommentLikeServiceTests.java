@@ -0,0 +1,406 @@
+package org.x.backend.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.x.backend.mapper.OmdMusicMapper;
+import org.x.backend.mapper.OmdUserMapper;
+import org.x.backend.pojo.OmdCommentLike;
+import org.x.backend.pojo.OmdMusicComment;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommentLikeServiceTests {
+
+    // 内存中的 Redis 字符串、哈希和集合
+    private final Map<String, String> strings = new HashMap<>();
+    private final Map<String, Map<Object, Object>> hashes = new HashMap<>();
+    private final Map<String, Set<String>> sets = new HashMap<>();
+
+    // 数据库中已提交的点赞记录（评论ID:用户ID）、评论点赞数和刷盘批次，以及当前事务中未提交的副本
+    private Set<String> likeRecords = new HashSet<>();
+    private Map<Long, Long> likeCounts = new HashMap<>();
+    private Set<String> batches = new HashSet<>();
+    private Set<String> txLikeRecords;
+    private Map<Long, Long> txLikeCounts;
+    private Set<String> txBatches;
+    private int commits;
+    private int reconciles;
+
+    // 写入点赞数时执行的额外动作
+    private Runnable onIncrement = () -> { };
+
+    private CommentLikeService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new CommentLikeService();
+        ReflectionTestUtils.setField(service, "stringRedisTemplate", new FakeRedis());
+        ReflectionTestUtils.setField(service, "omdUserMapper", fakeUserMapper());
+        ReflectionTestUtils.setField(service, "omdMusicMapper", fakeMusicMapper());
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "transactionManager", new FakeTransactionManager());
+        ReflectionTestUtils.setField(service, "expireHours", 24L);
+        ReflectionTestUtils.setField(service, "flushLockMs", 60000L);
+        ReflectionTestUtils.setField(service, "flushBatchSize", 2);
+        service.init();
+        // 评论1已被用户7点赞
+        likeRecords.add("1:7");
+        likeCounts.put(1L, 1L);
+        likeCounts.put(2L, 0L);
+    }
+
+    @Test
+    void reloadedLikeSetKeepsPendingChangesOfThatCommentOnly() {
+        assertTrue(service.toggle(1L, 8L));
+        assertTrue(service.toggle(2L, 9L));
+        // 点赞集合过期，用户8的点赞尚未刷盘
+        sets.remove("comment:like:set:1");
+
+        assertTrue(service.toggle(1L, 9L));
+
+        // 数据库中的7 + 待持久化的8 + 本次的9；用户9对评论2的点赞不会混入
+        assertEquals(Set.of("0", "7", "8", "9"), sets.get("comment:like:set:1"));
+        assertFalse(service.toggle(1L, 8L));
+    }
+
+    @Test
+    void likedFlagsIncludePendingChanges() {
+        service.toggle(1L, 8L);
+        service.toggle(2L, 8L);
+        service.toggle(2L, 8L);
+
+        assertEquals(Map.of(1L, true, 2L, false), service.getLikedFlags(8L, List.of(1L, 2L)));
+        assertEquals(Map.of(1L, true, 2L, false), service.getLikedFlags(7L, List.of(1L, 2L)));
+    }
+
+    @Test
+    void flushWritesRecordsAndTrimsPendingIndex() {
+        service.toggle(1L, 8L);
+        service.toggle(1L, 7L);
+        service.toggle(2L, 8L);
+
+        service.flush();
+
+        assertEquals(Set.of("1:8", "2:8"), likeRecords);
+        assertEquals(Map.of(1L, 1L, 2L, 1L), likeCounts);
+        assertEquals(1, commits);
+        assertEquals(1, batches.size());
+        assertTrue(sets.get("comment:like:pending:comment:1").isEmpty());
+        assertTrue(sets.get("comment:like:pending:user:8").isEmpty());
+        assertFalse(hashes.containsKey("comment:like:pending:flushing"));
+        assertFalse(strings.containsKey("comment:like:flushing:batch"));
+        assertEquals("1", strings.get("comment:like:flush:epoch"));
+        assertFalse(strings.containsKey("comment:like:flush:lock"));
+    }
+
+    @Test
+    void changeDuringFlushStaysInPendingIndex() {
+        service.toggle(1L, 8L);
+        // 写库期间用户8取消点赞
+        onIncrement = () -> service.toggle(1L, 8L);
+
+        service.flush();
+
+        assertEquals(Set.of("8"), sets.get("comment:like:pending:comment:1"));
+        assertEquals("0", hashes.get("comment:like:pending").get("1:8"));
+        // 重新加载点赞集合时叠加这次取消
+        sets.remove("comment:like:set:1");
+        onIncrement = () -> { };
+        assertTrue(service.toggle(1L, 9L));
+        assertEquals(Set.of("0", "7", "9"), sets.get("comment:like:set:1"));
+    }
+
+    @Test
+    void committedBatchIsNotAppliedAgainAfterLockLoss() {
+        service.toggle(1L, 8L);
+        service.toggle(2L, 8L);
+        // 写库期间锁过期并被其它实例获得
+        onIncrement = () -> strings.put("comment:like:flush:lock", "other");
+
+        service.flush();
+
+        assertEquals(2L, likeCounts.get(1L));
+        // 不再持有锁时不收尾，也不删除其它实例的锁
+        assertTrue(hashes.containsKey("comment:like:delta:flushing"));
+        assertEquals("other", strings.get("comment:like:flush:lock"));
+
+        // 其它实例的锁过期后重试：批次已记录，只收尾，不重复累加
+        strings.remove("comment:like:flush:lock");
+        onIncrement = () -> { };
+        service.flush();
+
+        assertEquals(Map.of(1L, 2L, 2L, 1L), likeCounts);
+        assertEquals(1, batches.size());
+        assertFalse(hashes.containsKey("comment:like:delta:flushing"));
+        assertEquals("1", strings.get("comment:like:flush:epoch"));
+    }
+
+    @Test
+    void flushIsSkippedWhileAnotherInstanceHoldsTheLock() {
+        service.toggle(1L, 8L);
+        strings.put("comment:like:flush:lock", "other");
+
+        service.flush();
+
+        assertEquals(0, commits);
+        assertEquals("other", strings.get("comment:like:flush:lock"));
+        assertTrue(hashes.containsKey("comment:like:pending"));
+    }
+
+    @Test
+    void startupReconcileIsOptIn() {
+        service.onApplicationReady();
+        assertEquals(0, reconciles);
+
+        ReflectionTestUtils.setField(service, "reconcileOnStartup", true);
+        service.toggle(1L, 8L);
+        service.onApplicationReady();
+
+        assertEquals(1, reconciles);
+        assertEquals(Set.of("1:7", "1:8"), likeRecords);
+        assertFalse(strings.containsKey("comment:like:flush:lock"));
+    }
+
+    private OmdUserMapper fakeUserMapper() {
+        return (OmdUserMapper) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{OmdUserMapper.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findCommentByOmdMusicCommentId" -> new OmdMusicComment();
+                    case "getCommentLikeUserIds" -> likeRecords.stream()
+                            .filter(record -> record.startsWith(args[0] + ":"))
+                            .map(record -> Long.valueOf(record.substring(record.indexOf(':') + 1))).toList();
+                    case "getLikedCommentIdsByUserId" -> likeRecords.stream()
+                            .filter(record -> record.endsWith(":" + args[0]))
+                            .map(record -> Long.valueOf(record.substring(0, record.indexOf(':')))).toList();
+                    case "batchInsertCommentLike" -> (int) records(args[0]).stream().filter(txLikeRecords::add).count();
+                    case "batchDeleteCommentLike" -> (int) records(args[0]).stream().filter(txLikeRecords::remove).count();
+                    case "batchIncrementCommentLikeCount" -> {
+                        onIncrement.run();
+                        @SuppressWarnings("unchecked")
+                        List<OmdMusicComment> deltas = (List<OmdMusicComment>) args[0];
+                        for (OmdMusicComment delta : deltas) {
+                            txLikeCounts.merge(delta.getOmdMusicCommentId(), delta.getOmdMusicCommentLikeCount(), Long::sum);
+                        }
+                        yield deltas.size();
+                    }
+                    case "reconcileCommentLikeCounts" -> {
+                        reconciles++;
+                        yield 0;
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private OmdMusicMapper fakeMusicMapper() {
+        return (OmdMusicMapper) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{OmdMusicMapper.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "createFlushBatchTable" -> null;
+                    case "deleteFlushBatchBefore" -> 0;
+                    case "insertFlushBatch" -> txBatches.add((String) args[1]) ? 1 : 0;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> records(Object list) {
+        return ((List<OmdCommentLike>) list).stream()
+                .map(like -> like.getOmdMusicCommentId() + ":" + like.getOmdUserId()).toList();
+    }
+
+    // 事务开始时复制数据库状态，提交时替换，回滚时丢弃
+    private class FakeTransactionManager implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            txLikeRecords = new HashSet<>(likeRecords);
+            txLikeCounts = new HashMap<>(likeCounts);
+            txBatches = new HashSet<>(batches);
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            likeRecords = txLikeRecords;
+            likeCounts = txLikeCounts;
+            batches = txBatches;
+            commits++;
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+
+    // 按脚本对象分派，用 Java 实现与 Lua 脚本相同的逻辑
+    private class FakeRedis extends StringRedisTemplate {
+
+        private Object script(String name) {
+            return ReflectionTestUtils.getField(CommentLikeService.class, name);
+        }
+
+        private Set<String> set(String key) {
+            return sets.computeIfAbsent(key, k -> new HashSet<>());
+        }
+
+        private Map<Object, Object> hash(String key) {
+            return hashes.computeIfAbsent(key, k -> new HashMap<>());
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+            if (script == script("TOGGLE_SCRIPT")) {
+                if (!sets.containsKey(keys.get(0))) {
+                    return (T) Long.valueOf(-1);
+                }
+                String commentId = args[0].toString();
+                String userId = args[1].toString();
+                boolean liked = set(keys.get(0)).add(userId);
+                if (!liked) {
+                    set(keys.get(0)).remove(userId);
+                }
+                hash(keys.get(1)).merge(commentId, String.valueOf(liked ? 1 : -1),
+                        (a, b) -> String.valueOf(Long.parseLong(a.toString()) + Long.parseLong(b.toString())));
+                hash(keys.get(2)).put(commentId + ":" + userId, liked ? "1" : "0");
+                if (sets.containsKey(keys.get(3))) {
+                    if (liked) {
+                        set(keys.get(3)).add(commentId);
+                    } else {
+                        set(keys.get(3)).remove(commentId);
+                    }
+                }
+                set(keys.get(4)).add(userId);
+                set(keys.get(5)).add(commentId);
+                return (T) Long.valueOf(liked ? 1 : 0);
+            }
+            if (script == script("FILL_SCRIPT")) {
+                if (sets.containsKey(keys.get(0))) {
+                    return (T) Long.valueOf(1);
+                }
+                if (!strings.getOrDefault(keys.get(3), "0").equals(args[0])) {
+                    return (T) Long.valueOf(0);
+                }
+                Set<String> filled = set(keys.get(0));
+                Arrays.stream(args, 4, args.length).forEach(member -> filled.add(member.toString()));
+                // 只按索引成员读取记录（HMGET），不遍历整个哈希
+                boolean byPrefix = "prefix".equals(args[2]);
+                for (String other : sets.getOrDefault(keys.get(4), Set.of())) {
+                    String field = byPrefix ? args[3] + ":" + other : other + ":" + args[3];
+                    for (String hashKey : List.of(keys.get(1), keys.get(2))) {
+                        Object state = hashes.getOrDefault(hashKey, Map.of()).get(field);
+                        if ("1".equals(state)) {
+                            filled.add(other);
+                        } else if ("0".equals(state)) {
+                            filled.remove(other);
+                        }
+                    }
+                }
+                return (T) Long.valueOf(1);
+            }
+            if (script == script("FLUSH_BEGIN_SCRIPT")) {
+                if (hashes.containsKey(keys.get(2)) || hashes.containsKey(keys.get(3))) {
+                    return (T) strings.computeIfAbsent(keys.get(4), k -> args[0].toString());
+                }
+                boolean found = false;
+                for (int i = 0; i < 2; i++) {
+                    if (hashes.containsKey(keys.get(i))) {
+                        hashes.put(keys.get(i + 2), hashes.remove(keys.get(i)));
+                        found = true;
+                    }
+                }
+                if (!found) {
+                    return null;
+                }
+                strings.put(keys.get(4), args[0].toString());
+                return (T) args[0].toString();
+            }
+            if (script == script("FLUSH_DONE_SCRIPT")) {
+                if (!args[0].equals(strings.get(keys.get(4)))) {
+                    return null;
+                }
+                hashes.remove(keys.get(0));
+                hashes.remove(keys.get(1));
+                strings.remove(keys.get(2));
+                long epoch = Long.parseLong(strings.getOrDefault(keys.get(3), "0")) + 1;
+                strings.put(keys.get(3), String.valueOf(epoch));
+                return (T) Long.valueOf(epoch);
+            }
+            if (script == script("PENDING_TRIM_SCRIPT")) {
+                for (int n = 1; n <= args.length / 2; n++) {
+                    String commentId = args[2 * n - 2].toString();
+                    String userId = args[2 * n - 1].toString();
+                    String field = commentId + ":" + userId;
+                    if (!hashes.getOrDefault(keys.get(0), Map.of()).containsKey(field)
+                            && !hashes.getOrDefault(keys.get(1), Map.of()).containsKey(field)) {
+                        set(keys.get(2 * n)).remove(userId);
+                        set(keys.get(2 * n + 1)).remove(commentId);
+                    }
+                }
+                return (T) Long.valueOf(1);
+            }
+            if (script == script("LOCK_RELEASE_SCRIPT")) {
+                return (T) Long.valueOf(args[0].equals(strings.get(keys.get(0))) && strings.remove(keys.get(0)) != null ? 1 : 0);
+            }
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Boolean hasKey(String key) {
+            return sets.containsKey(key) || hashes.containsKey(key) || strings.containsKey(key);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public ValueOperations<String, String> opsForValue() {
+            return (ValueOperations<String, String>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{ValueOperations.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "setIfAbsent" -> strings.putIfAbsent((String) args[0], (String) args[1]) == null;
+                        case "get" -> strings.get(args[0]);
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <HK, HV> HashOperations<String, HK, HV> opsForHash() {
+            return (HashOperations<String, HK, HV>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{HashOperations.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "entries" -> new HashMap<>(hashes.getOrDefault(args[0], Map.of()));
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public SetOperations<String, String> opsForSet() {
+            return (SetOperations<String, String>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{SetOperations.class}, (proxy, method, args) -> {
+                        if (!method.getName().equals("isMember") || !(args[1] instanceof Object[] members)) {
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                        Map<Object, Boolean> result = new HashMap<>();
+                        for (Object member : members) {
+                            result.put(member, sets.getOrDefault(args[0], Set.of()).contains(member.toString()));
+                        }
+                        return result;
+                    });
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package org.x.backend.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.x.backend.mapper.OmdPublicMapper;
+import org.x.backend.mapper.OmdUserMapper;
+import org.x.backend.pojo.OmdMusicComment;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommentTreeServiceTests {
+
+    // 子评论查询返回的数据，以及每次查询传入的父评论ID和条数
+    private final List<OmdMusicComment> replies = new ArrayList<>();
+    private final List<List<Long>> queriedParentIds = new ArrayList<>();
+    private final List<Integer> queriedLimits = new ArrayList<>();
+    // 启动时对闭包表的调用；为 true 时建表失败
+    private final List<String> closureCalls = new ArrayList<>();
+    private boolean createTableFails;
+
+    private final CommentTreeService service = new CommentTreeService();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ReflectionTestUtils.setField(service, "omdPublicMapper", Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{OmdPublicMapper.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("getTopRepliesByParentIds")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    queriedParentIds.add(List.copyOf((List<Long>) args[0]));
+                    queriedLimits.add((Integer) args[1]);
+                    return replies;
+                }));
+        ReflectionTestUtils.setField(service, "omdUserMapper", Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{OmdUserMapper.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "createCommentClosureTable" -> {
+                        closureCalls.add(method.getName());
+                        if (createTableFails) {
+                            throw new IllegalStateException("数据库不可用");
+                        }
+                        yield null;
+                    }
+                    case "backfillCommentClosure" -> {
+                        closureCalls.add(method.getName());
+                        yield 3;
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                }));
+        ReflectionTestUtils.setField(service, "replyPreviewSize", 3);
+    }
+
+    @Test
+    void wholePageLoadsRepliesWithOneQuery() {
+        List<OmdMusicComment> page = List.of(comment(1L, null, 2), comment(2L, null, 1), comment(3L, null, 5));
+        replies.add(comment(11L, 1L, 0));
+        replies.add(comment(12L, 1L, 0));
+        replies.add(comment(31L, 3L, 0));
+        replies.add(comment(21L, 2L, 0));
+
+        assertSame(page, service.attachReplies(page));
+
+        assertEquals(List.of(List.of(1L, 2L, 3L)), queriedParentIds);
+        assertEquals(List.of(3), queriedLimits);
+        assertEquals(List.of(11L, 12L), ids(page.get(0).getOmdMusicCommentReplies()));
+        assertEquals(List.of(21L), ids(page.get(1).getOmdMusicCommentReplies()));
+        assertEquals(List.of(31L), ids(page.get(2).getOmdMusicCommentReplies()));
+    }
+
+    @Test
+    void parentsWithoutRepliesAreNotQueried() {
+        List<OmdMusicComment> page = List.of(comment(1L, null, 0), comment(2L, null, null), comment(3L, null, 4));
+
+        service.attachReplies(page);
+
+        // 子评论数未知时仍然查询
+        assertEquals(List.of(List.of(2L, 3L)), queriedParentIds);
+        page.forEach(parent -> assertTrue(parent.getOmdMusicCommentReplies().isEmpty()));
+    }
+
+    @Test
+    void pageWithoutRepliesSkipsQueryAndClearsStaleReplies() {
+        OmdMusicComment parent = comment(1L, null, 0);
+        parent.getOmdMusicCommentReplies().add(comment(99L, 1L, 0));
+
+        service.attachReplies(List.of(parent));
+
+        assertTrue(queriedParentIds.isEmpty());
+        assertTrue(parent.getOmdMusicCommentReplies().isEmpty());
+    }
+
+    @Test
+    void repliesOfUnknownParentsAreIgnored() {
+        List<OmdMusicComment> page = List.of(comment(1L, null, 1));
+        replies.add(comment(11L, 1L, 0));
+        replies.add(comment(91L, 9L, 0));
+
+        service.attachReplies(page);
+
+        assertEquals(List.of(11L), ids(page.get(0).getOmdMusicCommentReplies()));
+    }
+
+    @Test
+    void emptyPageOrDisabledPreviewSkipsQuery() {
+        assertNull(service.attachReplies(null));
+        assertTrue(service.attachReplies(List.of()).isEmpty());
+
+        ReflectionTestUtils.setField(service, "replyPreviewSize", 0);
+        OmdMusicComment parent = comment(1L, null, 2);
+        service.attachReplies(List.of(parent));
+
+        assertTrue(queriedParentIds.isEmpty());
+    }
+
+    @Test
+    void initCreatesTableThenBackfills() {
+        service.init();
+
+        assertEquals(List.of("createCommentClosureTable", "backfillCommentClosure"), closureCalls);
+    }
+
+    @Test
+    void initFailureDoesNotPreventStartup() {
+        createTableFails = true;
+
+        assertDoesNotThrow(service::init);
+        assertEquals(List.of("createCommentClosureTable"), closureCalls);
+    }
+
+    private static List<Long> ids(List<OmdMusicComment> comments) {
+        return comments.stream().map(OmdMusicComment::getOmdMusicCommentId).toList();
+    }
+
+    private static OmdMusicComment comment(Long id, Long parentId, Integer replyCount) {
+        OmdMusicComment comment = new OmdMusicComment();
+        comment.setOmdMusicCommentId(id);
+        comment.setOmdMusicCommentParentId(parentId);
+        comment.setOmdMusicCommentReplyCount(replyCount);
+        return comment;
+    }
+}
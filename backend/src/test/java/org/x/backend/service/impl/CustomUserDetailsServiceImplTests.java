@@ -0,0 +1,172 @@
+package org.x.backend.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.x.backend.mapper.OmdRolePermissionMapper;
+import org.x.backend.mapper.OmdUserRoleMapper;
+import org.x.backend.mapper.UserDetailsMapper;
+import org.x.backend.pojo.OmdRole;
+import org.x.backend.pojo.OmdUser;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CustomUserDetailsServiceImplTests {
+
+    // 数据库中的用户状态与角色，以及按用户ID查询的次数
+    private final Map<Long, Integer> userStatus = new HashMap<>();
+    private final Map<Long, String> userRole = new HashMap<>();
+    private int userQueries;
+    private final List<String> published = new ArrayList<>();
+
+    private CustomUserDetailsServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        userStatus.put(1L, 1);
+        userRole.put(1L, "USER");
+        service = new CustomUserDetailsServiceImpl(userDetailsMapper(), roleMapper(), rolePermissionMapper(),
+                new StringRedisTemplate() {
+                    @Override
+                    public Long convertAndSend(String channel, Object message) {
+                        assertEquals(CustomUserDetailsServiceImpl.USER_DETAILS_INVALIDATE_CHANNEL, channel);
+                        published.add(String.valueOf(message));
+                        return 1L;
+                    }
+                },
+                new RedisMessageListenerContainer() {
+                    @Override
+                    public void addMessageListener(MessageListener listener, Topic topic) {
+                    }
+                });
+        ReflectionTestUtils.setField(service, "maximumSize", 100L);
+        ReflectionTestUtils.setField(service, "expireMinutes", 10L);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void userDetailsAreServedFromCache() {
+        service.loadUserById(1L);
+        service.loadUserById(1L);
+
+        assertEquals(1, userQueries);
+    }
+
+    @Test
+    void evictOutsideTransactionBroadcastsImmediately() {
+        assertTrue(service.loadUserById(1L).isEnabled());
+        userStatus.put(1L, 0);
+
+        service.evictUser(1L);
+
+        assertFalse(service.loadUserById(1L).isEnabled());
+        assertEquals(List.of("1"), published);
+    }
+
+    @Test
+    void evictInTransactionBroadcastsAfterCommit() {
+        service.loadUserById(1L);
+        TransactionSynchronizationManager.initSynchronization();
+
+        service.evictUser(1L);
+        assertTrue(published.isEmpty());
+
+        // 提交前有并发请求把旧数据重新加载进缓存
+        service.loadUserById(1L);
+        userRole.put(1L, "SINGER");
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        assertEquals(List.of("1"), published);
+        assertTrue(hasAuthority(service.loadUserById(1L), "ROLE_SINGER"));
+    }
+
+    @Test
+    void invalidationMessageFromAnotherInstanceDropsLocalEntry() {
+        assertTrue(hasAuthority(service.loadUserById(1L), "ROLE_USER"));
+
+        // 其他实例审核通过了歌手申请并广播失效
+        userRole.put(1L, "SINGER");
+        service.onMessage(message("1"), null);
+
+        assertTrue(hasAuthority(service.loadUserById(1L), "ROLE_SINGER"));
+        assertEquals(2, userQueries);
+        assertTrue(published.isEmpty());
+    }
+
+    @Test
+    void malformedInvalidationMessageIsIgnored() {
+        service.loadUserById(1L);
+
+        service.onMessage(message("not-a-user-id"), null);
+        service.loadUserById(1L);
+
+        assertEquals(1, userQueries);
+    }
+
+    private static boolean hasAuthority(UserDetails userDetails, String authority) {
+        return userDetails.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals(authority));
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage(CustomUserDetailsServiceImpl.USER_DETAILS_INVALIDATE_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private UserDetailsMapper userDetailsMapper() {
+        return (UserDetailsMapper) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{UserDetailsMapper.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("findById")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    userQueries++;
+                    Long id = (Long) args[0];
+                    OmdUser user = new OmdUser();
+                    user.setOmdUserId(id);
+                    user.setOmdUserName("user" + id);
+                    user.setOmdUserPassword("{noop}password");
+                    user.setOmdUserStatus(userStatus.get(id));
+                    return Optional.of(user);
+                });
+    }
+
+    private OmdUserRoleMapper roleMapper() {
+        return (OmdUserRoleMapper) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{OmdUserRoleMapper.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("findRolesByUserId")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    OmdRole role = new OmdRole();
+                    role.setOmdRoleCode(userRole.get((Long) args[0]));
+                    return List.of(role);
+                });
+    }
+
+    private OmdRolePermissionMapper rolePermissionMapper() {
+        return (OmdRolePermissionMapper) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{OmdRolePermissionMapper.class}, (proxy, method, args) -> List.of());
+    }
+}
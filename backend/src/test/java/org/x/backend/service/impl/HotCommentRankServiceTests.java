@@ -0,0 +1,146 @@
+package org.x.backend.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.x.backend.mapper.OmdUserMapper;
+import org.x.backend.pojo.OmdMusicComment;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotCommentRankServiceTests {
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long DAY = TimeUnit.HOURS.toMillis(24);
+
+    // 歌曲的一级评论
+    private final List<OmdMusicComment> comments = new ArrayList<>();
+
+    private HotCommentRankService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new HotCommentRankService();
+        ReflectionTestUtils.setField(service, "stringRedisTemplate", new FakeRedis());
+        ReflectionTestUtils.setField(service, "omdUserMapper", fakeMapper());
+        ReflectionTestUtils.setField(service, "commentLikeService", new CommentLikeService() {
+            @Override
+            public void applyPendingCounts(Collection<OmdMusicComment> comments) {
+            }
+
+            @Override
+            public Map<Long, Boolean> getLikedFlags(Long omdUserId, List<Long> omdMusicCommentIdList) {
+                return Map.of();
+            }
+        });
+        ReflectionTestUtils.setField(service, "decayHours", 24L);
+        ReflectionTestUtils.setField(service, "replyWeight", 2d);
+        ReflectionTestUtils.setField(service, "expireHours", 24L);
+    }
+
+    @Test
+    void moreEngagementRanksHigherAtSameTime() {
+        assertTrue(score(10, 0, NOW) > score(9, 0, NOW));
+        assertTrue(score(0, 1, NOW) > score(1, 0, NOW));
+        assertTrue(score(1, 0, NOW) > score(0, 0, NOW));
+    }
+
+    @Test
+    void oneReplyCountsAsReplyWeightLikes() {
+        assertEquals(score(4, 0, NOW), score(0, 2, NOW), 1e-9);
+        assertEquals(score(6, 1, NOW), score(2, 3, NOW), 1e-9);
+    }
+
+    @Test
+    void olderCommentNeedsDoubleEngagementPerDecayPeriod() {
+        // log2(1+1) + t/d == log2(1+3) + (t-d)/d
+        assertEquals(score(1, 0, NOW), score(3, 0, NOW - DAY), 1e-9);
+        assertEquals(score(1, 0, NOW), score(7, 0, NOW - 2 * DAY), 1e-9);
+        assertTrue(score(0, 0, NOW) > score(0, 0, NOW - 1));
+    }
+
+    @Test
+    void negativeCountsAreTreatedAsZero() {
+        assertEquals(score(0, 0, NOW), score(-5, -1, NOW), 1e-9);
+    }
+
+    @Test
+    void pageIsOrderedByHotScore() {
+        // 相对热度（扣除当前时间项）：log2(1 + 点赞 + 2 × 回复) - 天数
+        comments.add(comment(1, 0, 0, NOW));             // 0
+        comments.add(comment(2, 100, 0, NOW - 3 * DAY)); // log2(101) - 3 ≈ 3.66
+        comments.add(comment(3, 20, 5, NOW - DAY));      // log2(31) - 1 ≈ 3.95
+        comments.add(comment(4, 1, 0, NOW));             // 1
+
+        List<OmdMusicComment> page = service.getHotCommentPage(7L, 1, 10, null).getItems();
+
+        assertEquals(List.of(3L, 2L, 4L, 1L), page.stream().map(OmdMusicComment::getOmdMusicCommentId).toList());
+        assertEquals(List.of(3L, 2L), service.getHotCommentPage(7L, 1, 2, null).getItems().stream()
+                .map(OmdMusicComment::getOmdMusicCommentId).toList());
+        assertEquals(List.of(4L, 1L), service.getHotCommentPage(7L, 2, 2, null).getItems().stream()
+                .map(OmdMusicComment::getOmdMusicCommentId).toList());
+    }
+
+    private static double score(long likes, int replies, long createTime) {
+        return HotCommentRankService.hotScore(likes, replies, createTime, 2, 24);
+    }
+
+    private static OmdMusicComment comment(long id, long likes, int replies, long createTime) {
+        OmdMusicComment comment = new OmdMusicComment();
+        comment.setOmdMusicCommentId(id);
+        comment.setOmdMusicInfoId(7L);
+        comment.setOmdMusicCommentParentId(0L);
+        comment.setOmdMusicCommentLikeCount(likes);
+        comment.setOmdMusicCommentReplyCount(replies);
+        comment.setOmdMusicCommentCreateTime(new Date(createTime));
+        comment.setOmdMusicCommentStatus(1);
+        return comment;
+    }
+
+    private OmdUserMapper fakeMapper() {
+        return (OmdUserMapper) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{OmdUserMapper.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getCommentHotStatListByMusicId" -> new ArrayList<>(comments);
+                    case "getMusicCommentListByIds" -> {
+                        Map<Long, OmdMusicComment> byId = comments.stream()
+                                .collect(Collectors.toMap(OmdMusicComment::getOmdMusicCommentId, comment -> comment));
+                        yield ((List<?>) args[0]).stream().map(byId::get).toList();
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    // 排行未缓存，且填充时版本号不一致（读取期间有评论变更），走内存排序
+    private static class FakeRedis extends StringRedisTemplate {
+
+        @Override
+        public Boolean hasKey(String key) {
+            return false;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public ValueOperations<String, String> opsForValue() {
+            return (ValueOperations<String, String>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{ValueOperations.class}, (proxy, method, args) -> null);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+            return (T) Long.valueOf(0);
+        }
+    }
+}
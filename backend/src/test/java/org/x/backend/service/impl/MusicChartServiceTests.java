@@ -0,0 +1,148 @@
+package org.x.backend.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.x.backend.service.impl.MusicChartService.ChartWindow;
+import org.x.backend.utils.RedisUtil;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MusicChartServiceTests {
+
+    // 2023-11-14 00:00 UTC 的小时序号
+    private static final long DAY = 19_675;
+    private static final long MIDNIGHT = DAY * 24;
+
+    // ZUNIONSTORE 的目标键 -> 源键，以及已存在的键
+    private final Map<String, List<String>> unions = new HashMap<>();
+    private final Set<String> existingKeys = new HashSet<>();
+
+    private MusicChartService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new MusicChartService();
+        ReflectionTestUtils.setField(service, "redisUtil", new RedisUtil(null, null) {
+            @Override
+            public boolean setIfAbsent(String key, Object value, long time, TimeUnit timeUnit) {
+                return true;
+            }
+
+            @Override
+            public boolean hasKey(String key) {
+                return existingKeys.contains(key);
+            }
+
+            @Override
+            public long unionAndStore(String destKey, List<String> sourceKeys, long time, TimeUnit timeUnit) {
+                unions.put(destKey, sourceKeys);
+                return 0;
+            }
+        });
+        ReflectionTestUtils.setField(service, "refreshMs", 60_000L);
+    }
+
+    @Test
+    void everyWindowCoversExactlyItsHoursAtEveryHourOfDay() {
+        for (ChartWindow window : ChartWindow.values()) {
+            for (long currentHour = MIDNIGHT; currentHour < MIDNIGHT + 48; currentHour++) {
+                List<Long> hours = coveredHours(MusicChartService.windowSourceKeys("total", window, currentHour));
+
+                List<Long> expected = LongStream.rangeClosed(currentHour - window.getHours() + 1, currentHour)
+                        .boxed().toList();
+                assertEquals(expected, hours, window.getCode() + " @ " + currentHour);
+            }
+        }
+    }
+
+    @Test
+    void sevenDayWindowJustAfterMidnightStillSpansSevenDays() {
+        List<String> keys = MusicChartService.windowSourceKeys("total", ChartWindow.LAST_7_DAYS, MIDNIGHT);
+
+        // 最早一天的后23个小时 + 6个完整天 + 今天的第一个小时
+        List<String> expected = new ArrayList<>();
+        for (long hour = MIDNIGHT - 167; hour < MIDNIGHT - 144; hour++) {
+            expected.add(MusicChartService.hourBucketKey("total", hour));
+        }
+        for (long day = DAY - 6; day < DAY; day++) {
+            expected.add(MusicChartService.dayBucketKey("total", day));
+        }
+        expected.add(MusicChartService.hourBucketKey("total", MIDNIGHT));
+        assertEquals(expected, keys);
+    }
+
+    @Test
+    void todayIsNeverReadFromDayBucket() {
+        long lastHourOfDay = MIDNIGHT + 23;
+
+        List<String> keys = MusicChartService.windowSourceKeys("total", ChartWindow.LAST_24_HOURS, lastHourOfDay);
+
+        assertEquals(24, keys.size());
+        assertFalse(keys.contains(MusicChartService.dayBucketKey("total", DAY)));
+    }
+
+    @Test
+    void windowOnlyReadsBucketsThatAreStillRetained() {
+        long hourRetention = (long) ReflectionTestUtils.getField(MusicChartService.class, "HOUR_BUCKET_RETENTION_HOURS");
+        long dayRetention = (long) ReflectionTestUtils.getField(MusicChartService.class, "DAY_BUCKET_RETENTION_DAYS");
+        for (long currentHour = MIDNIGHT; currentHour < MIDNIGHT + 24; currentHour++) {
+            for (String key : MusicChartService.windowSourceKeys("total", ChartWindow.LAST_30_DAYS, currentHour)) {
+                long index = Long.parseLong(key.substring(key.lastIndexOf(':') + 1));
+                if (key.contains(":h:")) {
+                    // 小时桶在该小时结束后保留 hourRetention 小时
+                    assertTrue(index + 1 + hourRetention > currentHour, key);
+                } else {
+                    assertTrue(index + 1 + dayRetention > DAY, key);
+                }
+            }
+        }
+    }
+
+    @Test
+    void rebuildRollsUpMissingDaysAndStoresEveryChart() {
+        long today = TimeUnit.MILLISECONDS.toDays(System.currentTimeMillis());
+        existingKeys.add(MusicChartService.dayBucketKey("total", today - 2));
+
+        service.rebuildCharts();
+
+        // 总榜前天的天桶已存在，不再合并
+        assertFalse(unions.containsKey(MusicChartService.dayBucketKey("total", today - 2)));
+        List<String> yesterday = unions.get(MusicChartService.dayBucketKey("total", today - 1));
+        assertEquals(24, yesterday.size());
+        assertEquals(MusicChartService.hourBucketKey("total", (today - 1) * 24), yesterday.get(0));
+        assertTrue(unions.containsKey(MusicChartService.dayBucketKey("guest", today - 2)));
+
+        for (String segment : List.of("total", "guest", "user")) {
+            for (ChartWindow window : ChartWindow.values()) {
+                List<String> sources = unions.get("music:play:chart:" + segment + ":" + window.getCode());
+                assertNotNull(sources, segment + ":" + window.getCode());
+                assertEquals(window.getHours(), coveredHours(sources).size());
+            }
+        }
+    }
+
+    // 把小时桶/天桶键展开为覆盖的小时序号（按顺序）
+    private static List<Long> coveredHours(List<String> keys) {
+        List<Long> hours = new ArrayList<>();
+        for (String key : keys) {
+            long index = Long.parseLong(key.substring(key.lastIndexOf(':') + 1));
+            if (key.contains(":h:")) {
+                hours.add(index);
+            } else {
+                LongStream.range(index * 24, index * 24 + 24).forEach(hours::add);
+            }
+        }
+        hours.sort(null);
+        return hours;
+    }
+}
@@ -0,0 +1,153 @@
+package org.x.backend.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.x.backend.mapper.OmdMusicMapper;
+import org.x.backend.pojo.OmdMusicInfo;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MusicInfoCacheServiceTests {
+
+    // 内存中的二级缓存哈希，以及哈希设置过期时间的次数
+    private final Map<Object, Object> cacheHash = new HashMap<>();
+    private int expireCalls;
+
+    // 回源数据库时所在的线程
+    private final List<String> loadThreads = new ArrayList<>();
+
+    private MusicInfoCacheService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new MusicInfoCacheService();
+        ReflectionTestUtils.setField(service, "omdMusicMapper", Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{OmdMusicMapper.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("getMusicInfoListByIds")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    loadThreads.add(Thread.currentThread().getName());
+                    return ((Collection<?>) args[0]).stream().map(id -> music((Long) id)).toList();
+                }));
+        ReflectionTestUtils.setField(service, "stringRedisTemplate", new FakeRedis());
+        ReflectionTestUtils.setField(service, "redisMessageListenerContainer", new RedisMessageListenerContainer() {
+            @Override
+            public void addMessageListener(MessageListener listener, Topic topic) {
+            }
+        });
+        ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "maximumSize", 100L);
+        ReflectionTestUtils.setField(service, "expireMinutes", 30L);
+        ReflectionTestUtils.setField(service, "redisExpireHours", 6L);
+        ReflectionTestUtils.setField(service, "loadThreads", 2);
+        ReflectionTestUtils.setField(service, "loadQueueCapacity", 8);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.destroy();
+    }
+
+    @Test
+    void missesLoadOnDedicatedExecutor() {
+        assertEquals("歌曲1", service.get(1L).getOmdMusicInfoName());
+
+        assertEquals(1, loadThreads.size());
+        assertTrue(loadThreads.get(0).startsWith("music-info-load-"), loadThreads.get(0));
+    }
+
+    @Test
+    void backfillSetsExpireOnlyWhenHashIsCreated() {
+        service.getAll(List.of(1L, 2L));
+        service.getAll(List.of(3L));
+
+        assertEquals(3, cacheHash.size());
+        // 第二次回填不续期，哈希仍在新建时的过期周期内
+        assertEquals(1, expireCalls);
+    }
+
+    @Test
+    void redisHitDoesNotQueryDatabase() {
+        service.get(1L);
+        // 清空本地缓存后只剩 Redis 中的条目
+        service.onMessage(new DefaultMessage(new byte[0], "*".getBytes(StandardCharsets.UTF_8)), null);
+
+        assertEquals("歌曲1", service.get(1L).getOmdMusicInfoName());
+        assertEquals(1, loadThreads.size());
+    }
+
+    private static OmdMusicInfo music(long id) {
+        OmdMusicInfo musicInfo = new OmdMusicInfo();
+        musicInfo.setOmdMusicInfoId(id);
+        musicInfo.setOmdMusicInfoName("歌曲" + id);
+        musicInfo.setOmdMusicInfoStatus(1);
+        return musicInfo;
+    }
+
+    private class FakeRedis extends StringRedisTemplate {
+
+        private boolean hashHasTtl;
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <HK, HV> HashOperations<String, HK, HV> opsForHash() {
+            return (HashOperations<String, HK, HV>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{HashOperations.class}, (proxy, method, args) -> {
+                        if (!method.getName().equals("multiGet")) {
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                        return ((Collection<?>) args[1]).stream().map(cacheHash::get).toList();
+                    });
+        }
+
+        // 模拟 music_info_cache_fill.lua
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+            assertSame(ReflectionTestUtils.getField(MusicInfoCacheService.class, "FILL_SCRIPT"), script);
+            assertEquals(String.valueOf(TimeUnit.HOURS.toSeconds(6)), args[0]);
+            boolean created = !hashHasTtl;
+            for (int i = 1; i < args.length; i += 2) {
+                cacheHash.put(args[i], args[i + 1]);
+            }
+            if (created) {
+                hashHasTtl = true;
+                expireCalls++;
+            }
+            return (T) Long.valueOf(created ? 1 : 0);
+        }
+
+        @Override
+        public Boolean expire(String key, long timeout, TimeUnit unit) {
+            throw new AssertionError("回填不应单独设置过期时间");
+        }
+
+        @Override
+        public Boolean expire(String key, Duration timeout) {
+            throw new AssertionError("回填不应单独设置过期时间");
+        }
+    }
+}
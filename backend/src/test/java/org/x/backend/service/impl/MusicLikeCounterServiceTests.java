@@ -0,0 +1,255 @@
+package org.x.backend.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.x.backend.mapper.OmdMusicMapper;
+import org.x.backend.pojo.OmdMusicLikeCache;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MusicLikeCounterServiceTests {
+
+    // 内存中的 Redis 字符串值和哈希
+    private final Map<String, String> strings = new HashMap<>();
+    private final Map<String, Map<Object, Object>> hashes = new HashMap<>();
+
+    // 数据库中已提交的点赞数和刷盘批次，以及当前事务中未提交的副本
+    private Map<Long, Long> likeCounts = new HashMap<>();
+    private Set<String> batches = new HashSet<>();
+    private Map<Long, Long> txLikeCounts;
+    private Set<String> txBatches;
+    private int commits;
+    private int rollbacks;
+
+    // 第几次写入分片时抛出异常（0 表示不抛出），以及写入分片时执行的额外动作
+    private int failOnChunk;
+    private int chunks;
+    private Runnable onChunk = () -> { };
+
+    private MusicLikeCounterService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new MusicLikeCounterService();
+        ReflectionTestUtils.setField(service, "stringRedisTemplate", new FakeRedis());
+        ReflectionTestUtils.setField(service, "omdMusicMapper", fakeMapper());
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "transactionManager", new FakeTransactionManager());
+        ReflectionTestUtils.setField(service, "expireHours", 24L);
+        ReflectionTestUtils.setField(service, "flushBatchSize", 2);
+        ReflectionTestUtils.setField(service, "flushLockMs", 60000L);
+        service.init();
+        for (long id = 1; id <= 5; id++) {
+            likeCounts.put(id, 10L);
+        }
+    }
+
+    @Test
+    void flushWritesAllChunksInOneTransaction() {
+        service.adjust(List.of(1L, 2L, 3L, 4L, 5L), 1);
+        service.adjust(3L, 1);
+
+        service.flush();
+
+        assertEquals(Map.of(1L, 11L, 2L, 11L, 3L, 12L, 4L, 11L, 5L, 11L), likeCounts);
+        // 5首音乐按每批2首分3条语句，但只提交一次
+        assertEquals(3, chunks);
+        assertEquals(1, commits);
+        assertFalse(hashes.containsKey("music:like:delta:flushing"));
+        assertFalse(strings.containsKey("music:like:delta:flushing:batch"));
+        assertEquals("1", strings.get("music:like:flush:epoch"));
+        assertFalse(strings.containsKey("music:like:flush:lock"));
+    }
+
+    @Test
+    void failedChunkRollsBackWholeBatchAndRetriesIt() {
+        service.adjust(List.of(1L, 2L, 3L, 4L), 1);
+        failOnChunk = 2;
+
+        service.flush();
+
+        // 第一个分片已写入但随事务回滚，数据库不变，刷盘中的数据和批次号保留
+        assertEquals(10L, likeCounts.get(1L));
+        assertEquals(1, rollbacks);
+        assertTrue(batches.isEmpty());
+        assertTrue(hashes.containsKey("music:like:delta:flushing"));
+        String batchId = strings.get("music:like:delta:flushing:batch");
+        assertNotNull(batchId);
+
+        // 失败后新的点赞进入待刷盘哈希，重试时只处理遗留的批次
+        service.adjust(1L, 1);
+        failOnChunk = 0;
+        service.flush();
+        assertEquals(Map.of(1L, 11L, 2L, 11L, 3L, 11L, 4L, 11L, 5L, 10L), likeCounts);
+        assertEquals(Set.of(batchId), batches);
+
+        service.flush();
+        assertEquals(12L, likeCounts.get(1L));
+        assertEquals("2", strings.get("music:like:flush:epoch"));
+    }
+
+    @Test
+    void committedBatchIsNotAppliedAgainAfterLockLoss() {
+        service.adjust(List.of(1L, 2L), 1);
+        // 写库期间锁过期并被其它实例获得
+        onChunk = () -> strings.put("music:like:flush:lock", "other");
+
+        service.flush();
+
+        assertEquals(11L, likeCounts.get(1L));
+        // 不再持有锁时不收尾，也不删除其它实例的锁
+        assertTrue(hashes.containsKey("music:like:delta:flushing"));
+        assertNull(strings.get("music:like:flush:epoch"));
+        assertEquals("other", strings.get("music:like:flush:lock"));
+
+        // 其它实例的锁过期后重试：批次已记录，只收尾，不重复累加
+        strings.remove("music:like:flush:lock");
+        onChunk = () -> { };
+        service.flush();
+
+        assertEquals(11L, likeCounts.get(1L));
+        assertEquals(11L, likeCounts.get(2L));
+        assertFalse(hashes.containsKey("music:like:delta:flushing"));
+        assertEquals("1", strings.get("music:like:flush:epoch"));
+    }
+
+    @Test
+    void flushIsSkippedWhileAnotherInstanceHoldsTheLock() {
+        service.adjust(1L, 1);
+        strings.put("music:like:flush:lock", "other");
+
+        service.flush();
+
+        assertEquals(10L, likeCounts.get(1L));
+        assertEquals(0, commits);
+        assertEquals("other", strings.get("music:like:flush:lock"));
+        assertTrue(hashes.containsKey("music:like:delta"));
+    }
+
+    // 只实现刷盘用到的方法
+    private OmdMusicMapper fakeMapper() {
+        return (OmdMusicMapper) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{OmdMusicMapper.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "createFlushBatchTable" -> null;
+                    case "deleteFlushBatchBefore" -> 0;
+                    case "insertFlushBatch" -> txBatches.add((String) args[1]) ? 1 : 0;
+                    case "batchIncrementLikeCache" -> {
+                        chunks++;
+                        onChunk.run();
+                        if (chunks == failOnChunk) {
+                            throw new IllegalStateException("写库失败");
+                        }
+                        @SuppressWarnings("unchecked")
+                        List<OmdMusicLikeCache> deltas = (List<OmdMusicLikeCache>) args[0];
+                        for (OmdMusicLikeCache delta : deltas) {
+                            txLikeCounts.merge(delta.getOmdMusicInfoId(), delta.getOmdMusicLikeCacheCount(), Long::sum);
+                        }
+                        yield deltas.size();
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    // 事务开始时复制数据库状态，提交时替换，回滚时丢弃
+    private class FakeTransactionManager implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            txLikeCounts = new HashMap<>(likeCounts);
+            txBatches = new HashSet<>(batches);
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            likeCounts = txLikeCounts;
+            batches = txBatches;
+            commits++;
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            rollbacks++;
+        }
+    }
+
+    // 按脚本对象分派，用 Java 实现与 Lua 脚本相同的逻辑
+    private class FakeRedis extends StringRedisTemplate {
+
+        private Object script(String name) {
+            return ReflectionTestUtils.getField(MusicLikeCounterService.class, name);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+            if (script == script("INCR_SCRIPT")) {
+                hashes.computeIfAbsent(keys.get(0), k -> new HashMap<>())
+                        .merge(args[0], args[1], (a, b) -> String.valueOf(Long.parseLong(a.toString()) + Long.parseLong(b.toString())));
+                return (T) Long.valueOf(1);
+            }
+            if (script == script("FLUSH_BEGIN_SCRIPT")) {
+                if (hashes.containsKey(keys.get(1))) {
+                    return (T) strings.computeIfAbsent(keys.get(2), k -> args[0].toString());
+                }
+                if (!hashes.containsKey(keys.get(0))) {
+                    return null;
+                }
+                hashes.put(keys.get(1), hashes.remove(keys.get(0)));
+                strings.put(keys.get(2), args[0].toString());
+                return (T) args[0].toString();
+            }
+            if (script == script("FLUSH_DONE_SCRIPT")) {
+                if (!args[0].equals(strings.get(keys.get(3)))) {
+                    return null;
+                }
+                hashes.remove(keys.get(0));
+                strings.remove(keys.get(1));
+                long epoch = Long.parseLong(strings.getOrDefault(keys.get(2), "0")) + 1;
+                strings.put(keys.get(2), String.valueOf(epoch));
+                return (T) Long.valueOf(epoch);
+            }
+            if (script == script("LOCK_RELEASE_SCRIPT")) {
+                return (T) Long.valueOf(args[0].equals(strings.get(keys.get(0))) && strings.remove(keys.get(0)) != null ? 1 : 0);
+            }
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public ValueOperations<String, String> opsForValue() {
+            return (ValueOperations<String, String>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{ValueOperations.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "setIfAbsent" -> strings.putIfAbsent((String) args[0], (String) args[1]) == null;
+                        case "get" -> strings.get(args[0]);
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <HK, HV> HashOperations<String, HK, HV> opsForHash() {
+            return (HashOperations<String, HK, HV>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{HashOperations.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "entries" -> new HashMap<>(hashes.getOrDefault(args[0], Map.of()));
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package org.x.backend.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.x.backend.pojo.OmdMusicPlayStat;
+import org.x.backend.service.OmdPublicService;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MusicPlayStatWriterTests {
+
+    // 写入数据库的每一批播放流水
+    private final BlockingQueue<List<OmdMusicPlayStat>> batches = new LinkedBlockingQueue<>();
+    // 为 null 时写库立即返回；否则写库前等待放行
+    private CountDownLatch writeGate;
+    private volatile boolean failWrites;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private MusicPlayStatWriter writer;
+
+    @AfterEach
+    void tearDown() {
+        if (writeGate != null) {
+            writeGate.countDown();
+        }
+        writer.destroy();
+    }
+
+    @Test
+    void fullBatchIsWrittenWithoutWaitingForInterval() throws InterruptedException {
+        writer = newWriter(4, 3, 60_000);
+
+        for (long id = 1; id <= 3; id++) {
+            assertTrue(writer.submit(play(id)));
+        }
+
+        List<OmdMusicPlayStat> batch = batches.poll(5, TimeUnit.SECONDS);
+        assertNotNull(batch);
+        assertEquals(List.of(1L, 2L, 3L), batch.stream().map(OmdMusicPlayStat::getOmdMusicInfoId).toList());
+    }
+
+    @Test
+    void partialBatchIsWrittenAfterInterval() throws InterruptedException {
+        writer = newWriter(100, 500, 50);
+
+        writer.submit(play(1));
+        writer.submit(play(2));
+
+        List<OmdMusicPlayStat> batch = batches.poll(5, TimeUnit.SECONDS);
+        assertNotNull(batch);
+        assertEquals(2, batch.size());
+    }
+
+    @Test
+    void playTimeIsCapturedAtSubmit() throws InterruptedException {
+        writer = newWriter(100, 500, 50);
+        Date before = new Date();
+
+        writer.submit(play(1));
+
+        OmdMusicPlayStat written = batches.poll(5, TimeUnit.SECONDS).get(0);
+        assertFalse(written.getOmdMusicPlayStatPlayTime().before(before));
+        assertFalse(written.getOmdMusicPlayStatPlayTime().after(new Date()));
+    }
+
+    @Test
+    void playIsDroppedAndCountedWhenQueueIsFull() throws InterruptedException {
+        writeGate = new CountDownLatch(1);
+        writer = newWriter(2, 1, 60_000);
+
+        // 第一条被写线程取走后阻塞在写库，后两条占满队列
+        assertTrue(writer.submit(play(1)));
+        waitUntilQueueEmpty();
+        assertTrue(writer.submit(play(2)));
+        assertTrue(writer.submit(play(3)));
+
+        assertFalse(writer.submit(play(4)));
+        assertEquals(1, meterRegistry.counter("omd.play.stat.dropped").count());
+
+        writeGate.countDown();
+        List<Long> written = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            written.addAll(batches.poll(5, TimeUnit.SECONDS).stream().map(OmdMusicPlayStat::getOmdMusicInfoId).toList());
+        }
+        assertEquals(List.of(1L, 2L, 3L), written);
+    }
+
+    @Test
+    void failedBatchIsCountedAndWriterKeepsRunning() throws InterruptedException {
+        failWrites = true;
+        writer = newWriter(100, 2, 60_000);
+
+        writer.submit(play(1));
+        writer.submit(play(2));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.counter("omd.play.stat.failed").count() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        failWrites = false;
+        writer.submit(play(3));
+        writer.submit(play(4));
+
+        assertEquals(2, batches.poll(5, TimeUnit.SECONDS).size());
+        assertEquals(2, meterRegistry.counter("omd.play.stat.failed").count());
+    }
+
+    @Test
+    void shutdownDrainsQueueAndRejectsNewPlays() {
+        writer = newWriter(100, 500, 60_000);
+        for (long id = 1; id <= 5; id++) {
+            writer.submit(play(id));
+        }
+
+        writer.destroy();
+
+        assertEquals(5, batches.stream().mapToInt(List::size).sum());
+        assertFalse(writer.submit(play(6)));
+    }
+
+    private void waitUntilQueueEmpty() throws InterruptedException {
+        BlockingQueue<?> queue = (BlockingQueue<?>) ReflectionTestUtils.getField(writer, "queue");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!queue.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    private MusicPlayStatWriter newWriter(int queueCapacity, int batchSize, long flushIntervalMs) {
+        MusicPlayStatWriter playStatWriter = new MusicPlayStatWriter();
+        ReflectionTestUtils.setField(playStatWriter, "omdPublicService", Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{OmdPublicService.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("batchAddMusicPlayStat")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    if (writeGate != null) {
+                        writeGate.await();
+                    }
+                    if (failWrites) {
+                        throw new IllegalStateException("写库失败");
+                    }
+                    @SuppressWarnings("unchecked")
+                    List<OmdMusicPlayStat> batch = new ArrayList<>((List<OmdMusicPlayStat>) args[0]);
+                    batches.add(batch);
+                    return null;
+                }));
+        ReflectionTestUtils.setField(playStatWriter, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(playStatWriter, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(playStatWriter, "batchSize", batchSize);
+        ReflectionTestUtils.setField(playStatWriter, "flushIntervalMs", flushIntervalMs);
+        ReflectionTestUtils.setField(playStatWriter, "offerTimeoutMs", 0L);
+        ReflectionTestUtils.setField(playStatWriter, "shutdownTimeoutMs", 5_000L);
+        playStatWriter.init();
+        return playStatWriter;
+    }
+
+    private static OmdMusicPlayStat play(long omdMusicInfoId) {
+        OmdMusicPlayStat playStat = new OmdMusicPlayStat();
+        playStat.setOmdMusicInfoId(omdMusicInfoId);
+        playStat.setOmdUserId(1L);
+        return playStat;
+    }
+}
@@ -0,0 +1,114 @@
+package org.x.backend.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.x.backend.mapper.OmdMusicMapper;
+import org.x.backend.pojo.OmdMusicInfo;
+import org.x.backend.pojo.OmdSinger;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MusicSearchIndexServiceTests {
+
+    private final AtomicInteger fullLoads = new AtomicInteger();
+    private final CountDownLatch loadStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseLoad = new CountDownLatch(1);
+    private volatile List<OmdMusicInfo> activeMusic = List.of(music(1, "晴天", "周杰伦"));
+
+    @Test
+    void rebuildMessagesDoNotBlockListenerAndAreMerged() throws Exception {
+        MusicSearchIndexService service = newService();
+
+        // 第一次重建在读取数据库时阻塞
+        service.onMessage(message("*"), null);
+        assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+
+        // 重建进行中，监听线程收到的多次重建请求立即返回并合并为一次
+        activeMusic = List.of(music(1, "晴天", "周杰伦"), music(2, "稻香", "周杰伦"));
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            service.onMessage(message("*"), null);
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+
+        releaseLoad.countDown();
+        waitFor(() -> fullLoads.get() == 2 && service.isReady()
+                && service.search("稻", null, null, null, 1, 10).getTotal() == 1);
+        Thread.sleep(100);
+        assertEquals(2, fullLoads.get());
+        service.shutdown();
+    }
+
+    @Test
+    void searchMatchesSubstringsAndRanksExactNameFirst() {
+        releaseLoad.countDown();
+        activeMusic = List.of(music(1, "晴天", "周杰伦"), music(2, "晴天娃娃", "周杰伦"), music(3, "雨后晴天", "林俊杰"));
+        MusicSearchIndexService service = newService();
+        service.rebuild();
+
+        List<OmdMusicInfo> items = service.search("晴天", null, null, null, 1, 10).getItems();
+        assertEquals(List.of(1L, 2L, 3L), items.stream().map(OmdMusicInfo::getOmdMusicInfoId).toList());
+        assertEquals(1, service.search("晴", "林俊", null, null, 1, 10).getTotal());
+        assertEquals(0, service.search("天晴", null, null, null, 1, 10).getTotal());
+        service.shutdown();
+    }
+
+    private MusicSearchIndexService newService() {
+        MusicSearchIndexService service = new MusicSearchIndexService();
+        ReflectionTestUtils.setField(service, "omdMusicMapper", Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{OmdMusicMapper.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("getActiveMusicInfoList")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    fullLoads.incrementAndGet();
+                    loadStarted.countDown();
+                    releaseLoad.await();
+                    return activeMusic;
+                }));
+        ReflectionTestUtils.setField(service, "redisMessageListenerContainer", new RedisMessageListenerContainer() {
+            @Override
+            public void addMessageListener(MessageListener listener, Topic topic) {
+            }
+        });
+        service.init();
+        return service;
+    }
+
+    private static OmdMusicInfo music(long id, String name, String singerName) {
+        OmdSinger singer = new OmdSinger();
+        singer.setOmdSingerName(singerName);
+        OmdMusicInfo musicInfo = new OmdMusicInfo();
+        musicInfo.setOmdMusicInfoId(id);
+        musicInfo.setOmdMusicInfoName(name);
+        musicInfo.setOmdSinger(singer);
+        musicInfo.setOmdMusicInfoStatus(1);
+        // 创建时间与ID同序，同等匹配时ID大的排在前面
+        musicInfo.setOmdMusicInfoCreateTime(new Date(1000L * (10 - id)));
+        return musicInfo;
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage(MusicSearchIndexService.INDEX_CHANGED_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待超时");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.x.backend.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.x.backend.mapper.OmdMusicMapper;
+import org.x.backend.mapper.OmdPublicMapper;
+import org.x.backend.pojo.OmdMusicInfo;
+import org.x.backend.pojo.OmdSinger;
+import org.x.backend.pojo.OmdSuggestVO;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MusicSuggestServiceTests {
+
+    private List<OmdMusicInfo> activeMusic = new ArrayList<>();
+    private List<OmdSinger> singers = new ArrayList<>();
+    private Map<Long, Double> playCounts = new HashMap<>();
+
+    @Test
+    void suggestsByPrefixAndPinyinInitialsOrderedByPlays() {
+        activeMusic.add(music(1, "七里香", 1, "七里香"));
+        activeMusic.add(music(2, "七月的风", 2, null));
+        activeMusic.add(music(3, "晴天", 1, "叶惠美"));
+        singers.add(singer(1, "周杰伦"));
+        singers.add(singer(2, "Qi Band"));
+        playCounts.put(1L, 50d);
+        playCounts.put(2L, 80d);
+        playCounts.put(3L, 10d);
+        MusicSuggestService service = newService();
+        service.rebuild();
+
+        assertEquals(List.of("七月的风", "七里香", "七里香"), texts(service.suggest("七", 10)));
+        // 拼音首字母：七里香 -> qlx，周杰伦 -> zjl
+        assertEquals(List.of("七里香", "七里香"), texts(service.suggest("qlx", 10)));
+        assertEquals(List.of("周杰伦"), texts(service.suggest(" ZJ ", 10)));
+        assertEquals(List.of("Qi Band"), texts(service.suggest("qi b", 10)));
+        assertEquals(1, service.suggest("七", 1).size());
+        assertTrue(service.suggest("", 10).isEmpty());
+    }
+
+    @Test
+    void reloadedSongKeepsItsPlayCount() {
+        activeMusic.add(music(1, "七里香", 1, null));
+        activeMusic.add(music(2, "七月的风", 1, null));
+        playCounts.put(1L, 50d);
+        playCounts.put(2L, 80d);
+        MusicSuggestService service = newService();
+        service.rebuild();
+
+        // 歌曲改名后收到变更广播，播放量沿用最近一次构建的值，排序不变
+        activeMusic.set(0, music(1, "七里香（重制版）", 1, null));
+        service.onMessage(new DefaultMessage(new byte[0], "1".getBytes(StandardCharsets.UTF_8)), null);
+
+        List<OmdSuggestVO> suggestions = service.suggest("七", 10);
+        assertEquals(List.of("七月的风", "七里香（重制版）"), texts(suggestions));
+        assertEquals(Double.valueOf(50), suggestions.get(1).getPlayCount());
+
+        // 下架后不再出现
+        activeMusic.get(0).setOmdMusicInfoStatus(2);
+        service.onMessage(new DefaultMessage(new byte[0], "1".getBytes(StandardCharsets.UTF_8)), null);
+        assertEquals(List.of("七月的风"), texts(service.suggest("七", 10)));
+    }
+
+    private MusicSuggestService newService() {
+        MusicSuggestService service = new MusicSuggestService();
+        ReflectionTestUtils.setField(service, "omdMusicMapper", Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{OmdMusicMapper.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getActiveMusicInfoList" -> activeMusic.stream()
+                            .filter(musicInfo -> musicInfo.getOmdMusicInfoStatus() == 1).toList();
+                    case "getMusicInfoByOmdMusicInfoId" -> activeMusic.stream()
+                            .filter(musicInfo -> musicInfo.getOmdMusicInfoId().equals(args[0])).findFirst().orElse(null);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                }));
+        ReflectionTestUtils.setField(service, "omdPublicMapper", Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{OmdPublicMapper.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("getAllSingerNames")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    return singers;
+                }));
+        ReflectionTestUtils.setField(service, "musicChartService", new MusicChartService() {
+            @Override
+            public Map<Long, Double> getPlayCounts(String segment, ChartWindow window) {
+                return playCounts;
+            }
+        });
+        ReflectionTestUtils.setField(service, "redisMessageListenerContainer", new RedisMessageListenerContainer() {
+            @Override
+            public void addMessageListener(MessageListener listener, Topic topic) {
+            }
+        });
+        service.init();
+        return service;
+    }
+
+    private static List<String> texts(List<OmdSuggestVO> suggestions) {
+        return suggestions.stream().map(OmdSuggestVO::getSuggestText).toList();
+    }
+
+    private static OmdMusicInfo music(long id, String name, long singerId, String album) {
+        OmdMusicInfo musicInfo = new OmdMusicInfo();
+        musicInfo.setOmdMusicInfoId(id);
+        musicInfo.setOmdMusicInfoName(name);
+        musicInfo.setOmdSingerId(singerId);
+        musicInfo.setOmdMusicInfoAlbum(album);
+        musicInfo.setOmdMusicInfoStatus(1);
+        return musicInfo;
+    }
+
+    private static OmdSinger singer(long id, String name) {
+        OmdSinger singer = new OmdSinger();
+        singer.setOmdSingerId(id);
+        singer.setOmdSingerName(name);
+        return singer;
+    }
+}
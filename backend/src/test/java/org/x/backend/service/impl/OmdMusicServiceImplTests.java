@@ -0,0 +1,103 @@
+package org.x.backend.service.impl;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.x.backend.mapper.OmdMusicMapper;
+import org.x.backend.pojo.OmdPlaylistMusic;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OmdMusicServiceImplTests {
+
+    // 游标已读出的行数，以及是否已关闭
+    private int fetched;
+    private boolean closed;
+
+    private final OmdMusicServiceImpl service = new OmdMusicServiceImpl();
+
+    @Test
+    void streamHandsEachRowToConsumerAsItIsFetched() {
+        ReflectionTestUtils.setField(service, "omdMusicMapper", fakeMapper(5));
+        List<Long> received = new ArrayList<>();
+
+        service.streamMusicListFromPlaylist(7L, playlistMusic -> {
+            // 回调时游标刚好读到这一行，不会预先读出整个歌单
+            assertEquals(received.size() + 1, fetched);
+            received.add(playlistMusic.getOmdPlaylistMusicId());
+        });
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), received);
+        assertTrue(closed);
+    }
+
+    @Test
+    void cursorIsClosedWhenConsumerFails() {
+        ReflectionTestUtils.setField(service, "omdMusicMapper", fakeMapper(5));
+
+        assertThrows(IllegalStateException.class, () -> service.streamMusicListFromPlaylist(7L, playlistMusic -> {
+            throw new IllegalStateException("客户端断开");
+        }));
+
+        assertEquals(1, fetched);
+        assertTrue(closed);
+    }
+
+    private OmdMusicMapper fakeMapper(int rows) {
+        Iterator<OmdPlaylistMusic> iterator = LongStream.rangeClosed(1, rows).mapToObj(id -> {
+            OmdPlaylistMusic playlistMusic = new OmdPlaylistMusic();
+            playlistMusic.setOmdPlaylistMusicId(id);
+            return playlistMusic;
+        }).iterator();
+        Cursor<OmdPlaylistMusic> cursor = new Cursor<>() {
+            @Override
+            public boolean isOpen() {
+                return !closed;
+            }
+
+            @Override
+            public boolean isConsumed() {
+                return !iterator.hasNext();
+            }
+
+            @Override
+            public int getCurrentIndex() {
+                return fetched - 1;
+            }
+
+            @Override
+            public void close() {
+                closed = true;
+            }
+
+            @Override
+            public Iterator<OmdPlaylistMusic> iterator() {
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public OmdPlaylistMusic next() {
+                        fetched++;
+                        return iterator.next();
+                    }
+                };
+            }
+        };
+        return (OmdMusicMapper) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{OmdMusicMapper.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("streamMusicListFromPlaylist")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    return cursor;
+                });
+    }
+}
@@ -0,0 +1,118 @@
+package org.x.backend.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.x.backend.mapper.OmdUserMapper;
+import org.x.backend.pojo.OmdUser;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OmdUserServiceImplTests {
+
+    // 抽样池中歌手对应的用户
+    private final Set<Long> singerUserIds = Set.of(101L);
+    // 已写入数据库的用户资料、触发的抽样池重新加载
+    private final List<Long> updatedUsers = new ArrayList<>();
+    private int singerChanges;
+    // 依次执行的闭包表语句；子树删除和补全依次返回的行数
+    private final List<String> closureCalls = new ArrayList<>();
+    private final Deque<Integer> deletedRows = new ArrayDeque<>();
+    private int backfilledRows;
+
+    private final OmdUserServiceImpl service = new OmdUserServiceImpl();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "omdUserMapper", Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{OmdUserMapper.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "updateUserInfo" -> {
+                        updatedUsers.add(((OmdUser) args[0]).getOmdUserId());
+                        yield null;
+                    }
+                    case "deleteCommentSubtree" -> {
+                        closureCalls.add("delete");
+                        yield deletedRows.pop();
+                    }
+                    case "backfillCommentClosure" -> {
+                        closureCalls.add("backfill");
+                        yield backfilledRows;
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                }));
+        ReflectionTestUtils.setField(service, "singerSampleService", new SingerSampleService() {
+            @Override
+            public boolean containsUser(Long omdUserId) {
+                return singerUserIds.contains(omdUserId);
+            }
+
+            @Override
+            public void onSingerChanged() {
+                singerChanges++;
+            }
+        });
+    }
+
+    @Test
+    void singerAvatarChangeReloadsSamplePool() {
+        service.updateUserInfo(user(101L, "https://cdn/avatar.png"));
+
+        assertEquals(List.of(101L), updatedUsers);
+        assertEquals(1, singerChanges);
+    }
+
+    @Test
+    void ordinaryUserAvatarChangeDoesNotReloadSamplePool() {
+        service.updateUserInfo(user(202L, "https://cdn/avatar.png"));
+
+        assertEquals(List.of(202L), updatedUsers);
+        assertEquals(0, singerChanges);
+    }
+
+    @Test
+    void singerProfileChangeWithoutAvatarDoesNotReloadSamplePool() {
+        service.updateUserInfo(user(101L, null));
+
+        assertEquals(0, singerChanges);
+    }
+
+    @Test
+    void deleteWithClosureRowsDoesNotBackfill() {
+        deletedRows.push(4);
+
+        assertTrue(service.deleteCommentSubtree(1L));
+        assertEquals(List.of("delete"), closureCalls);
+    }
+
+    @Test
+    void deleteOfCommentMissingClosureRowsBackfillsAndRetries() {
+        deletedRows.addAll(List.of(0, 2));
+        backfilledRows = 1;
+
+        assertTrue(service.deleteCommentSubtree(1L));
+        assertEquals(List.of("delete", "backfill", "delete"), closureCalls);
+    }
+
+    @Test
+    void deleteOfMissingCommentRetriesNothingWhenBackfillFindsNothing() {
+        deletedRows.push(0);
+
+        assertFalse(service.deleteCommentSubtree(1L));
+        assertEquals(List.of("delete", "backfill"), closureCalls);
+    }
+
+    private static OmdUser user(Long omdUserId, String avatar) {
+        OmdUser user = new OmdUser();
+        user.setOmdUserId(omdUserId);
+        user.setOmdUserNickname("昵称");
+        user.setOmdUserAvatar(avatar);
+        return user;
+    }
+}
@@ -0,0 +1,103 @@
+package org.x.backend.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.x.backend.mapper.OmdMusicMapper;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlaylistOrderServiceTests {
+
+    // 播放列表中的歌曲：{关联ID, 音乐ID, 顺序号}
+    private final List<long[]> rows = new ArrayList<>();
+    private final List<String> deletedKeys = new ArrayList<>();
+
+    private PlaylistOrderService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new PlaylistOrderService();
+        ReflectionTestUtils.setField(service, "omdMusicMapper", fakeMapper());
+        ReflectionTestUtils.setField(service, "stringRedisTemplate", new StringRedisTemplate() {
+            @Override
+            public Boolean delete(String key) {
+                deletedKeys.add(key);
+                return true;
+            }
+        });
+        ReflectionTestUtils.setField(service, "playlistCacheService", new PlaylistCacheService() {
+            @Override
+            public void bumpPlaylist(Long omdPlaylistId) {
+            }
+        });
+    }
+
+    @Test
+    void movesBetweenNeighboursByMidpoint() {
+        rows.add(new long[]{1, 100, 1024});
+        rows.add(new long[]{2, 200, 2048});
+        rows.add(new long[]{3, 300, 3072});
+
+        // 把音乐300移动到音乐100之后
+        assertEquals(1536, service.orderAfter(1L, 300L, 1024, 1L));
+    }
+
+    @Test
+    void tiedOrderAfterTargetRequiresRebalance() {
+        // 音乐100和200顺序号相同，按关联ID排序时200在100之后
+        rows.add(new long[]{1, 100, 1024});
+        rows.add(new long[]{2, 200, 1024});
+        rows.add(new long[]{3, 300, 2048});
+
+        // 移动到100之后时下一首是顺序号相同的200，无法取中间值
+        assertNull(service.orderAfter(1L, 300L, 1024, 1L));
+        // 移动到200之后时跳过正在移动的300，下一首是400
+        rows.add(new long[]{4, 400, 4096});
+        assertEquals(2560, service.orderAfter(1L, 300L, 1024, 2L));
+    }
+
+    @Test
+    void rebalanceClearsCounterAgainAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.rebalance(7L);
+            assertEquals(List.of("playlist:order:7"), deletedKeys);
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+            assertEquals(List.of("playlist:order:7", "playlist:order:7"), deletedKeys);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    // 按 (顺序号, 关联ID) 查找下一首，与 SQL 语义一致
+    private OmdMusicMapper fakeMapper() {
+        return (OmdMusicMapper) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{OmdMusicMapper.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getNextPlaylistMusicOrder" -> {
+                        int order = (Integer) args[1];
+                        long id = (Long) args[2];
+                        long exclude = (Long) args[3];
+                        yield rows.stream()
+                                .filter(row -> row[1] != exclude)
+                                .filter(row -> row[2] > order || (row[2] == order && row[0] > id))
+                                .min(Comparator.<long[]>comparingLong(row -> row[2]).thenComparingLong(row -> row[0]))
+                                .map(row -> (int) row[2])
+                                .orElse(null);
+                    }
+                    case "rebalancePlaylistMusicOrder" -> rows.size();
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
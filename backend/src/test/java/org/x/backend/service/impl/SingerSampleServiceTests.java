@@ -0,0 +1,187 @@
+package org.x.backend.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.x.backend.mapper.OmdPublicMapper;
+import org.x.backend.pojo.OmdSinger;
+import org.x.backend.pojo.OmdUser;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingerSampleServiceTests {
+
+    // 数据库中可展示的歌手，以及查库次数
+    private final List<OmdSinger> singers = new ArrayList<>();
+    private int loads;
+    // 发布到变更频道的消息数；为 true 时发布失败
+    private final List<String> published = new ArrayList<>();
+    private boolean publishFails;
+
+    private final SingerSampleService service = new SingerSampleService();
+
+    @BeforeEach
+    void setUp() {
+        for (long id = 1; id <= 10; id++) {
+            singers.add(singer(id, id <= 4 ? "流行" : id <= 6 ? " 摇滚 " : null));
+        }
+        ReflectionTestUtils.setField(service, "omdPublicMapper", Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{OmdPublicMapper.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("getSingerSampleList")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    loads++;
+                    return new ArrayList<>(singers);
+                }));
+        ReflectionTestUtils.setField(service, "stringRedisTemplate", new StringRedisTemplate() {
+            @Override
+            public Long convertAndSend(String channel, Object message) {
+                if (publishFails) {
+                    throw new IllegalStateException("Redis 不可用");
+                }
+                published.add(channel);
+                return 1L;
+            }
+        });
+        ReflectionTestUtils.setField(service, "redisMessageListenerContainer", new RedisMessageListenerContainer() {
+            @Override
+            public void addMessageListener(MessageListener listener, Topic topic) {
+            }
+        });
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void sampleReturnsDistinctSingersCappedAtPoolSize() {
+        service.refresh();
+
+        for (int i = 0; i < 200; i++) {
+            List<OmdSinger> sample = service.sample(3, null);
+            assertEquals(3, sample.size());
+            assertEquals(3, ids(sample).size());
+        }
+        assertEquals(ids(singers), ids(service.sample(100, null)));
+        assertTrue(service.sample(0, null).isEmpty());
+        assertTrue(service.sample(-1, null).isEmpty());
+    }
+
+    @Test
+    void genreSampleOnlyReturnsThatGenre() {
+        service.refresh();
+
+        assertEquals(Set.of(1L, 2L, 3L, 4L), ids(service.sample(10, "流行")));
+        // 流派两端的空白在加载和查询时都会去掉
+        assertEquals(Set.of(5L, 6L), ids(service.sample(10, "摇滚 ")));
+        assertTrue(service.sample(10, "爵士").isEmpty());
+        assertEquals(10, service.sample(10, " ").size());
+    }
+
+    @Test
+    void everySingerIsPickedAndSharedPoolIsNotReordered() {
+        service.refresh();
+        OmdSinger[] before = poolArray().clone();
+
+        Map<Long, Integer> hits = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            service.sample(2, null).forEach(singer -> hits.merge(singer.getOmdSingerId(), 1, Integer::sum));
+        }
+
+        // 每位歌手的期望次数为 2000，允许较大的随机波动
+        assertEquals(10, hits.size());
+        hits.values().forEach(count -> assertTrue(count > 1_600 && count < 2_400, hits.toString()));
+        assertArrayEquals(before, poolArray());
+    }
+
+    @Test
+    void firstSampleLoadsPoolOnce() {
+        assertEquals(0, loads);
+
+        service.sample(3, null);
+        service.sample(3, "流行");
+
+        assertEquals(1, loads);
+    }
+
+    @Test
+    void containsUserOnlyMatchesSingersInPool() {
+        // 尚未加载时无法判断，按歌手处理
+        assertTrue(service.containsUser(999L));
+
+        service.refresh();
+
+        assertTrue(service.containsUser(101L));
+        assertFalse(service.containsUser(999L));
+        assertFalse(service.containsUser(null));
+    }
+
+    @Test
+    void changeIsBroadcastAfterCommitAndMessageReloadsPool() {
+        service.refresh();
+        TransactionSynchronizationManager.initSynchronization();
+
+        service.onSingerChanged();
+        assertTrue(published.isEmpty());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertEquals(List.of(SingerSampleService.SINGER_CHANGED_CHANNEL), published);
+
+        singers.add(singer(11, "流行"));
+        service.onMessage(null, null);
+        assertEquals(2, loads);
+        assertTrue(service.containsUser(111L));
+    }
+
+    @Test
+    void failedBroadcastRefreshesLocally() {
+        service.refresh();
+        publishFails = true;
+
+        service.onSingerChanged();
+
+        assertEquals(2, loads);
+    }
+
+    private OmdSinger[] poolArray() {
+        Object pool = ReflectionTestUtils.getField(service, "pool");
+        return (OmdSinger[]) ReflectionTestUtils.invokeMethod(pool, "all");
+    }
+
+    private static Set<Long> ids(List<OmdSinger> list) {
+        return list.stream().map(OmdSinger::getOmdSingerId).collect(Collectors.toCollection(HashSet::new));
+    }
+
+    // 歌手ID为 id，对应的用户ID为 100 + id
+    private static OmdSinger singer(long id, String genre) {
+        OmdUser user = new OmdUser();
+        user.setOmdUserId(100 + id);
+        OmdSinger singer = new OmdSinger();
+        singer.setOmdSingerId(id);
+        singer.setOmdSingerName("歌手" + id);
+        singer.setOmdSingerGenre(genre);
+        singer.setOmdUser(user);
+        return singer;
+    }
+}
@@ -0,0 +1,137 @@
+package org.x.backend.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.x.backend.utils.RedisUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenCacheServiceTests {
+
+    // 内存中的 Redis 字符串值，并记录读取次数
+    private final Map<String, Object> redisValues = new HashMap<>();
+    private int redisReads;
+    private final List<String> published = new ArrayList<>();
+
+    private TokenCacheService tokenCacheService;
+
+    @BeforeEach
+    void setUp() {
+        RedisUtil redisUtil = new RedisUtil(null, null) {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T get(String key) {
+                redisReads++;
+                return (T) redisValues.get(key);
+            }
+
+            @Override
+            public <T> boolean set(String key, T value, long time, TimeUnit unit) {
+                redisValues.put(key, value);
+                return true;
+            }
+
+            @Override
+            public boolean delete(String... key) {
+                return redisValues.remove(key[0]) != null;
+            }
+        };
+        StringRedisTemplate stringRedisTemplate = new StringRedisTemplate() {
+            @Override
+            public Long convertAndSend(String channel, Object message) {
+                published.add(String.valueOf(message));
+                return 1L;
+            }
+        };
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer() {
+            @Override
+            public void addMessageListener(MessageListener listener, Topic topic) {
+            }
+        };
+
+        tokenCacheService = new TokenCacheService();
+        ReflectionTestUtils.setField(tokenCacheService, "redisUtil", redisUtil);
+        ReflectionTestUtils.setField(tokenCacheService, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(tokenCacheService, "redisMessageListenerContainer", container);
+        ReflectionTestUtils.setField(tokenCacheService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(tokenCacheService, "maximumSize", 100L);
+        ReflectionTestUtils.setField(tokenCacheService, "expireMinutes", 5L);
+        tokenCacheService.init();
+    }
+
+    @Test
+    void activeTokenIsServedFromLocalCacheAfterFirstCheck() {
+        tokenCacheService.saveToken(1L, "token-a", 1, TimeUnit.HOURS);
+        redisReads = 0;
+
+        assertTrue(tokenCacheService.isTokenActive(1L, "token-a"));
+        assertTrue(tokenCacheService.isTokenActive(1L, "token-a"));
+
+        assertEquals(1, redisReads);
+    }
+
+    @Test
+    void revokedTokenIsRejectedImmediately() {
+        tokenCacheService.saveToken(1L, "token-a", 1, TimeUnit.HOURS);
+        assertTrue(tokenCacheService.isTokenActive(1L, "token-a"));
+
+        tokenCacheService.revokeToken(1L);
+
+        assertFalse(tokenCacheService.isTokenActive(1L, "token-a"));
+        assertEquals(List.of("1", "1"), published);
+    }
+
+    @Test
+    void staleTokenIsRejectedAfterRelogin() {
+        tokenCacheService.saveToken(1L, "token-a", 1, TimeUnit.HOURS);
+        assertTrue(tokenCacheService.isTokenActive(1L, "token-a"));
+
+        tokenCacheService.saveToken(1L, "token-b", 1, TimeUnit.HOURS);
+
+        assertFalse(tokenCacheService.isTokenActive(1L, "token-a"));
+        assertTrue(tokenCacheService.isTokenActive(1L, "token-b"));
+    }
+
+    @Test
+    void invalidationMessageFromAnotherInstanceDropsLocalEntry() {
+        tokenCacheService.saveToken(1L, "token-a", 1, TimeUnit.HOURS);
+        assertTrue(tokenCacheService.isTokenActive(1L, "token-a"));
+
+        // 其他实例删除了 Token 并广播失效
+        redisValues.clear();
+        tokenCacheService.onMessage(message("1"), null);
+
+        assertFalse(tokenCacheService.isTokenActive(1L, "token-a"));
+    }
+
+    @Test
+    void malformedInvalidationMessageIsIgnored() {
+        tokenCacheService.saveToken(1L, "token-a", 1, TimeUnit.HOURS);
+        assertTrue(tokenCacheService.isTokenActive(1L, "token-a"));
+        redisReads = 0;
+
+        tokenCacheService.onMessage(message("not-a-user-id"), null);
+
+        assertTrue(tokenCacheService.isTokenActive(1L, "token-a"));
+        assertEquals(0, redisReads);
+    }
+
+    private DefaultMessage message(String body) {
+        return new DefaultMessage(TokenCacheService.TOKEN_INVALIDATE_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}
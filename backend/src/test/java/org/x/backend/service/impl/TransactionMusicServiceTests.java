@@ -0,0 +1,258 @@
+package org.x.backend.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.x.backend.pojo.OmdPlaylist;
+import org.x.backend.service.OmdMusicService;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionMusicServiceTests {
+
+    // 当前用户已点赞的音乐（模拟点赞表），保存点为其副本
+    private Set<Long> likedIds;
+    private Set<Long> savepointIds;
+    private final List<String> savepointCalls = new ArrayList<>();
+
+    // 并发测试用的点赞表、点赞歌单和歌单中的歌曲（唯一键模拟 INSERT IGNORE / NOT EXISTS）
+    private final Set<String> likeRows = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Long> likedPlaylists = new ConcurrentHashMap<>();
+    private final Set<String> playlistRows = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger playlistCreates = new AtomicInteger();
+    private final Set<Integer> issuedOrders = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger orderSequence = new AtomicInteger();
+    // 音乐ID -> 提交到计数服务的点赞数
+    private final Map<Long, Long> likeCounts = new ConcurrentHashMap<>();
+
+    private final TransactionMusicService service = new TransactionMusicService();
+
+    // 回滚到保存点时恢复点赞表
+    private final SimpleTransactionStatus status = new SimpleTransactionStatus() {
+        @Override
+        public Object createSavepoint() {
+            savepointIds = new HashSet<>(likedIds);
+            savepointCalls.add("create");
+            return "savepoint";
+        }
+
+        @Override
+        public void rollbackToSavepoint(Object savepoint) {
+            likedIds = new HashSet<>(savepointIds);
+            savepointCalls.add("rollback");
+        }
+
+        @Override
+        public void releaseSavepoint(Object savepoint) {
+            savepointCalls.add("release");
+        }
+    };
+
+    @BeforeEach
+    void setUp() {
+        likedIds = new HashSet<>();
+
+        OmdMusicService omdMusicService = fakeMusicService();
+        LikedPlaylistService likedPlaylistService = new LikedPlaylistService();
+        ReflectionTestUtils.setField(likedPlaylistService, "omdMusicService", omdMusicService);
+        ReflectionTestUtils.setField(likedPlaylistService, "transactionManager", new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+            }
+        });
+        ReflectionTestUtils.setField(likedPlaylistService, "maximumSize", 10_000L);
+        ReflectionTestUtils.setField(likedPlaylistService, "expireMinutes", 60L);
+        likedPlaylistService.init();
+
+        ReflectionTestUtils.setField(service, "omdMusicService", omdMusicService);
+        ReflectionTestUtils.setField(service, "likedPlaylistService", likedPlaylistService);
+        ReflectionTestUtils.setField(service, "playlistOrderService", new PlaylistOrderService() {
+            @Override
+            public int nextOrder(Long omdPlaylistId) {
+                int order = orderSequence.addAndGet(GAP);
+                issuedOrders.add(order);
+                return order;
+            }
+        });
+        ReflectionTestUtils.setField(service, "musicLikeCounterService", new MusicLikeCounterService() {
+            @Override
+            public void adjust(Collection<Long> omdMusicInfoIdList, long delta) {
+                omdMusicInfoIdList.forEach(id -> likeCounts.merge(id, delta, Long::sum));
+            }
+        });
+        ReflectionTestUtils.setField(service, "userMusicLikeCacheService", new UserMusicLikeCacheService() {
+            @Override
+            public void onLikeChanged(Long omdUserId, Collection<Long> omdMusicInfoIdList, boolean liked) {
+            }
+        });
+    }
+
+    @Test
+    void allRowsChangedReturnsEveryId() {
+        List<Long> changed = service.applyBatch(status, List.of(1L, 2L, 3L), this::insertIgnore, id -> likedIds.add(id));
+
+        assertEquals(List.of(1L, 2L, 3L), changed);
+        assertEquals(Set.of(1L, 2L, 3L), likedIds);
+        assertEquals(List.of("create", "release"), savepointCalls);
+    }
+
+    @Test
+    void concurrentLikeIsNotCountedTwice() {
+        // 缓存判断之后，并发请求已点赞了音乐2
+        likedIds.add(2L);
+
+        List<Long> changed = service.applyBatch(status, List.of(1L, 2L, 3L), this::insertIgnore, id -> likedIds.add(id));
+
+        assertEquals(List.of(1L, 3L), changed);
+        assertEquals(Set.of(1L, 2L, 3L), likedIds);
+        assertEquals(List.of("create", "rollback"), savepointCalls);
+    }
+
+    @Test
+    void concurrentUnlikeIsNotCountedTwice() {
+        // 缓存判断时三首都已点赞，之后并发请求取消了音乐1
+        likedIds.addAll(List.of(2L, 3L));
+
+        List<Long> changed = service.applyBatch(status, List.of(1L, 2L, 3L), this::delete, id -> likedIds.remove(id));
+
+        assertEquals(List.of(2L, 3L), changed);
+        assertTrue(likedIds.isEmpty());
+    }
+
+    @Test
+    void nothingChangedReturnsEmptyList() {
+        likedIds.addAll(List.of(1L, 2L));
+
+        assertTrue(service.applyBatch(status, List.of(1L, 2L), this::insertIgnore, id -> likedIds.add(id)).isEmpty());
+    }
+
+    @Test
+    void thousandParallelLikesFromDistinctUsersAreAllCounted() throws Exception {
+        int liked = runConcurrently(1_000, i -> service.insertLikeMusicInfo(1L, (long) i));
+
+        assertEquals(1_000, liked);
+        assertEquals(1_000L, likeCounts.get(1L));
+        assertEquals(1_000, likeRows.size());
+        assertEquals(1_000, playlistRows.size());
+        assertEquals(1_000, playlistCreates.get());
+        // 每次追加领取的顺序号互不相同
+        assertEquals(1_000, issuedOrders.size());
+    }
+
+    @Test
+    void thousandParallelLikesFromRepeatingUsersCountEachUserOnce() throws Exception {
+        // 200 个用户各并发点赞同一首歌 5 次
+        int liked = runConcurrently(1_000, i -> service.insertLikeMusicInfo(1L, (long) (i % 200)));
+
+        assertEquals(200, liked);
+        assertEquals(200L, likeCounts.get(1L));
+        assertEquals(200, likeRows.size());
+        assertEquals(200, playlistRows.size());
+        // 同一用户的点赞歌单只创建一次
+        assertEquals(200, playlistCreates.get());
+    }
+
+    @Test
+    void parallelLikesAndUnlikesKeepCountEqualToLikeRows() throws Exception {
+        // 500 个用户先各点赞一次，再并发地重复点赞和取消点赞
+        runConcurrently(500, i -> service.insertLikeMusicInfo(1L, (long) i));
+        runConcurrently(1_000, i -> i % 2 == 0
+                ? service.deleteLikeMusicInfo(1L, (long) (i / 2 % 500))
+                : service.insertLikeMusicInfo(1L, (long) (i / 2 % 500)));
+
+        assertEquals(likeRows.size(), likeCounts.get(1L));
+    }
+
+    // 所有任务就绪后同时放行，返回结果为 true 的任务数
+    private int runConcurrently(int tasks, IntPredicate task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < tasks; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.test(index);
+                }));
+            }
+            start.countDown();
+            int changed = 0;
+            for (Future<Boolean> future : futures) {
+                if (future.get(30, TimeUnit.SECONDS)) {
+                    changed++;
+                }
+            }
+            return changed;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private OmdMusicService fakeMusicService() {
+        return (OmdMusicService) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{OmdMusicService.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "checkIfLikePlaylist" -> {
+                        Long omdPlaylistId = likedPlaylists.get((Long) args[0]);
+                        if (omdPlaylistId == null) {
+                            yield null;
+                        }
+                        OmdPlaylist omdPlaylist = new OmdPlaylist();
+                        omdPlaylist.setOmdPlaylistId(omdPlaylistId);
+                        yield omdPlaylist;
+                    }
+                    case "insertLikePlaylist" -> {
+                        OmdPlaylist omdPlaylist = (OmdPlaylist) args[0];
+                        omdPlaylist.setOmdPlaylistId(10_000 + omdPlaylist.getOmdUserId());
+                        likedPlaylists.put(omdPlaylist.getOmdUserId(), omdPlaylist.getOmdPlaylistId());
+                        playlistCreates.incrementAndGet();
+                        yield true;
+                    }
+                    case "insertIgnoreMusicLike" -> likeRows.add(args[0] + ":" + args[1]);
+                    case "deleteMusicLike" -> likeRows.remove(args[0] + ":" + args[1]);
+                    case "insertMusicToLikedPlaylist" -> likedPlaylists.containsValue((Long) args[0])
+                            && playlistRows.add(args[0] + ":" + args[2]);
+                    case "deleteLikePlaylistMusic" -> playlistRows.remove(args[0] + ":" + args[1]);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    // INSERT IGNORE：返回实际插入的行数
+    private int insertIgnore(List<Long> ids) {
+        return (int) ids.stream().filter(likedIds::add).count();
+    }
+
+    // DELETE：返回实际删除的行数
+    private int delete(List<Long> ids) {
+        return (int) ids.stream().filter(likedIds::remove).count();
+    }
+}
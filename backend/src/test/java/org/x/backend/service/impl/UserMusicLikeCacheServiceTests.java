@@ -0,0 +1,229 @@
+package org.x.backend.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.x.backend.mapper.OmdMusicMapper;
+import org.x.backend.pojo.OmdMusicLike;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserMusicLikeCacheServiceTests {
+
+    // 内存中的 Redis 字符串和集合
+    private final Map<String, String> strings = new HashMap<>();
+    private final Map<String, Set<String>> sets = new HashMap<>();
+
+    // 数据库中用户7点赞过的音乐，以及查库次数
+    private final Set<Long> dbLikes = new HashSet<>(Set.of(1L, 3L));
+    private int loadQueries;
+    private int fallbackQueries;
+    // 从数据库读取点赞列表时执行的额外动作
+    private Runnable onLoad = () -> { };
+
+    private UserMusicLikeCacheService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new UserMusicLikeCacheService();
+        ReflectionTestUtils.setField(service, "stringRedisTemplate", new FakeRedis());
+        ReflectionTestUtils.setField(service, "omdMusicMapper", fakeMapper());
+        ReflectionTestUtils.setField(service, "expireHours", 24L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void firstLookupLoadsSetOnceThenServesFromRedis() {
+        assertEquals(Map.of(1L, true, 2L, false, 3L, true), service.getLikedFlags(7L, List.of(1L, 2L, 3L)));
+        assertTrue(service.isLiked(7L, 3L));
+        assertFalse(service.isLiked(7L, 4L));
+
+        assertEquals(1, loadQueries);
+        assertEquals(0, fallbackQueries);
+    }
+
+    @Test
+    void userWithoutLikesIsCachedToo() {
+        dbLikes.clear();
+
+        assertFalse(service.isLiked(7L, 1L));
+        assertFalse(service.isLiked(7L, 2L));
+
+        assertEquals(1, loadQueries);
+        assertEquals(Set.of("0"), sets.get("music:like:user:7"));
+    }
+
+    @Test
+    void likeChangesUpdateCachedSet() {
+        service.isLiked(7L, 1L);
+
+        service.onLikeChanged(7L, List.of(2L, 4L), true);
+        service.onLikeChanged(7L, List.of(1L), false);
+
+        assertEquals(Map.of(1L, false, 2L, true, 3L, true, 4L, true), service.getLikedFlags(7L, List.of(1L, 2L, 3L, 4L)));
+        assertEquals(1, loadQueries);
+    }
+
+    @Test
+    void likeChangeInTransactionIsAppliedAfterCommit() {
+        service.isLiked(7L, 1L);
+        TransactionSynchronizationManager.initSynchronization();
+
+        service.onLikeChanged(7L, List.of(2L), true);
+        assertFalse(sets.get("music:like:user:7").contains("2"));
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertTrue(sets.get("music:like:user:7").contains("2"));
+    }
+
+    @Test
+    void likeChangeOnUncachedUserOnlyBumpsVersion() {
+        service.onLikeChanged(7L, List.of(2L), true);
+
+        assertFalse(sets.containsKey("music:like:user:7"));
+        assertEquals("1", strings.get("music:like:user:ver:7"));
+    }
+
+    @Test
+    void loadRacingWithLikeChangeIsDiscardedAndAnsweredFromDatabase() {
+        // 读取数据库期间，另一个请求点赞了音乐2并已提交
+        onLoad = () -> {
+            dbLikes.add(2L);
+            service.onLikeChanged(7L, List.of(2L), true);
+            onLoad = () -> { };
+        };
+
+        assertEquals(Map.of(1L, true, 2L, true), service.getLikedFlags(7L, List.of(1L, 2L)));
+        assertFalse(sets.containsKey("music:like:user:7"));
+        assertEquals(1, fallbackQueries);
+
+        // 下次查询重新加载到包含音乐2的集合
+        assertTrue(service.isLiked(7L, 2L));
+        assertEquals(2, loadQueries);
+    }
+
+    @Test
+    void emptyInputDoesNotTouchRedisOrDatabase() {
+        assertTrue(service.getLikedFlags(7L, List.of()).isEmpty());
+        assertTrue(service.getLikedFlags(null, List.of(1L)).isEmpty());
+
+        assertEquals(0, loadQueries);
+        assertTrue(sets.isEmpty());
+    }
+
+    private OmdMusicMapper fakeMapper() {
+        return (OmdMusicMapper) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{OmdMusicMapper.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getLikedMusicIdsByUserId" -> {
+                        loadQueries++;
+                        List<Long> liked = dbLikes.stream().sorted().toList();
+                        onLoad.run();
+                        yield liked;
+                    }
+                    case "selectByUserIdAndMusicIds" -> {
+                        fallbackQueries++;
+                        yield ((List<?>) args[1]).stream().filter(dbLikes::contains).map(id -> {
+                            OmdMusicLike like = new OmdMusicLike();
+                            like.setOmdUserId((Long) args[0]);
+                            like.setOmdMusicInfoId((Long) id);
+                            return like;
+                        }).toList();
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    // 模拟 user_like_set_fill.lua / user_like_set_update.lua 及用到的 Redis 命令
+    private class FakeRedis extends StringRedisTemplate {
+
+        private Object script(String name) {
+            return ReflectionTestUtils.getField(UserMusicLikeCacheService.class, name);
+        }
+
+        @Override
+        public Boolean hasKey(String key) {
+            return sets.containsKey(key) || strings.containsKey(key);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public ValueOperations<String, String> opsForValue() {
+            return (ValueOperations<String, String>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{ValueOperations.class}, (proxy, method, args) -> {
+                        if (!method.getName().equals("get")) {
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                        return strings.get(args[0].toString());
+                    });
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public SetOperations<String, String> opsForSet() {
+            return (SetOperations<String, String>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{SetOperations.class}, (proxy, method, args) -> {
+                        if (!method.getName().equals("isMember") || !(args[1] instanceof Object[] members)) {
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                        Set<String> set = sets.getOrDefault(args[0].toString(), Set.of());
+                        Map<Object, Boolean> result = new LinkedHashMap<>();
+                        for (Object member : members) {
+                            result.put(member, set.contains(member.toString()));
+                        }
+                        return result;
+                    });
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+            if (script == script("FILL_SCRIPT")) {
+                if (sets.containsKey(keys.get(0))) {
+                    return (T) Long.valueOf(1);
+                }
+                if (!strings.getOrDefault(keys.get(1), "0").equals(args[0])) {
+                    return (T) Long.valueOf(0);
+                }
+                Set<String> filled = new HashSet<>();
+                Arrays.stream(args, 2, args.length).forEach(member -> filled.add(member.toString()));
+                sets.put(keys.get(0), filled);
+                return (T) Long.valueOf(1);
+            }
+            assertSame(script("UPDATE_SCRIPT"), script);
+            strings.merge(keys.get(1), "1", (a, b) -> String.valueOf(Long.parseLong(a) + 1));
+            Set<String> set = sets.get(keys.get(0));
+            if (set != null) {
+                for (int i = 2; i < args.length; i++) {
+                    if ("add".equals(args[0])) {
+                        set.add(args[i].toString());
+                    } else {
+                        set.remove(args[i].toString());
+                    }
+                }
+            }
+            return (T) Long.valueOf(1);
+        }
+    }
+}
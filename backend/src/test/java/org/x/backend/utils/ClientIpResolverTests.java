@@ -0,0 +1,57 @@
+package org.x.backend.utils;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ClientIpResolverTests {
+
+    @Test
+    void ignoresForwardedForFromUntrustedPeer() {
+        ClientIpResolver resolver = newResolver("10.0.0.0/8");
+
+        assertEquals("203.0.113.7", resolver.resolve("203.0.113.7", "1.2.3.4"));
+    }
+
+    @Test
+    void takesRightMostUntrustedHopBehindTrustedProxy() {
+        ClientIpResolver resolver = newResolver("10.0.0.0/8");
+
+        // 客户端伪造了 1.2.3.4，代理追加了真实地址 198.51.100.9
+        assertEquals("198.51.100.9", resolver.resolve("10.0.0.2", "1.2.3.4, 198.51.100.9"));
+        // 多级可信代理
+        assertEquals("198.51.100.9", resolver.resolve("10.0.0.2", "1.2.3.4, 198.51.100.9, 10.1.2.3"));
+    }
+
+    @Test
+    void usesRemoteAddressWhenNoProxyIsConfigured() {
+        ClientIpResolver resolver = newResolver("");
+
+        assertEquals("10.0.0.2", resolver.resolve("10.0.0.2", "1.2.3.4"));
+    }
+
+    @Test
+    void usesRemoteAddressWithoutForwardedFor() {
+        ClientIpResolver resolver = newResolver("127.0.0.1");
+
+        assertEquals("127.0.0.1", resolver.resolve("127.0.0.1", null));
+        assertEquals("127.0.0.1", resolver.resolve("127.0.0.1", " "));
+    }
+
+    @Test
+    void hostNamesInForwardedForAreNeverTrusted() {
+        ClientIpResolver resolver = newResolver("127.0.0.1");
+
+        assertEquals("localhost", resolver.resolve("127.0.0.1", "1.2.3.4, localhost"));
+    }
+
+    private ClientIpResolver newResolver(String trustedProxies) {
+        ClientIpResolver resolver = new ClientIpResolver();
+        ReflectionTestUtils.setField(resolver, "trustedProxies", List.of(trustedProxies.split(",")));
+        resolver.init();
+        return resolver;
+    }
+}
@@ -0,0 +1,96 @@
+package org.x.backend.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HelperUtilTests {
+
+    private HelperUtil helperUtil;
+
+    @BeforeEach
+    void setUp() {
+        helperUtil = new HelperUtil();
+        ReflectionTestUtils.setField(helperUtil, "objectMapper", new ObjectMapper());
+    }
+
+    @Test
+    void cursorRoundTripKeepsValueTypes() {
+        KeysetSort sort = KeysetSort.desc("mc.create_time").thenAsc("local_time").thenAsc("sort_order")
+                .thenAsc("title").thenDesc("mc.row_id");
+        Date createTime = new Date(1700000000123L);
+        LocalDateTime localTime = LocalDateTime.of(2024, 5, 6, 7, 8, 9, 123456789);
+        Map<String, Object> lastRow = Map.of("createTime", createTime, "localTime", localTime,
+                "sortOrder", -1024, "title", "s:冒号:与_下划线", "rowId", 9007199254740993L);
+
+        String cursor = encode(lastRow, sort);
+
+        assertEquals(List.of(createTime, localTime, -1024, "s:冒号:与_下划线", 9007199254740993L), decode(cursor, sort));
+    }
+
+    @Test
+    void cursorIsUrlSafe() {
+        KeysetSort sort = KeysetSort.asc("title").thenAsc("row_id");
+
+        String cursor = encode(Map.of("title", "??>>~~??", "rowId", 1L), sort);
+
+        assertTrue(cursor.matches("[A-Za-z0-9_-]+"), cursor);
+    }
+
+    @Test
+    void emptyCursorMeansFirstPage() {
+        KeysetSort sort = KeysetSort.asc("row_id");
+
+        assertNull(decode(null, sort));
+        assertNull(decode(" ", sort));
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        KeysetSort sort = KeysetSort.asc("title").thenAsc("row_id");
+        String oneColumn = encode(Map.of("rowId", 1L), KeysetSort.asc("row_id"));
+        String unknownType = Base64.getUrlEncoder().encodeToString("[\"x:1\",\"l:2\"]".getBytes());
+
+        for (String cursor : List.of("not base64!", oneColumn, unknownType,
+                Base64.getUrlEncoder().encodeToString("{}".getBytes()))) {
+            RuntimeException e = assertThrows(RuntimeException.class, () -> decode(cursor, sort));
+            assertEquals("无效的分页游标", e.getMessage());
+        }
+    }
+
+    @Test
+    void unsupportedSortValueIsRejected() {
+        KeysetSort sort = KeysetSort.asc("score");
+
+        assertThrows(RuntimeException.class, () -> encode(Map.of("score", 1.5d), sort));
+    }
+
+    @Test
+    void sortColumnMapsToCamelCaseProperty() {
+        List<KeysetSort.Column> columns = KeysetSort.desc("mc.omd_music_comment_create_time")
+                .thenAsc("OMD_MUSIC_COMMENT_ID").thenAsc("_row_id").getColumns();
+
+        assertEquals("omdMusicCommentCreateTime", columns.get(0).property());
+        assertFalse(columns.get(0).ascending());
+        assertEquals("omdMusicCommentId", columns.get(1).property());
+        assertEquals("rowId", columns.get(2).property());
+    }
+
+    private String encode(Object lastRow, KeysetSort sort) {
+        return (String) ReflectionTestUtils.invokeMethod(helperUtil, "encodeKeysetCursor", lastRow, sort);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> decode(String cursor, KeysetSort sort) {
+        return (List<Object>) ReflectionTestUtils.invokeMethod(helperUtil, "decodeKeysetCursor", cursor, sort);
+    }
+}
@@ -0,0 +1,72 @@
+package org.x.backend.utils;
+
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Base64;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtUtilTests {
+
+    private static final String SECRET = Base64.getEncoder()
+            .encodeToString("0123456789abcdef0123456789abcdef".getBytes());
+
+    private JwtUtil jwtUtil;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = newJwtUtil(SECRET);
+    }
+
+    @Test
+    void parseTokenReturnsClaimsOfValidToken() {
+        String token = jwtUtil.generateToken(Map.of("omdUserId", 42L));
+
+        Claims claims = jwtUtil.parseToken(token);
+
+        assertNotNull(claims);
+        assertEquals(42L, jwtUtil.getUserIdFromClaims(claims));
+    }
+
+    @Test
+    void parseTokenRejectsTamperedSignature() {
+        String token = jwtUtil.generateToken(Map.of("omdUserId", 42L));
+        char last = token.charAt(token.length() - 1);
+        String tampered = token.substring(0, token.length() - 1) + (last == 'A' ? 'B' : 'A');
+
+        assertNull(jwtUtil.parseToken(tampered));
+    }
+
+    @Test
+    void parseTokenRejectsTokenSignedWithAnotherKey() {
+        JwtUtil other = newJwtUtil(Base64.getEncoder().encodeToString("fedcba9876543210fedcba9876543210".getBytes()));
+        String token = other.generateToken(Map.of("omdUserId", 42L));
+
+        assertNull(jwtUtil.parseToken(token));
+    }
+
+    @Test
+    void parseTokenRejectsMalformedToken() {
+        assertNull(jwtUtil.parseToken("not-a-jwt"));
+        assertNull(jwtUtil.parseToken(""));
+    }
+
+    @Test
+    void getUserIdFromClaimsRequiresUserIdClaim() {
+        Claims claims = jwtUtil.parseToken(jwtUtil.generateToken(Map.of("omdUserName", "test")));
+
+        assertThrows(IllegalArgumentException.class, () -> jwtUtil.getUserIdFromClaims(claims));
+    }
+
+    private JwtUtil newJwtUtil(String secret) {
+        JwtUtil util = new JwtUtil();
+        ReflectionTestUtils.setField(util, "secret", secret);
+        ReflectionTestUtils.setField(util, "expiration", 3600);
+        util.init();
+        return util;
+    }
+}
@@ -0,0 +1,54 @@
+package org.x.backend.utils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoginRateLimiterTests {
+
+    private LoginRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        limiter = new LoginRateLimiter();
+        ReflectionTestUtils.setField(limiter, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(limiter, "capacity", 2L);
+        // 测试期间不补充令牌
+        ReflectionTestUtils.setField(limiter, "refillPerMinute", 0L);
+        limiter.init();
+    }
+
+    @Test
+    void rejectsAfterCapacityIsUsed() {
+        assertTrue(limiter.tryAcquire("login:id:alice"));
+        assertTrue(limiter.tryAcquire("login:id:alice"));
+        assertFalse(limiter.tryAcquire("login:id:alice"));
+    }
+
+    @Test
+    void rejectionByOneKeyRefundsTheOthers() {
+        // 耗尽 IP 桶
+        assertTrue(limiter.tryAcquire("login:ip:1.2.3.4"));
+        assertTrue(limiter.tryAcquire("login:ip:1.2.3.4"));
+
+        // IP 被限流时，不应消耗用户名桶的令牌
+        assertFalse(limiter.tryAcquireAll("login:id:alice", "login:ip:1.2.3.4"));
+        assertFalse(limiter.tryAcquireAll("login:id:alice", "login:ip:1.2.3.4"));
+
+        assertTrue(limiter.tryAcquire("login:id:alice"));
+        assertTrue(limiter.tryAcquire("login:id:alice"));
+    }
+
+    @Test
+    void keysOfDifferentActionsAreIndependent() {
+        assertTrue(limiter.tryAcquire("register:ip:1.2.3.4"));
+        assertTrue(limiter.tryAcquire("register:ip:1.2.3.4"));
+        assertFalse(limiter.tryAcquire("register:ip:1.2.3.4"));
+
+        assertTrue(limiter.tryAcquireAll("login:id:alice", "login:ip:1.2.3.4"));
+    }
+}
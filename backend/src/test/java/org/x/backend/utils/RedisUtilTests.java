@@ -0,0 +1,67 @@
+package org.x.backend.utils;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedisUtilTests {
+
+    @Test
+    void recordMusicPlaySendsAllKeysAndSerializedMemberInOneScriptCall() {
+        RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
+        Jackson2JsonRedisSerializer<Object> valueSerializer = new Jackson2JsonRedisSerializer<>(Object.class);
+        redisTemplate.setValueSerializer(valueSerializer);
+        RecordingTemplate stringRedisTemplate = new RecordingTemplate(1L);
+        RedisUtil redisUtil = new RedisUtil(redisTemplate, stringRedisTemplate);
+
+        boolean counted = redisUtil.recordMusicPlay("dedup", "total", "segment", "bucket:total", "bucket:segment",
+                42L, 30, 3600, 1_700_000_000L);
+
+        assertTrue(counted);
+        assertEquals(1, stringRedisTemplate.calls);
+        assertEquals(List.of("dedup", "total", "segment", "bucket:total", "bucket:segment"), stringRedisTemplate.keys);
+        // 排行榜成员与 RedisTemplate 的值序列化格式一致，按 RedisTemplate 读取排行时才能识别
+        String expectedMember = new String(valueSerializer.serialize("42"), StandardCharsets.UTF_8);
+        assertEquals(List.of("30", "3600", expectedMember, "1700000000"), stringRedisTemplate.args);
+    }
+
+    @Test
+    void recordMusicPlayReturnsFalseForDuplicatePlay() {
+        RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
+        redisTemplate.setValueSerializer(new Jackson2JsonRedisSerializer<>(Object.class));
+        RedisUtil redisUtil = new RedisUtil(redisTemplate, new RecordingTemplate(0L));
+
+        assertFalse(redisUtil.recordMusicPlay("dedup", "total", "segment", "bucket:total", "bucket:segment",
+                42L, 30, 3600, 1_700_000_000L));
+    }
+
+    // 记录脚本调用参数，返回固定结果
+    private static class RecordingTemplate extends StringRedisTemplate {
+
+        private final Long result;
+        private int calls;
+        private List<String> keys;
+        private final List<Object> args = new ArrayList<>();
+
+        RecordingTemplate(Long result) {
+            this.result = result;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+            calls++;
+            this.keys = keys;
+            this.args.addAll(List.of(args));
+            return (T) result;
+        }
+    }
+}
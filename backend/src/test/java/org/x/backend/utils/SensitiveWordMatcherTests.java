@@ -0,0 +1,122 @@
+package org.x.backend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SensitiveWordMatcherTests {
+
+    @Test
+    void matchesSameAsNaiveSearchOnRandomInput() {
+        // 小字母表（含大小写、全角、中文和代理对）让词之间大量重叠
+        String[] alphabet = {"a", "b", "A", "B", "ａ", "Ｂ", " ", "　", "中", "文", "𠀀", "𠀁"};
+        Random random = new Random(42);
+        for (int round = 0; round < 3000; round++) {
+            List<String> words = new ArrayList<>();
+            for (int i = random.nextInt(12); i > 0; i--) {
+                words.add(randomText(random, alphabet, 1 + random.nextInt(4)));
+            }
+            String text = randomText(random, alphabet, random.nextInt(40));
+            SensitiveWordMatcher matcher = SensitiveWordMatcher.build(words);
+
+            String expected = naiveMask(words, text, '*');
+            String input = "words=" + words + " text=" + text;
+            assertEquals(expected, matcher.mask(text, '*'), input);
+            assertEquals(!expected.equals(text), matcher.contains(text), input);
+        }
+    }
+
+    @Test
+    void normalizesFullWidthAndCase() {
+        SensitiveWordMatcher matcher = SensitiveWordMatcher.build(List.of("Bad Word", "ｘｙｚ"));
+
+        assertTrue(matcher.contains("this is ＢＡＤ　ｗｏｒｄ!"));
+        assertTrue(matcher.contains("XYZ"));
+        // 掩码按原文位置替换，不改变其它字符
+        assertEquals("a ******** b", matcher.mask("a ｂａｄ　ＷＯＲＤ b", '*'));
+        assertFalse(matcher.contains("badword"));
+        // 去重按归一化后的结果
+        assertEquals(1, SensitiveWordMatcher.build(List.of("abc", "ABC", "ａｂｃ", " abc ")).size());
+    }
+
+    @Test
+    void masksOverlappingAndNestedWords() {
+        SensitiveWordMatcher matcher = SensitiveWordMatcher.build(List.of("he", "she", "his", "hers"));
+        assertEquals("u*****", matcher.mask("ushers", '*'));
+        assertEquals("**s", matcher.mask("hes", '*'));
+
+        SensitiveWordMatcher nested = SensitiveWordMatcher.build(List.of("中国", "中国人", "国人"));
+        assertEquals("我是***。", nested.mask("我是中国人。", '*'));
+        assertEquals("**，**", nested.mask("国人，中国", '*'));
+
+        SensitiveWordMatcher chained = SensitiveWordMatcher.build(List.of("abc", "bcd", "cdef"));
+        assertEquals("x******x", chained.mask("xabcdefx", '*'));
+    }
+
+    @Test
+    void surrogatePairsMatchAsTwoChars() {
+        // U+20000 与 U+20001 的高代理相同、低代理不同
+        SensitiveWordMatcher matcher = SensitiveWordMatcher.build(List.of("𠀀"));
+
+        assertEquals("a**b", matcher.mask("a𠀀b", '*'));
+        assertFalse(matcher.contains("a𠀁b"));
+        assertFalse(matcher.contains("\uD840"));
+    }
+
+    @Test
+    void emptyWordListMatchesNothing() {
+        String text = "任何内容";
+        SensitiveWordMatcher blank = SensitiveWordMatcher.build(Arrays.asList("", "   ", null));
+
+        assertEquals(0, blank.size());
+        assertFalse(blank.contains(text));
+        assertSame(text, blank.mask(text, '*'));
+        assertFalse(SensitiveWordMatcher.EMPTY.contains(text));
+        assertSame(text, SensitiveWordMatcher.EMPTY.mask(text, '*'));
+        assertNull(SensitiveWordMatcher.EMPTY.mask(null, '*'));
+        assertFalse(SensitiveWordMatcher.EMPTY.contains(null));
+    }
+
+    private static String randomText(Random random, String[] alphabet, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append(alphabet[random.nextInt(alphabet.length)]);
+        }
+        return text.toString();
+    }
+
+    // 朴素实现：对每个词在归一化后的文本中查找所有（可重叠的）出现位置，逐一掩码
+    private static String naiveMask(List<String> words, String text, char maskChar) {
+        String normalized = normalize(text);
+        char[] chars = text.toCharArray();
+        for (String word : words) {
+            if (word == null || word.isBlank()) {
+                continue;
+            }
+            String target = normalize(word.trim());
+            for (int from = normalized.indexOf(target); from >= 0; from = normalized.indexOf(target, from + 1)) {
+                Arrays.fill(chars, from, from + target.length(), maskChar);
+            }
+        }
+        return new String(chars);
+    }
+
+    private static String normalize(String text) {
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            char c = chars[i];
+            if (c >= '！' && c <= '～') {
+                c = (char) (c - 0xFEE0);
+            } else if (c == '　') {
+                c = ' ';
+            }
+            chars[i] = Character.toLowerCase(c);
+        }
+        return new String(chars);
+    }
+}